@@ -18,6 +18,7 @@
 #include <core/Algorithm.hpp>
 
 #include <QDebug>
+#include <QJsonObject>
 #include <QApplication>
 #include <QWindow>
 
@@ -359,6 +360,23 @@ void MenuCallback::setCommandChecked(QString commandId, bool checked)
    });
 }
 
+void MenuCallback::setCommandStates(QJsonArray states)
+{
+   // used to apply a batch of command state changes (e.g. on switching
+   // tabs) in a single call
+   for (const QJsonValue& value : states)
+   {
+      QJsonObject state = value.toObject();
+      bool enabled = state.value(QStringLiteral("enabled")).toBool();
+      bool visible = state.value(QStringLiteral("visible")).toBool();
+      setCommandProperty(actions_, state.value(QStringLiteral("id")).toString(),
+                         [=](QPointer<QAction> pAction) {
+         pAction->setEnabled(enabled);
+         pAction->setVisible(visible);
+      });
+   }
+}
+
 void MenuCallback::setMainMenuEnabled(bool enabled)
 {
    if (pMainMenu_)
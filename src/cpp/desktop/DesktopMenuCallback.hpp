@@ -18,6 +18,7 @@
 
 #include <QObject>
 #include <QHash>
+#include <QJsonArray>
 #include <QList>
 #include <QMenu>
 #include <QMenuBar>
@@ -54,6 +55,7 @@ public Q_SLOTS:
     void setCommandVisible(QString commandId, bool visible);
     void setCommandLabel(QString commandId, QString label);
     void setCommandChecked(QString commandId, bool checked);
+    void setCommandStates(QJsonArray states);
     void setMainMenuEnabled(bool enabled);
 
     // other slots
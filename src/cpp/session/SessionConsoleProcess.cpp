@@ -38,6 +38,12 @@ ConsoleProcessSocket s_terminalSocket;
 // Posix-only, use is gated via getTrackEnv() always being false on Win32.
 const std::string kEnvCommand = "/usr/bin/env";
 
+// Most websocket output held while the client has asked us to pause; beyond
+// this the oldest held output is dropped (it remains in the saved buffer), and
+// the client is told so when it resumes.
+const std::size_t kMaxPausedOutput = 8 * 1024 * 1024;
+const std::string kPausedOutputTrimmed = "\r\n[... output truncated ...]\r\n";
+
 } // anonymous namespace
 
 // create process options for a terminal
@@ -555,7 +561,28 @@ void ConsoleProcess::enqueOutputEvent(const std::string &output)
 
    if (procInfo_->getChannelMode() == Websocket)
    {
-      s_terminalSocket.sendText(procInfo_->getHandle(), output);
+      LOCK_MUTEX(outputFlowMutex_)
+      {
+         if (outputPaused_)
+         {
+            pausedOutput_.append(output);
+            if (pausedOutput_.size() > kMaxPausedOutput)
+            {
+               // keep the most recent half, starting on a line boundary; trimming
+               // by half means we don't copy the held output on every read
+               std::size_t start = pausedOutput_.find(
+                     '\n', pausedOutput_.size() - kMaxPausedOutput / 2);
+               if (start == std::string::npos)
+                  pausedOutput_.clear();
+               else
+                  pausedOutput_.erase(0, start + 1);
+               pausedOutputTrimmed_ = true;
+            }
+            return;
+         }
+         s_terminalSocket.sendText(procInfo_->getHandle(), output);
+      }
+      END_LOCK_MUTEX
       return;
    }
 
@@ -914,6 +941,7 @@ ConsoleProcessSocketConnectionCallbacks ConsoleProcess::createConsoleProcessSock
    cb.onReceivedInput = boost::bind(&ConsoleProcess::onReceivedInput, ConsoleProcess::shared_from_this(), _1);
    cb.onConnectionOpened = boost::bind(&ConsoleProcess::onConnectionOpened, ConsoleProcess::shared_from_this());
    cb.onConnectionClosed = boost::bind(&ConsoleProcess::onConnectionClosed, ConsoleProcess::shared_from_this());
+   cb.onFlowControl = boost::bind(&ConsoleProcess::onFlowControl, ConsoleProcess::shared_from_this(), _1);
    return cb;
 }
 
@@ -934,9 +962,40 @@ void ConsoleProcess::onReceivedInput(const std::string& input)
    END_LOCK_MUTEX
 }
 
+// client asked to pause output while it catches up, or to resume it; called
+// on different thread
+void ConsoleProcess::onFlowControl(bool pause)
+{
+   LOCK_MUTEX(outputFlowMutex_)
+   {
+      outputPaused_ = pause;
+      if (!pause && pausedOutputTrimmed_)
+      {
+         pausedOutput_.insert(0, kPausedOutputTrimmed);
+         pausedOutputTrimmed_ = false;
+      }
+      if (!pause && !pausedOutput_.empty())
+      {
+         s_terminalSocket.sendText(procInfo_->getHandle(), pausedOutput_);
+         pausedOutput_.clear();
+      }
+   }
+   END_LOCK_MUTEX
+}
+
 // websocket connection closed; called on different thread
 void ConsoleProcess::onConnectionClosed()
 {
+   // held output is already in the saved buffer, which a reconnecting client
+   // reloads
+   LOCK_MUTEX(outputFlowMutex_)
+   {
+      outputPaused_ = false;
+      pausedOutputTrimmed_ = false;
+      pausedOutput_.clear();
+   }
+   END_LOCK_MUTEX
+
    s_terminalSocket.stopListening(handle());
 }
 
@@ -329,6 +329,11 @@ void ConsoleProcessSocket::onMessage(terminalServer* s,
    {
       sendPong(handle);
    }
+   else if (ConsoleProcessSocketPacket::isFlowControl(payload))
+   {
+      if (details.connectionCallbacks_.onFlowControl)
+         details.connectionCallbacks_.onFlowControl(ConsoleProcessSocketPacket::isPauseOutput(payload));
+   }
    else if (details.connectionCallbacks_.onReceivedInput)
    {
       details.connectionCallbacks_.onReceivedInput(ConsoleProcessSocketPacket::getMessage(payload));
@@ -21,6 +21,7 @@ namespace console_process {
 
 const std::string ConsoleProcessSocketPacket::kKeepAlivePrefix = "b";
 const std::string ConsoleProcessSocketPacket::kTextPrefix = "a";
+const std::string ConsoleProcessSocketPacket::kFlowControlPrefix = "c";
 
 /* static */
 std::string ConsoleProcessSocketPacket::textPacket(const std::string& text)
@@ -53,6 +54,24 @@ std::string ConsoleProcessSocketPacket::getMessage(const std::string& text)
    }
 }
 
+/* static */
+std::string ConsoleProcessSocketPacket::flowControlPacket(bool pause)
+{
+   return kFlowControlPrefix + (pause ? "p" : "r");
+}
+
+/* static */
+bool ConsoleProcessSocketPacket::isFlowControl(const std::string& text)
+{
+   return !text.compare(0, kFlowControlPrefix.length(), kFlowControlPrefix);
+}
+
+/* static */
+bool ConsoleProcessSocketPacket::isPauseOutput(const std::string& text)
+{
+   return text == flowControlPacket(true);
+}
+
 } // namespace console_process
 } // namespace session
 } // namespace rstudio
@@ -348,6 +348,22 @@ test_context("websocket for interactive terminals")
    using boost::make_shared;
    using boost::shared_ptr;
 
+   test_that("flow control packets are distinct from text and keep-alive packets")
+   {
+      std::string pause = ConsoleProcessSocketPacket::flowControlPacket(true);
+      std::string resume = ConsoleProcessSocketPacket::flowControlPacket(false);
+      expect_true(ConsoleProcessSocketPacket::isFlowControl(pause));
+      expect_true(ConsoleProcessSocketPacket::isFlowControl(resume));
+      expect_true(ConsoleProcessSocketPacket::isPauseOutput(pause));
+      expect_false(ConsoleProcessSocketPacket::isPauseOutput(resume));
+
+      expect_false(ConsoleProcessSocketPacket::isFlowControl(
+                      ConsoleProcessSocketPacket::textPacket("cp")));
+      expect_false(ConsoleProcessSocketPacket::isFlowControl(
+                      ConsoleProcessSocketPacket::keepAlivePacket()));
+      expect_false(ConsoleProcessSocketPacket::isKeepAlive(pause));
+   }
+
    test_that("port for new socket object is zero")
    {
       shared_ptr<SocketHarness> pSocket = make_shared<SocketHarness>();
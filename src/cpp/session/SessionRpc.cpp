@@ -14,6 +14,7 @@
  */
 
 #include <string>
+#include <vector>
 
 #include "SessionRpc.hpp"
 #include "SessionHttpMethods.hpp"
@@ -103,6 +104,214 @@ void endHandleRpcRequestIndirect(
    module_context::enqueClientEvent(evt);
 }
 
+// state for a batch of rpc requests submitted in a single connection
+struct RpcBatch
+{
+   boost::shared_ptr<HttpConnection> ptrConnection;
+   boost::posix_time::ptime executeStartTime;
+   std::vector<std::string> ids;
+   std::vector<json::JsonRpcResponse> responses;
+   std::vector<boost::function<void()> > deferred;
+   std::size_t pending;
+};
+
+void endHandleRpcBatch(boost::shared_ptr<RpcBatch> pBatch)
+{
+   // detect changes once for the entire batch
+   bool detectChanges = false;
+   bool hasAfterResponse = false;
+   for (json::JsonRpcResponse& response : pBatch->responses)
+   {
+      if (!response.suppressDetectChanges())
+         detectChanges = true;
+      if (response.hasAfterResponse())
+         hasAfterResponse = true;
+   }
+
+   if (detectChanges)
+      module_context::events().onDetectChanges(module_context::ChangeSourceRPC);
+
+   // are there (or will there likely be) events pending?
+   bool eventsPending =
+         clientEventQueue().eventAddedSince(pBatch->executeStartTime) ||
+         hasAfterResponse ||
+         !pBatch->deferred.empty();
+
+   // collect the individual responses (keyed by the client-assigned id)
+   json::Array results;
+   for (std::size_t i = 0; i < pBatch->responses.size(); i++)
+   {
+      json::JsonRpcResponse& response = pBatch->responses[i];
+      if (!eventsPending)
+         response.setField(kEventsPending, "false");
+
+      json::Object result;
+      result["id"] = pBatch->ids[i];
+      result["response"] = response.getRawResponse();
+      results.push_back(result);
+   }
+
+   json::JsonRpcResponse batchResponse;
+   batchResponse.setResult(results);
+   if (!eventsPending)
+      batchResponse.setField(kEventsPending, "false");
+   pBatch->ptrConnection->sendJsonRpcResponse(batchResponse);
+
+   // run after responses (then detect changes again)
+   if (hasAfterResponse)
+   {
+      for (json::JsonRpcResponse& response : pBatch->responses)
+      {
+         if (response.hasAfterResponse())
+            response.runAfterResponse();
+      }
+
+      if (detectChanges)
+      {
+         module_context::events().onDetectChanges(
+               module_context::ChangeSourceRPC);
+      }
+   }
+
+   // invoke indirect (asyncHandle style) methods now that the client has
+   // been sent their handles
+   for (const boost::function<void()>& deferred : pBatch->deferred)
+      deferred();
+}
+
+void endHandleBatchedRpcRequest(boost::shared_ptr<RpcBatch> pBatch,
+                                std::size_t index,
+                                const core::Error& executeError,
+                                json::JsonRpcResponse* pJsonRpcResponse)
+{
+   if (executeError)
+      pBatch->responses[index].setError(executeError);
+   else if (pJsonRpcResponse)
+      pBatch->responses[index] = *pJsonRpcResponse;
+
+   if (--pBatch->pending == 0)
+      endHandleRpcBatch(pBatch);
+}
+
+Error readBatchedRpcRequest(const json::Value& value,
+                            const json::JsonRpcRequest& batchRequest,
+                            std::string* pId,
+                            json::JsonRpcRequest* pRequest)
+{
+   if (!value.isObject())
+      return Error(json::errc::InvalidRequest, ERROR_LOCATION);
+
+   const json::Object& requestObject = value.getObject();
+   Error error = json::readObject(requestObject,
+                                  "id", pId,
+                                  "method", &pRequest->method);
+   if (error)
+      return error;
+
+   json::Object::Iterator it = requestObject.find("params");
+   if (it != requestObject.end() && (*it).getValue().isArray())
+      pRequest->params = (*it).getValue().getValue<json::Array>();
+
+   it = requestObject.find("kwparams");
+   if (it != requestObject.end() && (*it).getValue().isObject())
+      pRequest->kwparams = (*it).getValue().getValue<json::Object>();
+
+   it = requestObject.find("sourceWnd");
+   if (it != requestObject.end() && (*it).getValue().isString())
+      pRequest->sourceWindow = (*it).getValue().getString();
+
+   // connection level fields are shared by all requests in the batch
+   pRequest->clientId = batchRequest.clientId;
+   pRequest->version = batchRequest.version;
+   pRequest->clientVersion = batchRequest.clientVersion;
+   pRequest->isBackgroundConnection = batchRequest.isBackgroundConnection;
+
+   return Success();
+}
+
+void handleRpcBatch(const core::json::JsonRpcRequest& batchRequest,
+                    boost::shared_ptr<HttpConnection> ptrConnection)
+{
+   json::Array requests;
+   Error error = json::readParams(batchRequest.params, &requests);
+   if (error)
+   {
+      ptrConnection->sendJsonRpcError(error);
+      return;
+   }
+
+   boost::shared_ptr<RpcBatch> pBatch(new RpcBatch());
+   pBatch->ptrConnection = ptrConnection;
+   pBatch->executeStartTime = boost::posix_time::microsec_clock::universal_time();
+   pBatch->ids.resize(requests.getSize());
+   pBatch->responses.resize(requests.getSize());
+
+   // hold one extra pending count while dispatching so that handlers which
+   // complete synchronously can't send the batch response early
+   pBatch->pending = requests.getSize() + 1;
+
+   for (std::size_t i = 0; i < requests.getSize(); i++)
+   {
+      json::JsonRpcRequest request;
+      error = readBatchedRpcRequest(requests[i],
+                                    batchRequest,
+                                    &pBatch->ids[i],
+                                    &request);
+      if (error)
+      {
+         endHandleBatchedRpcRequest(pBatch, i, error, nullptr);
+         continue;
+      }
+
+      // only registered methods can be batched (methods handled specially
+      // by the connection handler such as quit_session or the wait for
+      // methods must be sent on their own)
+      auto it = s_pJsonRpcMethods->find(request.method);
+      if (it == s_pJsonRpcMethods->end())
+      {
+         Error executeError = Error(json::errc::MethodNotFound, ERROR_LOCATION);
+         executeError.addProperty("method", request.method);
+         LOG_ERROR(executeError);
+         endHandleBatchedRpcRequest(pBatch, i, executeError, nullptr);
+         continue;
+      }
+
+      std::pair<bool, json::JsonRpcAsyncFunction> reg = it->second;
+      json::JsonRpcAsyncFunction handlerFunction = reg.second;
+
+      if (reg.first)
+      {
+         // direct return
+         handlerFunction(request,
+                         boost::bind(endHandleBatchedRpcRequest,
+                                     pBatch,
+                                     i,
+                                     _1,
+                                     _2));
+      }
+      else
+      {
+         // indirect return (asyncHandle style) -- the method itself is
+         // invoked after the batch response has been sent
+         std::string handle = core::system::generateUuid(true);
+         pBatch->responses[i].setAsyncHandle(handle);
+         pBatch->deferred.push_back(
+                  boost::bind(handlerFunction,
+                              request,
+                              json::JsonRpcFunctionContinuation(
+                                 boost::bind(endHandleRpcRequestIndirect,
+                                             handle,
+                                             _1,
+                                             _2))));
+         endHandleBatchedRpcRequest(pBatch, i, Success(), nullptr);
+      }
+   }
+
+   // release the dispatch hold
+   if (--pBatch->pending == 0)
+      endHandleRpcBatch(pBatch);
+}
+
 void saveJsonResponse(const core::Error& error, core::json::JsonRpcResponse *pSrc,
                       core::Error *pError,      core::json::JsonRpcResponse *pDest)
 {
@@ -260,6 +469,13 @@ void handleRpcRequest(const core::json::JsonRpcRequest& request,
    // (so we can determine if any events were added during execution)
    using namespace boost::posix_time; 
    ptime executeStartTime = microsec_clock::universal_time();
+
+   // batched requests are dispatched individually
+   if (request.method == kBatchRpc)
+   {
+      handleRpcBatch(request, ptrConnection);
+      return;
+   }
    
    // execute the method
    auto it = s_pJsonRpcMethods->find(request.method);
@@ -225,6 +225,7 @@ private:
    ConsoleProcessSocketConnectionCallbacks createConsoleProcessSocketConnectionCallbacks();
    void onConnectionOpened();
    void onConnectionClosed();
+   void onFlowControl(bool pause);
 
    void saveEnvironment(const std::string& env);
    static void loadEnvironment(const std::string& handle, core::system::Options* pEnv);
@@ -275,6 +276,12 @@ private:
    boost::weak_ptr<core::system::ProcessOperations> pOps_;
    boost::mutex procOpsMutex_;
 
+   // websocket output held while the client catches up with earlier output
+   bool outputPaused_ = false;
+   bool pausedOutputTrimmed_ = false;
+   std::string pausedOutput_;
+   boost::mutex outputFlowMutex_;
+
    // private command handler, used to capture environment variables during terminal idle time
    core::terminal::PrivateCommand envCaptureCmd_;
 };
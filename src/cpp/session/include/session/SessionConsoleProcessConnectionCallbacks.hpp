@@ -33,6 +33,9 @@ struct ConsoleProcessSocketConnectionCallbacks
    // invoked when input arrives on the socket
    boost::function<void (const std::string& input)> onReceivedInput;
 
+   // invoked when the client asks to pause (true) or resume (false) output
+   boost::function<void (bool pause)> onFlowControl;
+
    // invoked when connection opens
    boost::function<void()> onConnectionOpened;
 
@@ -29,6 +29,8 @@ namespace console_process {
  * First character is a method indicator, as follows:
  *    "a" = send text, e.g. "aHello"
  *    "b" = ping/pong, e.g. "b"
+ *    "c" = output flow control (client to server), "cp" to pause output
+ *          while the client catches up, "cr" to resume it
  *
  * Only the "send text" method has a payload (everything after the "a").
  *
@@ -49,9 +51,19 @@ public:
    // extract text from packet (empty string if unable to comply)
    static std::string getMessage(const std::string& text);
 
+   // create flow control packet, asking to pause or resume output
+   static std::string flowControlPacket(bool pause);
+
+   // is this packet a flow control packet?
+   static bool isFlowControl(const std::string& text);
+
+   // does this flow control packet ask to pause output?
+   static bool isPauseOutput(const std::string& text);
+
 private:
    static const std::string kKeepAlivePrefix;
    static const std::string kTextPrefix;
+   static const std::string kFlowControlPrefix;
 };
 
 } // namespace console_process
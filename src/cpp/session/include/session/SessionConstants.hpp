@@ -134,6 +134,7 @@ const char * const kSuspendSession = "suspend_session";
 const char * const kInterrupt = "interrupt";
 const char * const kConsoleInput = "console_input";
 const char * const kRStudioAPIShowDialogMethod = "rstudio_api_show_dialog";
+const char * const kBatchRpc = "batch_rpc";
 
 // session exit codes - note max value supported by Linux is 255
 #define SESSION_EXIT_CODE_OFFSET              200
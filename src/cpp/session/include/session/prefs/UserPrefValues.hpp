@@ -184,6 +184,7 @@ namespace prefs {
 #define kPackagesPaneEnabled "packages_pane_enabled"
 #define kUseRcppTemplate "use_rcpp_template"
 #define kRestoreSourceDocuments "restore_source_documents"
+#define kRestoreSourceDocumentsLazily "restore_source_documents_lazily"
 #define kHandleErrorsInUserCodeOnly "handle_errors_in_user_code_only"
 #define kAutoExpandErrorTracebacks "auto_expand_error_tracebacks"
 #define kCheckForUpdates "check_for_updates"
@@ -268,6 +269,7 @@ namespace prefs {
 #define kGlobalThemeAlternate "alternate"
 #define kGitDiffIgnoreWhitespace "git_diff_ignore_whitespace"
 #define kConsoleDoubleClickSelect "console_double_click_select"
+#define kConsoleVirtualizedOutput "console_virtualized_output"
 #define kNewProjGitInit "new_proj_git_init"
 #define kRootDocument "root_document"
 #define kShowUserHomePage "show_user_home_page"
@@ -936,6 +938,12 @@ public:
    bool restoreSourceDocuments();
    core::Error setRestoreSourceDocuments(bool val);
 
+   /**
+    * Whether to load restored source documents only when their tabs are first selected, for faster startup with many documents open.
+    */
+   bool restoreSourceDocumentsLazily();
+   core::Error setRestoreSourceDocumentsLazily(bool val);
+
    /**
     * Whether to handle errors only when user code is on the stack.
     */
@@ -1182,6 +1190,12 @@ public:
    bool consoleDoubleClickSelect();
    core::Error setConsoleDoubleClickSelect(bool val);
 
+   /**
+    * Whether to only render the portion of the Console output near the visible area, for faster scrolling of long output.
+    */
+   bool consoleVirtualizedOutput();
+   core::Error setConsoleVirtualizedOutput(bool val);
+
    /**
     * Whether a git repo should be initialized inside new projects by default.
     */
@@ -62,9 +62,16 @@ const std::string& findCategory()
 
 namespace {
 
-// This must be the same as MAX_COUNT in FindOutputPane.java
+// Matching lines are sent to the client a page of this many at a time; a
+// find fetches further pages as the client asks for them, while a replace
+// (or replace preview) stops after the first page
 const size_t MAX_COUNT = 1000;
 
+// Maximum grep output held while waiting for the client to ask for the next
+// page of results; if grep produces more than this, it is stopped, only the
+// results read so far can be paged in, and the last page is marked incomplete
+const size_t MAX_BUFFERED_OUTPUT = 8 * 1024 * 1024;
+
 const size_t MAX_LINE_LENGTH = 1000;
 
 // Reflects the estimated current progress made in performing a replace
@@ -130,6 +137,10 @@ public:
       replace_(false),
       preview_(false),
       gitFlag_(false),
+      resultLimit_(MAX_COUNT),
+      resultOffset_(0),
+      moreAvailable_(false),
+      incomplete_(false),
       pReplaceProgress_(nullptr)
    {
    }
@@ -144,9 +155,10 @@ public:
       return path_;
    }
 
+   // the number of results found so far, including those on earlier pages
    int resultCount() const
    {
-      return gsl::narrow_cast<int>(files_.getSize());
+      return gsl::narrow_cast<int>(resultOffset_ + files_.getSize());
    }
 
    bool isRunning() const
@@ -194,6 +206,35 @@ public:
       return gitFlag_;
    }
 
+   size_t resultLimit() const
+   {
+      return resultLimit_;
+   }
+
+   // the client shows a page of results at a time, so only the current page
+   // is kept (and persisted), along with the number of results before it
+   void beginNextPage()
+   {
+      resultOffset_ += files_.getSize();
+      resultLimit_ = resultOffset_ + MAX_COUNT;
+      clearResults();
+   }
+
+   bool moreAvailable() const
+   {
+      return moreAvailable_;
+   }
+
+   void setMoreAvailable(bool moreAvailable)
+   {
+      moreAvailable_ = moreAvailable;
+   }
+
+   void setIncomplete(bool incomplete)
+   {
+      incomplete_ = incomplete;
+   }
+
    bool addResult(const std::string& handle,
                   const json::Array& files,
                   const json::Array& lineNums,
@@ -234,6 +275,10 @@ public:
       ignoreCase_ = ignoreCase;
       gitFlag_ = gitFlag;
       running_ = true;
+      resultLimit_ = MAX_COUNT;
+      resultOffset_ = 0;
+      moreAvailable_ = false;
+      incomplete_ = false;
    }
 
    void onFindEnd(const std::string& handle)
@@ -272,16 +317,14 @@ public:
    void clear()
    {
       handle_ = std::string();
-      files_.clear();
-      lineNums_.clear();
-      contents_.clear();
-      matchOns_.clear();
-      matchOffs_.clear();
+      clearResults();
       replace_ = false;
       preview_ = false;
       replacePattern_.clear();
-      replaceMatchOns_.clear();
-      replaceMatchOffs_.clear();
+      resultLimit_ = MAX_COUNT;
+      resultOffset_ = 0;
+      moreAvailable_ = false;
+      incomplete_ = false;
       pReplaceProgress_ = nullptr;
    }
 
@@ -321,6 +364,14 @@ public:
          contents_.clear();
       }
 
+      int resultOffset = 0;
+      json::getOptionalParam(asJson, "resultOffset", 0, &resultOffset);
+      resultOffset_ = gsl::narrow_cast<size_t>(std::max(resultOffset, 0));
+      json::getOptionalParam(asJson, "incomplete", false, &incomplete_);
+
+      // grep's output for later pages didn't survive the restart
+      moreAvailable_ = false;
+
       return Success();
    }
 
@@ -342,8 +393,11 @@ public:
       results["replaceMatchOn"] = replaceMatchOns_;
       results["replaceMatchOff"] = replaceMatchOffs_;
       obj["results"] = results;
+      obj["resultOffset"] = gsl::narrow_cast<int>(resultOffset_);
 
       obj["running"] = running_;
+      obj["moreAvailable"] = moreAvailable_;
+      obj["incomplete"] = incomplete_;
 
       obj["replace"] = replace_;
       obj["preview"] = preview_;
@@ -354,6 +408,17 @@ public:
    }
 
 private:
+   void clearResults()
+   {
+      files_.clear();
+      lineNums_.clear();
+      contents_.clear();
+      matchOns_.clear();
+      matchOffs_.clear();
+      replaceMatchOns_.clear();
+      replaceMatchOffs_.clear();
+   }
+
    std::string handle_;
    std::string input_;
    std::string path_;
@@ -371,6 +436,10 @@ private:
    std::string replacePattern_;
    json::Array replaceMatchOns_;
    json::Array replaceMatchOffs_; 
+   size_t resultLimit_;
+   size_t resultOffset_;
+   bool moreAvailable_;
+   bool incomplete_;
    // this is not tracked via json because it exclusively applies to replaces (not previews)
    // which can not currently be paused
    LocalProgress* pReplaceProgress_;
@@ -397,17 +466,38 @@ public:
 private:
    GrepOperation(const std::string& encoding,
                  const FilePath& tempFile)
-      : firstDecodeError_(true), encoding_(encoding), tempFile_(tempFile)
+      : firstDecodeError_(true), encoding_(encoding), tempFile_(tempFile),
+        exited_(false), truncated_(false)
    {
       handle_ = core::system::generateUuid(false);
    }
 
 public:
+   // the find whose results are being paged in, if any; this keeps the
+   // operation (and its unread output) alive after grep has exited
+   static boost::shared_ptr<GrepOperation>& pagedOperation()
+   {
+      static boost::shared_ptr<GrepOperation> s_pOperation;
+      return s_pOperation;
+   }
+
    std::string handle() const
    {
       return handle_;
    }
 
+   void fetchMoreResults()
+   {
+      if (!findResults().moreAvailable())
+         return;
+
+      findResults().beginNextPage();
+      processOutput();
+
+      if (!findResults().moreAvailable() && exited_)
+         endFind();
+   }
+
    core::system::ProcessCallbacks createProcessCallbacks()
    {
       core::system::ProcessCallbacks callbacks;
@@ -436,7 +526,23 @@ private:
       std::string encodedContents;
    };
 
-   bool onContinue(const core::system::ProcessOperations& ops) const
+   bool onContinue(const core::system::ProcessOperations& ops)
+   {
+      if (!isCurrentFind())
+         return false;
+
+      // too much output is waiting to be paged in; stop grep, and tell the
+      // client (with the last page) that the results are incomplete
+      if (stdOutBuf_.size() >= MAX_BUFFERED_OUTPUT)
+      {
+         truncated_ = true;
+         return false;
+      }
+
+      return true;
+   }
+
+   bool isCurrentFind() const
    {
       return findResults().isRunning() && findResults().handle() == handle();
    }
@@ -925,6 +1031,18 @@ private:
    }
 
    void onStdout(const core::system::ProcessOperations& ops, const std::string& data)
+   {
+      stdOutBuf_.append(data);
+
+      // while waiting for the client to ask for more results, just hold on
+      // to the output
+      if (findResults().moreAvailable())
+         return;
+
+      processOutput();
+   }
+
+   void processOutput()
    {
       json::Array files;
       json::Array lineNums;
@@ -935,21 +1053,19 @@ private:
       json::Array replaceMatchOffs;
       json::Array errors;
 
-      int recordsToProcess = MAX_COUNT + 1 - findResults().resultCount();
-      if (recordsToProcess < 0)
-         recordsToProcess = 0;
+      const size_t resultLimit = findResults().resultLimit();
+      bool moreAvailable = false;
 
       std::string websiteOutputDir = module_context::websiteOutputDir();
       if (!websiteOutputDir.empty())
          websiteOutputDir = "/" + websiteOutputDir + "/";
 
-      stdOutBuf_.append(data);
       size_t nextLineStart = 0;
       size_t pos = -1;
       std::set<std::string> errorMessage;
-      while (recordsToProcess &&
-             std::string::npos != (pos = stdOutBuf_.find('\n', pos + 1)))
+      while (std::string::npos != (pos = stdOutBuf_.find('\n', pos + 1)))
       {
+         const size_t lineStart = nextLineStart;
          std::string line = stdOutBuf_.substr(nextLineStart, pos - nextLineStart);
          nextLineStart = pos + 1;
 
@@ -975,6 +1091,15 @@ private:
                  file.find(websiteOutputDir) != std::string::npos))
                continue;
 
+            if (gsl::narrow_cast<size_t>(findResults().resultCount()) + files.getSize() >=
+                resultLimit)
+            {
+               // this page is full; leave the line for the next one
+               nextLineStart = lineStart;
+               moreAvailable = true;
+               break;
+            }
+
             int lineNum = safe_convert::stringTo<int>(std::string(match[2]), -1);
             LineInfo lineInfo;
             lineInfo.encodedContents = match[3];
@@ -1055,7 +1180,6 @@ private:
             replaceMatchOffs.push_back(replaceMatchOff);
             json::Array combinedErrors = json::toJsonArray(errorMessage);
             errors.push_back(combinedErrors);
-            recordsToProcess--;
          }
       }
       // when doing a replace, we haven't completed the replace for the last file here
@@ -1081,10 +1205,13 @@ private:
          stdOutBuf_.erase(0, nextLineStart);
       }
 
-      if (files.getSize() > 0)
+      const bool incomplete = truncated_ && !moreAvailable;
+      if (files.getSize() > 0 || moreAvailable != findResults().moreAvailable() || incomplete)
       {
          json::Object result;
          result["handle"] = handle();
+         result["moreAvailable"] = moreAvailable;
+         result["incomplete"] = incomplete;
          json::Object results;
          results["file"] = files;
          results["line"] = lineNums;
@@ -1113,10 +1240,12 @@ private:
                     ClientEvent(client_events::kReplaceResult, result));
       }
 
-      if (recordsToProcess <= 0)
+      findResults().setMoreAvailable(moreAvailable);
+      findResults().setIncomplete(incomplete);
+      if (moreAvailable)
       {
          if (!findResults().replace())
-            findResults().onFindEnd(handle());
+            pagedOperation() = shared_from_this();
          else
             findResults().onReplaceEnd(handle());
       }
@@ -1130,12 +1259,26 @@ private:
    }
 
    void onExit(int exitCode)
+   {
+      exited_ = true;
+      if (!tempFile_.isEmpty())
+         tempFile_.removeIfExists();
+
+      // the find isn't over until the client has paged in the rest of
+      // the results (or stopped it)
+      if (findResults().moreAvailable() && isCurrentFind())
+         return;
+
+      endFind();
+   }
+
+   void endFind()
    {
       findResults().onFindEnd(handle());
       module_context::enqueClientEvent(
             ClientEvent(client_events::kFindOperationEnded, handle()));
-      if (!tempFile_.isEmpty())
-         tempFile_.removeIfExists();
+      if (pagedOperation().get() == this)
+         pagedOperation().reset();
    }
 
    bool firstDecodeError_;
@@ -1150,6 +1293,8 @@ private:
    boost::filesystem::perms filePermissions_;
    int inputLineNum_;
    bool fileSuccess_;
+   bool exited_;
+   bool truncated_;
 };
 
 } // namespace
@@ -1457,6 +1602,7 @@ core::Error runGrepOperation(const GrepOptions& grepOptions, const ReplaceOption
 
    // Clear existing results
    findResults().clear();
+   GrepOperation::pagedOperation().reset();
 
    error = module_context::processSupervisor().runCommand(cmd,
                                                           options,
@@ -1513,6 +1659,23 @@ core::Error stopFind(const json::JsonRpcRequest& request,
       return error;
 
    findResults().onFindEnd(handle);
+   GrepOperation::pagedOperation().reset();
+
+   return Success();
+}
+
+core::Error getMoreFindResults(const json::JsonRpcRequest& request,
+                               json::JsonRpcResponse* pResponse)
+{
+   std::string handle;
+   Error error = json::readParams(request.params, &handle);
+   if (error)
+      return error;
+
+   // hold a reference, since fetching the last page ends the find
+   boost::shared_ptr<GrepOperation> pOperation = GrepOperation::pagedOperation();
+   if (pOperation && pOperation->handle() == handle)
+      pOperation->fetchMoreResults();
 
    return Success();
 }
@@ -1521,6 +1684,7 @@ core::Error clearFindResults(const json::JsonRpcRequest& request,
                              json::JsonRpcResponse* pResponse)
 {
    findResults().clear();
+   GrepOperation::pagedOperation().reset();
    return Success();
 }
 
@@ -1644,6 +1808,7 @@ core::Error initialize()
    initBlock.addFunctions()
       (bind(registerRpcMethod, "begin_find", beginFind))
       (bind(registerRpcMethod, "stop_find", stopFind))
+      (bind(registerRpcMethod, "get_more_find_results", getMoreFindResults))
       (bind(registerRpcMethod, "clear_find_results", clearFindResults))
       (bind(registerRpcMethod, "preview_replace", previewReplace))
       (bind(registerRpcMethod, "complete_replace", completeReplace))
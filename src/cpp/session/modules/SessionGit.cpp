@@ -1981,7 +1981,7 @@ Error vcsDiffFile(const json::JsonRpcRequest& request,
    if (!usedSourceEncoding)
       sourceEncoding = "";
 
-   if (!noSizeWarning && output.size() > source_control::WARN_SIZE)
+   if (!noSizeWarning && output.size() > source_control::DIFF_WARN_SIZE)
    {
       error = systemError(boost::system::errc::file_too_large,
                           ERROR_LOCATION);
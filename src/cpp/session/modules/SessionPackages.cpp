@@ -20,12 +20,17 @@
 
 #include "SessionPackages.hpp"
 
+#include <ctime>
+#include <map>
+
 #include <boost/bind.hpp>
 #include <boost/regex.hpp>
 #include <boost/format.hpp>
 
 #include <shared_core/Error.hpp>
+#include <shared_core/SafeConvert.hpp>
 #include <core/Exec.hpp>
+#include <core/system/System.hpp>
 
 #include <r/RSexp.hpp>
 #include <r/RExec.hpp>
@@ -191,7 +196,103 @@ Error availablePackages(const core::json::JsonRpcRequest&,
    return Success();
 }
 
-Error getPackageStateJson(json::Object* pJson)
+// the package list most recently sent to the client, keyed by library and
+// package name, and the number of lists sent; used to send only the packages
+// which have changed since then
+std::map<std::string, json::Value> s_lastPackageList;
+int s_packageListVersion = 0;
+
+// the version of the list most recently sent to the client (empty if none);
+// includes the process id and start time, so that a client which outlives
+// this session (e.g. across a restart) can't mistake a list it was sent by an
+// earlier session for ours
+std::string packageListVersion()
+{
+   static const std::string prefix =
+         core::system::currentProcessPidStr() + "-" +
+         safe_convert::numberToString(static_cast<long>(std::time(nullptr))) + "-";
+
+   if (s_packageListVersion == 0)
+      return std::string();
+   return prefix + safe_convert::numberToString(s_packageListVersion);
+}
+
+std::string packageKey(const json::Object& packageJson)
+{
+   std::string name, library;
+   json::readObject(packageJson, "name", std::string(), &name);
+   json::readObject(packageJson, "library", std::string(), &library);
+   return library + "/" + name;
+}
+
+// records the package list as sent to the client, writing either the full
+// list or (if the client already has the previous version) the packages
+// added, removed and updated since then
+void writePackageList(const json::Value& packageListJson,
+                      const std::string& clientVersion,
+                      json::Object* pJson)
+{
+   // anything other than the exact version we last sent gets the full list
+   bool delta = s_packageListVersion > 0 &&
+                clientVersion == packageListVersion();
+
+   if (!packageListJson.isArray())
+   {
+      // nothing we can compare; send it as is
+      s_lastPackageList.clear();
+      (*pJson)["package_list"] = packageListJson;
+      s_packageListVersion++;
+      (*pJson)["version"] = packageListVersion();
+      return;
+   }
+
+   std::map<std::string, json::Value> packageList;
+   json::Array added, removed, updated;
+   for (const json::Value& packageJson : packageListJson.getArray())
+   {
+      if (!packageJson.isObject())
+         continue;
+
+      std::string key = packageKey(packageJson.getObject());
+      auto it = s_lastPackageList.find(key);
+      if (it == s_lastPackageList.end())
+         added.push_back(packageJson);
+      else if (it->second != packageJson)
+         updated.push_back(packageJson);
+      packageList[key] = packageJson;
+   }
+
+   for (const auto& entry : s_lastPackageList)
+   {
+      if (packageList.find(entry.first) == packageList.end())
+         removed.push_back(entry.second);
+   }
+
+   std::string baseVersion = packageListVersion();
+   if (s_packageListVersion == 0 ||
+       !added.isEmpty() || !removed.isEmpty() || !updated.isEmpty())
+   {
+      s_packageListVersion++;
+   }
+   s_lastPackageList.swap(packageList);
+
+   if (delta)
+   {
+      json::Object deltaJson;
+      deltaJson["base_version"] = baseVersion;
+      deltaJson["added"] = added;
+      deltaJson["removed"] = removed;
+      deltaJson["updated"] = updated;
+      (*pJson)["package_delta"] = deltaJson;
+   }
+   else
+   {
+      (*pJson)["package_list"] = packageListJson;
+   }
+   (*pJson)["version"] = packageListVersion();
+}
+
+Error getPackageStateJson(const std::string& clientVersion, json::Object* pJson)
 {
    using namespace module_context;
 
@@ -234,7 +335,7 @@ Error getPackageStateJson(json::Object* pJson)
       // return the generated package list and the Packrat context
       r::json::jsonValueFromObject(packageList, &packageListJson);
 
-      (*pJson)["package_list"] = packageListJson;
+      writePackageList(packageListJson, clientVersion, pJson);
       (*pJson)["packrat_context"] = packrat::contextAsJson(packratContext);
       (*pJson)["renv_context"] = renvContext;
    }
@@ -330,11 +431,19 @@ void onDeferredInit(bool newSession)
    module_context::events().onDetectChanges.connect(onDetectChanges);
 }
 
-Error getPackageState(const json::JsonRpcRequest& ,
+Error getPackageState(const json::JsonRpcRequest& request,
                       json::JsonRpcResponse* pResponse)
 {
+   // the client passes the version of the package list it has (if any), so
+   // that only the changes since then need to be sent
+   bool manual = false;
+   std::string clientVersion;
+   Error error = json::readParams(request.params, &manual, &clientVersion);
+   if (error)
+      clientVersion.clear();
+
    json::Object result;
-   Error error = getPackageStateJson(&result);
+   error = getPackageStateJson(clientVersion, &result);
    if (error)
       LOG_ERROR(error);
    else
@@ -346,8 +455,9 @@ Error getPackageState(const json::JsonRpcRequest& ,
 
 void enquePackageStateChanged()
 {
+   // send the changes since the last list the client was sent
    json::Object pkgState;
-   Error error = getPackageStateJson(&pkgState);
+   Error error = getPackageStateJson(packageListVersion(), &pkgState);
    if (error)
       LOG_ERROR(error);
    else
@@ -21,6 +21,8 @@
 #include <gsl/gsl>
 
 #include <boost/bind.hpp>
+#include <boost/crc.hpp>
+#include <boost/format.hpp>
 #include <boost/utility.hpp>
 
 #include <core/r_util/RSourceIndex.hpp>
@@ -54,6 +56,7 @@ extern "C" const char *locale2charset(const char *);
 #include <session/SessionSourceDatabase.hpp>
 #include <session/SessionModuleContext.hpp>
 #include <session/projects/SessionProjects.hpp>
+#include <session/prefs/UserPrefs.hpp>
 
 using namespace rstudio::core;
 
@@ -70,18 +73,21 @@ module_context::WaitForMethodFunction s_waitForRequestDocumentSave;
 module_context::WaitForMethodFunction s_waitForRequestDocumentClose;
 
 void writeDocToJson(boost::shared_ptr<SourceDocument> pDoc,
-                    core::json::Object* pDocJson)
+                    core::json::Object* pDocJson,
+                    bool includeContents = true)
 {
    // write the doc
-   pDoc->writeToJson(pDocJson);
+   pDoc->writeToJson(pDocJson, includeContents);
+   (*pDocJson)["contents_deferred"] = !includeContents;
 
    // derive the extended type property
    (*pDocJson)["extended_type"] = module_context::events()
                                    .onDetectSourceExtendedType(pDoc);
 
-   // amend with chunk definitions if an R Markdown document
+   // amend with chunk definitions if an R Markdown document (these go with
+   // the contents, so are left out along with them)
    json::Object notebook;
-   if (pDoc->isRMarkdownDocument())
+   if (includeContents && pDoc->isRMarkdownDocument())
    {
       Error error = rmarkdown::notebook::getChunkValues(
             pDoc->path(), pDoc->id(), &notebook);
@@ -566,6 +572,131 @@ Error saveDocumentDiff(const json::JsonRpcRequest& request,
    return Success();
 }
 
+// advance through UTF-8 encoded text until the given number of UTF-16 code
+// units (the unit used by the client for offsets) have been consumed; returns
+// false if the text ends first or the target falls within a surrogate pair
+bool advanceUtf16Units(const std::string& text,
+                       std::size_t target,
+                       std::size_t* pPos,
+                       std::size_t* pUnits)
+{
+   while (*pUnits < target)
+   {
+      if (*pPos >= text.size())
+         return false;
+
+      unsigned char ch = static_cast<unsigned char>(text[*pPos]);
+      if (ch < 0x80)
+      {
+         *pPos += 1;
+         *pUnits += 1;
+      }
+      else if (ch < 0xE0)
+      {
+         *pPos += 2;
+         *pUnits += 1;
+      }
+      else if (ch < 0xF0)
+      {
+         *pPos += 3;
+         *pUnits += 1;
+      }
+      else
+      {
+         // encoded as a surrogate pair in UTF-16
+         *pPos += 4;
+         *pUnits += 2;
+      }
+   }
+
+   return *pUnits == target && *pPos <= text.size();
+}
+
+Error saveDocumentHunks(const json::JsonRpcRequest& request,
+                        json::JsonRpcResponse* pResponse)
+{
+   // unique id and jsonPath (can be null for auto-save)
+   std::string id;
+   json::Value jsonPath, jsonType, jsonEncoding, jsonFoldSpec, jsonChunkOutput;
+
+   // The edits made since the last save, as an array of [offset, length, text]
+   // arrays ordered by offset. Each replaces the range [offset, offset+length)
+   // of the current document; offsets and lengths are in UTF-16 code units.
+   json::Array hunks;
+
+   // This is the expected hash of the current document (as in
+   // saveDocumentDiff).
+   std::string hash;
+
+   // The hash of the contents the client expects once the hunks have been
+   // applied (see documentContentsHash).
+   std::string contentsHash;
+
+   // read params
+   Error error = json::readParams(request.params,
+                                  &id,
+                                  &jsonPath,
+                                  &jsonType,
+                                  &jsonEncoding,
+                                  &jsonFoldSpec,
+                                  &jsonChunkOutput,
+                                  &hunks,
+                                  &hash,
+                                  &contentsHash);
+   if (error)
+      return error;
+
+   // if this has no path then it is an autosave, in this case
+   // suppress change detection
+   bool hasPath = json::isType<std::string>(jsonPath);
+   if (!hasPath)
+       pResponse->setSuppressDetectChanges(true);
+
+   // get the doc
+   boost::shared_ptr<SourceDocument> pDoc(new SourceDocument());
+   error = source_database::get(id, pDoc);
+   if (error)
+      return error;
+
+   // Don't even attempt anything if we're not working off the same original
+   if (pDoc->hash() != hash)
+      return Success();
+
+   // as with saveDocumentDiff, returning without a result (e.g. if the hunks
+   // don't fit the document, or don't produce the contents the client has)
+   // signals the client to fall back to a full save
+   try
+   {
+      std::string contents;
+      if (!applyDocumentHunks(pDoc->contents(), hunks, &contents))
+         return Success();
+
+      // a missed or mis-recorded edit can leave hunks which fit the document
+      // but produce the wrong contents; never write those to disk
+      if (documentContentsHash(contents) != contentsHash)
+         return Success();
+
+      // track if we're updating the document contents
+      bool hasChanges = contents != pDoc->contents();
+      error = saveDocumentCore(contents, jsonPath, jsonType, jsonEncoding,
+                               jsonFoldSpec, jsonChunkOutput, pDoc);
+      if (error)
+         return error;
+
+      // write to the source database (don't worry about writing document
+      // contents if those have not changed)
+      error = sourceDatabasePutWithUpdatedContents(pDoc, hasChanges);
+      if (error)
+         return error;
+
+      // set document hash
+      pResponse->setResult(pDoc->hash());
+   }
+   CATCH_UNEXPECTED_EXCEPTION
+
+   return Success();
+}
+
 Error checkForExternalEdit(const json::JsonRpcRequest& request,
                            json::JsonRpcResponse* pResponse)
 {
@@ -1345,6 +1476,106 @@ SEXP rs_readSourceDocument(SEXP idSEXP)
 
 } // anonymous namespace
 
+bool applyDocumentHunks(const std::string& original,
+                        const json::Array& hunks,
+                        std::string* pContents)
+{
+   std::string contents;
+   contents.reserve(original.size());
+
+   // walk the original contents once, copying the text between hunks
+   std::size_t pos = 0, units = 0;
+   for (const json::Value& value : hunks)
+   {
+      if (!value.isArray())
+         return false;
+
+      json::Array hunk = value.getArray();
+      if (hunk.getSize() != 3 ||
+          !hunk[0].isInt() ||
+          !hunk[1].isInt() ||
+          !hunk[2].isString())
+      {
+         return false;
+      }
+
+      int offset = hunk[0].getInt();
+      int length = hunk[1].getInt();
+      if (offset < 0 || length < 0 || static_cast<std::size_t>(offset) < units)
+         return false;
+
+      std::size_t start = pos;
+      if (!advanceUtf16Units(original, offset, &pos, &units))
+         return false;
+      contents.append(original, start, pos - start);
+
+      if (!advanceUtf16Units(original, offset + length, &pos, &units))
+         return false;
+      contents.append(hunk[2].getString());
+   }
+   contents.append(original, pos, std::string::npos);
+
+   pContents->swap(contents);
+   return true;
+}
+
+std::string documentContentsHash(const std::string& contents)
+{
+   boost::crc_32_type result;
+   auto processUnit = [&](unsigned int unit)
+   {
+      result.process_byte(static_cast<unsigned char>(unit & 0xFF));
+      result.process_byte(static_cast<unsigned char>(unit >> 8));
+   };
+
+   // decode the UTF-8 text and hash its UTF-16 code units (little endian),
+   // as the client does for the text in the editor
+   std::size_t pos = 0;
+   while (pos < contents.size())
+   {
+      unsigned char ch = static_cast<unsigned char>(contents[pos]);
+      std::size_t count;
+      unsigned int codePoint;
+      if (ch < 0x80)
+      {
+         count = 1;
+         codePoint = ch;
+      }
+      else if (ch < 0xE0)
+      {
+         count = 2;
+         codePoint = ch & 0x1F;
+      }
+      else if (ch < 0xF0)
+      {
+         count = 3;
+         codePoint = ch & 0x0F;
+      }
+      else
+      {
+         count = 4;
+         codePoint = ch & 0x07;
+      }
+
+      for (std::size_t i = 1; i < count && pos + i < contents.size(); i++)
+         codePoint = (codePoint << 6) | (contents[pos + i] & 0x3F);
+      pos += count;
+
+      if (codePoint >= 0x10000)
+      {
+         codePoint -= 0x10000;
+         processUnit(0xD800 + (codePoint >> 10));
+         processUnit(0xDC00 + (codePoint & 0x3FF));
+      }
+      else
+      {
+         processUnit(codePoint);
+      }
+   }
+
+   return (boost::format("%08x") % result.checksum()).str();
+}
+
 Error clientInitDocuments(core::json::Array* pJsonDocs)
 {
    source_database::events().onRemoveAll();
@@ -1356,6 +1587,11 @@ Error clientInitDocuments(core::json::Array* pJsonDocs)
       return error ;
    std::sort(docs.begin(), docs.end(), sortByRelativeOrder);
 
+   // when restoring lazily, the client fetches the contents of documents
+   // that are saved to disk (via get_source_document) when their tabs are
+   // first selected, so leave them out here
+   bool restoreLazily = prefs::userPrefs().restoreSourceDocumentsLazily();
+
    // populate the array
    pJsonDocs->clear();
    for (boost::shared_ptr<SourceDocument>& pDoc : docs)
@@ -1375,8 +1611,13 @@ Error clientInitDocuments(core::json::Array* pJsonDocs)
       if (error)
          LOG_ERROR(error);
 
+      bool deferContents = restoreLazily &&
+                           !pDoc->path().empty() &&
+                           !pDoc->dirty() &&
+                           pDoc->collabServer().empty();
+
       json::Object jsonDoc ;
-      writeDocToJson(pDoc, &jsonDoc);
+      writeDocToJson(pDoc, &jsonDoc, !deferContents);
       pJsonDocs->push_back(jsonDoc);
 
       source_database::events().onDocUpdated(pDoc);
@@ -1414,6 +1655,7 @@ Error initialize()
       (bind(registerRpcMethod, "open_document", openDocument))
       (bind(registerRpcMethod, "save_document", saveDocument))
       (bind(registerRpcMethod, "save_document_diff", saveDocumentDiff))
+      (bind(registerRpcMethod, "save_document_hunks", saveDocumentHunks))
       (bind(registerRpcMethod, "check_for_external_edit", checkForExternalEdit))
       (bind(registerRpcMethod, "ignore_external_edit", ignoreExternalEdit))
       (bind(registerRpcMethod, "set_source_document_on_save", setSourceDocumentOnSave))
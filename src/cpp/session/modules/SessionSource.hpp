@@ -16,6 +16,7 @@
 #ifndef SESSION_SOURCE_HPP
 #define SESSION_SOURCE_HPP
 
+#include <string>
 #include <vector>
 
 #include <boost/shared_ptr.hpp>
@@ -38,6 +39,17 @@ namespace source {
    
 core::Error clientInitDocuments(core::json::Array* pJsonDocs) ;
 
+// applies edits sent by the client (an array of [offset, length, text]
+// arrays ordered by offset, with offsets and lengths in UTF-16 code units)
+// to UTF-8 encoded contents; returns false if they don't fit the contents
+bool applyDocumentHunks(const std::string& original,
+                        const core::json::Array& hunks,
+                        std::string* pContents);
+
+// the CRC-32 of the UTF-16LE encoding of UTF-8 encoded contents, as eight
+// hex digits; matches the hash the client computes of a document's text
+std::string documentContentsHash(const std::string& contents);
+
 core::Error initialize();
                        
 } // namespace source
@@ -0,0 +1,102 @@
+/*
+ * SessionSourceTests.cpp
+ *
+ * Copyright (C) 2019 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+#include "SessionSource.hpp"
+
+#define RSTUDIO_NO_TESTTHAT_ALIASES
+#include <tests/TestThat.hpp>
+
+namespace rstudio {
+namespace session {
+namespace modules {
+namespace source {
+namespace tests {
+
+using namespace rstudio::core;
+
+namespace {
+
+json::Array hunk(int offset, int length, const std::string& text)
+{
+   json::Array hunk;
+   hunk.push_back(json::Value(offset));
+   hunk.push_back(json::Value(length));
+   hunk.push_back(json::Value(text));
+   return hunk;
+}
+
+const std::string kOriginal("x <- 1\ny <- 2\nz <- \xc3\xa9\n");
+
+} // anonymous namespace
+
+TEST_CASE("SessionSource")
+{
+   SECTION("Hunks are applied to the original contents")
+   {
+      json::Array hunks;
+      hunks.push_back(hunk(5, 1, "10"));
+      hunks.push_back(hunk(14, 0, "# z\n"));
+
+      std::string contents;
+      REQUIRE(applyDocumentHunks(kOriginal, hunks, &contents));
+      CHECK(contents == "x <- 10\ny <- 2\n# z\nz <- \xc3\xa9\n");
+   }
+
+   SECTION("Hunks beyond the contents are refused")
+   {
+      json::Array hunks;
+      hunks.push_back(hunk(40, 1, "a"));
+
+      std::string contents;
+      CHECK_FALSE(applyDocumentHunks(kOriginal, hunks, &contents));
+   }
+
+   SECTION("Contents hash matches the client's UTF-16 hash")
+   {
+      CHECK(documentContentsHash("") == "00000000");
+      CHECK(documentContentsHash("abc") == "ad957ab0");
+
+      // "café 中 😀": two and three byte characters, and a surrogate pair
+      CHECK(documentContentsHash(
+               "caf\xc3\xa9 \xe4\xb8\xad \xf0\x9f\x98\x80") == "825affed");
+   }
+
+   SECTION("Corrupted hunk of the same length is caught by the hash")
+   {
+      // the edit made in the editor: 'y <- 2' becomes 'y <- 3'
+      std::string expected("x <- 1\ny <- 3\nz <- \xc3\xa9\n");
+      std::string expectedHash = documentContentsHash(expected);
+
+      json::Array recorded;
+      recorded.push_back(hunk(12, 1, "3"));
+      std::string contents;
+      REQUIRE(applyDocumentHunks(kOriginal, recorded, &contents));
+      CHECK(documentContentsHash(contents) == expectedHash);
+
+      // the same edit mis-recorded one character early; the hunks still fit
+      // the document and account for its length, but the hash doesn't match
+      // so the save is refused and the client falls back to a full save
+      json::Array corrupted;
+      corrupted.push_back(hunk(11, 1, "3"));
+      REQUIRE(applyDocumentHunks(kOriginal, corrupted, &contents));
+      CHECK(contents.size() == expected.size());
+      CHECK(documentContentsHash(contents) != expectedHash);
+   }
+}
+
+} // namespace tests
+} // namespace source
+} // namespace modules
+} // namespace session
+} // namespace rstudio
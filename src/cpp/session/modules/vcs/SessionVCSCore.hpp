@@ -33,6 +33,10 @@ namespace source_control {
 // requesting might slow down the app and are they sure they want to proceed?
 const size_t WARN_SIZE = 200 * 1024;
 
+// The threshold for diffs shown in the Git review window, which only draws
+// the rows of the diff that are in view
+const size_t DIFF_WARN_SIZE = 10 * 1024 * 1024;
+
 class VCSStatus
 {
 public:
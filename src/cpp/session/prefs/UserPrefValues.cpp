@@ -1349,6 +1349,19 @@ core::Error UserPrefValues::setRestoreSourceDocuments(bool val)
    return writePref("restore_source_documents", val);
 }
 
+/**
+ * Whether to load restored source documents only when their tabs are first selected, for faster startup with many documents open.
+ */
+bool UserPrefValues::restoreSourceDocumentsLazily()
+{
+   return readPref<bool>("restore_source_documents_lazily");
+}
+
+core::Error UserPrefValues::setRestoreSourceDocumentsLazily(bool val)
+{
+   return writePref("restore_source_documents_lazily", val);
+}
+
 /**
  * Whether to handle errors only when user code is on the stack.
  */
@@ -1882,6 +1895,19 @@ core::Error UserPrefValues::setConsoleDoubleClickSelect(bool val)
    return writePref("console_double_click_select", val);
 }
 
+/**
+ * Whether to only render the portion of the Console output near the visible area, for faster scrolling of long output.
+ */
+bool UserPrefValues::consoleVirtualizedOutput()
+{
+   return readPref<bool>("console_virtualized_output");
+}
+
+core::Error UserPrefValues::setConsoleVirtualizedOutput(bool val)
+{
+   return writePref("console_virtualized_output", val);
+}
+
 /**
  * Whether a git repo should be initialized inside new projects by default.
  */
@@ -2494,6 +2520,7 @@ std::vector<std::string> UserPrefValues::allKeys()
       kPackagesPaneEnabled,
       kUseRcppTemplate,
       kRestoreSourceDocuments,
+      kRestoreSourceDocumentsLazily,
       kHandleErrorsInUserCodeOnly,
       kAutoExpandErrorTracebacks,
       kCheckForUpdates,
@@ -2535,6 +2562,7 @@ std::vector<std::string> UserPrefValues::allKeys()
       kGlobalTheme,
       kGitDiffIgnoreWhitespace,
       kConsoleDoubleClickSelect,
+      kConsoleVirtualizedOutput,
       kNewProjGitInit,
       kRootDocument,
       kShowUserHomePage,
@@ -754,6 +754,7 @@ var RCodeModel = function(session, tokenizer,
       }
 
       var modeId = this.$session.getMode().$id;
+      var requestedRow = maxRow;
 
       // Nudge the maxRow ahead a bit -- some functions may request
       // the tree to be built up to a particular row, but we want to
@@ -800,9 +801,29 @@ var RCodeModel = function(session, tokenizer,
       var type = token.type;
       var position = iterator.getCurrentTokenPosition();
       var chunkCount = this.$scopes.getChunkCount()
+      var lastRow = iterator.$row;
+      var merged = false;
 
       do
       {
+         // On reaching a new row, record the tokenizer state of the rows
+         // passed, and stop if the parse has caught up with a previous parse
+         // (in which case the scopes which follow are re-used as they are).
+         if (iterator.$row !== lastRow)
+         {
+            for (var i = lastRow; i < iterator.$row; i++)
+               this.$scopes.setRowState(i, this.$session.getState(i));
+
+            if (this.$scopes.hasTail() &&
+                this.$scopes.mergeTail(iterator.$row, this.$session.getState(iterator.$row - 1)))
+            {
+               merged = true;
+               break;
+            }
+
+            lastRow = iterator.$row;
+         }
+
          // Bail if we've stepped past the max row.
          if (iterator.$row > maxRow)
             break;
@@ -1122,6 +1143,11 @@ var RCodeModel = function(session, tokenizer,
 
       } while ((token = iterator.moveToNextToken()));
 
+      // If the previous parse hadn't reached the requested row, continue
+      // from where it left off.
+      if (merged)
+         return this.$buildScopeTreeUpToRow(requestedRow);
+
       // Update the current parse position. We want to set this just
       // after the current token; in practice, since the tokenization
       // happens row-wise this means setting the parse position at the
@@ -1352,6 +1378,12 @@ var RCodeModel = function(session, tokenizer,
       return this.$scopes.getScopeList();
    };
 
+   // See 'ScopeManager.takeChangedRows'.
+   this.takeChangedScopeRows = function()
+   {
+      return this.$scopes.takeChangedRows(this.$doc.getLength());
+   };
+
    this.findFunctionDefinitionFromUsage = function(usagePos, functionName)
    {
       this.$buildScopeTreeUpToRow(this.$doc.getLength() - 1);
@@ -2002,7 +2034,7 @@ var RCodeModel = function(session, tokenizer,
          this.$removeRows(evt.start.row, evt.end.row - evt.start.row);
 
       this.$invalidateRow(evt.start.row);
-      this.$scopes.invalidateFrom(evt.start);
+      this.$scopes.invalidateFrom(evt.start, evt);
    };
    
    this.$invalidateRow = function(row)
@@ -355,8 +355,56 @@ define('mode/r_scope_tree', ["require", "exports", "module"], function(require,
       this.parsePos = {row: 0, column: 0};
       this.$root = new this.$ScopeNodeFactory("(Top Level)", this.parsePos, null,
                                  ScopeNode.TYPE_ROOT);
+
+      // The tokenizer state at the end of each row, as recorded by the scope
+      // tree builder (see 'setRowState').
+      this.$rowStates = [];
+
+      // Scopes following an edit which were detached from the tree, so that
+      // they can be re-attached (rather than re-parsed) if the parse
+      // converges with the previous one (see 'mergeTail').
+      this.$tail = null;
+
+      // The rows whose scopes have been re-parsed since 'takeChangedRows' was
+      // last called; null until then, as the whole tree is new.
+      this.$changedRows = null;
    };
 
+   function shiftPosition(pos, rowDelta) {
+      return pos && {row: pos.row + rowDelta, column: pos.column};
+   }
+
+   function shiftNode(node, rowDelta) {
+      // positions may be shared between nodes (and with the parse
+      // position), so replace rather than modify them
+      node.preamble = shiftPosition(node.preamble, rowDelta);
+      node.start = shiftPosition(node.start, rowDelta);
+      node.end = shiftPosition(node.end, rowDelta);
+      for (var i = 0; i < node.$children.length; i++)
+         shiftNode(node.$children[i], rowDelta);
+   }
+
+   // Summarizes the sections among the first 'count' of a node's children;
+   // where new sections go depends on the sections preceding them.
+   function sectionSignature(node, count) {
+      var depths = [];
+      for (var i = 0; i < count; i++)
+      {
+         var child = node.$children[i];
+         if (child.isSection())
+            depths.push(child.attributes.depth || 0);
+      }
+      return depths.join(",");
+   }
+
+   function isSameScope(lhs, rhs) {
+      return lhs === rhs || (
+         lhs.scopeType === rhs.scopeType &&
+         lhs.label === rhs.label &&
+         comparePoints(lhs.preamble, rhs.preamble) === 0 &&
+         comparePoints(lhs.start, rhs.start) === 0);
+   }
+
    (function() {
 
       this.getParsePosition = function() {
@@ -547,16 +595,322 @@ define('mode/r_scope_tree', ["require", "exports", "module"], function(require,
          return this.$root.getFunctionsInScope(pos, tokenizer);
       };
 
-      this.invalidateFrom = function(pos) {
+      // Invalidates the scope tree following 'pos', and returns the position
+      // from which parsing should resume. When given, 'delta' is the document
+      // change which prompted the invalidation; scopes lying entirely after
+      // it are then kept aside (shifted to account for any rows inserted or
+      // removed) so that they can be re-used when the parse catches up.
+      this.invalidateFrom = function(pos, delta) {
          pos = {row: Math.max(0, pos.row-1), column: 0};
          debuglog("Invalidate from " + pos.row + ", " + pos.column);
+
+         if (delta)
+            this.$onRowsChanged(delta);
+
          if (comparePoints(this.parsePos, pos) > 0)
+         {
+            if (delta && !this.$tail)
+               this.$detachTail(delta);
             this.parsePos = this.$root.invalidateFrom(pos);
+         }
+
+         // the parse resumes before 'pos' when a scope's preamble is invalidated
+         var changed = this.$changedRows;
+         if (changed)
+         {
+            var row = Math.min(pos.row, this.parsePos.row);
+            if (changed.start === -1 || row < changed.start)
+               changed.start = row;
+            changed.pending = true;
+         }
+
          this.printScopeTree();
+         return this.parsePos;
+      };
+
+      // Records the tokenizer state at the end of a row; this should be called
+      // by the scope tree builder for each row it parses.
+      this.setRowState = function(row, state) {
+         this.$rowStates[row] = state + "";
+      };
+
+      this.hasTail = function() {
+         return this.$tail != null;
+      };
+
+      // Shifts the recorded row states and the detached scopes (if any) to
+      // account for the rows changed by a document change.
+      this.$onRowsChanged = function(delta) {
+
+         var startRow = delta.start.row;
+         var count = delta.end.row - startRow;
+         var isInsert = delta.action === "insert";
+
+         // the last changed row ends with the same text as the row which held
+         // it before the change, so keep that row's state (as the tokenizer
+         // does) for comparison with the state the row now ends in; the rows
+         // inserted before it have no known state
+         var args = [startRow, isInsert ? 0 : count];
+         if (isInsert)
+            for (var i = 0; i < count; i++)
+               args.push(undefined);
+         this.$rowStates.splice.apply(this.$rowStates, args);
+
+         var rowDelta = isInsert ? count : -count;
+         var changed = this.$changedRows;
+         if (changed && changed.end > startRow)
+            changed.end = Math.max(changed.end + rowDelta, startRow);
+
+         var tail = this.$tail;
+         if (!tail)
+            return;
+
+         // drop detached scopes which began within the changed rows; the rest
+         // lie after them, and move with them
+         var lastRow = isInsert ? startRow : startRow + count;
+         var checkpoints = tail.checkpoints;
+         while (checkpoints.length && checkpoints[0].node.preamble.row <= lastRow)
+            checkpoints.shift();
+
+         if (checkpoints.length === 0)
+         {
+            this.$tail = null;
+            return;
+         }
+
+         for (var i = 0; i < checkpoints.length; i++)
+         {
+            var checkpoint = checkpoints[i];
+            shiftNode(checkpoint.node, rowDelta);
+            for (var j = 0; j < checkpoint.ends.length; j++)
+               checkpoint.ends[j] = shiftPosition(checkpoint.ends[j], rowDelta);
+         }
+         tail.parsePos = shiftPosition(tail.parsePos, rowDelta);
+      };
+
+      // Detaches the scopes lying entirely after a document change from the
+      // tree, as 'checkpoints' in document order. Each records the scopes
+      // which enclosed it, along with what's needed to verify that the parse
+      // is in the same state on reaching it as when it was first parsed.
+      this.$detachTail = function(delta) {
+
+         var startRow = delta.start.row;
+         var count = delta.end.row - startRow;
+         var isInsert = delta.action === "insert";
+         var lastRow = isInsert ? startRow : startRow + count;
+         var rowDelta = isInsert ? count : -count;
+
+         // walk down the scopes enclosing the end of the change, detaching
+         // the children which follow it at each level
+         var levels = [];
+         var path = [];
+         var node = this.$root;
+         while (node)
+         {
+            path.push(node);
+
+            var children = node.$children;
+            var index = children.length;
+            while (index > 0 && children[index - 1].preamble.row > lastRow)
+               index--;
+
+            if (index < children.length)
+            {
+               levels.push({
+                  path: path.slice(),
+                  previous: index > 0 ? children[index - 1] : null,
+                  index: index,
+                  nodes: children.splice(index, children.length - index)
+               });
+            }
+
+            var last = children[children.length - 1];
+            node = last && (last.end == null || last.end.row > lastRow) ? last : null;
+         }
+
+         if (levels.length === 0)
+            return;
+
+         var ends = [];
+         var signatures = [];
+         for (var i = 0; i < path.length; i++)
+         {
+            ends.push(shiftPosition(path[i].end, rowDelta));
+            signatures.push(sectionSignature(path[i], path[i].$children.length));
+         }
+
+         // the innermost level comes first in the document
+         var checkpoints = [];
+         for (var i = levels.length - 1; i >= 0; i--)
+         {
+            var level = levels[i];
+            var previous = level.previous;
+            for (var j = 0; j < level.nodes.length; j++)
+            {
+               var child = level.nodes[j];
+               var row = child.preamble.row;
+
+               // the siblings preceding the checkpoint include those detached
+               // before it
+               var parent = level.path[level.path.length - 1];
+               var siblings = parent.$children.concat(level.nodes.slice(0, j));
+               var parentSignature = sectionSignature({$children: siblings}, siblings.length);
+
+               // the parse is only known to be in the same state as before on
+               // reaching the start of this row if the enclosing scopes were
+               // the only ones open then
+               var valid = row > 0 &&
+                  (!previous || (previous.end && previous.end.row < row));
+               for (var k = 1; valid && k < level.path.length; k++)
+                  valid = level.path[k].start.row < row;
+
+               checkpoints.push({
+                  node: child,
+                  path: level.path,
+                  ends: ends.slice(0, level.path.length),
+                  signatures: signatures.slice(0, level.path.length - 1).concat([parentSignature]),
+                  state: valid ? this.$rowStates[row + rowDelta - 1] : undefined,
+                  chunkCount: $getChunkCount(child)
+               });
+
+               previous = child;
+            }
+         }
+
+         // record the number of chunks preceding each checkpoint, as chunks
+         // are numbered in document order
+         var chunkCount = $getChunkCount(this.$root);
+         for (var i = checkpoints.length - 1; i >= 0; i--)
+         {
+            var checkpoint = checkpoints[i];
+            checkpoint.chunksBefore = chunkCount;
+            chunkCount += checkpoint.chunkCount;
+         }
+
+         for (var i = 0; i < checkpoints.length; i++)
+            shiftNode(checkpoints[i].node, rowDelta);
+
+         this.$tail = {
+            checkpoints: checkpoints,
+            parsePos: shiftPosition(this.parsePos, rowDelta)
+         };
+      };
+
+      // Attempts to re-attach the detached scopes on reaching the start of
+      // 'row' (before any of its tokens are parsed). 'state' is the tokenizer
+      // state at the end of the previous row.
+      //
+      // If the tokenizer and the scope tree are in the same state as they were
+      // at this point in the previous parse, the rest of the parse would
+      // produce the same scopes as before, so they're re-attached (and the
+      // parse position is moved to where the previous parse ended).
+      //
+      // Returns true if the scopes were re-attached.
+      this.mergeTail = function(row, state) {
+
+         var tail = this.$tail;
+         if (!tail)
+            return false;
+
+         // drop checkpoints which the parse has passed
+         var checkpoints = tail.checkpoints;
+         while (checkpoints.length && checkpoints[0].node.preamble.row < row)
+            checkpoints.shift();
+
+         if (checkpoints.length === 0)
+         {
+            this.$tail = null;
+            return false;
+         }
+
+         var checkpoint = checkpoints[0];
+         if (checkpoint.node.preamble.row !== row)
+            return false;
+
+         // we'll either merge here or parse past this checkpoint
+         checkpoints.shift();
+
+         if (checkpoint.state === undefined || checkpoint.state !== state + "")
+            return false;
+
+         if ($getChunkCount(this.$root) !== checkpoint.chunksBefore)
+            return false;
+
+         // the open scopes are the chain of last children without an end
+         var active = [];
+         for (var node = this.$root; node; )
+         {
+            active.push(node);
+            var last = node.$children[node.$children.length - 1];
+            node = last && !last.end ? last : null;
+         }
+
+         if (active.length !== checkpoint.path.length)
+            return false;
+
+         for (var i = 0; i < active.length; i++)
+         {
+            if (!isSameScope(active[i], checkpoint.path[i]))
+               return false;
+
+            var signature = sectionSignature(active[i], active[i].$children.length);
+            if (signature !== checkpoint.signatures[i])
+               return false;
+         }
+
+         debuglog("Re-attaching scopes from row " + row);
+         checkpoints.unshift(checkpoint);
+         for (var i = 0; i < checkpoints.length; i++)
+         {
+            var parent = active[checkpoints[i].path.length - 1];
+            checkpoints[i].node.parentScope = parent;
+            parent.$children.push(checkpoints[i].node);
+         }
+
+         // close the enclosing scopes where they were previously closed
+         for (var i = 0; i < checkpoints.length; i++)
+         {
+            var ends = checkpoints[i].ends;
+            for (var j = 1; j < ends.length; j++)
+               active[j].end = ends[j];
+         }
+
+         this.parsePos = tail.parsePos;
+         this.$tail = null;
+
+         var changed = this.$changedRows;
+         if (changed)
+         {
+            changed.end = Math.max(changed.end, row);
+            changed.pending = false;
+         }
+
+         this.printScopeTree();
+         return true;
+      };
+
+      // Returns the rows whose scopes were re-parsed since this was last
+      // called, as [start, end): scopes outside of them are the same objects
+      // as before (moved to account for any rows inserted or removed). Returns
+      // null if the whole tree is new. 'rowCount' is the number of rows in the
+      // document, which bounds the rows re-parsed when the parse didn't
+      // catch up with the previous one.
+      this.takeChangedRows = function(rowCount) {
+         var changed = this.$changedRows;
+         this.$changedRows = {start: -1, end: -1, pending: false};
+
+         if (!changed)
+            return null;
+
+         if (changed.start === -1)
+            return [0, 0];
+
+         var end = changed.pending ? rowCount : Math.max(changed.end, changed.start);
+         return [changed.start, end];
       };
 
       function $getChunkCount(node) {
-         count = node.isChunk() ? 1 : 0;
+         var count = node.isChunk() ? 1 : 0;
          var children = node.$children || [];
          for (var i = 0; i < children.length; i++)
             count += $getChunkCount(children[i]);
@@ -0,0 +1,179 @@
+/*
+ * ConsoleOutputPager.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client;
+
+import java.util.ArrayList;
+
+import org.rstudio.core.client.dom.DOMRect;
+import org.rstudio.core.client.dom.DomUtils;
+
+import com.google.gwt.dom.client.Document;
+import com.google.gwt.dom.client.Element;
+import com.google.gwt.dom.client.Style.Display;
+import com.google.gwt.dom.client.Style.Overflow;
+import com.google.gwt.dom.client.Style.Unit;
+
+/**
+ * Keeps only the pages of console output near the visible viewport in the
+ * DOM. Completed pages which scroll well out of view are swapped for
+ * placeholders of the same height, which are swapped back for the page
+ * content as they approach the viewport.
+ *
+ * Placeholders hold as many newlines as the page they stand in for, so line
+ * counting and trimming of the console output (DomUtils.countLines and
+ * DomUtils.trimLines) see the same number of lines either way.
+ */
+class ConsoleOutputPager
+{
+   private static class Page
+   {
+      public Page(Element element)
+      {
+         this.element = element;
+      }
+
+      public Element node()
+      {
+         return placeholder != null ? placeholder : element;
+      }
+
+      public final Element element;
+      public Element placeholder;
+      public int lines;
+   }
+
+   public ConsoleOutputPager(Element output)
+   {
+      output_ = output;
+   }
+
+   public void addPage(Element page)
+   {
+      pages_.add(new Page(page));
+   }
+
+   public void clear()
+   {
+      pages_.clear();
+   }
+
+   public boolean hasDetachedPages()
+   {
+      for (Page page : pages_)
+         if (page.placeholder != null)
+            return true;
+      return false;
+   }
+
+   /**
+    * Restores all pages to the DOM (e.g. before the output is copied, or when
+    * paging is turned off).
+    */
+   public void attachAll()
+   {
+      prune();
+      for (Page page : pages_)
+         attach(page);
+   }
+
+   /**
+    * Detaches pages which are more than a viewport's height above or below
+    * the visible portion of the scroller, and re-attaches those within it.
+    */
+   public void update(Element scroller)
+   {
+      prune();
+      if (pages_.isEmpty())
+         return;
+
+      DOMRect viewport = DomUtils.getBoundingClientRect(scroller);
+      double margin = Math.max(viewport.getHeight(), MIN_MARGIN_PX);
+      double top = viewport.getTop() - margin;
+      double bottom = viewport.getBottom() + margin;
+
+      // don't remove content that may be part of an active selection
+      boolean canDetach = !DomUtils.selectionExists();
+
+      // measure everything before modifying the DOM, so that layout is only
+      // computed once
+      int count = pages_.size();
+      boolean[] visible = new boolean[count];
+      double[] heights = new double[count];
+      for (int i = 0; i < count; i++)
+      {
+         DOMRect rect = DomUtils.getBoundingClientRect(pages_.get(i).node());
+         visible[i] = rect.getBottom() >= top && rect.getTop() <= bottom;
+         heights[i] = rect.getHeight();
+      }
+
+      for (int i = 0; i < count; i++)
+      {
+         Page page = pages_.get(i);
+         if (visible[i])
+            attach(page);
+         else if (canDetach)
+            detach(page, heights[i]);
+      }
+   }
+
+   private void attach(Page page)
+   {
+      if (page.placeholder == null)
+         return;
+
+      // lines may have been trimmed from the placeholder while the page was
+      // detached; trim the same number from the page
+      int trimmed = page.lines - DomUtils.countLines(page.placeholder, true);
+      if (trimmed > 0)
+         DomUtils.trimLines(page.element, trimmed);
+
+      page.placeholder.getParentElement().replaceChild(
+            page.element, page.placeholder);
+      page.placeholder = null;
+   }
+
+   private void detach(Page page, double height)
+   {
+      if (page.placeholder != null || height <= 0)
+         return;
+
+      page.lines = DomUtils.countLines(page.element, true);
+
+      Element placeholder = Document.get().createSpanElement();
+      placeholder.getStyle().setDisplay(Display.BLOCK);
+      placeholder.getStyle().setOverflow(Overflow.HIDDEN);
+      placeholder.getStyle().setHeight(height, Unit.PX);
+      placeholder.setAttribute("aria-hidden", "true");
+      placeholder.setInnerText(StringUtil.repeat("\n", page.lines));
+
+      page.element.getParentElement().replaceChild(placeholder, page.element);
+      page.placeholder = placeholder;
+   }
+
+   // drop pages which are no longer part of the output (e.g. trimmed)
+   private void prune()
+   {
+      for (int i = pages_.size() - 1; i >= 0; i--)
+      {
+         if (!output_.isOrHasChild(pages_.get(i).node()))
+            pages_.remove(i);
+      }
+   }
+
+   private final Element output_;
+   private final ArrayList<Page> pages_ = new ArrayList<Page>();
+
+   private static final double MIN_MARGIN_PX = 500;
+}
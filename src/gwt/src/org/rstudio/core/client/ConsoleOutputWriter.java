@@ -41,6 +41,55 @@ public class ConsoleOutputWriter
          Roles.getDocumentRole().set(output_.getElement());
       }
    }
+
+   public boolean isVirtualized()
+   {
+      return pager_ != null;
+   }
+
+   /**
+    * Turns virtualized rendering of the output on or off. When on, output is
+    * split into pages and only those pages near the visible portion of the
+    * console are kept in the DOM (see updateViewport).
+    */
+   public void setVirtualized(boolean virtualized)
+   {
+      if (virtualized == isVirtualized())
+         return;
+
+      if (virtualized)
+      {
+         pager_ = new ConsoleOutputPager(getElement());
+      }
+      else
+      {
+         pager_.attachAll();
+         pager_ = null;
+      }
+
+      // note that output which is in progress continues to be written as
+      // before; the change applies from the next output segment
+   }
+
+   /**
+    * Adds or removes pages of output from the DOM based on their proximity
+    * to the visible portion of the given scroller.
+    */
+   public void updateViewport(Element scroller)
+   {
+      if (pager_ != null)
+         pager_.update(scroller);
+   }
+
+   /**
+    * Restores all output to the DOM, so that it can be selected or copied
+    * in its entirety.
+    */
+   public void restoreAllOutput()
+   {
+      if (pager_ != null && pager_.hasDetachedPages())
+         pager_.attachAll();
+   }
    
    public PreWidget getWidget()
    {
@@ -57,6 +106,8 @@ public class ConsoleOutputWriter
       output_.setText("");
       virtualConsole_ = null;
       lines_ = 0;
+      if (pager_ != null)
+         pager_.clear();
    }
 
    public int getMaxOutputLines()
@@ -97,6 +148,11 @@ public class ConsoleOutputWriter
          trailing.setTabIndex(-1);
          outEl.appendChild(trailing);
          virtualConsole_ = vcFactory_.create(trailing);
+         if (pager_ != null)
+         {
+            final ConsoleOutputPager pager = pager_;
+            virtualConsole_.setPaging(LINES_PER_PAGE, page -> pager.addPage(page));
+         }
       }
 
       int oldLineCount = DomUtils.countLines(virtualConsole_.getParent(), true);
@@ -137,12 +193,23 @@ public class ConsoleOutputWriter
       if (virtualConsole_ != null)
       {
          Node child = virtualConsole_.getParent().getLastChild();
+
+         // when paged, the output is within the last non-empty page
+         if (virtualConsole_.isPaged())
+         {
+            while (child != null && !child.hasChildNodes())
+               child = child.getPreviousSibling();
+            if (child != null)
+               child = child.getLastChild();
+         }
+
          if (child != null &&
              child.getNodeType() == Node.ELEMENT_NODE &&
              !Element.as(child).getInnerText().endsWith("\n"))
          {
             virtualConsole_.submit("\n");
          }
+         virtualConsole_.completePage();
          // clear the virtual console so we start with a fresh slate
          virtualConsole_ = null;
       } 
@@ -175,4 +242,7 @@ public class ConsoleOutputWriter
    private final PreWidget output_;
    private VirtualConsole virtualConsole_;
    private VirtualConsoleFactory vcFactory_;
+   private ConsoleOutputPager pager_;
+
+   private static final int LINES_PER_PAGE = 200;
 }
@@ -0,0 +1,162 @@
+/*
+ * ConsoleRangeIndex.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client;
+
+/**
+ * Index of the styled output ranges (runs) in a VirtualConsole, keyed by
+ * the offset at which each run starts.
+ *
+ * Runs are stored in a flat array ordered by offset: lookups are binary
+ * searches, and since console output almost always writes to the last few
+ * runs (appends, carriage returns, backspaces), insertions and removals
+ * only need to shift the handful of entries that follow them.
+ */
+class ConsoleRangeIndex<T>
+{
+   public int size()
+   {
+      return size_;
+   }
+
+   public boolean isEmpty()
+   {
+      return size_ == 0;
+   }
+
+   public void clear()
+   {
+      for (int i = 0; i < size_; i++)
+         values_[i] = null;
+      size_ = 0;
+   }
+
+   public int keyAt(int index)
+   {
+      return keys_[index];
+   }
+
+   @SuppressWarnings("unchecked")
+   public T valueAt(int index)
+   {
+      return (T) values_[index];
+   }
+
+   /**
+    * @return The value with the greatest key, or null if the index is empty
+    */
+   public T last()
+   {
+      return size_ == 0 ? null : valueAt(size_ - 1);
+   }
+
+   /**
+    * @return The position of the entry with the greatest key less than or
+    *         equal to the given key, or -1 if there is no such entry
+    */
+   public int floorIndex(int key)
+   {
+      int index = search(key);
+      return index >= 0 ? index : -index - 2;
+   }
+
+   public T get(int key)
+   {
+      int index = search(key);
+      return index >= 0 ? valueAt(index) : null;
+   }
+
+   /**
+    * Adds an entry, replacing any existing entry with the same key.
+    */
+   public void put(int key, T value)
+   {
+      int index = search(key);
+      if (index >= 0)
+      {
+         values_[index] = value;
+         return;
+      }
+
+      index = -index - 1;
+      if (size_ == keys_.length)
+      {
+         int[] keys = new int[keys_.length * 2];
+         Object[] values = new Object[values_.length * 2];
+         System.arraycopy(keys_, 0, keys, 0, size_);
+         System.arraycopy(values_, 0, values, 0, size_);
+         keys_ = keys;
+         values_ = values;
+      }
+
+      if (index < size_)
+      {
+         System.arraycopy(keys_, index, keys_, index + 1, size_ - index);
+         System.arraycopy(values_, index, values_, index + 1, size_ - index);
+      }
+      keys_[index] = key;
+      values_[index] = value;
+      size_++;
+   }
+
+   /**
+    * @return The removed value, or null if there was no entry with the key
+    */
+   public T remove(int key)
+   {
+      int index = search(key);
+      if (index < 0)
+         return null;
+
+      T value = valueAt(index);
+      if (index < size_ - 1)
+      {
+         System.arraycopy(keys_, index + 1, keys_, index, size_ - index - 1);
+         System.arraycopy(values_, index + 1, values_, index, size_ - index - 1);
+      }
+      size_--;
+      values_[size_] = null;
+      return value;
+   }
+
+   // same contract as Arrays.binarySearch: the position of the key if
+   // present, otherwise (-(insertion point) - 1)
+   private int search(int key)
+   {
+      // fast path for the common case of writing at the end of the output
+      if (size_ > 0 && key > keys_[size_ - 1])
+         return -size_ - 1;
+
+      int lo = 0;
+      int hi = size_ - 1;
+      while (lo <= hi)
+      {
+         int mid = (lo + hi) >>> 1;
+         int midKey = keys_[mid];
+         if (midKey < key)
+            lo = mid + 1;
+         else if (midKey > key)
+            hi = mid - 1;
+         else
+            return mid;
+      }
+      return -(lo + 1);
+   }
+
+   private int[] keys_ = new int[INITIAL_CAPACITY];
+   private Object[] values_ = new Object[INITIAL_CAPACITY];
+   private int size_ = 0;
+
+   private static final int INITIAL_CAPACITY = 16;
+}
@@ -459,4 +459,11 @@ public class ElementIds
    
    // SatelliteWindow
    public final static String SATELLITE_PANEL = "satellite_panel";
+
+   // RpcMetricsDialog
+   public final static String RPC_METRICS_JSON_BUTTON = "rpc_metrics_json";
+   public final static String RPC_METRICS_RESET_BUTTON = "rpc_metrics_reset";
+
+   // AnalysisTimingsDialog
+   public final static String ANALYSIS_TIMINGS_RESET_BUTTON = "analysis_timings_reset";
 }
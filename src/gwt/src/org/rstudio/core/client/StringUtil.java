@@ -1219,6 +1219,31 @@ public class StringUtil
       return ((crc ^ (-1)) >>> 0).toString(16);
    }-*/;
 
+   /**
+    * Computes the CRC-32 checksum of a string's UTF-16LE encoding. Unlike
+    * crc32(), every bit of each character contributes, so it can be checked
+    * against a checksum computed on the server.
+    *
+    * @param str The string on which to compute the checksum
+    * @return The checksum value, as an 8 digit hexadecimal string
+    */
+   public static final native String crc32Utf16(String str)/*-{
+      // ensure the table is initialized
+      @org.rstudio.core.client.StringUtil::crc32(Ljava/lang/String;)("");
+      var crcTable = $wnd.rs_crc32Table;
+      var crc = 0 ^ (-1);
+
+      for (var i = 0; i < str.length; i++)
+      {
+         var unit = str.charCodeAt(i);
+         crc = (crc >>> 8) ^ crcTable[(crc ^ unit) & 0xFF];
+         crc = (crc >>> 8) ^ crcTable[(crc ^ (unit >>> 8)) & 0xFF];
+      }
+
+      var hex = ((crc ^ (-1)) >>> 0).toString(16);
+      return "00000000".substring(hex.length) + hex;
+   }-*/;
+
    // Count newlines in a string
    public static native int newlineCount(String str) /*-{
       return (str.match(/\n/g)||[]).length;
@@ -16,12 +16,6 @@ package org.rstudio.core.client;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
-import java.util.SortedMap;
-import java.util.TreeMap;
-import java.util.TreeSet;
 
 import com.google.inject.Provider;
 import com.google.inject.assistedinject.Assisted;
@@ -42,6 +36,11 @@ import org.rstudio.studio.client.workbench.prefs.model.UserPrefsSubset;
  */
 public class VirtualConsole
 {
+   public interface PageListener
+   {
+      void onPageCompleted(Element page);
+   }
+
    public interface Preferences
    {
       int truncateLongLinesInConsoleHistory();
@@ -82,6 +81,48 @@ public class VirtualConsole
    {
       prefs_ = prefs;
       parent_ = parent;
+      page_ = parent;
+   }
+
+   /**
+    * Splits output into pages (span elements within the parent) of roughly
+    * the given number of lines, so that completed pages can be removed from
+    * (and later restored to) the DOM by the listener. Must be called before
+    * any output is submitted.
+    */
+   public void setPaging(int linesPerPage, PageListener listener)
+   {
+      linesPerPage_ = linesPerPage;
+      pageListener_ = listener;
+      if (parent_ != null && linesPerPage_ > 0)
+         startPage();
+   }
+
+   public boolean isPaged()
+   {
+      return linesPerPage_ > 0;
+   }
+
+   /**
+    * Marks the current page as complete (e.g. because no more output will be
+    * written to this console).
+    */
+   public void completePage()
+   {
+      if (linesPerPage_ <= 0 || parent_ == null || !page_.hasChildNodes())
+         return;
+
+      if (pageListener_ != null)
+         pageListener_.onPageCompleted(page_);
+      startPage();
+   }
+
+   private void startPage()
+   {
+      page_ = Document.get().createSpanElement();
+      parent_.appendChild(page_);
+      pageLines_ = 0;
+      newPage_ = true;
    }
     
    public void clear()
@@ -112,7 +153,15 @@ public class VirtualConsole
       while (cursor_ < output_.length() && output_.charAt(cursor_) != '\n')
          cursor_++;
       // Now we're either at the end of the buffer, or on top of a '\n'
+      boolean atEnd = cursor_ == output_.length();
       text("\n", clazz, false/*forceNewRange*/);
+
+      // start a new page once the current one is full
+      if (atEnd && linesPerPage_ > 0 && parent_ != null &&
+          ++pageLines_ >= linesPerPage_)
+      {
+         completePage();
+      }
    }
 
    private void formfeed()
@@ -122,7 +171,11 @@ public class VirtualConsole
       cursor_ = 0;
       class_.clear();
       if (parent_ != null)
+      {
          parent_.setInnerHTML("");
+         if (linesPerPage_ > 0)
+            startPage();
+      }
    }
    
    private void clearPartialAnsiCode()
@@ -130,32 +183,20 @@ public class VirtualConsole
       partialAnsiCode_ = null;
    }
 
-   /**
-    * Debugging aid
-    * @param entry
-    * @return diagnostic string summarizing the Entry
-    */
-   private String debugDumpClassEntry(Entry<Integer, ClassRange> entry)
-   {
-      if (entry == null)
-         return("[null]");
-      else
-         return("[" + entry.getKey() + "]=" + entry.getValue().debugDump());
-   }
-
    /**
     * Debugging aid
     */
    @SuppressWarnings("unused")
-   private void debugDumpClassMap(String name, Map<Integer, ClassRange> map)
+   private void debugDumpClassMap(String name, ConsoleRangeIndex<ClassRange> map)
    {
       Debug.logToConsole("Dumping " + name);
       if (map == null)
          Debug.logToConsole("null");
       else
-         for (Map.Entry<Integer, ClassRange> entry : map.entrySet())
+         for (int i = 0; i < map.size(); i++)
          {
-            Debug.logToConsole(name + debugDumpClassEntry(entry));
+            Debug.logToConsole(name + "[" + map.keyAt(i) + "]=" +
+                               map.valueAt(i).debugDump());
          }
       Debug.logToConsole("Done dumping " + name);
    }
@@ -204,9 +245,8 @@ public class VirtualConsole
     */
    private void appendText(String text, String clazz, boolean forceNewRange)
    {
-      Entry <Integer, ClassRange> last = class_.lastEntry();
-      ClassRange range = last.getValue();
-      if (!forceNewRange && StringUtil.equals(range.clazz, clazz))
+      ClassRange range = class_.last();
+      if (!forceNewRange && !newPage_ && StringUtil.equals(range.clazz, clazz))
       {
          // just append to the existing output stream
          range.appendRight(text, 0);
@@ -215,8 +255,9 @@ public class VirtualConsole
       {
          // create a new output range with this class
          final ClassRange newRange = new ClassRange(cursor_, clazz, text);
-         parent_.appendChild(newRange.element);
+         page_.appendChild(newRange.element);
          class_.put(cursor_, newRange);
+         newPage_ = false;
       }
    }
 
@@ -230,41 +271,39 @@ public class VirtualConsole
       int start = range.start;
       int end = start + range.length;
       
-      Entry<Integer, ClassRange> left = class_.floorEntry(start);
-      Entry<Integer, ClassRange> right = class_.floorEntry(end);
-
-      // create a view into the map representing the ranges that this class
-      // overlaps
-      SortedMap<Integer, ClassRange> view = null;
-      if (left != null && right != null)
-         view = class_.subMap(left.getKey(), true, right.getKey(), true);
-      else if (left == null && right != null)
-         view = class_.tailMap(right.getKey(), true);
-      else if (left != null && right == null)
-         view = class_.headMap(left.getKey(), true);
+      int left = class_.floorIndex(start);
+      int right = class_.floorIndex(end);
 
       // if no overlapping ranges exist, we can just create a new one
-      if (view == null)
+      if (right == -1)
       {
          class_.put(start, range);
          if (parent_ != null)
-            parent_.appendChild(range.element);
+         {
+            page_.appendChild(range.element);
+            newPage_ = false;
+         }
          return;
       }
 
+      // the positions (in the index) of the ranges that this class overlaps
+      int first = left == -1 ? right : left;
+      int last = left == -1 ? class_.size() - 1 : right;
+
       // accumulators for actions to take after we finish iterating over the
       // overlapping ranges (we don't do this in place to avoid invalidating
-      // iterators)
-      Set<Integer> deletions = new TreeSet<>();
+      // positions); moves are recorded in ascending order of their keys
+      List<Integer> deletions = new ArrayList<>();
       List<ClassRange> insertions = new ArrayList<>();
-      Map<Integer, Integer> moves = new TreeMap<>();
+      List<Integer> moveKeys = new ArrayList<>();
+      List<Integer> moveTargets = new ArrayList<>();
 
       boolean haveInsertedRange = false;
 
-      for (Entry<Integer, ClassRange> entry: view.entrySet())
+      for (int i = first; i <= last; i++)
       {
-         ClassRange overlap = entry.getValue();
-         int l = entry.getKey();
+         ClassRange overlap = class_.valueAt(i);
+         int l = class_.keyAt(i);
          int r = l + overlap.length;
          boolean matches = StringUtil.equals(range.clazz, overlap.clazz);
          if (start >= l && start < r && end >= r) 
@@ -284,7 +323,7 @@ public class VirtualConsole
                insertions.add(range);
                haveInsertedRange = true;
                if (parent_ != null)
-                  parent_.insertAfter(range.element, overlap.element);
+                  containerOf(overlap).insertAfter(range.element, overlap.element);
             }
          }
          else if (start <= l && end <= r && end > l)
@@ -306,7 +345,8 @@ public class VirtualConsole
                   haveInsertedRange = false;
                }
 
-               moves.put(l, start);
+               moveKeys.add(l);
+               moveTargets.add(start);
             }
             else
             {
@@ -317,10 +357,11 @@ public class VirtualConsole
                   insertions.add(range);
 
                // move the shortened range to its new start position
-               moves.put(l, overlap.start);
+               moveKeys.add(l);
+               moveTargets.add(overlap.start);
 
                if (parent_ != null && !range.text().isEmpty())
-                  parent_.insertBefore(range.element, overlap.element);
+                  containerOf(overlap).insertBefore(range.element, overlap.element);
               
             }
          }
@@ -329,7 +370,7 @@ public class VirtualConsole
             // this range is fully overwritten, just delete it
             deletions.add(l);
             if (parent_ != null)
-               parent_.removeChild(overlap.element);
+               containerOf(overlap).removeChild(overlap.element);
          }
          else if (start > l && end < r)
          {
@@ -350,7 +391,7 @@ public class VirtualConsole
                // insert the new range
                insertions.add(range);
                if (parent_ != null)
-                  parent_.insertAfter(range.element, overlap.element);
+                  containerOf(overlap).insertAfter(range.element, overlap.element);
                
                // add back the remainder
                ClassRange remainder = new ClassRange(
@@ -360,7 +401,7 @@ public class VirtualConsole
                                     text.length()));
                insertions.add(remainder);
                if (parent_ != null)
-                  parent_.insertAfter(remainder.element, range.element);
+                  containerOf(range).insertAfter(remainder.element, range.element);
             }
          }
       }
@@ -371,11 +412,10 @@ public class VirtualConsole
          class_.remove(key);
       }
 
-      for (Integer key: moves.keySet())
+      for (int i = 0; i < moveKeys.size(); i++)
       {
-         ClassRange moved = class_.get(key);
-         class_.remove(key);
-         class_.put(moves.get(key), moved);
+         ClassRange moved = class_.remove(moveKeys.get(i));
+         class_.put(moveTargets.get(i), moved);
       }
 
       for (ClassRange val: insertions)
@@ -384,6 +424,14 @@ public class VirtualConsole
       }
    }
    
+   // the element containing a range's span; this is the parent unless the
+   // output is paged
+   private Element containerOf(ClassRange range)
+   {
+      Element container = range.element.getParentElement();
+      return container != null ? container : parent_;
+   }
+
    /**
     * Write text to DOM
     * @param text text to write
@@ -694,8 +742,15 @@ public class VirtualConsole
    private static final Pattern CONTROL = Pattern.create("[\r\b\f\n]");
    
    private final StringBuilder output_ = new StringBuilder();
-   private final TreeMap<Integer, ClassRange> class_ = new TreeMap<Integer, ClassRange>();
+   private final ConsoleRangeIndex<ClassRange> class_ = new ConsoleRangeIndex<ClassRange>();
    private final Element parent_;
+
+   // paging state (only used when setPaging has been called)
+   private Element page_;
+   private int linesPerPage_ = 0;
+   private int pageLines_ = 0;
+   private boolean newPage_ = false;
+   private PageListener pageListener_;
    
    private int cursor_ = 0;
    private AnsiCode ansi_;
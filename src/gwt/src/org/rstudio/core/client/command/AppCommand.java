@@ -109,11 +109,13 @@ public class AppCommand implements Command, ClickHandler, ImageResourceProvider
    
    public AppCommand()
    {
-      if (Desktop.hasDesktopFrame())
-      {
-         addEnabledChangedHandler((command) -> DesktopMenuCallback.setCommandEnabled(id_, enabled_));
-         addVisibleChangedHandler((command) -> DesktopMenuCallback.setCommandVisible(id_, visible_));
-      }
+      this(CommandStateBatch.get());
+   }
+
+   AppCommand(CommandStateBatch batch)
+   {
+      batch_ = batch;
+      desktop_ = Desktop.hasDesktopFrame();
    }
 
    void executeFromShortcut()
@@ -181,12 +183,27 @@ public class AppCommand implements Command, ClickHandler, ImageResourceProvider
       return enabled_ && isVisible(); // jcheng 06/30/2010: Hmmmm, smells weird.
    }
 
+   boolean isEnabledRaw()
+   {
+      return enabled_;
+   }
+
    public void setEnabled(boolean enabled)
    {
       if (enabled != enabled_)
       {
+         if (batch_.isBatching())
+         {
+            batch_.record(this);
+            enabled_ = enabled;
+            return;
+         }
+
+         batch_.flush(this);
          enabled_ = enabled;
-         handlers_.fireEvent(new EnabledChangedEvent(this));
+         fireStateChanged(true, false);
+         if (desktop_)
+            DesktopMenuCallback.setCommandEnabled(id_, enabled_);
       }
    }
 
@@ -199,10 +216,30 @@ public class AppCommand implements Command, ClickHandler, ImageResourceProvider
    {
       if (!removed_ && visible != visible_)
       {
+         if (batch_.isBatching())
+         {
+            batch_.record(this);
+            visible_ = visible;
+            return;
+         }
+
+         batch_.flush(this);
          visible_ = visible;
-         handlers_.fireEvent(new VisibleChangedEvent(this));
+         fireStateChanged(false, true);
+         if (desktop_)
+            DesktopMenuCallback.setCommandVisible(id_, visible_);
       }
    }
+
+   // notifies listeners (but not the desktop menu) of state changes; used
+   // directly by CommandStateBatch, which updates the desktop menu in bulk
+   void fireStateChanged(boolean enabledChanged, boolean visibleChanged)
+   {
+      if (enabledChanged)
+         handlers_.fireEvent(new EnabledChangedEvent(this));
+      if (visibleChanged)
+         handlers_.fireEvent(new VisibleChangedEvent(this));
+   }
    
    /**
     * Restores a command which was formerly removed. The command must still be made
@@ -730,6 +767,8 @@ public class AppCommand implements Command, ClickHandler, ImageResourceProvider
    private boolean checked_ = false;
    private String windowMode_ = "any";
    private final HandlerManager handlers_ = new HandlerManager(this);
+   private final CommandStateBatch batch_;
+   private final boolean desktop_;
    private boolean rebindable_ = true;
    private Context context_ = Context.Workbench;
 
@@ -0,0 +1,204 @@
+/*
+ * CommandStateBatch.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.command;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.rstudio.core.client.command.impl.DesktopMenuCallback;
+import org.rstudio.core.client.js.JsObject;
+import org.rstudio.studio.client.application.Desktop;
+
+import com.google.gwt.core.client.JsArray;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.user.client.Command;
+
+/**
+ * Records changes to the enabled and visible state of commands made between
+ * beginUpdate() and endUpdate(), and notifies listeners of them once, when
+ * the browser event that made them has been handled. A command toggled
+ * several times during an update (e.g. disabled and then re-enabled on a tab
+ * switch) fires no events at all, and the desktop menu receives a single
+ * update for the whole batch.
+ *
+ * The state of each command is changed immediately; only the notifications
+ * are deferred. Changes made outside an update are delivered as they're
+ * made, after any notifications still pending for the same command.
+ */
+public class CommandStateBatch
+{
+   public interface Host
+   {
+      void scheduleFlush(Command flush);
+      void updateDesktopMenu(List<AppCommand> commands);
+   }
+
+   public static CommandStateBatch get()
+   {
+      if (INSTANCE == null)
+         INSTANCE = new CommandStateBatch(new DefaultHost());
+      return INSTANCE;
+   }
+
+   public CommandStateBatch(Host host)
+   {
+      host_ = host;
+   }
+
+   public void beginUpdate()
+   {
+      depth_++;
+   }
+
+   public void endUpdate()
+   {
+      assert depth_ > 0 : "endUpdate() called without beginUpdate()";
+      if (depth_ == 0)
+         return;
+
+      depth_--;
+      if (depth_ == 0 && !pending_.isEmpty())
+         scheduleFlush();
+   }
+
+   /**
+    * @return Whether state changes are currently being recorded rather than
+    *   delivered, i.e. whether an update is in progress
+    */
+   public boolean isBatching()
+   {
+      return depth_ > 0;
+   }
+
+   /**
+    * Records that a command's state is about to change; must be called
+    * before the change is made, so that its original state is known.
+    */
+   void record(AppCommand command)
+   {
+      if (!pending_.containsKey(command))
+         pending_.put(command, new State(command));
+   }
+
+   /**
+    * Delivers the notifications still pending for a single command; called
+    * before the command's state is changed outside an update, so that its
+    * listeners see the changes in the order they were made.
+    */
+   void flush(AppCommand command)
+   {
+      State state = pending_.remove(command);
+      if (state != null && state.deliver())
+         host_.updateDesktopMenu(Collections.singletonList(command));
+   }
+
+   void flush()
+   {
+      if (depth_ > 0)
+         return;
+
+      ArrayList<AppCommand> changed = new ArrayList<>();
+      ArrayList<State> states = new ArrayList<>(pending_.values());
+      pending_.clear();
+
+      for (State state : states)
+      {
+         if (state.deliver())
+            changed.add(state.command);
+      }
+
+      if (!changed.isEmpty())
+         host_.updateDesktopMenu(changed);
+   }
+
+   private void scheduleFlush()
+   {
+      if (flushScheduled_)
+         return;
+      flushScheduled_ = true;
+      host_.scheduleFlush(() ->
+      {
+         flushScheduled_ = false;
+         flush();
+      });
+   }
+
+   // the state of a command before the batch changed it
+   private static class State
+   {
+      public State(AppCommand command)
+      {
+         this.command = command;
+         this.enabled = command.isEnabledRaw();
+         this.visible = command.isVisible();
+      }
+
+      // fires events for whatever differs from the command's current state;
+      // returns whether anything did
+      public boolean deliver()
+      {
+         boolean enabledChanged = enabled != command.isEnabledRaw();
+         boolean visibleChanged = visible != command.isVisible();
+         if (!enabledChanged && !visibleChanged)
+            return false;
+
+         command.fireStateChanged(enabledChanged, visibleChanged);
+         return true;
+      }
+
+      public final AppCommand command;
+      public final boolean enabled;
+      public final boolean visible;
+   }
+
+   private static class DefaultHost implements Host
+   {
+      @Override
+      public void scheduleFlush(Command flush)
+      {
+         // runs before control returns to the browser, so it doesn't wait on
+         // (or get throttled with) animation frames in background windows
+         Scheduler.get().scheduleFinally(() -> flush.execute());
+      }
+
+      @Override
+      public void updateDesktopMenu(List<AppCommand> commands)
+      {
+         if (!Desktop.hasDesktopFrame())
+            return;
+
+         JsArray<JsObject> states = JsArray.createArray().cast();
+         for (AppCommand command : commands)
+         {
+            JsObject state = JsObject.createJsObject();
+            state.setString("id", command.getId());
+            state._setBoolean("enabled", command.isEnabledRaw());
+            state._setBoolean("visible", command.isVisible());
+            states.push(state);
+         }
+         DesktopMenuCallback.setCommandStates(states);
+      }
+   }
+
+   private final Host host_;
+   private final Map<AppCommand, State> pending_ = new LinkedHashMap<>();
+   private int depth_ = 0;
+   private boolean flushScheduled_ = false;
+
+   private static CommandStateBatch INSTANCE;
+}
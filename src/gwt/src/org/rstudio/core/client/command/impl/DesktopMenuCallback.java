@@ -17,8 +17,10 @@ package org.rstudio.core.client.command.impl;
 import org.rstudio.core.client.StringUtil;
 import org.rstudio.core.client.command.AppCommand;
 import org.rstudio.core.client.command.MenuCallback;
+import org.rstudio.core.client.js.JsObject;
 
 import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArray;
 
 public class DesktopMenuCallback implements MenuCallback
 {
@@ -82,6 +84,31 @@ public class DesktopMenuCallback implements MenuCallback
       callbacks.setCommandEnabled(commandId, enabled);
    }-*/;
 
+   /**
+    * Updates the enabled and visible state of several commands in a single
+    * call to the desktop frame; each state is an object with fields "id",
+    * "enabled" and "visible".
+    */
+   public static final void setCommandStates(JsArray<JsObject> states)
+   {
+      setCommandStatesImpl(states, MENU_CALLBACKS);
+   }
+   
+   private native static final void setCommandStatesImpl(JsArray<JsObject> states, JavaScriptObject callbacks)
+   /*-{
+      if (callbacks.setCommandStates)
+      {
+         callbacks.setCommandStates(states);
+         return;
+      }
+      
+      for (var i = 0; i < states.length; i++)
+      {
+         callbacks.setCommandEnabled(states[i].id, states[i].enabled);
+         callbacks.setCommandVisible(states[i].id, states[i].visible);
+      }
+   }-*/;
+
    public static final void setCommandChecked(String commandId, boolean checked)
    {
       setCommandCheckedImpl(commandId, checked, MENU_CALLBACKS);
@@ -0,0 +1,190 @@
+/*
+ * SortedKeyedList.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.container;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import com.google.gwt.view.client.ProvidesKey;
+
+/**
+ * Keeps a list (e.g. the list backing a ListDataProvider) sorted, with its
+ * items indexed by key, so that an item can be found, inserted, replaced or
+ * removed with a binary search rather than a scan of the whole list.
+ *
+ * All changes to the list should be made through this class; call sort() if
+ * the comparator's ordering changes.
+ */
+public class SortedKeyedList<T>
+{
+   public SortedKeyedList(List<T> list,
+                          Comparator<T> comparator,
+                          ProvidesKey<T> keyProvider)
+   {
+      list_ = list;
+      comparator_ = comparator;
+      keyProvider_ = keyProvider;
+      for (T item : list_)
+         items_.put(keyProvider_.getKey(item), item);
+   }
+
+   public int size()
+   {
+      return list_.size();
+   }
+
+   public T get(Object key)
+   {
+      return items_.get(key);
+   }
+
+   /**
+    * @return The index of the item with the given key, or -1 if there's none
+    */
+   public int indexOf(Object key)
+   {
+      T item = items_.get(key);
+      if (item == null)
+         return -1;
+
+      // items that compare equal may be in any order, so look through them
+      // for this one
+      for (int i = lowerBound(item); i < list_.size(); i++)
+      {
+         T candidate = list_.get(i);
+         if (candidate == item)
+            return i;
+         if (comparator_.compare(candidate, item) != 0)
+            break;
+      }
+
+      // not where it should be; fall back to a scan
+      return list_.indexOf(item);
+   }
+
+   /**
+    * Adds an item, replacing any item with the same key.
+    *
+    * @return The index of the item in the list
+    */
+   public int put(T item)
+   {
+      Object key = keyProvider_.getKey(item);
+      int index = indexOf(key);
+      if (index >= 0)
+      {
+         // replace the item in place if it sorts in the same position, so
+         // only its row needs to be redrawn
+         if ((index == 0 ||
+              comparator_.compare(list_.get(index - 1), item) <= 0) &&
+             (index == list_.size() - 1 ||
+              comparator_.compare(item, list_.get(index + 1)) <= 0))
+         {
+            list_.set(index, item);
+            items_.put(key, item);
+            return index;
+         }
+         list_.remove(index);
+      }
+
+      index = upperBound(item);
+      list_.add(index, item);
+      items_.put(key, item);
+      return index;
+   }
+
+   /**
+    * @return The index the item with the given key was removed from, or -1 if
+    *         there was none
+    */
+   public int remove(Object key)
+   {
+      int index = indexOf(key);
+      if (index >= 0)
+      {
+         list_.remove(index);
+         items_.remove(key);
+      }
+      return index;
+   }
+
+   /**
+    * Replaces the contents of the list with the given items. Items that
+    * compare equal keep their given order; an item replaces any earlier one
+    * with the same key.
+    */
+   public void setAll(Collection<T> items)
+   {
+      clear();
+      for (T item : items)
+         items_.put(keyProvider_.getKey(item), item);
+      
+      // the index keeps its keys in the given order, and the sort is stable
+      list_.addAll(items_.values());
+      sort();
+   }
+
+   public void clear()
+   {
+      list_.clear();
+      items_.clear();
+   }
+
+   public void sort()
+   {
+      Collections.sort(list_, comparator_);
+   }
+
+   // the index of the first item not ordered before the given one
+   private int lowerBound(T item)
+   {
+      int low = 0;
+      int high = list_.size();
+      while (low < high)
+      {
+         int mid = (low + high) >>> 1;
+         if (comparator_.compare(list_.get(mid), item) < 0)
+            low = mid + 1;
+         else
+            high = mid;
+      }
+      return low;
+   }
+
+   // the index of the first item ordered after the given one
+   private int upperBound(T item)
+   {
+      int low = 0;
+      int high = list_.size();
+      while (low < high)
+      {
+         int mid = (low + high) >>> 1;
+         if (comparator_.compare(list_.get(mid), item) <= 0)
+            low = mid + 1;
+         else
+            high = mid;
+      }
+      return low;
+   }
+
+   private final List<T> list_;
+   private final Comparator<T> comparator_;
+   private final ProvidesKey<T> keyProvider_;
+   private final LinkedHashMap<Object, T> items_ =
+         new LinkedHashMap<Object, T>();
+}
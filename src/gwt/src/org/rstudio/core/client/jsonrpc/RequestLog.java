@@ -14,39 +14,92 @@
  */
 package org.rstudio.core.client.jsonrpc;
 
-import java.util.ArrayList;
-
+// Ring buffer of recent requests. Once it holds MAX_ENTRIES the oldest
+// completed entry is dropped for each new one; requests still in flight
+// (often the slow or stuck ones worth looking at) are kept until they
+// complete. By default only a preview of each request and response is
+// retained (along with sizes and timings); full capture can be enabled
+// while diagnosing a problem.
 public class RequestLog
 {
    public static RequestLogEntry log(String requestId, String requestData)
    {
       RequestLogEntry entry = new RequestLogEntry(System.currentTimeMillis(),
-                                                  requestId, requestData);
-      entries_.add(entry);
+                                                  requestId,
+                                                  requestData,
+                                                  fullCapture_);
 
-      for (int i = 0; entries_.size() > MAX_ENTRIES && i < entries_.size(); i++)
+      while (count_ >= MAX_ENTRIES)
       {
-         RequestLogEntry oldEntry = entries_.get(i);
-         if (!oldEntry.isAlive())
-         {
-            entries_.remove(i);
-            i--;
-         }
+         if (!evictCompleted())
+            break;
       }
 
+      // every entry is in flight; make room rather than lose one
+      if (count_ == entries_.length)
+         grow();
+
+      entries_[(start_ + count_) % entries_.length] = entry;
+      count_++;
       return entry;
    }
 
    public static RequestLogEntry[] getEntries()
    {
-      RequestLogEntry[] entries = new RequestLogEntry[entries_.size()];
+      RequestLogEntry[] entries = new RequestLogEntry[count_];
       for (int i = 0; i < entries.length; i++)
-         entries[i] = entries_.get(i).clone();
+         entries[i] = entries_[(start_ + i) % entries_.length].clone();
       return entries;
    }
 
-   private static final ArrayList<RequestLogEntry> entries_ =
-         new ArrayList<RequestLogEntry>();
+   public static boolean getFullCapture()
+   {
+      return fullCapture_;
+   }
+
+   // applies to requests logged after the call
+   public static void setFullCapture(boolean fullCapture)
+   {
+      fullCapture_ = fullCapture;
+   }
+
+   // removes the oldest entry which has completed, shifting the in-flight
+   // entries logged before it up by one
+   private static boolean evictCompleted()
+   {
+      int capacity = entries_.length;
+      for (int i = 0; i < count_; i++)
+      {
+         if (entries_[(start_ + i) % capacity].isAlive())
+            continue;
+
+         for (int j = i; j > 0; j--)
+         {
+            entries_[(start_ + j) % capacity] =
+                  entries_[(start_ + j - 1) % capacity];
+         }
+         entries_[start_] = null;
+         start_ = (start_ + 1) % capacity;
+         count_--;
+         return true;
+      }
+      return false;
+   }
+
+   private static void grow()
+   {
+      RequestLogEntry[] entries = new RequestLogEntry[entries_.length * 2];
+      for (int i = 0; i < count_; i++)
+         entries[i] = entries_[(start_ + i) % entries_.length];
+      entries_ = entries;
+      start_ = 0;
+   }
 
    private static final int MAX_ENTRIES = 50;
+
+   private static RequestLogEntry[] entries_ =
+         new RequestLogEntry[MAX_ENTRIES];
+   private static int start_ = 0;
+   private static int count_ = 0;
+   private static boolean fullCapture_ = false;
 }
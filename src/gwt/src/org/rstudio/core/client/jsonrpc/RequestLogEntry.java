@@ -32,10 +32,20 @@ public class RequestLogEntry
    public RequestLogEntry(long requestTime,
                           String requestId,
                           String requestData)
+   {
+      this(requestTime, requestId, requestData, true);
+   }
+
+   public RequestLogEntry(long requestTime,
+                          String requestId,
+                          String requestData,
+                          boolean fullCapture)
    {
       requestTime_ = requestTime;
       requestId_ = requestId;
-      requestData_ = requestData;
+      fullCapture_ = fullCapture;
+      requestSize_ = requestData == null ? 0 : requestData.length();
+      requestData_ = capture(requestData);
    }
 
    public long getRequestTime()
@@ -63,11 +73,38 @@ public class RequestLogEntry
       return responseData_;
    }
 
+   /**
+    * @return The length of the request data (which may have been truncated
+    *         when it was logged)
+    */
+   public int getRequestSize()
+   {
+      return requestSize_;
+   }
+
+   /**
+    * @return The length of the response data (which may have been truncated
+    *         when it was logged)
+    */
+   public int getResponseSize()
+   {
+      return responseSize_;
+   }
+
    public void logResponse(int responseType, String data)
    {
       responseType_ = responseType;
       responseTime_ = System.currentTimeMillis();
-      responseData_ = data;
+      responseSize_ = data == null ? 0 : data.length();
+      responseData_ = capture(data);
+   }
+
+   private String capture(String data)
+   {
+      if (fullCapture_ || data == null || data.length() <= MAX_PREVIEW_LENGTH)
+         return data;
+
+      return data.substring(0, MAX_PREVIEW_LENGTH) + TRUNCATED_SUFFIX;
    }
 
    public int getResponseType()
@@ -97,8 +134,10 @@ public class RequestLogEntry
       RequestLogEntry clone = new RequestLogEntry(requestTime_,
                                                   requestId_,
                                                   requestData_);
+      clone.requestSize_ = requestSize_;
       clone.responseType_ = responseType_;
       clone.responseData_ = responseData_;
+      clone.responseSize_ = responseSize_;
       clone.responseTime_ = responseTime_;
       return clone;
    }
@@ -113,6 +152,8 @@ public class RequestLogEntry
       {
          writer.writeValue(responseTime_.toString());
          writer.writeValue(responseData_);
+         writer.writeValue(requestSize_ + "");
+         writer.writeValue(responseSize_ + "");
       }
       writer.endLine();
    }
@@ -137,13 +178,27 @@ public class RequestLogEntry
       entry.responseType_ = respType;
       entry.responseTime_ = respTime;
       entry.responseData_ = respData;
+      entry.responseSize_ = respData == null ? 0 : respData.length();
+
+      // sizes are only present in logs exported with truncated payloads
+      if (line.length > 7)
+      {
+         entry.requestSize_ = Integer.parseInt(line[6]);
+         entry.responseSize_ = Integer.parseInt(line[7]);
+      }
       return entry;
    }
 
    private final long requestTime_;
    private final String requestId_;
    private final String requestData_;
+   private final boolean fullCapture_;
+   private int requestSize_;
    private Long responseTime_;
    private String responseData_;
+   private int responseSize_;
    private int responseType_ = ResponseType.None;
+
+   private static final int MAX_PREVIEW_LENGTH = 2048;
+   private static final String TRUNCATED_SUFFIX = "... [truncated]";
 }
@@ -0,0 +1,234 @@
+/*
+ * RpcMetrics.java
+ *
+ * Copyright (C) 2009-19 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.jsonrpc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+
+import com.google.gwt.json.client.JSONArray;
+import com.google.gwt.json.client.JSONNumber;
+import com.google.gwt.json.client.JSONObject;
+import com.google.gwt.json.client.JSONString;
+
+// Per-method rpc latency, payload size, retry and failure statistics.
+// Latencies are kept in a fixed set of exponential buckets so memory use
+// per method is constant; percentiles are reported as bucket upper bounds.
+public class RpcMetrics
+{
+   public static class MethodMetrics
+   {
+      private MethodMetrics(String method)
+      {
+         method_ = method;
+      }
+
+      public String getMethod()
+      {
+         return method_;
+      }
+
+      public int getCount()
+      {
+         return count_;
+      }
+
+      public int getFailures()
+      {
+         return failures_;
+      }
+
+      public int getRetries()
+      {
+         return retries_;
+      }
+
+      public long getTotalMillis()
+      {
+         return totalMillis_;
+      }
+
+      public long getMaxMillis()
+      {
+         return maxMillis_;
+      }
+
+      public long getRequestBytes()
+      {
+         return requestBytes_;
+      }
+
+      public long getResponseBytes()
+      {
+         return responseBytes_;
+      }
+
+      /**
+       * @param percentile Percentile in the range (0, 100]
+       * @return Upper bound (in milliseconds) of the bucket containing the
+       *         given percentile, or -1 if no requests have completed
+       */
+      public long getPercentileMillis(double percentile)
+      {
+         if (count_ == 0)
+            return -1;
+
+         int target = (int) Math.ceil(count_ * percentile / 100.0);
+         int seen = 0;
+         for (int i = 0; i < buckets_.length; i++)
+         {
+            seen += buckets_[i];
+            if (seen >= target)
+               return i < BUCKET_BOUNDS.length ? BUCKET_BOUNDS[i] : maxMillis_;
+         }
+         return maxMillis_;
+      }
+
+      public JSONObject toJSONObject()
+      {
+         JSONObject object = new JSONObject();
+         object.put("method", new JSONString(method_));
+         object.put("count", new JSONNumber(count_));
+         object.put("failures", new JSONNumber(failures_));
+         object.put("retries", new JSONNumber(retries_));
+         object.put("total_ms", new JSONNumber(totalMillis_));
+         object.put("max_ms", new JSONNumber(maxMillis_));
+         object.put("p50_ms", new JSONNumber(getPercentileMillis(50)));
+         object.put("p95_ms", new JSONNumber(getPercentileMillis(95)));
+         object.put("p99_ms", new JSONNumber(getPercentileMillis(99)));
+         object.put("request_bytes", new JSONNumber(requestBytes_));
+         object.put("response_bytes", new JSONNumber(responseBytes_));
+
+         JSONArray buckets = new JSONArray();
+         for (int i = 0; i < buckets_.length; i++)
+            buckets.set(i, new JSONNumber(buckets_[i]));
+         object.put("buckets", buckets);
+
+         return object;
+      }
+
+      private void record(long millis,
+                          int requestBytes,
+                          int responseBytes,
+                          boolean failed)
+      {
+         count_++;
+         if (failed)
+            failures_++;
+
+         totalMillis_ += millis;
+         maxMillis_ = Math.max(maxMillis_, millis);
+         if (requestBytes > 0)
+            requestBytes_ += requestBytes;
+         if (responseBytes > 0)
+            responseBytes_ += responseBytes;
+
+         int bucket = 0;
+         while (bucket < BUCKET_BOUNDS.length && millis > BUCKET_BOUNDS[bucket])
+            bucket++;
+         buckets_[bucket]++;
+      }
+
+      private final String method_;
+      private int count_ = 0;
+      private int failures_ = 0;
+      private int retries_ = 0;
+      private long totalMillis_ = 0;
+      private long maxMillis_ = 0;
+      private long requestBytes_ = 0;
+      private long responseBytes_ = 0;
+      private final int[] buckets_ = new int[BUCKET_BOUNDS.length + 1];
+   }
+
+   /**
+    * Record a completed (or failed) request.
+    *
+    * @param requestBytes Size of the request, or -1 if unknown (e.g. for
+    *        requests sent as part of a batch)
+    * @param responseBytes Size of the response, or -1 if unknown
+    */
+   public static void record(String method,
+                             long millis,
+                             int requestBytes,
+                             int responseBytes,
+                             boolean failed)
+   {
+      if (method == null)
+         return;
+
+      getMetrics(method).record(millis, requestBytes, responseBytes, failed);
+   }
+
+   public static void recordRetry(String method)
+   {
+      if (method == null)
+         return;
+
+      getMetrics(method).retries_++;
+   }
+
+   /**
+    * @return Metrics for all methods, ordered by total time spent (so the
+    *         methods which dominate session latency come first)
+    */
+   public static ArrayList<MethodMetrics> getMetrics()
+   {
+      ArrayList<MethodMetrics> metrics =
+            new ArrayList<MethodMetrics>(metrics_.values());
+      Collections.sort(metrics, new Comparator<MethodMetrics>()
+      {
+         @Override
+         public int compare(MethodMetrics a, MethodMetrics b)
+         {
+            return Long.compare(b.getTotalMillis(), a.getTotalMillis());
+         }
+      });
+      return metrics;
+   }
+
+   public static String toJson()
+   {
+      JSONArray array = new JSONArray();
+      for (MethodMetrics metrics : getMetrics())
+         array.set(array.size(), metrics.toJSONObject());
+      return RpcRequest.toJson(array.getJavaScriptObject());
+   }
+
+   public static void reset()
+   {
+      metrics_.clear();
+   }
+
+   private static MethodMetrics getMetrics(String method)
+   {
+      MethodMetrics metrics = metrics_.get(method);
+      if (metrics == null)
+      {
+         metrics = new MethodMetrics(method);
+         metrics_.put(method, metrics);
+      }
+      return metrics;
+   }
+
+   // upper bounds (inclusive, in milliseconds) of the latency buckets; the
+   // final bucket holds everything slower than the last bound
+   private static final long[] BUCKET_BOUNDS = {
+      5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000
+   };
+
+   private static final HashMap<String, MethodMetrics> metrics_ =
+         new HashMap<String, MethodMetrics>();
+}
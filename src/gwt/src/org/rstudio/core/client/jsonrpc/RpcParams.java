@@ -0,0 +1,73 @@
+/*
+ * RpcParams.java
+ *
+ * Copyright (C) 2009-19 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.jsonrpc;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.json.client.JSONArray;
+
+// Native builder for rpc parameter arrays. Values (including strings and
+// JavaScriptObjects) are stored directly in a JavaScript array rather than
+// being wrapped in JSONValue instances, so large payloads are neither copied
+// nor re-serialized by the GWT JSON wrappers.
+public class RpcParams extends JavaScriptObject
+{
+   protected RpcParams()
+   {
+   }
+
+   public static final native RpcParams create() /*-{
+      return [];
+   }-*/;
+
+   public final native RpcParams add(String value) /*-{
+      this.push(value == null ? null : value);
+      return this;
+   }-*/;
+
+   public final native RpcParams add(boolean value) /*-{
+      this.push(value);
+      return this;
+   }-*/;
+
+   public final native RpcParams add(int value) /*-{
+      this.push(value);
+      return this;
+   }-*/;
+
+   public final native RpcParams add(double value) /*-{
+      this.push(value);
+      return this;
+   }-*/;
+
+   public final native RpcParams add(JavaScriptObject value) /*-{
+      this.push(value == null ? null : value);
+      return this;
+   }-*/;
+
+   public final native RpcParams addNull() /*-{
+      this.push(null);
+      return this;
+   }-*/;
+
+   public final native int length() /*-{
+      return this.length;
+   }-*/;
+
+   // wraps (without copying) for use with the JSONArray based rpc api
+   public final JSONArray toJSONArray()
+   {
+      return new JSONArray(this);
+   }
+}
@@ -15,6 +15,7 @@
 
 package org.rstudio.core.client.jsonrpc;
 
+import com.google.gwt.core.client.JavaScriptObject;
 import com.google.gwt.http.client.*;
 import com.google.gwt.json.client.JSONArray;
 import com.google.gwt.json.client.JSONObject;
@@ -69,45 +70,18 @@ public class RpcRequest
       final RpcRequestCallback requestCallback = callback ;
       
       // build json request object
-      JSONObject request = new JSONObject() ;
-      request.put("method", new JSONString(method_)) ;
-      if ( params_ != null )
-         request.put("params", params_);  
-      if ( kwparams_ != null)
-         request.put("kwparams", kwparams_);
-      
-      // add src window if we have it
-      if (sourceWindow_ != null)
-         request.put("sourceWnd", sourceWindow_);
-      
-      // add client id if we have it
-      if (clientId_ != null)
-         request.put("clientId", clientId_);
-
-      // add client version
-      request.put("clientVersion", clientVersion_);
+      JSONObject request = createRequestObject();
       
       // configure request builder
-      RequestBuilder builder = new RequestBuilder(RequestBuilder.POST, url_);
-      builder.setHeader("Content-Type", "application/json") ;
-      builder.setHeader("Accept", "application/json");
       String requestId = Integer.toString(Random.nextInt());
-      builder.setHeader("X-RS-RID", requestId);
-      
-      // in server mode, append a CSRF token for request validation
-      if (!Desktop.isDesktop())
-      {
-         builder.setHeader("X-CSRF-Token", ApplicationCsrfToken.getCsrfToken());
-      }
-
-      // inform the server if we should not refresh auth creds
-      if (!refreshCredentials_)
-         builder.setHeader("X-RStudio-Refresh-Auth-Creds", "0");
+      RequestBuilder builder = createRequestBuilder(url_,
+                                                    requestId,
+                                                    refreshCredentials_);
       
       // send request
       try
       {
-         String requestString = request.toString();
+         String requestString = toJson(request.getJavaScriptObject());
          if (TRACE)
             Debug.log("Request: " + requestString) ;
 
@@ -115,12 +89,19 @@ public class RpcRequest
                                            redactLog_ ? "[REDACTED]"
                                                       : requestString);
 
+         final long startTime = System.currentTimeMillis();
+         final int requestBytes = requestString.length();
          request_ = builder.sendRequest(requestString, new RequestCallback() {
             
             public void onError(Request request, Throwable exception)
             {      
                requestLogEntry_.logResponse(ResponseType.Error,
                                            exception.getLocalizedMessage());
+               RpcMetrics.record(method_,
+                                 System.currentTimeMillis() - startTime,
+                                 requestBytes,
+                                 -1,
+                                 true);
                // ERROR: Request failed
                RpcError error = RpcError.create(
                                           RpcError.TRANSMISSION_ERROR,
@@ -145,6 +126,12 @@ public class RpcRequest
                      requestLogEntry_.logResponse(ResponseType.Normal,
                                                  responseText);
                      rpcResponse = RpcResponse.parse(responseText);
+                     RpcMetrics.record(method_,
+                                       System.currentTimeMillis() - startTime,
+                                       requestBytes,
+                                       responseText.length(),
+                                       rpcResponse == null ||
+                                       rpcResponse.getError() != null);
                      
                      // response received and validated, process it!
                      requestCallback.onResponseReceived(enclosingRequest, 
@@ -163,20 +150,15 @@ public class RpcRequest
                {
                   // ERROR: Non-200 response from server
                   
-                  // default error message
-                  String message = "Status code " + 
-                                   Integer.toString(status) + 
-                                   " returned";
-                  
-                  // override error message for status code 0
-                  if (status == 0)
-                  {
-                     message = "Unable to establish connection with R session"; 
-                  }
-                  
+                  String message = statusErrorMessage(status);
                  
                   requestLogEntry_.logResponse(ResponseType.Unknown,
                                               message);
+                  RpcMetrics.record(method_,
+                                    System.currentTimeMillis() - startTime,
+                                    requestBytes,
+                                    -1,
+                                    true);
                   RpcError error = RpcError.create(
                                              RpcError.TRANSMISSION_ERROR,
                                              message) ;
@@ -193,6 +175,7 @@ public class RpcRequest
         
          if (requestLogEntry_ != null)
             requestLogEntry_.logResponse(ResponseType.Unknown, message);
+         RpcMetrics.record(method_, 0, -1, -1, true);
          
          RpcError error = RpcError.create(RpcError.TRANSMISSION_ERROR,
                                           message);
@@ -202,6 +185,12 @@ public class RpcRequest
    
    public void cancel()
    {
+      if (batch_ != null)
+      {
+         batch_.cancel(this);
+         batch_ = null;
+      }
+      
       if (request_ != null)
       {
          request_.cancel();
@@ -215,6 +204,76 @@ public class RpcRequest
       }
    }
 
+   // build the json request object (shared by direct and batched sends)
+   JSONObject createRequestObject()
+   {
+      JSONObject request = new JSONObject() ;
+      request.put("method", new JSONString(method_)) ;
+      if ( params_ != null )
+         request.put("params", params_);  
+      if ( kwparams_ != null)
+         request.put("kwparams", kwparams_);
+      
+      // add src window if we have it
+      if (sourceWindow_ != null)
+         request.put("sourceWnd", sourceWindow_);
+      
+      // add client id if we have it
+      if (clientId_ != null)
+         request.put("clientId", clientId_);
+
+      // add client version
+      request.put("clientVersion", clientVersion_);
+      
+      return request;
+   }
+   
+   // serialize using the browser's JSON implementation (JSONValue.toString
+   // walks the value in Java, re-wrapping and copying every nested value).
+   // undefined values are written as null to match JSONValue.toString
+   static native String toJson(JavaScriptObject object) /*-{
+      return JSON.stringify(object, function(key, value) {
+         return value === undefined ? null : value;
+      });
+   }-*/;
+   
+   void setBatch(RpcRequestBatch batch)
+   {
+      batch_ = batch;
+   }
+   
+   static RequestBuilder createRequestBuilder(String url,
+                                              String requestId,
+                                              boolean refreshCredentials)
+   {
+      RequestBuilder builder = new RequestBuilder(RequestBuilder.POST, url);
+      builder.setHeader("Content-Type", "application/json") ;
+      builder.setHeader("Accept", "application/json");
+      builder.setHeader("X-RS-RID", requestId);
+      
+      // in server mode, append a CSRF token for request validation
+      if (!Desktop.isDesktop())
+      {
+         builder.setHeader("X-CSRF-Token", ApplicationCsrfToken.getCsrfToken());
+      }
+
+      // inform the server if we should not refresh auth creds
+      if (!refreshCredentials)
+         builder.setHeader("X-RStudio-Refresh-Auth-Creds", "0");
+      
+      return builder;
+   }
+   
+   static String statusErrorMessage(int status)
+   {
+      // override error message for status code 0
+      if (status == 0)
+         return "Unable to establish connection with R session";
+      
+      // default error message
+      return "Status code " + Integer.toString(status) + " returned";
+   }
+
    public String getUrl()
    {
       return url_;
@@ -290,5 +349,6 @@ public class RpcRequest
    final private boolean refreshCredentials_;
    private Request request_ = null;
    private RequestLogEntry requestLogEntry_ = null;
+   private RpcRequestBatch batch_ = null;
 
 }
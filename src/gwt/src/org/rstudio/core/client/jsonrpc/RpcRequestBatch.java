@@ -0,0 +1,352 @@
+/*
+ * RpcRequestBatch.java
+ *
+ * Copyright (C) 2009-19 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.jsonrpc;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArray;
+import com.google.gwt.http.client.*;
+import com.google.gwt.json.client.JSONArray;
+import com.google.gwt.json.client.JSONObject;
+import com.google.gwt.json.client.JSONString;
+import com.google.gwt.json.client.JSONValue;
+import com.google.gwt.user.client.Random;
+import org.rstudio.core.client.Debug;
+import org.rstudio.core.client.jsonrpc.RequestLogEntry.ResponseType;
+
+// A set of rpc requests sent to the server in a single POST. Each request
+// keeps its own callback: responses are demultiplexed by id and errors which
+// affect the whole batch are reported to every request individually (so
+// retry and cancellation continue to work on a per-request basis)
+class RpcRequestBatch
+{
+   RpcRequestBatch(String url)
+   {
+      url_ = url;
+   }
+
+   void add(RpcRequest request, RpcRequestCallback callback)
+   {
+      String id = Integer.toString(entries_.size());
+      Entry entry = new Entry(id, request, callback);
+      entries_.add(entry);
+      entriesById_.put(id, entry);
+      request.setBatch(this);
+   }
+
+   int size()
+   {
+      return entries_.size();
+   }
+
+   void send()
+   {
+      // drop requests cancelled prior to sending
+      ArrayList<Entry> live = new ArrayList<Entry>();
+      for (Entry entry : entries_)
+      {
+         if (!entry.cancelled)
+            live.add(entry);
+      }
+
+      if (live.isEmpty())
+         return;
+
+      // a lone request doesn't benefit from batching
+      if (live.size() == 1)
+      {
+         Entry entry = live.get(0);
+         entry.request.setBatch(null);
+         entry.request.send(entry.callback);
+         return;
+      }
+
+      // build the batch request (connection level fields are taken from the
+      // first request since all requests originate from the same client)
+      String requestId = Integer.toString(Random.nextInt());
+      JSONArray requests = new JSONArray();
+      boolean refreshCredentials = true;
+      JSONObject first = null;
+      for (Entry entry : live)
+      {
+         JSONObject request = entry.request.createRequestObject();
+         if (first == null)
+            first = request;
+
+         JSONObject batched = new JSONObject();
+         batched.put("id", new JSONString(entry.id));
+         batched.put("method", request.get("method"));
+         if (request.containsKey("params"))
+            batched.put("params", request.get("params"));
+         if (request.containsKey("kwparams"))
+            batched.put("kwparams", request.get("kwparams"));
+         if (request.containsKey("sourceWnd"))
+            batched.put("sourceWnd", request.get("sourceWnd"));
+         requests.set(requests.size(), batched);
+
+         // each request is logged on its own (with an id derived from the
+         // batch's) so the log still shows, and redacts, individual methods
+         entry.logEntry = RequestLog.log(
+               requestId + "." + entry.id,
+               entry.request.getRedactLog() ?
+                     "[REDACTED]" :
+                     RpcRequest.toJson(request.getJavaScriptObject()));
+
+         refreshCredentials = refreshCredentials &&
+                              entry.request.getRefreshCreds();
+      }
+
+      JSONArray params = new JSONArray();
+      params.set(0, requests);
+
+      JSONObject batch = new JSONObject();
+      batch.put("method", new JSONString(RpcRequestBatcher.BATCH_METHOD));
+      batch.put("params", params);
+      copyField(first, batch, "clientId");
+      copyField(first, batch, "clientVersion");
+
+      RequestBuilder builder = RpcRequest.createRequestBuilder(
+                                                      url_,
+                                                      requestId,
+                                                      refreshCredentials);
+
+      try
+      {
+         String requestString = RpcRequest.toJson(batch.getJavaScriptObject());
+         if (RpcRequest.TRACE)
+            Debug.log("Request: " + requestString);
+
+         startTime_ = System.currentTimeMillis();
+         final int requestBytes = requestString.length();
+         request_ = builder.sendRequest(requestString, new RequestCallback()
+         {
+            public void onError(Request request, Throwable exception)
+            {
+               recordBatch(requestBytes, -1, true);
+               onBatchError(ResponseType.Error,
+                            exception.getLocalizedMessage());
+            }
+
+            public void onResponseReceived(Request request,
+                                           Response response)
+            {
+               int status = response.getStatusCode();
+               if (status != 200)
+               {
+                  String message = RpcRequest.statusErrorMessage(status);
+                  recordBatch(requestBytes, -1, true);
+                  onBatchError(ResponseType.Unknown, message);
+                  return;
+               }
+
+               RpcResponse rpcResponse = null;
+               try
+               {
+                  String responseText = response.getText();
+                  if (RpcRequest.TRACE)
+                     Debug.log("Response: " + responseText);
+                  rpcResponse = RpcResponse.parse(responseText);
+                  recordBatch(requestBytes,
+                              responseText.length(),
+                              rpcResponse == null);
+               }
+               catch(Exception e)
+               {
+                  onBatchError(ResponseType.Error, e.getLocalizedMessage());
+                  return;
+               }
+
+               if (rpcResponse == null)
+               {
+                  onBatchError(ResponseType.Error,
+                               "Unable to parse batch response");
+                  return;
+               }
+
+               onBatchResponse(rpcResponse);
+            }
+         });
+      }
+      catch(RequestException e)
+      {
+         String message = e.getLocalizedMessage();
+         recordBatch(-1, -1, true);
+         onBatchError(ResponseType.Unknown, message);
+      }
+   }
+
+   void cancel(RpcRequest request)
+   {
+      boolean allCancelled = true;
+      for (Entry entry : entries_)
+      {
+         if (entry.request == request && !entry.cancelled)
+         {
+            entry.cancelled = true;
+            if (entry.logEntry != null && !entry.completed)
+               entry.logEntry.logResponse(ResponseType.Cancelled, "Cancelled");
+         }
+         allCancelled = allCancelled && entry.cancelled;
+      }
+
+      // only abandon the http request if nobody is waiting on it
+      if (allCancelled && request_ != null)
+      {
+         request_.cancel();
+         request_ = null;
+      }
+   }
+
+   private void onBatchResponse(RpcResponse response)
+   {
+      // an error for the batch as a whole (e.g. unauthorized) is reported
+      // to each request so that each can be resolved and retried
+      if (response.getError() != null)
+      {
+         RpcResponse errorResponse = RpcResponse.create(response.getError());
+         for (Entry entry : entries_)
+            onEntryResponse(entry, errorResponse);
+         return;
+      }
+
+      JsArray<BatchedResponse> results = response.getResult();
+      for (int i = 0; results != null && i < results.length(); i++)
+      {
+         BatchedResponse result = results.get(i);
+         Entry entry = entriesById_.get(result.getId());
+         if (entry != null)
+            onEntryResponse(entry, result.getResponse());
+      }
+
+      // any request without a response is treated as a transmission error
+      for (Entry entry : entries_)
+      {
+         if (!entry.completed && !entry.cancelled)
+         {
+            String message = "No response received for " +
+                             entry.request.getMethod();
+            entry.completed = true;
+            entry.request.setBatch(null);
+            logResponse(entry, ResponseType.Unknown, message);
+            recordEntry(entry, true);
+            entry.callback.onError(entry.request, RpcError.create(
+                  RpcError.TRANSMISSION_ERROR, message));
+         }
+      }
+   }
+
+   private void onEntryResponse(Entry entry, RpcResponse response)
+   {
+      if (entry.completed || entry.cancelled)
+         return;
+
+      entry.completed = true;
+      entry.request.setBatch(null);
+      logResponse(entry,
+                  ResponseType.Normal,
+                  response == null ? null : RpcRequest.toJson(response));
+      recordEntry(entry, response == null || response.getError() != null);
+      entry.callback.onResponseReceived(entry.request, response);
+   }
+
+   private void onBatchError(int responseType, String message)
+   {
+      for (Entry entry : entries_)
+      {
+         if (entry.completed || entry.cancelled)
+            continue;
+
+         entry.completed = true;
+         entry.request.setBatch(null);
+         logResponse(entry, responseType, message);
+         recordEntry(entry, true);
+         entry.callback.onError(entry.request, RpcError.create(
+                                    RpcError.TRANSMISSION_ERROR, message));
+      }
+   }
+
+   private void logResponse(Entry entry, int responseType, String data)
+   {
+      if (entry.logEntry != null)
+         entry.logEntry.logResponse(responseType, data);
+   }
+
+   private void recordBatch(int requestBytes, int responseBytes, boolean failed)
+   {
+      RpcMetrics.record(RpcRequestBatcher.BATCH_METHOD,
+                        System.currentTimeMillis() - startTime_,
+                        requestBytes,
+                        responseBytes,
+                        failed);
+   }
+
+   // payload sizes of individual requests aren't known within a batch
+   private void recordEntry(Entry entry, boolean failed)
+   {
+      RpcMetrics.record(entry.request.getMethod(),
+                        System.currentTimeMillis() - startTime_,
+                        -1,
+                        -1,
+                        failed);
+   }
+
+   private static void copyField(JSONObject from, JSONObject to, String name)
+   {
+      JSONValue value = from.get(name);
+      if (value != null)
+         to.put(name, value);
+   }
+
+   private static class BatchedResponse extends JavaScriptObject
+   {
+      protected BatchedResponse()
+      {
+      }
+
+      public final native String getId() /*-{
+         return this.id;
+      }-*/;
+
+      public final native RpcResponse getResponse() /*-{
+         return this.response;
+      }-*/;
+   }
+
+   private static class Entry
+   {
+      Entry(String id, RpcRequest request, RpcRequestCallback callback)
+      {
+         this.id = id;
+         this.request = request;
+         this.callback = callback;
+      }
+
+      final String id;
+      final RpcRequest request;
+      final RpcRequestCallback callback;
+      RequestLogEntry logEntry = null;
+      boolean cancelled = false;
+      boolean completed = false;
+   }
+
+   private final String url_;
+   private final ArrayList<Entry> entries_ = new ArrayList<Entry>();
+   private final HashMap<String, Entry> entriesById_ =
+                                             new HashMap<String, Entry>();
+   private Request request_ = null;
+   private long startTime_ = 0;
+}
@@ -0,0 +1,100 @@
+/*
+ * RpcRequestBatcher.java
+ *
+ * Copyright (C) 2009-19 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.jsonrpc;
+
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.user.client.Timer;
+
+// Coalesces rpc requests issued within the same event loop tick (or within
+// a configurable window) into a single batched POST
+public class RpcRequestBatcher
+{
+   /**
+    * @param url URL of the batch rpc endpoint
+    * @param windowMs If 0, requests issued within the same event loop tick
+    *        are batched, otherwise requests issued within windowMs of the
+    *        first request in the batch are batched
+    */
+   public RpcRequestBatcher(String url, int windowMs)
+   {
+      url_ = url;
+      windowMs_ = windowMs;
+   }
+
+   public void send(RpcRequest request, RpcRequestCallback callback)
+   {
+      if (pending_ == null)
+      {
+         pending_ = new RpcRequestBatch(url_);
+         scheduleFlush();
+      }
+
+      pending_.add(request, callback);
+
+      if (pending_.size() >= MAX_BATCH_SIZE)
+         flush();
+   }
+
+   public void flush()
+   {
+      if (pending_ == null)
+         return;
+
+      if (timer_ != null)
+         timer_.cancel();
+
+      RpcRequestBatch batch = pending_;
+      pending_ = null;
+      batch.send();
+   }
+
+   private void scheduleFlush()
+   {
+      final RpcRequestBatch batch = pending_;
+      if (windowMs_ <= 0)
+      {
+         Scheduler.get().scheduleFinally(() ->
+         {
+            // the batch may already have been flushed (e.g. it was full)
+            if (pending_ == batch)
+               flush();
+         });
+      }
+      else
+      {
+         if (timer_ == null)
+         {
+            timer_ = new Timer()
+            {
+               @Override
+               public void run()
+               {
+                  flush();
+               }
+            };
+         }
+         timer_.schedule(windowMs_);
+      }
+   }
+
+   public static final String BATCH_METHOD = "batch_rpc";
+
+   private final String url_;
+   private final int windowMs_;
+   private RpcRequestBatch pending_ = null;
+   private Timer timer_ = null;
+
+   private static final int MAX_BATCH_SIZE = 50;
+}
@@ -0,0 +1,216 @@
+/*
+ * EditHunks.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.patch;
+
+import java.util.ArrayList;
+
+import org.rstudio.core.client.jsonrpc.RpcParams;
+
+import com.google.gwt.core.client.JavaScriptObject;
+
+/**
+ * Accumulates edits made to a document as a list of non-overlapping hunks
+ * relative to a base version of the document (i.e. the version last sent to
+ * the server). Each edit is given in the coordinates of the current version
+ * of the document, and is merged with any hunks it touches, so that typing
+ * in one place results in a single hunk no matter how many edits it took.
+ *
+ * All offsets and lengths are in characters (UTF-16 code units).
+ */
+public class EditHunks
+{
+   private static class Hunk
+   {
+      public Hunk(int oldStart, int oldLength, String text)
+      {
+         this.oldStart = oldStart;
+         this.oldLength = oldLength;
+         this.text = text;
+      }
+
+      public int delta()
+      {
+         return text.length() - oldLength;
+      }
+
+      public final int oldStart;
+      public final int oldLength;
+      public final String text;
+   }
+
+   /**
+    * Records an edit to the current version of the document.
+    *
+    * @param offset Offset of the edit in the current document
+    * @param removedLength Number of characters removed at the offset
+    * @param inserted Text inserted at the offset
+    */
+   public void edit(int offset, int removedLength, String inserted)
+   {
+      if (overflowed_ || (removedLength == 0 && inserted.isEmpty()))
+         return;
+
+      int end = offset + removedLength;
+
+      // find the hunks the edit overlaps or touches; delta accumulates the
+      // change in length due to the hunks preceding the current one
+      int delta = 0;
+      int deltaBeforeFirst = 0;
+      int deltaThroughLast = 0;
+      int first = -1;
+      int last = -1;
+      int index = 0;
+      for (; index < hunks_.size(); index++)
+      {
+         Hunk hunk = hunks_.get(index);
+         int start = hunk.oldStart + delta;
+         if (start > end)
+            break;
+
+         if (start + hunk.text.length() >= offset)
+         {
+            if (first == -1)
+            {
+               first = index;
+               deltaBeforeFirst = delta;
+            }
+            last = index;
+            deltaThroughLast = delta + hunk.delta();
+         }
+         delta += hunk.delta();
+      }
+
+      if (first == -1)
+      {
+         // the edit only touches text which is unchanged from the base
+         hunks_.add(index, new Hunk(offset - delta, removedLength, inserted));
+      }
+      else
+      {
+         Hunk firstHunk = hunks_.get(first);
+         Hunk lastHunk = hunks_.get(last);
+
+         int firstStart = firstHunk.oldStart + deltaBeforeFirst;
+         int lastStart = lastHunk.oldStart + deltaThroughLast - lastHunk.delta();
+         int lastEnd = lastStart + lastHunk.text.length();
+
+         // the merged hunk spans from the start of the first hunk (or the
+         // edit) to the end of the last hunk (or the edit), in both versions
+         int oldStart = Math.min(firstHunk.oldStart, offset - deltaBeforeFirst);
+         int oldEnd = Math.max(lastHunk.oldStart + lastHunk.oldLength,
+                               end - deltaThroughLast);
+
+         // text between the touched hunks lies within the edit (and so is
+         // removed); only text of the first and last hunks outside the edit
+         // survives
+         StringBuilder text = new StringBuilder();
+         if (firstStart < offset)
+            text.append(firstHunk.text, 0, offset - firstStart);
+         text.append(inserted);
+         if (lastEnd > end)
+            text.append(lastHunk.text, end - lastStart, lastHunk.text.length());
+
+         for (int i = last; i >= first; i--)
+            hunks_.remove(i);
+
+         if (oldEnd > oldStart || text.length() > 0)
+            hunks_.add(first, new Hunk(oldStart, oldEnd - oldStart, text.toString()));
+      }
+
+      if (hunks_.size() > MAX_HUNKS)
+         overflowed_ = true;
+   }
+
+   public boolean isEmpty()
+   {
+      return hunks_.isEmpty();
+   }
+
+   /**
+    * @return Whether too many hunks have accumulated to be worth sending (in
+    *         which case the whole document should be diffed instead)
+    */
+   public boolean isOverflowed()
+   {
+      return overflowed_;
+   }
+
+   /**
+    * @return Difference in length between the current and base documents
+    */
+   public int getLengthDelta()
+   {
+      int delta = 0;
+      for (Hunk hunk : hunks_)
+         delta += hunk.delta();
+      return delta;
+   }
+
+   /**
+    * Applies the hunks to the base version of the document.
+    *
+    * @return The current version of the document, or null if the hunks
+    *         don't fit the given base document
+    */
+   public String apply(String base)
+   {
+      StringBuilder result = new StringBuilder(base.length() + getLengthDelta());
+      int pos = 0;
+      for (Hunk hunk : hunks_)
+      {
+         if (hunk.oldStart < pos || hunk.oldStart + hunk.oldLength > base.length())
+            return null;
+
+         result.append(base, pos, hunk.oldStart);
+         result.append(hunk.text);
+         pos = hunk.oldStart + hunk.oldLength;
+      }
+      result.append(base, pos, base.length());
+      return result.toString();
+   }
+
+   /**
+    * @return The hunks as an array of [offset, length, text] arrays, ordered
+    *         by offset
+    */
+   public JavaScriptObject toJavaScriptObject()
+   {
+      RpcParams hunks = RpcParams.create();
+      for (Hunk hunk : hunks_)
+      {
+         hunks.add(RpcParams.create()
+               .add(hunk.oldStart)
+               .add(hunk.oldLength)
+               .add(hunk.text));
+      }
+      return hunks;
+   }
+
+   public int size()
+   {
+      return hunks_.size();
+   }
+
+   public void clear()
+   {
+      hunks_.clear();
+      overflowed_ = false;
+   }
+
+   private final ArrayList<Hunk> hunks_ = new ArrayList<Hunk>();
+   private boolean overflowed_ = false;
+
+   private static final int MAX_HUNKS = 1000;
+}
@@ -32,6 +32,8 @@ import org.rstudio.core.client.BrowseCap;
 import org.rstudio.core.client.command.KeyboardShortcut;
 import org.rstudio.core.client.dom.DomUtils;
 
+import java.util.List;
+
 public class MultiSelectCellTable<T> extends CellTable<T>
       implements HasKeyDownHandlers, HasClickHandlers, HasMouseDownHandlers,
                  HasContextMenuHandlers
@@ -171,7 +173,7 @@ public class MultiSelectCellTable<T> extends CellTable<T>
                   event.preventDefault();
                   event.stopPropagation();
 
-                  for (T item : getVisibleItems())
+                  for (T item : getAllItems())
                      getSelectionModel().setSelected(item, true);
                }
             }
@@ -316,6 +318,12 @@ public class MultiSelectCellTable<T> extends CellTable<T>
       return true;
    }
 
+   // the items selected by select all; override if not every item is drawn
+   protected List<T> getAllItems()
+   {
+      return getVisibleItems();
+   }
+
    @Override
    public HandlerRegistration addClickHandler(ClickHandler handler)
    {
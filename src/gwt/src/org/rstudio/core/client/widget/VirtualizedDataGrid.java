@@ -27,11 +27,22 @@ import com.google.gwt.user.cellview.client.DefaultCellTableBuilder;
 import com.google.gwt.user.client.Timer;
 import com.google.gwt.user.client.ui.HeaderPanel;
 import com.google.gwt.user.client.ui.ScrollPanel;
+import com.google.gwt.view.client.ProvidesKey;
+import com.google.gwt.view.client.Range;
 
 // This class acts as a DOM-virtualized version of a DataGrid, effectively
 // allowing the class to render large tables without overloading the DOM.
 // The main requirement is that all rows within the drawn table have the
-// same height.
+// same height. A data row may be drawn as several such table rows (e.g. with
+// a header, or when expanded) or as none (e.g. when filtered out), as given
+// by getRowSpan().
+//
+// The visible range of the grid is kept to the active rows (those in view,
+// plus some padding), so only those rows are pushed to the grid and visited
+// when it's drawn; padding rows stand in for the rest. Note that, as with
+// any paged grid, the keyboard selected row is relative to the start of
+// the visible range; use getKeyboardSelectedRowIndex() and
+// setKeyboardSelectedRowIndex() to work with indices into all rows.
 public abstract class VirtualizedDataGrid<T> extends RStudioDataGrid<T>
 {
    public class TableBuilder extends DefaultCellTableBuilder<T>
@@ -44,19 +55,29 @@ public abstract class VirtualizedDataGrid<T> extends RStudioDataGrid<T>
       @Override
       public void buildRowImpl(T data, int index)
       {
-         // if this is the first row, draw padding
-         if (index == 0)
+         // rows outside the active range are normally not pushed to
+         // the grid at all, but may be while the range is updated
+         if (index < firstActiveRow_ || index > lastActiveRow_)
+            return;
+         
+         // if this is the first active row, draw padding for the rows above
+         if (index == firstActiveRow_)
             drawTopRowPadding();
          
-         // draw this row if it's in the visibility range
-         if (firstActiveRow_ <= index && index <= lastActiveRow_)
-            super.buildRowImpl(data, index);
+         buildActiveRow(data, index);
          
-         // if this is the last row, draw padding
+         // if this is the last active row, draw padding for the rows below
          if (index == lastActiveRow_)
             drawBottomRowPadding();
       }
       
+      // draws an active row; override to draw extra rows (e.g. group
+      // headers) alongside it
+      protected void buildActiveRow(T data, int index)
+      {
+         super.buildRowImpl(data, index);
+      }
+      
       private void drawTopRowPadding()
       {
          drawPaddingRow(getTopPaddingHeight());
@@ -67,7 +88,9 @@ public abstract class VirtualizedDataGrid<T> extends RStudioDataGrid<T>
          drawPaddingRow(getBottomPaddingHeight());
       }
       
-      private void drawPaddingRow(int heightPx)
+      // draws a row standing in for the inactive rows; override if the
+      // table's rows need particular cells (e.g. to set column widths)
+      protected void drawPaddingRow(int heightPx)
       {
          if (heightPx <= 0)
             return;
@@ -85,6 +108,15 @@ public abstract class VirtualizedDataGrid<T> extends RStudioDataGrid<T>
    public abstract int getRowHeight();
    public abstract int getTotalNumberOfRows();
    
+   /**
+    * @return The number of table rows, each getRowHeight() high, drawn for
+    *   the data row at the given index amongst all rows
+    */
+   protected int getRowSpan(int index)
+   {
+      return 1;
+   }
+   
    public VirtualizedDataGrid()
    {
       super(Integer.MAX_VALUE, RES);
@@ -96,6 +128,12 @@ public abstract class VirtualizedDataGrid<T> extends RStudioDataGrid<T>
       super(Integer.MAX_VALUE, resources);
       commonInit();
    }
+
+   public VirtualizedDataGrid(Resources resources, ProvidesKey<T> keyProvider)
+   {
+      super(Integer.MAX_VALUE, resources, keyProvider);
+      commonInit();
+   }
    
    private void commonInit()
    {
@@ -110,6 +148,9 @@ public abstract class VirtualizedDataGrid<T> extends RStudioDataGrid<T>
       
       setTableBuilder(new TableBuilder(this));
       
+      // no rows are active until the grid is first drawn
+      setVisibleRange(0, 0);
+      
       redrawTimer_ = new Timer()
       {
          @Override
@@ -139,16 +180,7 @@ public abstract class VirtualizedDataGrid<T> extends RStudioDataGrid<T>
    
    public void redrawIfNecessary()
    {
-      int oldFirstActiveRow = firstActiveRow_;
-      int oldLastActiveRow = lastActiveRow_;
-      
-      updateActiveRows();
-      
-      boolean changed =
-            (firstActiveRow_ != oldFirstActiveRow) ||
-            (lastActiveRow_ != oldLastActiveRow);
-      
-      if (changed)
+      if (updateActiveRows())
       {
          redraw();
          Scheduler.get().scheduleDeferred(new ScheduledCommand()
@@ -190,13 +222,13 @@ public abstract class VirtualizedDataGrid<T> extends RStudioDataGrid<T>
    
    public final int getTopPaddingHeight()
    {
-      int pseudoRowCount = firstActiveRow_;
+      int pseudoRowCount = getRowSpans(0, firstActiveRow_);
       return pseudoRowCount * getRowHeight();
    }
    
    public final int getBottomPaddingHeight()
    {
-      int pseudoRowCount = (getTotalNumberOfRows() - lastActiveRow_) - 1;
+      int pseudoRowCount = getRowSpans(lastActiveRow_ + 1, getTotalNumberOfRows());
       return pseudoRowCount * getRowHeight();
    }
    
@@ -215,7 +247,84 @@ public abstract class VirtualizedDataGrid<T> extends RStudioDataGrid<T>
       panel.setVerticalScrollPosition(position);
    }
    
-   private final void updateActiveRows()
+   /**
+    * Scrolls the grid (if necessary) so that the row with the given index
+    * amongst all rows is in view, making it active.
+    */
+   public final void scrollRowIndexIntoView(int index)
+   {
+      ScrollPanel panel = getScrollPanel();
+      int rowTop = getRowSpans(0, index) * getRowHeight();
+      int rowBottom = rowTop + getRowSpan(index) * getRowHeight();
+      int viewTop = panel.getVerticalScrollPosition();
+      int viewBottom = viewTop + panel.getOffsetHeight();
+      
+      if (rowTop < viewTop)
+         panel.setVerticalScrollPosition(rowTop);
+      else if (rowBottom > viewBottom)
+         panel.setVerticalScrollPosition(rowBottom - panel.getOffsetHeight());
+      
+      redrawIfNecessary();
+   }
+   
+   /**
+    * @return The index of the keyboard selected row amongst all rows, or -1
+    *   if there is none
+    */
+   public final int getKeyboardSelectedRowIndex()
+   {
+      int row = getKeyboardSelectedRow();
+      if (row < 0)
+         return -1;
+      return getPageStart() + row;
+   }
+   
+   public final void setKeyboardSelectedRowIndex(int index)
+   {
+      setKeyboardSelectedRowIndex(index, true);
+   }
+   
+   /**
+    * Selects a row by its index amongst all rows, making it active first if
+    * necessary.
+    */
+   public final void setKeyboardSelectedRowIndex(int index, boolean stealFocus)
+   {
+      int n = getTotalNumberOfRows();
+      if (n == 0)
+         return;
+      
+      index = Math.max(0, Math.min(index, n - 1));
+      if (index < firstActiveRow_ || index > lastActiveRow_)
+      {
+         setActiveRows(
+               Math.max(0, index - ROW_PADDING),
+               Math.min(n - 1, index + ROW_PADDING));
+      }
+      
+      setKeyboardSelectedRow(index - getPageStart(), stealFocus);
+   }
+   
+   @Override
+   public void setKeyboardSelectedRow(int row, boolean stealFocus)
+   {
+      // keyboard navigation past the active rows (e.g. pressing down on the
+      // last active row) moves the active rows, rather than paging the grid
+      int n = getTotalNumberOfRows();
+      int index = getPageStart() + row;
+      if ((row < 0 || row >= getVisibleRange().getLength()) && index >= 0 && index < n)
+      {
+         setActiveRows(
+               Math.max(0, index - ROW_PADDING),
+               Math.min(n - 1, index + ROW_PADDING));
+         row = index - getPageStart();
+      }
+      
+      super.setKeyboardSelectedRow(row, stealFocus);
+   }
+   
+   // returns true if the active rows have changed
+   private final boolean updateActiveRows()
    {
       int n = getTotalNumberOfRows();
       int rowHeight = getRowHeight();
@@ -223,19 +332,67 @@ public abstract class VirtualizedDataGrid<T> extends RStudioDataGrid<T>
       // determine how much the table body element has been scrolled
       int scrollAmount = getVerticalScrollPosition();
       
-      // determine the number of rows that have been scrolled
-      // (this is, approximately, the first visible row)
-      int numRowsScrolled = scrollAmount / rowHeight;
+      // determine the first and last visible rows (approximately)
+      int firstVisibleRow = getRowIndexAt(scrollAmount / rowHeight);
+      int lastVisibleRow = getRowIndexAt((scrollAmount + getOffsetHeight()) / rowHeight);
+      
+      int firstActiveRow = Math.max(0, Math.min(firstVisibleRow - ROW_PADDING, n - 1));
+      int lastActiveRow = Math.min(n - 1, lastVisibleRow + ROW_PADDING);
       
-      // determine the total number of rows visible
-      int rowsActive = getOffsetHeight() / rowHeight;
+      if (firstActiveRow == firstActiveRow_ && lastActiveRow == lastActiveRow_)
+         return false;
       
-      firstActiveRow_ = Math.max(0, numRowsScrolled - ROW_PADDING);
-      lastActiveRow_ = Math.min(n, numRowsScrolled + rowsActive + ROW_PADDING);
+      setActiveRows(firstActiveRow, lastActiveRow);
+      return true;
+   }
+   
+   private final void setActiveRows(int firstActiveRow, int lastActiveRow)
+   {
+      // the visible range of the grid determines which rows are pushed to
+      // it; retain the keyboard selection across the change where possible
+      int selectedIndex = getKeyboardSelectedRowIndex();
+      
+      firstActiveRow_ = firstActiveRow;
+      lastActiveRow_ = lastActiveRow;
+      
+      int length = Math.max(0, lastActiveRow_ - firstActiveRow_ + 1);
+      Range range = getVisibleRange();
+      if (range.getStart() == firstActiveRow_ && range.getLength() == length)
+         return;
+      
+      setVisibleRange(firstActiveRow_, length);
+      
+      if (selectedIndex >= firstActiveRow_ && selectedIndex <= lastActiveRow_)
+         setKeyboardSelectedRow(selectedIndex - firstActiveRow_, false);
+   }
+   
+   // the number of table rows drawn for the data rows from (inclusive) and
+   // to (exclusive) the given indices
+   private int getRowSpans(int from, int to)
+   {
+      int spans = 0;
+      for (int i = from; i < to; i++)
+         spans += getRowSpan(i);
+      return spans;
+   }
+   
+   // the index of the data row drawn at the given table row, or of the last
+   // data row if that's beyond the end of the table
+   private int getRowIndexAt(int tableRow)
+   {
+      int n = getTotalNumberOfRows();
+      int spans = 0;
+      for (int i = 0; i < n; i++)
+      {
+         spans += getRowSpan(i);
+         if (spans > tableRow)
+            return i;
+      }
+      return n - 1;
    }
    
    private int firstActiveRow_;
-   private int lastActiveRow_;
+   private int lastActiveRow_ = -1;
    private Timer redrawTimer_;
    
    // Static Members ----
@@ -75,13 +75,10 @@ import org.rstudio.studio.client.common.vcs.SshKeyWidget;
 import org.rstudio.studio.client.common.vcs.ignore.IgnoreDialog;
 import org.rstudio.studio.client.htmlpreview.HTMLPreviewApplication;
 import org.rstudio.studio.client.notebookv2.CompileNotebookv2OptionsDialog;
-import org.rstudio.studio.client.packrat.ui.PackratActionDialog;
-import org.rstudio.studio.client.packrat.ui.PackratResolveConflictDialog;
 import org.rstudio.studio.client.plumber.PlumberAPISatellite;
 import org.rstudio.studio.client.projects.ui.newproject.NewProjectResources;
 import org.rstudio.studio.client.projects.ui.prefs.ProjectPreferencesDialogResources;
 import org.rstudio.studio.client.rmarkdown.RmdOutputSatellite;
-import org.rstudio.studio.client.rsconnect.ui.RSConnectDeploy;
 import org.rstudio.studio.client.server.ServerError;
 import org.rstudio.studio.client.server.ServerRequestCallback;
 import org.rstudio.studio.client.shiny.ShinyApplicationSatellite;
@@ -92,9 +89,6 @@ import org.rstudio.studio.client.workbench.prefs.views.PreferencesDialog;
 import org.rstudio.studio.client.workbench.ui.unsaved.UnsavedChangesDialog;
 import org.rstudio.studio.client.workbench.views.buildtools.ui.BuildPaneResources;
 import org.rstudio.studio.client.workbench.views.connections.ui.NewConnectionShinyHost;
-import org.rstudio.studio.client.workbench.views.connections.ui.NewConnectionSnippetDialog;
-import org.rstudio.studio.client.workbench.views.connections.ui.NewConnectionSnippetHost;
-import org.rstudio.studio.client.workbench.views.connections.ui.NewConnectionWizard;
 import org.rstudio.studio.client.workbench.views.console.ConsoleResources;
 import org.rstudio.studio.client.workbench.views.files.ui.FilesListDataGridResources;
 import org.rstudio.studio.client.workbench.views.history.view.HistoryPane;
@@ -333,9 +327,27 @@ public class RStudio implements EntryPoint
       String view = Window.Location.getParameter("view");
       if (VCSApplication.NAME.equals(view))
       {
-         RStudioGinjector.INSTANCE.getVCSApplication().go(
-               RootLayoutPanel.get(),
-               dismissProgressAnimation_);
+         // the review/history window has its own fragment, so the main
+         // application doesn't download it
+         GWT.runAsync(new RunAsyncCallback()
+         {
+            @Override
+            public void onSuccess()
+            {
+               DiffFrame.ensureStylesInjected();
+               LineTableView.ensureStylesInjected();
+               RStudioGinjector.INSTANCE.getVCSApplication().go(
+                     RootLayoutPanel.get(),
+                     dismissProgressAnimation_);
+            }
+
+            @Override
+            public void onFailure(Throwable reason)
+            {
+               dismissProgressAnimation_.execute();
+               Window.alert("Error: " + reason.getMessage());
+            }
+         });
       }
       else if (HTMLPreviewApplication.NAME.equals(view))
       {
@@ -438,9 +450,7 @@ public class RStudio implements EntryPoint
       UnsavedChangesDialog.ensureStylesInjected();
       ChooseMirrorDialog.ensureStylesInjected();
       ResizeGripper.ensureStylesInjected();
-      LineTableView.ensureStylesInjected();
       ChangelistTable.ensureStylesInjected();
-      DiffFrame.ensureStylesInjected();
       CodeBrowserEditingTargetWidget.ensureStylesInjected();
       ShowPublicKeyDialog.ensureStylesInjected();
       CreateKeyDialog.ensureStylesInjected();
@@ -452,15 +462,9 @@ public class RStudio implements EntryPoint
       NewProjectResources.INSTANCE.styles().ensureInjected();
       AboutDialogContents.ensureStylesInjected();
       CompileNotebookv2OptionsDialog.ensureStylesInjected();
-      PackratResolveConflictDialog.ensureStylesInjected();
-      PackratActionDialog.ensureStylesInjected();
       LocalRepositoriesWidget.ensureStylesInjected();
       CppCompletionResources.INSTANCE.styles().ensureInjected();
-      RSConnectDeploy.RESOURCES.style().ensureInjected();
       NewConnectionShinyHost.ensureStylesInjected();
-      NewConnectionSnippetHost.ensureStylesInjected();
-      NewConnectionSnippetDialog.ensureStylesInjected();
-      NewConnectionWizard.ensureStylesInjected();
       SecondaryReposWidget.ensureStylesInjected();
       SecondaryReposDialog.ensureStylesInjected();
       
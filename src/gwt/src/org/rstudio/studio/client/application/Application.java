@@ -60,8 +60,10 @@ import org.rstudio.studio.client.application.model.ProductInfo;
 import org.rstudio.studio.client.application.model.SessionInitOptions;
 import org.rstudio.studio.client.application.model.SessionSerializationAction;
 import org.rstudio.studio.client.application.ui.AboutDialog;
+import org.rstudio.studio.client.application.ui.AnalysisTimingsDialog;
 import org.rstudio.studio.client.application.ui.RTimeoutOptions;
 import org.rstudio.studio.client.application.ui.RequestLogVisualization;
+import org.rstudio.studio.client.application.ui.RpcMetricsDialog;
 import org.rstudio.studio.client.common.GlobalDisplay;
 import org.rstudio.studio.client.common.SimpleRequestCallback;
 import org.rstudio.studio.client.common.SuperDevMode;
@@ -469,6 +471,18 @@ public class Application implements ApplicationEventHandlers
       });
    }
 
+   @Handler
+   public void onShowRpcMetrics()
+   {
+      new RpcMetricsDialog().showModal();
+   }
+
+   @Handler
+   public void onShowAnalysisTimings()
+   {
+      new AnalysisTimingsDialog().showModal();
+   }
+
    @Handler
    public void onLogFocusedElement()
    {
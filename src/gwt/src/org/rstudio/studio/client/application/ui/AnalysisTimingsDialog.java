@@ -0,0 +1,98 @@
+/*
+ * AnalysisTimingsDialog.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.application.ui;
+
+import com.google.gwt.aria.client.Roles;
+import com.google.gwt.user.client.ui.TextArea;
+import com.google.gwt.user.client.ui.Widget;
+import org.rstudio.core.client.ElementIds;
+import org.rstudio.core.client.StringUtil;
+import org.rstudio.core.client.theme.res.ThemeResources;
+import org.rstudio.core.client.widget.ModalDialogBase;
+import org.rstudio.core.client.widget.ThemedButton;
+import org.rstudio.studio.client.workbench.views.source.editors.text.DocumentAnalysisScheduler;
+import org.rstudio.studio.client.workbench.views.source.editors.text.DocumentAnalysisScheduler.TaskCounters;
+
+// shows the time spent in each of the source editors' background analysis
+// passes in this window
+public class AnalysisTimingsDialog extends ModalDialogBase
+{
+   public AnalysisTimingsDialog()
+   {
+      super(Roles.getDialogRole());
+      setText("Editor Analysis Timings");
+
+      textArea_ = new TextArea();
+      textArea_.addStyleName(ThemeResources.INSTANCE.themeStyles().fixedWidthFont());
+      textArea_.setSize("600px", "300px");
+      textArea_.setReadOnly(true);
+      textArea_.getElement().setAttribute("wrap", "off");
+      showSummary();
+
+      addOkButton(new ThemedButton("Close", event -> closeDialog()));
+
+      addLeftButton(new ThemedButton("Reset", event ->
+      {
+         DocumentAnalysisScheduler.get().resetCounters();
+         showSummary();
+      }), ElementIds.ANALYSIS_TIMINGS_RESET_BUTTON);
+   }
+
+   @Override
+   protected Widget createMainWidget()
+   {
+      return textArea_;
+   }
+
+   private void showSummary()
+   {
+      StringBuilder summary = new StringBuilder();
+      summary.append(StringUtil.padRight("Pass", 30))
+             .append(column("Slices"))
+             .append(column("Mean"))
+             .append(column("Max"))
+             .append(column("Total"))
+             .append("\n");
+
+      for (TaskCounters counters : DocumentAnalysisScheduler.get().getCounters())
+      {
+         long mean = counters.getSlices() == 0 ?
+               0 :
+               counters.getTotalMillis() / counters.getSlices();
+         summary.append(StringUtil.padRight(counters.getName(), 30))
+                .append(column(counters.getSlices()))
+                .append(column(mean))
+                .append(column(counters.getMaxMillis()))
+                .append(column(counters.getTotalMillis()))
+                .append("\n");
+      }
+
+      summary.append("\nTimes are in milliseconds.\n");
+
+      textArea_.setText(summary.toString());
+   }
+
+   private static String column(long value)
+   {
+      return column(Long.toString(value));
+   }
+
+   private static String column(String value)
+   {
+      return StringUtil.padRight(" " + value, 10);
+   }
+
+   private final TextArea textArea_;
+}
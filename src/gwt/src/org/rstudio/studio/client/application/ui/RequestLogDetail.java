@@ -43,7 +43,9 @@ public class RequestLogDetail extends Composite
       panel.getElement().getStyle().setOverflow(Overflow.AUTO);
 
       HTML html = new HTML();
-      html.setText("Request ID: " + entry.getRequestId() + "\n\n"
+      html.setText("Request ID: " + entry.getRequestId() + "\n"
+                   + "Request size: " + entry.getRequestSize() + "\n"
+                   + "Response size: " + entry.getResponseSize() + "\n\n"
                    + "== REQUEST ======\n"
                    + tryPrettyJson(req)
                    + "\n\n"
@@ -115,6 +115,7 @@ public class RequestLogVisualization extends Composite
                             "<li>P: Play/pause</li>" +
                             "<li>E: Export</li>" +
                             "<li>I: Import</li>" +
+                            "<li>F: Toggle full capture of request data</li>" +
                             "<li>+/-: Zoom in/out</li>" +
                             "</ul>");
       detail_.setWidget(instructions_);
@@ -283,6 +284,14 @@ public class RequestLogVisualization extends Composite
             }
             timerIsRunning_ = !timerIsRunning_;
          }
+         else if (keyCode == 'F')
+         {
+            RequestLog.setFullCapture(!RequestLog.getFullCapture());
+            detail_.setWidget(new HTML(
+                  "<p>Full capture of request data " +
+                  (RequestLog.getFullCapture() ? "enabled" : "disabled") +
+                  ".</p>"));
+         }
          else if (keyCode == 'E')
          {
             CsvWriter writer = new CsvWriter();
@@ -0,0 +1,122 @@
+/*
+ * RpcMetricsDialog.java
+ *
+ * Copyright (C) 2009-19 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.application.ui;
+
+import com.google.gwt.aria.client.Roles;
+import com.google.gwt.user.client.ui.TextArea;
+import com.google.gwt.user.client.ui.Widget;
+import org.rstudio.core.client.ElementIds;
+import org.rstudio.core.client.StringUtil;
+import org.rstudio.core.client.jsonrpc.RpcMetrics;
+import org.rstudio.core.client.jsonrpc.RpcMetrics.MethodMetrics;
+import org.rstudio.core.client.theme.res.ThemeResources;
+import org.rstudio.core.client.widget.ModalDialogBase;
+import org.rstudio.core.client.widget.ThemedButton;
+
+public class RpcMetricsDialog extends ModalDialogBase
+{
+   public RpcMetricsDialog()
+   {
+      super(Roles.getDialogRole());
+      setText("RPC Metrics");
+
+      textArea_ = new TextArea();
+      textArea_.addStyleName(ThemeResources.INSTANCE.themeStyles().fixedWidthFont());
+      textArea_.setSize("800px", "400px");
+      textArea_.setReadOnly(true);
+      textArea_.getElement().setAttribute("wrap", "off");
+      showSummary();
+
+      addOkButton(new ThemedButton("Close", event -> closeDialog()));
+
+      jsonButton_ = new ThemedButton("Show JSON", event ->
+      {
+         showingJson_ = !showingJson_;
+         jsonButton_.setText(showingJson_ ? "Show Summary" : "Show JSON");
+         if (showingJson_)
+            textArea_.setText(RpcMetrics.toJson());
+         else
+            showSummary();
+      });
+      addLeftButton(jsonButton_, ElementIds.RPC_METRICS_JSON_BUTTON);
+
+      addLeftButton(new ThemedButton("Reset", event ->
+      {
+         RpcMetrics.reset();
+         if (showingJson_)
+            textArea_.setText(RpcMetrics.toJson());
+         else
+            showSummary();
+      }), ElementIds.RPC_METRICS_RESET_BUTTON);
+   }
+
+   @Override
+   protected Widget createMainWidget()
+   {
+      return textArea_;
+   }
+
+   private void showSummary()
+   {
+      StringBuilder summary = new StringBuilder();
+      summary.append(StringUtil.padRight("Method", 36))
+             .append(column("Count"))
+             .append(column("Fail"))
+             .append(column("Retry"))
+             .append(column("p50"))
+             .append(column("p95"))
+             .append(column("p99"))
+             .append(column("Max"))
+             .append(column("Total"))
+             .append(column("Sent"))
+             .append(column("Recv"))
+             .append("\n");
+
+      for (MethodMetrics metrics : RpcMetrics.getMetrics())
+      {
+         summary.append(StringUtil.padRight(metrics.getMethod(), 36))
+                .append(column(metrics.getCount()))
+                .append(column(metrics.getFailures()))
+                .append(column(metrics.getRetries()))
+                .append(column(metrics.getPercentileMillis(50)))
+                .append(column(metrics.getPercentileMillis(95)))
+                .append(column(metrics.getPercentileMillis(99)))
+                .append(column(metrics.getMaxMillis()))
+                .append(column(metrics.getTotalMillis()))
+                .append(column(StringUtil.formatFileSize(metrics.getRequestBytes())))
+                .append(column(StringUtil.formatFileSize(metrics.getResponseBytes())))
+                .append("\n");
+      }
+
+      summary.append("\nLatencies are in milliseconds; percentiles are " +
+                     "reported as histogram bucket upper bounds.\n");
+
+      textArea_.setText(summary.toString());
+   }
+
+   private static String column(long value)
+   {
+      return column(Long.toString(value));
+   }
+
+   private static String column(String value)
+   {
+      return StringUtil.padRight(" " + value, 10);
+   }
+
+   private final TextArea textArea_;
+   private ThemedButton jsonButton_;
+   private boolean showingJson_ = false;
+}
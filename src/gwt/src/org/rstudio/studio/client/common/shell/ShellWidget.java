@@ -246,12 +246,22 @@ public class ShellWidget extends Composite implements ShellDisplay,
             scrollPanel_.onContentSizeChanged();
             if (!DomUtils.selectionExists() && !scrollPanel_.isScrolledToBottom())
                scrollPanel_.scrollToBottom();
+            scheduleViewportUpdate();
          }
       };
 
       initWidget(scrollPanel_);
 
       addCopyHook(getElement());
+      addRestoreOutputHook(getElement());
+
+      scrollPanel_.addScrollHandler(event -> scheduleViewportUpdate());
+      if (prefs_ != null)
+      {
+         updateVirtualizedOutput();
+         prefs_.consoleVirtualizedOutput().addValueChangeHandler(
+               event -> updateVirtualizedOutput());
+      }
    }
 
    private native void addCopyHook(Element element) /*-{
@@ -266,6 +276,44 @@ public class ShellWidget extends Composite implements ShellDisplay,
       }
    }-*/;
 
+   private native void addRestoreOutputHook(Element element) /*-{
+      var self = this;
+      var restore = $entry(function() {
+         self.@org.rstudio.studio.client.common.shell.ShellWidget::onBeforeCopy()();
+      });
+      element.addEventListener("copy", restore, true);
+      element.addEventListener("cut", restore, true);
+   }-*/;
+
+   private void onBeforeCopy()
+   {
+      // output scrolled out of view may have been removed from the DOM; put
+      // it back so that it's included in the copied selection
+      output_.restoreAllOutput();
+      scheduleViewportUpdate();
+   }
+
+   private void updateVirtualizedOutput()
+   {
+      // screen readers need the full output in the DOM
+      output_.setVirtualized(prefs_.consoleVirtualizedOutput().getValue() &&
+                             !prefs_.getScreenReaderEnabled());
+      scheduleViewportUpdate();
+   }
+
+   private void scheduleViewportUpdate()
+   {
+      if (!output_.isVirtualized() || viewportUpdatePending_)
+         return;
+
+      viewportUpdatePending_ = true;
+      Scheduler.get().scheduleDeferred(() ->
+      {
+         viewportUpdatePending_ = false;
+         output_.updateViewport(scrollPanel_.getElement());
+      });
+   }
+
  
    public void scrollToBottom()
    {
@@ -874,6 +922,7 @@ public class ShellWidget extends Composite implements ShellDisplay,
    {
       if (getWidget() instanceof RequiresResize)
          ((RequiresResize)getWidget()).onResize();
+      scheduleViewportUpdate();
    }
 
    @Override
@@ -1004,6 +1053,7 @@ public class ShellWidget extends Composite implements ShellDisplay,
    private boolean suppressPendingInput_;
    private final EventBus events_;
    private final UserPrefs prefs_;
+   private boolean viewportUpdatePending_ = false;
    private final AriaLiveService ariaLive_;
    private VerticalPanel verticalPanel_;
    
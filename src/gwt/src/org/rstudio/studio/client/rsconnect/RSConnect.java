@@ -60,6 +60,7 @@ import org.rstudio.studio.client.rsconnect.model.RSConnectPublishSource;
 import org.rstudio.studio.client.rsconnect.model.RSConnectServerOperations;
 import org.rstudio.studio.client.rsconnect.model.RmdPublishDetails;
 import org.rstudio.studio.client.rsconnect.ui.RSAccountConnector;
+import org.rstudio.studio.client.rsconnect.ui.RSConnectDeploy;
 import org.rstudio.studio.client.rsconnect.ui.RSConnectDeployDialog;
 import org.rstudio.studio.client.rsconnect.ui.RSConnectPublishWizard;
 import org.rstudio.studio.client.server.ServerError;
@@ -75,9 +76,11 @@ import org.rstudio.studio.client.workbench.prefs.model.UserPrefs;
 import org.rstudio.studio.client.workbench.prefs.model.UserState;
 import org.rstudio.studio.client.workbench.views.source.model.SourceServerOperations;
 
+import com.google.gwt.core.client.GWT;
 import com.google.gwt.core.client.JavaScriptObject;
 import com.google.gwt.core.client.JsArray;
 import com.google.gwt.core.client.JsArrayString;
+import com.google.gwt.core.client.RunAsyncCallback;
 import com.google.gwt.dom.client.Style.Unit;
 import com.google.gwt.event.dom.client.ClickEvent;
 import com.google.gwt.event.dom.client.ClickHandler;
@@ -477,45 +480,74 @@ public class RSConnect implements SessionInitHandler,
       publishAsFiles(input.getOriginatingEvent(), source);
    }
 
-   private void publishAsFiles(RSConnectActionEvent event,
-         RSConnectPublishSource source)
+   private void publishAsFiles(final RSConnectActionEvent event,
+         final RSConnectPublishSource source)
    {
-      RSConnectDeployDialog dialog = 
-            new RSConnectDeployDialog(
-                      event.getContentType(),
-                      server_, this, display_, 
-                      source,
-                      event.getFromPrevious());
-      dialog.showModal();
+      // the deployment UI is only loaded when first used
+      GWT.runAsync(new RunAsyncCallback()
+      {
+         @Override
+         public void onFailure(Throwable reason)
+         {
+            display_.showErrorMessage("Error", reason.getMessage());
+         }
+
+         @Override
+         public void onSuccess()
+         {
+            RSConnectDeploy.RESOURCES.style().ensureInjected();
+            RSConnectDeployDialog dialog = 
+                  new RSConnectDeployDialog(
+                            event.getContentType(),
+                            server_, RSConnect.this, display_, 
+                            source,
+                            event.getFromPrevious());
+            dialog.showModal();
+         }
+      });
    }
    
    private void publishWithWizard(final RSConnectPublishInput input)
    {
-      RSConnectPublishWizard wizard = 
-            new RSConnectPublishWizard(input, 
-                  new ProgressOperationWithInput<RSConnectPublishResult>()
-            {
-               @Override
-               public void execute(RSConnectPublishResult result, 
-                     ProgressIndicator indicator)
-               {
-                  switch (result.getPublishType())
+      GWT.runAsync(new RunAsyncCallback()
+      {
+         @Override
+         public void onFailure(Throwable reason)
+         {
+            display_.showErrorMessage("Error", reason.getMessage());
+         }
+
+         @Override
+         public void onSuccess()
+         {
+            RSConnectDeploy.RESOURCES.style().ensureInjected();
+            RSConnectPublishWizard wizard = 
+                  new RSConnectPublishWizard(input, 
+                        new ProgressOperationWithInput<RSConnectPublishResult>()
                   {
-                  case RSConnectPublishResult.PUBLISH_STATIC:
-                  case RSConnectPublishResult.PUBLISH_CODE:
-                     // always launch the browser--the wizard implies we're 
-                     // doing a first-time publish, and we may need to do some
-                     // post-publish configuration
-                     fireRSConnectPublishEvent(result, true);
-                     indicator.onCompleted();
-                     break;
-                  case RSConnectPublishResult.PUBLISH_RPUBS:
-                     uploadToRPubs(input, result, indicator);
-                     break;
-                  }
-               }
-            });
-      wizard.showModal();
+                     @Override
+                     public void execute(RSConnectPublishResult result, 
+                           ProgressIndicator indicator)
+                     {
+                        switch (result.getPublishType())
+                        {
+                        case RSConnectPublishResult.PUBLISH_STATIC:
+                        case RSConnectPublishResult.PUBLISH_CODE:
+                           // always launch the browser--the wizard implies we're 
+                           // doing a first-time publish, and we may need to do some
+                           // post-publish configuration
+                           fireRSConnectPublishEvent(result, true);
+                           indicator.onCompleted();
+                           break;
+                        case RSConnectPublishResult.PUBLISH_RPUBS:
+                           uploadToRPubs(input, result, indicator);
+                           break;
+                        }
+                     }
+                  });
+            wizard.showModal();
+         }
+      });
    }
    
    @Override
@@ -0,0 +1,109 @@
+/*
+ * ClientEventQueue.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.server.remote;
+
+import java.util.LinkedList;
+
+/**
+ * Holds the client events received from the server until they're dispatched.
+ *
+ * Events are dispatched in the order received (an editor or prompt must not
+ * be shown, nor busy cleared, ahead of the output which preceded it), in
+ * slices of at most DISPATCH_BUDGET_MS. Between slices control returns to
+ * the browser, so that a backlog of events (e.g. a flood of console output)
+ * never holds up user input for longer than one slice.
+ */
+class ClientEventQueue
+{
+   interface Host
+   {
+      /**
+       * Delivers an event to its handler.
+       */
+      void dispatch(ClientEvent event);
+
+      /**
+       * Schedules repeated calls to dispatchSlice(), yielding to the browser
+       * between each, until it returns false.
+       */
+      void scheduleSlices();
+
+      /**
+       * @return The current time, in milliseconds
+       */
+      long now();
+   }
+
+   public ClientEventQueue(Host host)
+   {
+      host_ = host;
+   }
+
+   public void add(ClientEvent event)
+   {
+      events_.add(event);
+      if (!dispatchScheduled_)
+      {
+         dispatchScheduled_ = true;
+         host_.scheduleSlices();
+      }
+   }
+
+   /**
+    * @return The next event to be dispatched, or null if there is none
+    */
+   public ClientEvent peek()
+   {
+      return events_.peek();
+   }
+
+   /**
+    * Removes the next event to be dispatched without dispatching it (e.g.
+    * when it has been merged into the event being dispatched).
+    */
+   public ClientEvent poll()
+   {
+      return events_.poll();
+   }
+
+   /**
+    * Dispatches events until the time budget is spent, always dispatching at
+    * least one.
+    *
+    * @return Whether events remain to be dispatched in a later slice
+    */
+   public boolean dispatchSlice()
+   {
+      long start = host_.now();
+      do
+      {
+         ClientEvent event = events_.poll();
+         if (event == null)
+            break;
+         host_.dispatch(event);
+      }
+      while (host_.now() - start < DISPATCH_BUDGET_MS);
+
+      dispatchScheduled_ = !events_.isEmpty();
+      return dispatchScheduled_;
+   }
+
+   private final Host host_;
+   private final LinkedList<ClientEvent> events_ = new LinkedList<>();
+   private boolean dispatchScheduled_ = false;
+
+   // time (in milliseconds) to spend dispatching events before yielding
+   static final int DISPATCH_BUDGET_MS = 30;
+}
@@ -17,6 +17,7 @@ package org.rstudio.studio.client.server.remote;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -33,8 +34,11 @@ import org.rstudio.core.client.jsonrpc.RequestLog;
 import org.rstudio.core.client.jsonrpc.RequestLogEntry;
 import org.rstudio.core.client.jsonrpc.RequestLogEntry.ResponseType;
 import org.rstudio.core.client.jsonrpc.RpcError;
+import org.rstudio.core.client.jsonrpc.RpcMetrics;
 import org.rstudio.core.client.jsonrpc.RpcObjectList;
+import org.rstudio.core.client.jsonrpc.RpcParams;
 import org.rstudio.core.client.jsonrpc.RpcRequest;
+import org.rstudio.core.client.jsonrpc.RpcRequestBatcher;
 import org.rstudio.core.client.jsonrpc.RpcRequestCallback;
 import org.rstudio.core.client.jsonrpc.RpcResponse;
 import org.rstudio.core.client.jsonrpc.RpcResponseHandler;
@@ -1250,10 +1254,13 @@ public class RemoteServer implements Server
 
    public void getPackageState(
          boolean manual,
+         String knownVersion,
          ServerRequestCallback<PackageState> requestCallback)
    {
       JSONArray params = new JSONArray();
       params.set(0, JSONBoolean.getInstance(manual));
+      params.set(1, knownVersion == null ? JSONNull.getInstance() :
+                                           new JSONString(knownVersion));
       sendRequest(RPC_SCOPE, GET_PACKAGE_STATE, params, requestCallback);
    }
    
@@ -2086,15 +2093,16 @@ public class RemoteServer implements Server
    {
       eventBus_.fireEvent(new ApplicationTutorialEvent(ApplicationTutorialEvent.FILE_SAVE));
 
-      JSONArray params = new JSONArray();
-      params.set(0, new JSONString(id));
-      params.set(1, path == null ? JSONNull.getInstance() : new JSONString(path));
-      params.set(2, fileType == null ? JSONNull.getInstance() : new JSONString(fileType));
-      params.set(3, encoding == null ? JSONNull.getInstance() : new JSONString(encoding));
-      params.set(4, new JSONString(StringUtil.notNull(foldSpec)));
-      params.set(5, chunkDefs == null ? JSONNull.getInstance() : new JSONObject(chunkDefs));
-      params.set(6, new JSONString(contents));
-      sendRequest(RPC_SCOPE, SAVE_DOCUMENT, params, requestCallback);
+      // contents and chunk definitions can be large so build params natively
+      RpcParams params = RpcParams.create()
+            .add(id)
+            .add(path)
+            .add(fileType)
+            .add(encoding)
+            .add(StringUtil.notNull(foldSpec))
+            .add(chunkDefs)
+            .add(contents);
+      sendRequest(RPC_SCOPE, SAVE_DOCUMENT, params.toJSONArray(), requestCallback);
    }
 
    public void saveDocumentDiff(String id,
@@ -2112,19 +2120,45 @@ public class RemoteServer implements Server
    {
       eventBus_.fireEvent(new ApplicationTutorialEvent(ApplicationTutorialEvent.FILE_SAVE));
 
-      JSONArray params = new JSONArray();
-      params.set(0, new JSONString(id));
-      params.set(1, path == null ? JSONNull.getInstance() : new JSONString(path));
-      params.set(2, fileType == null ? JSONNull.getInstance() : new JSONString(fileType));
-      params.set(3, encoding == null ? JSONNull.getInstance() : new JSONString(encoding));
-      params.set(4, new JSONString(StringUtil.notNull(foldSpec)));
-      params.set(5, chunkDefs == null ? JSONNull.getInstance() : new JSONObject(chunkDefs));
-      params.set(6, new JSONString(replacement));
-      params.set(7, new JSONNumber(offset));
-      params.set(8, new JSONNumber(length));
-      params.set(9, JSONBoolean.getInstance(valid));
-      params.set(10, new JSONString(hash));
-      sendRequest(RPC_SCOPE, SAVE_DOCUMENT_DIFF, params, requestCallback);
+      RpcParams params = RpcParams.create()
+            .add(id)
+            .add(path)
+            .add(fileType)
+            .add(encoding)
+            .add(StringUtil.notNull(foldSpec))
+            .add(chunkDefs)
+            .add(replacement)
+            .add(offset)
+            .add(length)
+            .add(valid)
+            .add(hash);
+      sendRequest(RPC_SCOPE, SAVE_DOCUMENT_DIFF, params.toJSONArray(), requestCallback);
+   }
+
+   public void saveDocumentHunks(String id,
+                                 String path,
+                                 String fileType,
+                                 String encoding,
+                                 String foldSpec,
+                                 JsArray<ChunkDefinition> chunkDefs,
+                                 JavaScriptObject hunks,
+                                 String hash,
+                                 String contentsHash,
+                                 ServerRequestCallback<String> requestCallback)
+   {
+      eventBus_.fireEvent(new ApplicationTutorialEvent(ApplicationTutorialEvent.FILE_SAVE));
+
+      RpcParams params = RpcParams.create()
+            .add(id)
+            .add(path)
+            .add(fileType)
+            .add(encoding)
+            .add(StringUtil.notNull(foldSpec))
+            .add(chunkDefs)
+            .add(hunks)
+            .add(hash)
+            .add(contentsHash);
+      sendRequest(RPC_SCOPE, SAVE_DOCUMENT_HUNKS, params.toJSONArray(), requestCallback);
    }
 
    public void checkForExternalEdit(
@@ -2312,19 +2346,15 @@ public class RemoteServer implements Server
    {
       eventBus_.fireEvent(new ApplicationTutorialEvent(ApplicationTutorialEvent.FILE_SAVE));
 
-      JSONObject obj = new JSONObject();
+      JsObject obj = JsObject.createJsObject();
       for (Map.Entry<String, String> entry : properties.entrySet())
-      {
-         obj.put(entry.getKey(), entry.getValue() == null 
-                                 ? JSONNull.getInstance()
-                                 : new JSONString(entry.getValue()));
-      }
+         obj.setString(entry.getKey(), entry.getValue());
 
-      JSONArray params = new JSONArray();
-      params.set(0, new JSONString(id));
-      params.set(1, obj);
+      RpcParams params = RpcParams.create()
+            .add(id)
+            .add(obj);
 
-      sendRequest(RPC_SCOPE, MODIFY_DOCUMENT_PROPERTIES, params, requestCallback);
+      sendRequest(RPC_SCOPE, MODIFY_DOCUMENT_PROPERTIES, params.toJSONArray(), requestCallback);
    }
 
    public void getDocumentProperties(
@@ -3204,6 +3234,8 @@ public class RemoteServer implements Server
 
          public void onRetry()
          {
+            RpcMetrics.recordRetry(method);
+            
             // retry one time (passing null as last param ensures there
             // is no retry handler installed)
             sendRequest(scope,
@@ -3219,6 +3251,8 @@ public class RemoteServer implements Server
 
          public void onModifiedRetry(RpcRequest modifiedRequest)
          {
+            RpcMetrics.recordRetry(method);
+            
             // retry this modified request once
             sendRequest(scope,
                         modifiedRequest.getMethod(),
@@ -3346,8 +3380,9 @@ public class RemoteServer implements Server
       if (isDisconnected(scope))
          return rpcRequest;
 
-      // send the request
-      rpcRequest.send(new RpcRequestCallback() {
+      // send the request (batching it with other requests issued in the
+      // same event loop tick where possible)
+      RpcRequestCallback rpcRequestCallback = new RpcRequestCallback() {
          public void onError(RpcRequest request, RpcError error)
          {
             // ignore errors if we are disconnected
@@ -3418,12 +3453,42 @@ public class RemoteServer implements Server
                   serverEventListener_.ensureEvents();
             }
          }
-      });
+      };
+
+      if (isBatchable(scope, method))
+         getRpcBatcher().send(rpcRequest, rpcRequestCallback);
+      else
+         rpcRequest.send(rpcRequestCallback);
 
       // return the request
       return rpcRequest;
    }
    
+   private boolean isBatchable(String scope, String method)
+   {
+      // only standard rpc methods are batched; methods which the session
+      // handles specially (session lifetime, interrupts, console input and
+      // the methods it waits for while R is busy) are always sent alone
+      if (!RPC_SCOPE.equals(scope))
+         return false;
+      
+      if (method.endsWith("_completed"))
+         return false;
+      
+      return !UNBATCHABLE_METHODS.contains(method);
+   }
+   
+   private RpcRequestBatcher getRpcBatcher()
+   {
+      if (rpcBatcher_ == null)
+      {
+         rpcBatcher_ = new RpcRequestBatcher(
+               getApplicationURL(RPC_SCOPE) + "/" + RpcRequestBatcher.BATCH_METHOD,
+               RPC_BATCH_WINDOW_MS);
+      }
+      return rpcBatcher_;
+   }
+   
    private void ensureListeningForEvents()
    {
       // don't do this if we are disconnected
@@ -4430,6 +4495,16 @@ public class RemoteServer implements Server
       sendRequest(RPC_SCOPE, STOP_FIND, findOperationHandle, requestCallback);
    }
 
+   @Override
+   public void getMoreFindResults(String findOperationHandle,
+                                  ServerRequestCallback<Void> requestCallback)
+   {
+      sendRequest(RPC_SCOPE,
+                  GET_MORE_FIND_RESULTS,
+                  findOperationHandle,
+                  requestCallback);
+   }
+
    @Override
    public void clearFindResults(ServerRequestCallback<Void> requestCallback)
    {
@@ -6135,6 +6210,8 @@ public class RemoteServer implements Server
    private boolean disconnected_;
    private boolean sessionRelaunchPending_;
 
+   private RpcRequestBatcher rpcBatcher_;
+
    private final RemoteServerAuth serverAuth_;
    private final RemoteServerEventListener serverEventListener_ ;
 
@@ -6296,6 +6373,7 @@ public class RemoteServer implements Server
    private static final String OPEN_DOCUMENT = "open_document";
    private static final String SAVE_DOCUMENT = "save_document";
    private static final String SAVE_DOCUMENT_DIFF = "save_document_diff";
+   private static final String SAVE_DOCUMENT_HUNKS = "save_document_hunks";
    private static final String CHECK_FOR_EXTERNAL_EDIT = "check_for_external_edit";
    private static final String IGNORE_EXTERNAL_EDIT = "ignore_external_edit";
    private static final String CLOSE_DOCUMENT = "close_document";
@@ -6442,6 +6520,7 @@ public class RemoteServer implements Server
 
    private static final String BEGIN_FIND = "begin_find";
    private static final String STOP_FIND = "stop_find";
+   private static final String GET_MORE_FIND_RESULTS = "get_more_find_results";
  
    private static final String PREVIEW_REPLACE = "preview_replace";
    private static final String COMPLETE_REPLACE = "complete_replace";
@@ -6608,7 +6687,25 @@ public class RemoteServer implements Server
    private static final String REMOVE_THEME = "remove_theme";
    private static final String GET_THEME_NAME = "get_theme_name";
    private static final String SET_COMPUTED_THEME_COLORS = "set_computed_theme_colors";
+   private static final String RSTUDIO_API_SHOW_DIALOG = "rstudio_api_show_dialog";
 
    private static final String REPLACE_COMMENT_HEADER = "replace_comment_header";
    private static final String SET_USER_CRASH_HANDLER_PROMPTED = "set_user_crash_handler_prompted";
+
+   // rpc batching (0 batches requests issued within the same event loop tick)
+   private static final int RPC_BATCH_WINDOW_MS = 0;
+   private static final HashSet<String> UNBATCHABLE_METHODS = new HashSet<String>();
+   static
+   {
+      UNBATCHABLE_METHODS.add(CLIENT_INIT);
+      UNBATCHABLE_METHODS.add(SUSPEND_SESSION);
+      UNBATCHABLE_METHODS.add(QUIT_SESSION);
+      UNBATCHABLE_METHODS.add(SUSPEND_FOR_RESTART);
+      UNBATCHABLE_METHODS.add(PING);
+      UNBATCHABLE_METHODS.add(CONSOLE_INPUT);
+      UNBATCHABLE_METHODS.add(INTERRUPT);
+      UNBATCHABLE_METHODS.add(ABORT);
+      UNBATCHABLE_METHODS.add(SET_COMPUTED_THEME_COLORS);
+      UNBATCHABLE_METHODS.add(RSTUDIO_API_SHOW_DIALOG);
+   }
 }
@@ -16,7 +16,6 @@ package org.rstudio.studio.client.workbench.codesearch;
 
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.List;
 
 import org.rstudio.core.client.CodeNavigationTarget;
 import org.rstudio.core.client.DuplicateHelper;
@@ -66,15 +65,34 @@ public class CodeSearchOracle extends SuggestOracle
       if (suggestion == query)
          return 0;
       
-      int totalPenalty = 0;
+      // More penalty for 'uninteresting' files and extensions (e.g. .Rd),
+      // applied for each matched character. These depend only on the
+      // suggestion, so compute them once up front.
+      int uninterestingPenalty = 0;
+      if (suggestion == "RcppExports.R" ||
+          suggestion == "RcppExports.cpp")
+         uninterestingPenalty += 6;
+      
+      String extension = StringUtil.getExtension(suggestionLower);
+      if (extension.toLowerCase() == "rd")
+         uninterestingPenalty += 6;
       
-      // Get query matches in string (ordered)
-      List<Integer> matches = StringUtil.subsequenceIndices(suggestionLower, queryLower);
+      int totalPenalty = 0;
       
-      // Loop over the matches and assign a score
-      for (int j = 0, n = matches.size(); j < n; j++)
+      // Loop over the query matches in the string (ordered) and assign a
+      // score. Matches are found as in StringUtil.subsequenceIndices, but
+      // without collecting them in a list, since this is called for every
+      // candidate when ranking completions.
+      int matchCount = 0;
+      int prevMatchPos = -1;
+      for (int i = 0, n = queryLower.length(); i < n; i++)
       {
-         int matchPos = matches.get(j);
+         int matchPos = suggestionLower.indexOf(queryLower.charAt(i), prevMatchPos + 1);
+         if (matchPos == -1)
+            continue;
+         
+         prevMatchPos = matchPos;
+         int j = matchCount++;
          
          // The initial penalty is equal to the match position
          int penalty = matchPos;
@@ -94,15 +112,7 @@ public class CodeSearchOracle extends SuggestOracle
          if (StringUtil.charAt(suggestion, matchPos) == query.charAt(j))
             penalty--;
          
-         // More penalty for 'uninteresting' files
-         if (suggestion == "RcppExports.R" ||
-             suggestion == "RcppExports.cpp")
-            penalty += 6;
-         
-         // More penalty for 'uninteresting' extensions (e.g. .Rd)
-         String extension = StringUtil.getExtension(suggestionLower);
-         if (extension.toLowerCase() == "rd")
-            penalty += 6;
+         penalty += uninterestingPenalty;
          
          totalPenalty += penalty;
       }
@@ -112,7 +122,7 @@ public class CodeSearchOracle extends SuggestOracle
          totalPenalty++;
       
       // Penalize unmatched characters
-      totalPenalty += (query.length() - matches.size()) * query.length();
+      totalPenalty += (query.length() - matchCount) * query.length();
       
       return totalPenalty;
    }
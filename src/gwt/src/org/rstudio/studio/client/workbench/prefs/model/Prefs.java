@@ -97,6 +97,19 @@ public abstract class Prefs
       }
       
       public T getValue()
+      {
+         // Resolving a value means looking for it in each layer, and this is
+         // called often (e.g. by renderers), so cache the resolved value; it's
+         // invalidated when a value is written, or the layers are replaced.
+         if (cacheGeneration_ != generation_)
+         {
+            cachedValue_ = resolveValue();
+            cacheGeneration_ = generation_;
+         }
+         return cachedValue_;
+      }
+      
+      private T resolveValue()
       {
          // Work backwards through all layers, starting with the most specific
          // and working towards the most general.
@@ -168,6 +181,7 @@ public abstract class Prefs
             return;
 
          doSetValue(root, name_, value);
+         cacheGeneration_ = -1;
          if (fireEvents)
             ValueChangeEvent.fire(this, getValue());
          
@@ -176,6 +190,8 @@ public abstract class Prefs
       protected final String name_;
       private final T defaultValue_;
       private final HandlerManager handlerManager_ = new HandlerManager(this);
+      private T cachedValue_;
+      private int cacheGeneration_ = -1;
    }
 
    private class BooleanValue extends JsonValue<Boolean>
@@ -373,9 +389,13 @@ public abstract class Prefs
    protected void UpdatePrefs(JsArray<PrefLayer> layers)
    {
       layers_ = layers;
+      
+      // invalidate every cached value
+      generation_++;
    }
    
    private JsArray<PrefLayer> layers_;
+   private int generation_;
    private final HashMap<String, PrefValue<?>> values_ =
          new HashMap<String, PrefValue<?>>();
 }
@@ -971,6 +971,14 @@ public class UserPrefsAccessor extends Prefs
       return bool("restore_source_documents", true);
    }
 
+   /**
+    * Whether to load restored source documents only when their tabs are first selected, for faster startup with many documents open.
+    */
+   public PrefValue<Boolean> restoreSourceDocumentsLazily()
+   {
+      return bool("restore_source_documents_lazily", false);
+   }
+
    /**
     * Whether to handle errors only when user code is on the stack.
     */
@@ -1356,6 +1364,14 @@ public class UserPrefsAccessor extends Prefs
       return bool("console_double_click_select", false);
    }
 
+   /**
+    * Whether to only render the portion of the Console output near the visible area, for faster scrolling of long output.
+    */
+   public PrefValue<Boolean> consoleVirtualizedOutput()
+   {
+      return bool("console_virtualized_output", false);
+   }
+
    /**
     * Whether a git repo should be initialized inside new projects by default.
     */
@@ -1904,6 +1920,8 @@ public class UserPrefsAccessor extends Prefs
          useRcppTemplate().setValue(layer, source.getBool("use_rcpp_template"));
       if (source.hasKey("restore_source_documents"))
          restoreSourceDocuments().setValue(layer, source.getBool("restore_source_documents"));
+      if (source.hasKey("restore_source_documents_lazily"))
+         restoreSourceDocumentsLazily().setValue(layer, source.getBool("restore_source_documents_lazily"));
       if (source.hasKey("handle_errors_in_user_code_only"))
          handleErrorsInUserCodeOnly().setValue(layer, source.getBool("handle_errors_in_user_code_only"));
       if (source.hasKey("auto_expand_error_tracebacks"))
@@ -1986,6 +2004,8 @@ public class UserPrefsAccessor extends Prefs
          gitDiffIgnoreWhitespace().setValue(layer, source.getBool("git_diff_ignore_whitespace"));
       if (source.hasKey("console_double_click_select"))
          consoleDoubleClickSelect().setValue(layer, source.getBool("console_double_click_select"));
+      if (source.hasKey("console_virtualized_output"))
+         consoleVirtualizedOutput().setValue(layer, source.getBool("console_virtualized_output"));
       if (source.hasKey("new_proj_git_init"))
          newProjGitInit().setValue(layer, source.getBool("new_proj_git_init"));
       if (source.hasKey("root_document"))
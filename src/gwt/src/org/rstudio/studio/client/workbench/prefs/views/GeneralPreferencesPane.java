@@ -323,6 +323,14 @@ public class GeneralPreferencesPane extends PreferencesPane
       advanced.add(spaced(checkboxPref(
             "Double-click to select words in Console pane", 
             prefs_.consoleDoubleClickSelect())));
+
+      advanced.add(spaced(checkboxPref(
+            "Only render visible Console output (faster scrolling)",
+            prefs_.consoleVirtualizedOutput())));
+
+      advanced.add(spaced(checkboxPref(
+            "Load restored source documents when first selected (faster startup)",
+            prefs_.restoreSourceDocumentsLazily())));
       
       String[] labels = {"7", "8", "9", "10", "11", "12", "13", "14", "16", "18", "24", "36"};
       String[] values = new String[labels.length];
@@ -15,7 +15,9 @@ package org.rstudio.studio.client.workbench.views.connections;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.google.gwt.core.client.GWT;
 import com.google.gwt.core.client.JsArray;
+import com.google.gwt.core.client.RunAsyncCallback;
 import com.google.gwt.event.dom.client.ClickEvent;
 import com.google.gwt.event.dom.client.ClickHandler;
 import com.google.gwt.event.dom.client.HasClickHandlers;
@@ -66,6 +68,8 @@ import org.rstudio.studio.client.workbench.views.connections.model.ConnectionOpt
 import org.rstudio.studio.client.workbench.views.connections.model.ConnectionUpdateResult;
 import org.rstudio.studio.client.workbench.views.connections.model.ConnectionsServerOperations;
 import org.rstudio.studio.client.workbench.views.connections.model.NewConnectionContext;
+import org.rstudio.studio.client.workbench.views.connections.ui.NewConnectionSnippetDialog;
+import org.rstudio.studio.client.workbench.views.connections.ui.NewConnectionSnippetHost;
 import org.rstudio.studio.client.workbench.views.connections.ui.NewConnectionWizard;
 import org.rstudio.studio.client.workbench.views.console.events.SendToConsoleEvent;
 import org.rstudio.studio.client.workbench.views.source.events.NewDocumentWithCodeEvent;
@@ -319,31 +323,54 @@ public class ConnectionsPresenter extends BasePresenter
              @Override
              protected void onSuccess(final NewConnectionContext context)
              {
-                // show dialog
-                NewConnectionWizard newConnectionWizard = new NewConnectionWizard(
-                   context,
-                   new ProgressOperationWithInput<ConnectionOptions>() {
-                      @Override
-                      public void execute(ConnectionOptions result,
-                                          ProgressIndicator indicator)
-                      {
-                         indicator.onCompleted();
-
-                         eventBus_.fireEvent(new PerformConnectionEvent(
-                            result.getConnectVia(),
-                            result.getConnectCode())
-                         );
-                      }
-                   },
-                   installersWarning_
-                );
-               
-                newConnectionWizard.showModal();
+                showWizard(context);
              }
           }
        );  
    }
    
+   private void showWizard(final NewConnectionContext context)
+   {
+      // the wizard is only loaded when first used
+      GWT.runAsync(new RunAsyncCallback()
+      {
+         @Override
+         public void onFailure(Throwable reason)
+         {
+            globalDisplay_.showErrorMessage("Error", reason.getMessage());
+         }
+
+         @Override
+         public void onSuccess()
+         {
+            NewConnectionWizard.ensureStylesInjected();
+            NewConnectionSnippetHost.ensureStylesInjected();
+            NewConnectionSnippetDialog.ensureStylesInjected();
+            
+            // show dialog
+            NewConnectionWizard newConnectionWizard = new NewConnectionWizard(
+               context,
+               new ProgressOperationWithInput<ConnectionOptions>() {
+                  @Override
+                  public void execute(ConnectionOptions result,
+                                      ProgressIndicator indicator)
+                  {
+                     indicator.onCompleted();
+
+                     eventBus_.fireEvent(new PerformConnectionEvent(
+                        result.getConnectVia(),
+                        result.getConnectCode())
+                     );
+                  }
+               },
+               installersWarning_
+            );
+           
+            newConnectionWizard.showModal();
+         }
+      });
+   }
+   
    @Override
    public void onPerformConnection(PerformConnectionEvent event)
    {
@@ -14,18 +14,12 @@
  */
 package org.rstudio.studio.client.workbench.views.console.shell.assist;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
-
 import org.rstudio.core.client.JsVectorBoolean;
 import org.rstudio.core.client.JsVectorInteger;
 import org.rstudio.core.client.JsVectorString;
 import org.rstudio.core.client.StringUtil;
 import org.rstudio.core.client.container.SafeMap;
 import org.rstudio.studio.client.common.codetools.Completions;
-import org.rstudio.studio.client.common.codetools.RCompletionType;
 import org.rstudio.studio.client.server.ServerRequestCallback;
 import org.rstudio.studio.client.workbench.codesearch.CodeSearchOracle;
 
@@ -56,6 +50,12 @@ public class CompletionCache
          if (cache_.containsKey(substring))
          {
             Completions completions = narrow(line, substring, cache_.get(substring));
+            
+            // cache the narrowed completions as well, so that subsequent
+            // requests narrow from these rather than the full set
+            if (!line.equals(substring))
+               cache_.put(line, completions);
+            
             requestCallback.onResponseReceived(completions);
             return true;
          }
@@ -88,77 +88,43 @@ public class CompletionCache
       String token = original.getToken() + line.substring(substring.length());
       
       // Extract the vector elements of the completion string
-      JsArrayString completions = original.getCompletions();
-      JsArrayString packages    = original.getPackages();
-      JsArrayBoolean quote      = original.getQuote();
-      JsArrayInteger type       = original.getType();
-      JsArrayString meta        = original.getMeta();
-      
-      // Now, generate narrowed versions of the above
-      final JsVectorString completionsNarrow = JsVectorString.createVector().cast();
-      final JsVectorString packagesNarrow    = JsVectorString.createVector().cast();
-      final JsVectorBoolean quoteNarrow      = JsVectorBoolean.createVector().cast();
-      final JsVectorInteger typeNarrow       = JsVectorInteger.createVector().cast();
-      final JsVectorString metaNarrow        = JsVectorString.createVector().cast();
+      final JsArrayString completions = original.getCompletions();
+      final JsArrayString packages    = original.getPackages();
+      final JsArrayBoolean quote      = original.getQuote();
+      final JsArrayInteger type       = original.getType();
+      final JsArrayString meta        = original.getMeta();
       
+      // Find the completions which match the token, and score them
+      final JsVectorInteger matches = JsVectorInteger.createVector().cast();
       for (int i = 0, n = completions.length(); i < n; i++)
       {
-         boolean isSubsequence = StringUtil.isSubsequence(completions.get(i), token, true);
-         if (isSubsequence)
-         {
-            completionsNarrow.push(completions.get(i));
-            packagesNarrow.push(packages.get(i));
-            quoteNarrow.push(quote.get(i));
-            typeNarrow.push(type.get(i));
-            metaNarrow.push(meta.get(i));
-         }
+         if (StringUtil.isSubsequence(completions.get(i), token, true))
+            matches.push(i);
       }
       
-      // Finally, sort these based on score
-      List<Integer> indices = new ArrayList<Integer>();
-      for (int i = 0, n = completionsNarrow.size(); i < n; i++)
-         indices.add(i);
+      int[] scores = new int[matches.size()];
+      for (int i = 0, n = matches.size(); i < n; i++)
+         scores[i] = CodeSearchOracle.scoreMatch(completions.get(matches.get(i)), token, false);
       
-      // Sort our indices vector
-      Collections.sort(indices, new Comparator<Integer>()
-      {
-         @Override
-         public int compare(Integer lhs, Integer rhs)
-         {
-            int lhsType = typeNarrow.get(lhs);
-            int rhsType = typeNarrow.get(rhs);
-            
-            String lhsName = completionsNarrow.get(lhs);
-            String rhsName = completionsNarrow.get(rhs);
-            
-            int lhsScore = CodeSearchOracle.scoreMatch(lhsName, token, false);
-            int rhsScore = CodeSearchOracle.scoreMatch(rhsName, token, false);
-            
-            if (lhsType == RCompletionType.ARGUMENT) lhsType -= 3;
-            if (rhsType == RCompletionType.ARGUMENT) rhsType -= 3;
-            
-            if (lhsScore == rhsScore)
-               return lhsName.compareTo(rhsName);
-            
-            return lhsScore < rhsScore ? -1 : 1;
-         }
-      });
+      // Rank them by score (then name)
+      int[] order = CompletionRanking.rank(scores, (lhs, rhs) ->
+            completions.get(matches.get(lhs)).compareTo(completions.get(matches.get(rhs))));
       
-      // Finally, re-arrange our vectors.
+      // Finally, generate narrowed versions of the above in that order
       final JsVectorString completionsSorted = JsVectorString.createVector().cast();
       final JsVectorString packagesSorted    = JsVectorString.createVector().cast();
       final JsVectorBoolean quoteSorted      = JsVectorBoolean.createVector().cast();
       final JsVectorInteger typeSorted       = JsVectorInteger.createVector().cast();
       final JsVectorString metaSorted        = JsVectorString.createVector().cast();
       
-      for (int i = 0, n = indices.size(); i < n; i++)
+      for (int i = 0; i < order.length; i++)
       {
-         int index = indices.get(i);
-         completionsSorted.push(completionsNarrow.get(index));
-         packagesSorted.push(packagesNarrow.get(index));
-         quoteSorted.push(quoteNarrow.get(index));
-         typeSorted.push(typeNarrow.get(index));
-         metaSorted.push(metaNarrow.get(index));
+         int index = matches.get(order[i]);
+         completionsSorted.push(completions.get(index));
+         packagesSorted.push(packages.get(index));
+         quoteSorted.push(quote.get(index));
+         typeSorted.push(type.get(index));
+         metaSorted.push(meta.get(index));
       }
       
       // And return the completion result
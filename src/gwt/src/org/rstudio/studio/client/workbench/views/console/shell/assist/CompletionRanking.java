@@ -0,0 +1,111 @@
+/*
+ * CompletionRanking.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.console.shell.assist;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+// Orders narrowed completion candidates by score (lower is better), with
+// ties broken by the supplied comparison. Scores are computed by the caller
+// once per candidate rather than on every comparison.
+//
+// Only the best MAX_SORTED candidates are fully sorted; the rest follow them
+// in their existing order. Since candidates are narrowed from the previous
+// (already ranked) result as the user types, that order is itself a close
+// approximation of the ranking.
+class CompletionRanking
+{
+   public interface TieBreaker
+   {
+      int compare(int lhs, int rhs);
+   }
+
+   public static int[] rank(int[] scores, TieBreaker ties)
+   {
+      return rank(scores, ties, MAX_SORTED);
+   }
+
+   /**
+    * @param scores The score of each candidate
+    * @param ties Comparison of two candidates (by index) with equal scores
+    * @param limit The number of candidates to fully sort
+    * @return The candidate indices, best first
+    */
+   public static int[] rank(final int[] scores,
+                            final TieBreaker ties,
+                            int limit)
+   {
+      final Comparator<Integer> comparator = (lhs, rhs) ->
+      {
+         int lhsScore = scores[lhs];
+         int rhsScore = scores[rhs];
+         if (lhsScore == rhsScore)
+            return ties.compare(lhs, rhs);
+         return lhsScore < rhsScore ? -1 : 1;
+      };
+
+      int n = scores.length;
+      int[] order = new int[n];
+
+      if (n <= limit)
+      {
+         Integer[] indices = new Integer[n];
+         for (int i = 0; i < n; i++)
+            indices[i] = i;
+         Arrays.sort(indices, comparator);
+         for (int i = 0; i < n; i++)
+            order[i] = indices[i];
+         return order;
+      }
+
+      // select the best candidates, keeping the worst of them at the head
+      // of the queue so it can be replaced by anything better
+      PriorityQueue<Integer> best = new PriorityQueue<Integer>(
+            limit, (lhs, rhs) -> comparator.compare(rhs, lhs));
+      for (int i = 0; i < n; i++)
+      {
+         if (best.size() < limit)
+         {
+            best.add(i);
+         }
+         else if (comparator.compare(i, best.peek()) < 0)
+         {
+            best.poll();
+            best.add(i);
+         }
+      }
+
+      Integer[] head = best.toArray(new Integer[best.size()]);
+      Arrays.sort(head, comparator);
+
+      boolean[] selected = new boolean[n];
+      int count = 0;
+      for (Integer index : head)
+      {
+         order[count++] = index;
+         selected[index] = true;
+      }
+
+      for (int i = 0; i < n; i++)
+         if (!selected[i])
+            order[count++] = i;
+
+      return order;
+   }
+
+   // comfortably more than will be looked at in the completion popup
+   public static final int MAX_SORTED = 500;
+}
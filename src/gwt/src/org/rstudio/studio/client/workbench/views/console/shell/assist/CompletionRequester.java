@@ -154,8 +154,26 @@ public class CompletionRequester
                                    final String diff,
                                    CompletionResult cachedResult)
    {
-      ArrayList<QualifiedName> newCompletions = new ArrayList<QualifiedName>();
-      newCompletions.ensureCapacity(cachedResult.completions.size());
+      // Narrow from the result for the longest prefix of the diff that's
+      // already been narrowed to, if any: candidates which don't match a
+      // prefix of the token can't match the token itself. (File completions
+      // are matched on their basename, so this doesn't hold once a '/' has
+      // been typed.)
+      ArrayList<QualifiedName> candidates = cachedResult.completions;
+      for (int i = diff.length() - 1; i > 0; i--)
+      {
+         if (diff.indexOf('/', i) != -1)
+            break;
+         
+         CompletionResult narrowed = cachedCompletions_.get(diff.substring(0, i));
+         if (narrowed != null)
+         {
+            candidates = narrowed.completions;
+            break;
+         }
+      }
+      
+      final ArrayList<QualifiedName> matches = new ArrayList<QualifiedName>();
       
       // For completions that are files or directories, we need to post-process
       // the token and the qualified name to strip out just the basename (filename).
@@ -167,45 +185,43 @@ public class CompletionRequester
       final String tokenSub   = token.substring(token.lastIndexOf('/') + 1);
       final String tokenFuzzy = fuzzy(tokenSub);
       
-      for (QualifiedName qname : cachedResult.completions)
+      for (QualifiedName qname : candidates)
       {
          // File types are narrowed only by the file name
          if (RCompletionType.isFileType(qname.type))
          {
             if (StringUtil.isSubsequence(basename(qname.name), tokenFuzzy, true))
-               newCompletions.add(qname);
+               matches.add(qname);
          }
          else
          {
             if (StringUtil.isSubsequence(qname.name, tokenFuzzy, true) &&
                 filterStartsWithDot(qname.name, token))
-               newCompletions.add(qname) ;
+               matches.add(qname) ;
          }
       }
       
-      java.util.Collections.sort(newCompletions, new Comparator<QualifiedName>() {
+      // Score each match once, then rank
+      int[] scores = new int[matches.size()];
+      for (int i = 0, n = matches.size(); i < n; i++)
+      {
+         QualifiedName qname = matches.get(i);
+         scores[i] = RCompletionType.isFileType(qname.type)
+               ? CodeSearchOracle.scoreMatch(basename(qname.name), tokenSub, true)
+               : CodeSearchOracle.scoreMatch(qname.name, token, false);
          
-         @Override
-         public int compare(QualifiedName lhs, QualifiedName rhs)
-         {
-            int lhsScore = RCompletionType.isFileType(lhs.type)
-                  ? CodeSearchOracle.scoreMatch(basename(lhs.name), tokenSub, true)
-                  : CodeSearchOracle.scoreMatch(lhs.name, token, false);
-            
-            int rhsScore = RCompletionType.isFileType(rhs.type)
-               ? CodeSearchOracle.scoreMatch(basename(rhs.name), tokenSub, true)
-               : CodeSearchOracle.scoreMatch(rhs.name, token, false);
-            
-            // Place arguments higher (give less penalty)
-            if (lhs.type == RCompletionType.ARGUMENT) lhsScore -= 3;
-            if (rhs.type == RCompletionType.ARGUMENT) rhsScore -= 3;
-            
-            if (lhsScore == rhsScore)
-               return lhs.compareTo(rhs);
-            
-            return lhsScore < rhsScore ? -1 : 1;
-         }
-      });
+         // Place arguments higher (give less penalty)
+         if (qname.type == RCompletionType.ARGUMENT)
+            scores[i] -= 3;
+      }
+      
+      int[] order = CompletionRanking.rank(scores,
+            (lhs, rhs) -> matches.get(lhs).compareTo(matches.get(rhs)));
+      
+      ArrayList<QualifiedName> newCompletions = new ArrayList<QualifiedName>();
+      newCompletions.ensureCapacity(order.length);
+      for (int index : order)
+         newCompletions.add(matches.get(index));
       
       CompletionResult result = new CompletionResult(
             token,
@@ -18,18 +18,19 @@ package org.rstudio.studio.client.workbench.views.environment.view;
 import java.util.List;
 
 import org.rstudio.core.client.SafeHtmlUtil;
-import org.rstudio.core.client.cellview.ScrollingDataGrid;
 import org.rstudio.core.client.theme.res.ThemeStyles;
+import org.rstudio.core.client.widget.VirtualizedDataGrid;
 import org.rstudio.studio.client.workbench.views.environment.EnvironmentPane;
 
 import com.google.gwt.cell.client.FieldUpdater;
+import com.google.gwt.core.client.GWT;
 import com.google.gwt.safehtml.shared.SafeHtml;
 import com.google.gwt.safehtml.shared.SafeHtmlBuilder;
 import com.google.gwt.text.shared.AbstractSafeHtmlRenderer;
 import com.google.gwt.user.cellview.client.Column;
 
 public abstract class EnvironmentObjectDisplay 
-                      extends ScrollingDataGrid<RObjectEntry>
+                      extends VirtualizedDataGrid<RObjectEntry>
 {
    public interface Host
    {
@@ -44,14 +45,14 @@ public abstract class EnvironmentObjectDisplay
       void setShowInternalFunctions(boolean hide);
       public void fillEntryContents(RObjectEntry entry, int idx, 
                                     boolean drawProgress);
+      List<RObjectEntry> getObjects();
    }
 
    public EnvironmentObjectDisplay(Host host, 
                                    EnvironmentObjectsObserver observer,
                                    String environmentName)
    {
-      super(EnvironmentObjects.MAX_ENVIRONMENT_OBJECTS, 
-            RObjectEntry.KEY_PROVIDER);
+      super(RES, RObjectEntry.KEY_PROVIDER);
 
       observer_ = observer;
       host_ = host;
@@ -73,6 +74,18 @@ public abstract class EnvironmentObjectDisplay
    
    public abstract List<String> getSelectedObjects();
    public abstract void clearSelection();
+   
+   @Override
+   public int getRowHeight()
+   {
+      return ROW_HEIGHT;
+   }
+   
+   @Override
+   public int getTotalNumberOfRows()
+   {
+      return host_.getObjects().size();
+   }
 
    public void setEnvironmentName(String environmentName)
    {
@@ -109,4 +122,9 @@ public abstract class EnvironmentObjectDisplay
    protected Host host_;
    protected EnvironmentStyle environmentStyle_;
    protected String environmentName_ = "";
+   
+   // the height of each table row drawn for an object (see the row styles
+   // in EnvironmentObjectList.css and EnvironmentObjectGrid.css)
+   private static final int ROW_HEIGHT = 20;
+   private static final Resources RES = GWT.create(Resources.class);
 }
@@ -33,7 +33,6 @@ import com.google.gwt.dom.client.Style.Unit;
 import com.google.gwt.resources.client.ClientBundle;
 import com.google.gwt.resources.client.CssResource;
 import com.google.gwt.user.cellview.client.AbstractCellTable;
-import com.google.gwt.user.cellview.client.AbstractCellTableBuilder;
 import com.google.gwt.user.cellview.client.AbstractHeaderOrFooterBuilder;
 import com.google.gwt.user.cellview.client.Column;
 import com.google.gwt.user.cellview.client.Header;
@@ -45,6 +44,7 @@ public class EnvironmentObjectGrid extends EnvironmentObjectDisplay
 {
    public interface Style extends CssResource
    {
+      String objectGridRow();
       String objectGridColumn();
       String objectGridHeader();
       String checkColumn();
@@ -91,7 +91,7 @@ public class EnvironmentObjectGrid extends EnvironmentObjectDisplay
       boolean hasFilter = !host_.getFilterText().isEmpty();
       ArrayList<String> selectedObjectNames = new ArrayList<>();
       ArrayList<String> filteredObjectNames = new ArrayList<>();
-      List<RObjectEntry> objects = getVisibleItems();
+      List<RObjectEntry> objects = host_.getObjects();
       for (RObjectEntry object: objects)
       {
          if (object.visible)
@@ -117,6 +117,12 @@ public class EnvironmentObjectGrid extends EnvironmentObjectDisplay
       redrawHeaders();
    }
    
+   @Override
+   protected int getRowSpan(int index)
+   {
+      return host_.getObjects().get(index).visible ? 1 : 0;
+   }
+   
    @Override
    public void setEnvironmentName(String environmentName)
    {
@@ -230,7 +236,7 @@ public class EnvironmentObjectGrid extends EnvironmentObjectDisplay
    
    private void setSelectAll(boolean selected)
    {
-      List<RObjectEntry> objects = getVisibleItems();
+      List<RObjectEntry> objects = host_.getObjects();
       for (RObjectEntry object: objects)
       {
          if (object.visible)
@@ -313,8 +319,7 @@ public class EnvironmentObjectGrid extends EnvironmentObjectDisplay
    }
 
    // builds individual rows of the object table
-   private class EnvironmentObjectGridBuilder
-           extends AbstractCellTableBuilder<RObjectEntry>
+   private class EnvironmentObjectGridBuilder extends TableBuilder
    {
 
       public EnvironmentObjectGridBuilder(
@@ -324,12 +329,12 @@ public class EnvironmentObjectGrid extends EnvironmentObjectDisplay
       }
 
       @Override
-      protected void buildRowImpl(RObjectEntry rowValue, int absRowIndex)
+      protected void buildActiveRow(RObjectEntry rowValue, int absRowIndex)
       {
          if (!rowValue.visible)
             return;
 
-         TableRowBuilder row = startRow();
+         TableRowBuilder row = startRow().className(style_.objectGridRow());
 
          if (selectionEnabled())
          {
@@ -36,7 +36,6 @@ import com.google.gwt.safehtml.shared.SafeHtmlBuilder;
 import com.google.gwt.text.shared.AbstractSafeHtmlRenderer;
 import com.google.gwt.text.shared.SafeHtmlRenderer;
 import com.google.gwt.user.cellview.client.AbstractCellTable;
-import com.google.gwt.user.cellview.client.AbstractCellTableBuilder;
 import com.google.gwt.user.cellview.client.Column;
 import com.google.gwt.view.client.NoSelectionModel;
 
@@ -45,6 +44,7 @@ public class EnvironmentObjectList extends EnvironmentObjectDisplay
    public interface Style extends CssResource
    {
       String categoryHeaderRow();
+      String objectRow();
       String expandIcon();
       String unclickableIcon();
       String unevaluatedPromise();
@@ -106,7 +106,7 @@ public class EnvironmentObjectList extends EnvironmentObjectDisplay
 
       // If the view is filtered, return items that are visible.
       ArrayList<String> objectNames = new ArrayList<String>();
-      List<RObjectEntry> objects = getVisibleItems();
+      List<RObjectEntry> objects = host_.getObjects();
       for (RObjectEntry object: objects)
       {
          if (object.visible)
@@ -122,6 +122,22 @@ public class EnvironmentObjectList extends EnvironmentObjectDisplay
    {
       // No selection to clear in list view
    }
+   
+   @Override
+   protected int getRowSpan(int index)
+   {
+      // see EnvironmentObjectTableBuilder.buildActiveRow
+      RObjectEntry object = host_.getObjects().get(index);
+      if (!object.visible)
+         return 0;
+      
+      int span = 1;
+      if (object.isCategoryLeader)
+         span++;
+      if (object.expanded)
+         span += object.rObject.getContents().length();
+      return span;
+   }
 
    private void createColumns()
    {
@@ -327,13 +343,14 @@ public class EnvironmentObjectList extends EnvironmentObjectDisplay
             else
                observer_.setObjectCollapsed(object.rObject.getName());
          }
-         redrawRow(index);
+         
+         // the rows below have moved, so redraw the padding too
+         redraw();
       }
    }
 
    // builds individual rows of the object table
-   private class EnvironmentObjectTableBuilder
-           extends AbstractCellTableBuilder<RObjectEntry>
+   private class EnvironmentObjectTableBuilder extends TableBuilder
    {
       public EnvironmentObjectTableBuilder(
              AbstractCellTable<RObjectEntry> cellTable)
@@ -342,7 +359,8 @@ public class EnvironmentObjectList extends EnvironmentObjectDisplay
       }
 
       // (re)build the given row
-      public void buildRowImpl(RObjectEntry rowValue, int absRowIndex)
+      @Override
+      protected void buildActiveRow(RObjectEntry rowValue, int absRowIndex)
       {
          // build nothing for invisible rows
          if (!rowValue.visible)
@@ -351,7 +369,7 @@ public class EnvironmentObjectList extends EnvironmentObjectDisplay
          // build the header for the row (if any)
          buildRowHeader(rowValue, absRowIndex);
 
-         TableRowBuilder row = startRow();
+         TableRowBuilder row = startRow().className(style_.objectRow());
 
          // build the columns
          buildExpandColumn(rowValue, row);
@@ -368,6 +386,29 @@ public class EnvironmentObjectList extends EnvironmentObjectDisplay
          }
       }
 
+      // the padding row may be the first row, so it sets the column widths
+      // in the same way as the width setting row (see buildRowHeader)
+      @Override
+      protected void drawPaddingRow(int heightPx)
+      {
+         if (heightPx <= 0)
+            return;
+         
+         TableRowBuilder paddingRow = startRow().className(
+                 style_.widthSettingRow());
+         paddingRow.attribute("height", heightPx + "px");
+         buildWidthSettingColumns(paddingRow);
+         paddingRow.endTR();
+      }
+      
+      private void buildWidthSettingColumns(TableRowBuilder row)
+      {
+         row.startTD().className(style_.expandCol()).endTD();
+         row.startTD().className(style_.nameCol()).endTD();
+         row.startTD().className(style_.resizeCol()).endTD();
+         row.startTD().className(style_.valueCol()).endTD();
+      }
+
       private void buildExpandColumn(RObjectEntry rowValue, TableRowBuilder row)
       {
          TableCellBuilder expandCol = row.startTD();
@@ -473,10 +514,7 @@ public class EnvironmentObjectList extends EnvironmentObjectDisplay
          {
             TableRowBuilder widthSettingRow = startRow().className(
                     style_.widthSettingRow());
-            widthSettingRow.startTD().className(style_.expandCol()).endTD();
-            widthSettingRow.startTD().className(style_.nameCol()).endTD();
-            widthSettingRow.startTD().className(style_.resizeCol()).endTD();
-            widthSettingRow.startTD().className(style_.valueCol()).endTD();
+            buildWidthSettingColumns(widthSettingRow);
             widthSettingRow.endTR();
          }
 
@@ -16,9 +16,11 @@
 package org.rstudio.studio.client.workbench.views.environment.view;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import com.google.gwt.animation.client.AnimationScheduler;
 import com.google.gwt.core.client.GWT;
 import com.google.gwt.core.client.JsArray;
 import com.google.gwt.core.client.JsArrayString;
@@ -33,6 +35,7 @@ import com.google.gwt.user.client.ui.*;
 import com.google.gwt.view.client.ListDataProvider;
 
 import org.rstudio.core.client.Debug;
+import org.rstudio.core.client.container.SortedKeyedList;
 import org.rstudio.core.client.theme.res.ThemeResources;
 import org.rstudio.core.client.theme.res.ThemeStyles;
 import org.rstudio.core.client.widget.FontSizer;
@@ -54,8 +57,8 @@ public class EnvironmentObjects extends ResizeComposite
       {
          try
          {
-            if (row_ >= 0 && row_ <= objectDisplay_.getVisibleItemCount())
-               objectDisplay_.getRowElement(row_).scrollIntoView();
+            if (row_ >= 0 && row_ < objectDisplay_.getTotalNumberOfRows())
+               objectDisplay_.scrollRowIndexIntoView(row_);
          }
          catch (Exception e)
          {
@@ -88,6 +91,9 @@ public class EnvironmentObjects extends ResizeComposite
       objectDisplayType_ = OBJECT_LIST_VIEW;
       objectDataProvider_ = new ListDataProvider<RObjectEntry>();
       objectSort_ = new RObjectEntrySort();
+      objects_ = new SortedKeyedList<RObjectEntry>(objectDataProvider_.getList(),
+                                                   objectSort_,
+                                                   RObjectEntry.KEY_PROVIDER);
       
       // timer used to scroll table element into view
       // a timer is required as we need to wait until table elements are
@@ -137,71 +143,23 @@ public class EnvironmentObjects extends ResizeComposite
       contextDepth_ = contextDepth;
    }
 
+   // assignments and removals are applied in batches, once per frame, so a
+   // loop assigning many objects doesn't redraw the pane for each of them
    public void addObject(RObject obj)
    {
-      int idx = indexOfExistingObject(obj.getName());
-      final RObjectEntry newEntry = entryFromRObject(obj);
-      boolean added = false;
-
-      // if the object is already in the environment, just update the value
-      if (idx >= 0)
-      {
-         final RObjectEntry oldEntry = objectDataProvider_.getList().get(idx);
-
-         if (oldEntry.rObject.getType() == obj.getType())
-         {
-            // type hasn't changed
-            if (oldEntry.expanded && 
-                newEntry.contentsAreDeferred)
-            {
-               // we're replacing an object that has server-deferred contents--
-               // refill it immediately. (another approach would be to push the
-               // set of currently expanded objects to the server so these
-               // objects would show up on the client already expanded)
-               fillEntryContents(newEntry, idx, false);
-            }
-            else
-            {
-               // contents aren't deferred, just use the expanded state directly
-               newEntry.expanded = oldEntry.expanded;
-            }
-            objectDataProvider_.getList().set(idx, newEntry);
-            added = true;
-         }
-         else
-         {
-            // types did change, do a full add/remove
-            objectDataProvider_.getList().remove(idx);
-         }
-         
-      }
-      if (!added)
-      {
-         RObjectEntry entry = entryFromRObject(obj);
-         idx = indexOfNewObject(entry);
-         objectDataProvider_.getList().add(idx, entry);
-      }
-      updateCategoryLeaders(true);
-      
-      // scroll into view
-      scrollTimer_.setRow(idx);
-      scrollTimer_.schedule(100);
+      queueUpdate(obj.getName(), obj);
    }
 
    public void removeObject(String objName)
    {
-      int idx = indexOfExistingObject(objName);
-      if (idx >= 0)
-      {
-         objectDataProvider_.getList().remove(idx);
-      }
-
-      updateCategoryLeaders(true);
+      queueUpdate(objName, null);
    }
    
    public void clearObjects()
    {
-      objectDataProvider_.getList().clear();
+      pendingUpdates_.clear();
+      objects_.clear();
+      redrawObjects();
    }
    
    public void clearSelection()
@@ -212,19 +170,20 @@ public class EnvironmentObjects extends ResizeComposite
    // bulk add for objects--used on init or environment switch
    public void addObjects(JsArray<RObject> objects)
    {
-      // create an entry for each object and sort the array
+      // create an entry for each object (replacing any existing entries)
       int numObjects = objects.length();
-      ArrayList<RObjectEntry> objectEntryList = new ArrayList<RObjectEntry>();
+      ArrayList<RObjectEntry> objectEntryList =
+            new ArrayList<RObjectEntry>(objectDataProvider_.getList());
       for (int i = 0; i < numObjects; i++)
       {
          RObjectEntry entry = entryFromRObject(objects.get(i));
          objectEntryList.add(entry);
       }
-      Collections.sort(objectEntryList, objectSort_);
 
-      // push the list into the UI and update category leaders
-      objectDataProvider_.getList().addAll(objectEntryList);
-      updateCategoryLeaders(false);
+      // push the sorted list into the UI and update category leaders
+      objects_.setAll(objectEntryList);
+      updateCategoryLeaders();
+      redrawObjects();
 
       if (useStatePersistence())
       {
@@ -300,21 +259,12 @@ public class EnvironmentObjects extends ResizeComposite
 
       // Iterate over each entry in the list, and toggle its visibility based 
       // on whether it matches the current filter text.
-      List<RObjectEntry> objects = objectDataProvider_.getList();
-      for (int i = 0; i < objects.size(); i++)
-      {
-         RObjectEntry entry = objects.get(i);
-         boolean visible = matchesFilter(entry.rObject);
-         // Redraw the object if its visibility status has changed, or if it's
-         // visible (for visible entries we need to update the search highlight)
-         if (visible != entry.visible || visible)
-         {
-            entry.visible = visible;
-            redrawRowSafely(i);
-         }
-      }
+      for (RObjectEntry entry : objectDataProvider_.getList())
+         entry.visible = matchesFilter(entry.rObject);
 
-      updateCategoryLeaders(true);
+      // redraw the rows in view (including the search highlight)
+      updateCategoryLeaders();
+      redrawObjects();
    }
    
    public int getObjectDisplay()
@@ -407,11 +357,11 @@ public class EnvironmentObjects extends ResizeComposite
       }
 
       objectDisplayType_ = type;
-      Collections.sort(objectDataProvider_.getList(), objectSort_);
-      updateCategoryLeaders(false);
+      objects_.sort();
+      updateCategoryLeaders();
       objectDataProvider_.addDataDisplay(objectDisplay_);
 
-      objectDisplay_.getScrollPanel().addScrollHandler(new ScrollHandler()
+      objectDisplay_.addScrollHandler(new ScrollHandler()
       {
          @Override
          public void onScroll(ScrollEvent event)
@@ -428,6 +378,7 @@ public class EnvironmentObjects extends ResizeComposite
       objectDisplay_.addStyleName(style.objectGrid());
       objectDisplay_.addStyleName(style.environmentPanel());
       splitPanel.add(objectDisplay_);
+      objectDisplay_.redraw();
       deferredObjectDisplayType_ = null;
    }
 
@@ -492,7 +443,7 @@ public class EnvironmentObjects extends ResizeComposite
    {
       objectSort_.setSortColumn(col);
       observer_.setViewDirty();
-      Collections.sort(objectDataProvider_.getList(), objectSort_);
+      objects_.sort();
    }
    
    @Override
@@ -511,14 +462,14 @@ public class EnvironmentObjects extends ResizeComposite
    {
       objectSort_.setAscending(ascending);
       observer_.setViewDirty();
-      Collections.sort(objectDataProvider_.getList(), objectSort_);
+      objects_.sort();
    }
    
    public void setSort(int column, boolean ascending)
    {
       objectSort_.setSortColumn(column);
       objectSort_.setAscending(ascending);
-      Collections.sort(objectDataProvider_.getList(), objectSort_);
+      objects_.sort();
    }
 
    @Override
@@ -535,53 +486,109 @@ public class EnvironmentObjects extends ResizeComposite
          {
             entry.expanded = true;
             entry.isExpanding = false;
-            redrawRowSafely(idx);
+
+            // the entry's contents move the rows below it (and the entry may
+            // have moved while its contents were fetched)
+            redrawObjects();
          }
       });
    }
 
+   @Override
+   public List<RObjectEntry> getObjects()
+   {
+      return objectDataProvider_.getList();
+   }
+
    // Private methods: object management --------------------------------------
 
-   private int indexOfExistingObject(String objectName)
+   private void queueUpdate(String objectName, RObject obj)
    {
-      List<RObjectEntry> objects = objectDataProvider_.getList();
+      // only the latest update to each object matters
+      pendingUpdates_.remove(objectName);
+      pendingUpdates_.put(objectName, obj);
+
+      if (updateScheduled_)
+         return;
+      updateScheduled_ = true;
+      AnimationScheduler.get().requestAnimationFrame(
+            new AnimationScheduler.AnimationCallback()
+      {
+         @Override
+         public void execute(double timestamp)
+         {
+            updateScheduled_ = false;
+            applyPendingUpdates();
+         }
+      });
+   }
 
-      // find the position of the object in the list--we can't use binary
-      // search here since we're matching on names and the list isn't sorted
-      // by name (it's sorted by type, then name)
-      int index;
-      boolean foundObject = false;
-      for (index = 0; index < objects.size(); index++)
+   private void applyPendingUpdates()
+   {
+      if (pendingUpdates_.isEmpty())
+         return;
+
+      String lastAssigned = null;
+      for (Map.Entry<String, RObject> update : pendingUpdates_.entrySet())
       {
-         if (objects.get(index).rObject.getName() == objectName)
+         if (update.getValue() == null)
+         {
+            objects_.remove(update.getKey());
+         }
+         else
          {
-            foundObject = true;
-            break;
+            applyObject(update.getValue());
+            lastAssigned = update.getKey();
          }
       }
+      pendingUpdates_.clear();
+
+      updateCategoryLeaders();
+      redrawObjects();
 
-      return foundObject ? index : -1;
+      // scroll the most recently assigned object into view (looking it up
+      // again, since later updates in the batch may have moved it)
+      if (lastAssigned != null)
+      {
+         scrollTimer_.setRow(objects_.indexOf(lastAssigned));
+         scrollTimer_.schedule(100);
+      }
    }
 
-   // returns the position a new object entry should occupy in the table
-   private int indexOfNewObject(RObjectEntry obj)
+   private void applyObject(RObject obj)
    {
-      List<RObjectEntry> objects = objectDataProvider_.getList();
-      int numObjects = objects.size();
-      int idx;
-      // consider: can we use binary search here?
-      for (idx = 0; idx < numObjects; idx++)
+      RObjectEntry newEntry = entryFromRObject(obj);
+      RObjectEntry oldEntry = objects_.get(obj.getName());
+
+      // if the object is already in the environment and its type hasn't
+      // changed, carry over its expanded state
+      boolean refill = false;
+      if (oldEntry != null &&
+          oldEntry.rObject.getType() == obj.getType())
       {
-         if (objectSort_.compare(obj, objects.get(idx)) < 0)
+         if (oldEntry.expanded &&
+             newEntry.contentsAreDeferred)
+         {
+            // we're replacing an object that has server-deferred contents--
+            // refill it immediately. (another approach would be to push the
+            // set of currently expanded objects to the server so these
+            // objects would show up on the client already expanded)
+            refill = true;
+         }
+         else
          {
-            break;
+            // contents aren't deferred, just use the expanded state directly
+            newEntry.expanded = oldEntry.expanded;
          }
       }
-      return idx;
+
+      int idx = objects_.put(newEntry);
+      if (refill)
+         fillEntryContents(newEntry, idx, false);
    }
 
    // after adds or removes, we need to tag the new category-leading objects
-   private void updateCategoryLeaders(boolean redrawUpdatedRows)
+   private void updateCategoryLeaders()
    {
       // no need to do these model updates if we're not in the mode that 
       // displays them
@@ -608,31 +615,11 @@ public class EnvironmentObjects extends ResizeComposite
          {
             entry.isFirstObject = false;
          }
-         int category = entry.getCategory();
-         Boolean leader = entry.isCategoryLeader;
-         // if we haven't found a leader for this category yet, make this object
-         // the leader if it isn't already
-         if (!leaders[category])
-         {
-            leaders[category] = true;
-            if (!leader)
-            {
-               entry.isCategoryLeader = true;
-            }
-         }
-         // if this object is marked as the leader but we've already found a
-         // leader, unmark it
-         else if (leader)
-         {
-            entry.isCategoryLeader = false;
-         }
 
-         // if we changed the leader flag, redraw the row
-         if (leader != entry.isCategoryLeader
-             && redrawUpdatedRows)
-         {
-            redrawRowSafely(i);
-         }
+         // the first object found in each category is its leader
+         int category = entry.getCategory();
+         entry.isCategoryLeader = !leaders[category];
+         leaders[category] = true;
       }
    }
 
@@ -706,15 +693,15 @@ public class EnvironmentObjects extends ResizeComposite
                          deferredExpandedObjects_.get(idxExpanded))
                      {
                         objects.get(idxObj).expanded = true;
-                        redrawRowSafely(idxObj);
                      }
                   }
                }
+               redrawObjects();
             }
 
             // set the cached scroll position
-            objectDisplay_.getScrollPanel().setVerticalScrollPosition(
-                    deferredScrollPosition_);
+            objectDisplay_.setVerticalScrollPosition(deferredScrollPosition_);
+            objectDisplay_.redrawIfNecessary();
 
          }
       });
@@ -733,14 +720,13 @@ public class EnvironmentObjects extends ResizeComposite
       return new RObjectEntry(obj, matchesFilter(obj));
    }
    
-   // for very large environments, the number of objects may exceed the number
-   // of physical rows; avoid redrawing rows outside the bounds of the
-   // container's physical limit
+   // only the rows in view are drawn; avoid redrawing rows that aren't
    private void redrawRowSafely(int idx)
    {
+      int relIdx = idx - objectDisplay_.getPageStart();
       boolean oob =
-            idx >= MAX_ENVIRONMENT_OBJECTS ||
-            idx >= objectDisplay_.getRowCount();
+            relIdx < 0 ||
+            relIdx >= objectDisplay_.getVisibleItemCount();
 
       if (oob)
          return;
@@ -748,6 +734,18 @@ public class EnvironmentObjects extends ResizeComposite
       objectDisplay_.redrawRow(idx);
    }
    
+   // redraws the rows in view, along with the padding standing in for the
+   // rest; needed whenever objects are added, removed, filtered or expanded,
+   // since that moves the rows below them
+   private void redrawObjects()
+   {
+      if (objectDisplay_ == null)
+         return;
+      
+      objectDataProvider_.flush();
+      objectDisplay_.redraw();
+   }
+   
    private final static String EMPTY_ENVIRONMENT_MESSAGE =
            "Environment is empty";
 
@@ -763,6 +761,12 @@ public class EnvironmentObjects extends ResizeComposite
 
    private ListDataProvider<RObjectEntry> objectDataProvider_;
    private RObjectEntrySort objectSort_;
+   private SortedKeyedList<RObjectEntry> objects_;
+
+   // assignments (or, for null values, removals) waiting for the next frame
+   private final LinkedHashMap<String, RObject> pendingUpdates_ =
+         new LinkedHashMap<String, RObject>();
+   private boolean updateScheduled_ = false;
 
    private EnvironmentObjectsObserver observer_;
    private int contextDepth_;
@@ -779,6 +783,4 @@ public class EnvironmentObjects extends ResizeComposite
    private boolean pendingCallFramePanelSize_ = false;
    private Integer deferredObjectDisplayType_ = new Integer(OBJECT_LIST_VIEW);
    private int gridRenderRetryCount_ = 0;
-   
-   public final static int MAX_ENVIRONMENT_OBJECTS = 1024;
 }
@@ -16,8 +16,8 @@ package org.rstudio.studio.client.workbench.views.files.ui;
 
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.List;
-import java.util.Set;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 
 import org.rstudio.core.client.Debug;
 import org.rstudio.core.client.StringUtil;
@@ -25,9 +25,10 @@ import org.rstudio.core.client.cellview.AriaLabeledCheckboxCell;
 import org.rstudio.core.client.cellview.ColumnSortInfo;
 import org.rstudio.core.client.cellview.LabeledBoolean;
 import org.rstudio.core.client.cellview.LinkColumn;
+import org.rstudio.core.client.container.SortedKeyedList;
 import org.rstudio.core.client.files.FileSystemItem;
 import org.rstudio.core.client.widget.OperationWithInput;
-import org.rstudio.core.client.widget.RStudioDataGrid;
+import org.rstudio.core.client.widget.VirtualizedDataGrid;
 import org.rstudio.studio.client.ResizableHeader;
 import org.rstudio.studio.client.common.filetypes.FileIcon;
 import org.rstudio.studio.client.common.filetypes.FileIconResourceCell;
@@ -35,6 +36,7 @@ import org.rstudio.studio.client.common.filetypes.FileTypeRegistry;
 import org.rstudio.studio.client.workbench.views.files.Files;
 import org.rstudio.studio.client.workbench.views.files.model.FileChange;
 
+import com.google.gwt.animation.client.AnimationScheduler;
 import com.google.gwt.core.client.JsArray;
 import com.google.gwt.core.client.Scheduler;
 import com.google.gwt.core.client.Scheduler.ScheduledCommand;
@@ -44,7 +46,6 @@ import com.google.gwt.event.logical.shared.ResizeEvent;
 import com.google.gwt.event.logical.shared.ResizeHandler;
 import com.google.gwt.safehtml.shared.SafeHtmlBuilder;
 import com.google.gwt.safehtml.shared.SafeHtmlUtils;
-import com.google.gwt.user.cellview.client.DataGrid;
 import com.google.gwt.user.cellview.client.Column;
 import com.google.gwt.user.cellview.client.ColumnSortEvent;
 import com.google.gwt.user.cellview.client.ColumnSortList;
@@ -65,16 +66,14 @@ public class FilesList extends Composite
    {
       observer_ = observer;
       
-      // create data provider and sort handler
+      // create data provider, with its files indexed by path
       dataProvider_ = new ListDataProvider<FileSystemItem>();
-      sortHandler_ = new ColumnSortEvent.ListHandler<FileSystemItem>(
-                                                      dataProvider_.getList());
+      files_ = new SortedKeyedList<FileSystemItem>(dataProvider_.getList(),
+                                                   listComparator_,
+                                                   KEY_PROVIDER);
       
       // create cell table
-      filesDataGrid_ = new RStudioDataGrid<FileSystemItem>(
-                                          15,
-                                          FilesListDataGridResources.INSTANCE,
-                                          KEY_PROVIDER);
+      filesDataGrid_ = new FilesDataGrid();
       selectionModel_ = new MultiSelectionModel<FileSystemItem>(KEY_PROVIDER);
       filesDataGrid_.setSelectionModel(
          selectionModel_, 
@@ -160,7 +159,7 @@ public class FilesList extends Composite
             SafeHtmlUtils.fromSafeConstant("<span aria-label=\"File Type\"><br/></span>"));
       filesDataGrid_.setColumnWidth(iconColumn, ICON_COLUMN_WIDTH_PIXELS, Unit.PX);
     
-      sortHandler_.setComparator(iconColumn, new FilesListComparator() {
+      comparators_.put(iconColumn, new FilesListComparator() {
          @Override
          public int doCompare(FileSystemItem arg0, FileSystemItem arg1)
          {
@@ -200,7 +199,7 @@ public class FilesList extends Composite
       nameColumn.setSortable(true);
       filesDataGrid_.addColumn(nameColumn, "Name");
       
-      sortHandler_.setComparator(nameColumn, new FilesListComparator() {
+      comparators_.put(nameColumn, new FilesListComparator() {
          @Override
          public int doCompare(FileSystemItem arg0, FileSystemItem arg1)
          {
@@ -227,7 +226,7 @@ public class FilesList extends Composite
       filesDataGrid_.addColumn(sizeColumn, new ResizableHeader(filesDataGrid_, "Size"));
       filesDataGrid_.setColumnWidth(sizeColumn, SIZE_COLUMN_WIDTH_PIXELS, Unit.PX);
       
-      sortHandler_.setComparator(sizeColumn, new FoldersOnBottomComparator() {
+      comparators_.put(sizeColumn, new FoldersOnBottomComparator() {
          @Override
          public int doItemCompare(FileSystemItem arg0, FileSystemItem arg1)
          {
@@ -255,7 +254,7 @@ public class FilesList extends Composite
       filesDataGrid_.addColumn(modColumn, new ResizableHeader(filesDataGrid_, "Modified"));
       filesDataGrid_.setColumnWidth(modColumn, MODIFIED_COLUMN_WIDTH_PIXELS, Unit.PX); 
       
-      sortHandler_.setComparator(modColumn, new FoldersOnBottomComparator() {
+      comparators_.put(modColumn, new FoldersOnBottomComparator() {
          @Override
          public int doItemCompare(FileSystemItem arg0, FileSystemItem arg1)
          {
@@ -328,8 +327,9 @@ public class FilesList extends Composite
             // record active sort column ascending state
             activeSortColumnAscending_ = event.isSortAscending();
             
-            // delegate the sort
-            sortHandler_.onColumnSort(event);
+            // sort on the column
+            sortComparator_ = comparators_.get(event.getColumn());
+            files_.sort();
          }
          
          private native final JsArray<ColumnSortInfo> newSortOrderArray()
@@ -368,12 +368,9 @@ public class FilesList extends Composite
       containingPath_ = containingPath;
       parentPath_ = containingPath_.getParentPath();
       
-      // set page size (+1 for parent path)
-      filesDataGrid_.setPageSize(files.length() + 1);
-      
-      // get underlying list
-      List<FileSystemItem> fileList = dataProvider_.getList();
-      fileList.clear();
+      // build the list (+1 for parent path)
+      ArrayList<FileSystemItem> fileList =
+            new ArrayList<FileSystemItem>(files.length() + 1);
             
       // add entry for parent path if we have one
       if (parentPath_ != null)
@@ -382,10 +379,14 @@ public class FilesList extends Composite
       // add files to table
       for (int i=0; i<files.length(); i++)
          fileList.add(files.get(i));
+      files_.setAll(fileList);
            
       // apply sort list
       applyColumnSortList();
       
+      // render the rows in view
+      filesDataGrid_.redrawIfNecessary();
+      
       // fire selection changed
       observer_.onFileSelectionChanged();
    }
@@ -408,68 +409,97 @@ public class FilesList extends Composite
    public ArrayList<FileSystemItem> getSelectedFiles()
    {    
       // first make sure there are no leftover items in the selected set
-      Set<FileSystemItem> selectedSet = selectionModel_.getSelectedSet();
-      selectedSet.retainAll(dataProvider_.getList());
+      ArrayList<FileSystemItem> selectedFiles = new ArrayList<FileSystemItem>();
+      for (FileSystemItem item : selectionModel_.getSelectedSet())
+      {
+         if (files_.get(KEY_PROVIDER.getKey(item)) == item)
+            selectedFiles.add(item);
+      }
    
-      return new ArrayList<FileSystemItem>(selectedSet);
+      return selectedFiles;
    }
    
+   // changes arrive in bursts (e.g. during a build), so they're applied in
+   // batches, once per frame
    public void updateWithAction(FileChange viewAction)
+   {
+      String path = viewAction.getFile().getPath();
+      FileChange pending = pendingChanges_.get(path);
+      if (pending != null && viewAction.getType() == FileChange.MODIFIED)
+      {
+         // a modification doesn't undo a pending deletion, nor make a
+         // pending addition any less of an addition
+         if (pending.getType() == FileChange.DELETE)
+            return;
+         if (pending.getType() == FileChange.ADD)
+            viewAction = FileChange.createAdd(viewAction.getFile());
+      }
+      pendingChanges_.put(path, viewAction);
+      
+      if (changesScheduled_)
+         return;
+      changesScheduled_ = true;
+      AnimationScheduler.get().requestAnimationFrame(
+            new AnimationScheduler.AnimationCallback()
+      {
+         @Override
+         public void execute(double timestamp)
+         {
+            changesScheduled_ = false;
+            applyPendingChanges();
+         }
+      });
+   }
+   
+   private void applyPendingChanges()
+   {
+      if (pendingChanges_.isEmpty())
+         return;
+      
+      for (FileChange change : pendingChanges_.values())
+         applyChange(change);
+      pendingChanges_.clear();
+      
+      // if a file is deleted and then re-added (as occurs when gedit saves a
+      // text file) the table doesn't always update correctly (it has a
+      // duplicate of the item deleted / re-added). the call to flush
+      // overcomes this issue
+      dataProvider_.flush();
+      
+      // the number of rows may have changed
+      filesDataGrid_.redrawIfNecessary();
+   }
+   
+   private void applyChange(FileChange viewAction)
    {        
       final FileSystemItem file = viewAction.getFile();
-      final List<FileSystemItem> files = getFiles();
       switch(viewAction.getType())
       {
       case FileChange.ADD:
          if (file.getParentPath().equalTo(containingPath_))
          {
-            int row = rowForFile(file);
-            if (row == -1)
-            {
-               files.add(file);
-               filesDataGrid_.setPageSize(files.size() + 1);
-            }
-            else
-            {
-               // since we eagerly perform renames at the client UI
-               // layer then sometimes an "added" file is really just
-               // a rename. in this case the file already exists due
-               // to the eager rename in the client but still needs its
-               // metadata updated
-               files.set(row, file);
-            }
+            // since we eagerly perform renames at the client UI
+            // layer then sometimes an "added" file is really just
+            // a rename. in this case the file already exists due
+            // to the eager rename in the client but still needs its
+            // metadata updated
+            files_.put(file);
          }
          break;
          
       case FileChange.MODIFIED:
+         if (files_.get(KEY_PROVIDER.getKey(file)) != null)
          {
-            int row = rowForFile(file);
-            if (row != -1)
-            {
-               // the selection model loses the selection state when we update
-               // the row, so save and restore it manually.
-               boolean selected = selectionModel_.isSelected(file);
-               files.set(row, file);
-               selectionModel_.setSelected(file, selected);
-            }
+            // the selection model loses the selection state when we update
+            // the row, so save and restore it manually.
+            boolean selected = selectionModel_.isSelected(file);
+            files_.put(file);
+            selectionModel_.setSelected(file, selected);
          }
          break;
  
       case FileChange.DELETE:
-         {
-            int row = rowForFile(file);
-            if (row != -1)
-            {
-               files.remove(row);
-               
-               // if a file is deleted and then re-added within the same
-               // event loop (as occurs when gedit saves a text file) the
-               // table doesn't always update correctly (it has a duplicate
-               // of the item deleted / re-added). the call to flush overcomes
-               // this issue
-               dataProvider_.flush();
-            }
-         }
+         files_.remove(KEY_PROVIDER.getKey(file));
          break;
       
       default:
@@ -481,29 +511,14 @@ public class FilesList extends Composite
    
    public void renameFile(FileSystemItem from, FileSystemItem to)
    {
-      int index = getFiles().indexOf(from);
-      if (index != -1)
+      if (files_.get(KEY_PROVIDER.getKey(from)) == from)
       {
          selectNone();
-         getFiles().set(index, to);
+         files_.remove(KEY_PROVIDER.getKey(from));
+         files_.put(to);
       }
    }
    
-   private List<FileSystemItem> getFiles()
-   {
-      return dataProvider_.getList();
-   }
-   
-   private int rowForFile(FileSystemItem file)
-   {
-      List<FileSystemItem> files = getFiles();
-      for (int i=0; i<files.size(); i++)
-         if (files.get(i).equalTo(file))
-            return i;
-      
-      return -1;
-   }
-   
    private void applyColumnSortList()
    {
       applyingProgrammaticSort_ = true;
@@ -598,6 +613,47 @@ public class FilesList extends Composite
          }
     };
     
+    // only the rows in view (plus some padding) are drawn, so that
+    // directories with many thousands of files can be listed
+    private class FilesDataGrid extends VirtualizedDataGrid<FileSystemItem>
+    {
+       public FilesDataGrid()
+       {
+          super(FilesListDataGridResources.INSTANCE, KEY_PROVIDER);
+       }
+       
+       @Override
+       public int getRowHeight()
+       {
+          return ROW_HEIGHT_PIXELS;
+       }
+       
+       @Override
+       public int getTotalNumberOfRows()
+       {
+          return files_.size();
+       }
+    }
+    
+    // orders the list by the active sort column (as chosen in the column sort
+    // handler), breaking ties by path so each file has one place in the list
+    private final Comparator<FileSystemItem> listComparator_ =
+          new Comparator<FileSystemItem>()
+    {
+       @Override
+       public int compare(FileSystemItem arg0, FileSystemItem arg1)
+       {
+          int result = 0;
+          if (sortComparator_ != null)
+          {
+             result = sortComparator_.compare(arg0, arg1);
+             if (!activeSortColumnAscending_)
+                result = -result;
+          }
+          return result != 0 ? result : arg0.getPath().compareTo(arg1.getPath());
+       }
+    };
+    
     // comparator which ensures that the parent path is always on top
     private abstract class FilesListComparator implements Comparator<FileSystemItem>
     {     
@@ -665,7 +721,7 @@ public class FilesList extends Composite
    private FileSystemItem containingPath_ = null;
    private FileSystemItem parentPath_ = null;
   
-   private final DataGrid<FileSystemItem> filesDataGrid_; 
+   private final FilesDataGrid filesDataGrid_; 
    private final LinkColumn<FileSystemItem> nameColumn_;
    private final TextColumn<FileSystemItem> sizeColumn_;
    private final TextColumn<FileSystemItem> modifiedColumn_;
@@ -675,11 +731,22 @@ public class FilesList extends Composite
    
    private final MultiSelectionModel<FileSystemItem> selectionModel_;
    private final ListDataProvider<FileSystemItem> dataProvider_;
-   private final ColumnSortEvent.ListHandler<FileSystemItem> sortHandler_;
+   private final SortedKeyedList<FileSystemItem> files_;
+   private final HashMap<Column<FileSystemItem, ?>, Comparator<FileSystemItem>> comparators_ =
+         new HashMap<Column<FileSystemItem, ?>, Comparator<FileSystemItem>>();
+   private Comparator<FileSystemItem> sortComparator_ = null;
+   
+   // changes waiting for the next frame, by path
+   private final LinkedHashMap<String, FileChange> pendingChanges_ =
+         new LinkedHashMap<String, FileChange>();
+   private boolean changesScheduled_ = false;
 
    private final Files.Display.Observer observer_;
    private final ResizeLayoutPanel layoutPanel_;
    
+   // rows outside the view are stood in for by padding of this height per
+   // row; must match the row height in FilesListDataGridStyle.css
+   private static final int ROW_HEIGHT_PIXELS = 22;
    private static final int CHECK_COLUMN_WIDTH_PIXELS = 30;
    private static final int ICON_COLUMN_WIDTH_PIXELS = 26;
    private static final int SIZE_COLUMN_WIDTH_PIXELS = 80;
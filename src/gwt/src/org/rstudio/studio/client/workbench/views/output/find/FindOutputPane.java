@@ -14,30 +14,42 @@
  */
 package org.rstudio.studio.client.workbench.views.output.find;
 
+import com.google.gwt.cell.client.SafeHtmlCell;
 import com.google.gwt.core.client.GWT;
+import com.google.gwt.dom.builder.shared.TableCellBuilder;
+import com.google.gwt.dom.builder.shared.TableRowBuilder;
 import com.google.gwt.dom.client.NativeEvent;
 import com.google.gwt.dom.client.Style.Unit;
-import com.google.gwt.dom.client.TableRowElement;
 import com.google.gwt.event.dom.client.*;
 import com.google.gwt.event.logical.shared.ValueChangeEvent;
 import com.google.gwt.event.logical.shared.ValueChangeHandler;
 import com.google.gwt.event.shared.HandlerRegistration;
+import com.google.gwt.safehtml.shared.SafeHtml;
 import com.google.gwt.safehtml.shared.SafeHtmlBuilder;
+import com.google.gwt.user.cellview.client.Column;
+import com.google.gwt.user.cellview.client.HasKeyboardSelectionPolicy.KeyboardSelectionPolicy;
+import com.google.gwt.user.cellview.client.RowStyles;
+import com.google.gwt.user.cellview.client.TextColumn;
 import com.google.gwt.user.client.ui.CheckBox;
+import com.google.gwt.user.client.ui.FlowPanel;
+import com.google.gwt.user.client.ui.HeaderPanel;
 import com.google.gwt.user.client.ui.Label;
-import com.google.gwt.user.client.ui.ScrollPanel;
-import com.google.gwt.user.client.ui.SimplePanel;
+import com.google.gwt.user.client.ui.SimpleLayoutPanel;
 import com.google.gwt.user.client.ui.TextBox;
 import com.google.gwt.user.client.ui.Widget;
+import com.google.gwt.view.client.ListDataProvider;
+import com.google.gwt.view.client.SelectionChangeEvent;
+import com.google.gwt.view.client.SingleSelectionModel;
 import com.google.inject.Inject;
 import org.rstudio.core.client.CodeNavigationTarget;
 import org.rstudio.core.client.DebouncedCommand;
-import org.rstudio.core.client.dom.DomUtils;
+import org.rstudio.core.client.FilePosition;
 import org.rstudio.core.client.events.EnsureVisibleEvent;
 import org.rstudio.core.client.events.HasSelectionCommitHandlers;
 import org.rstudio.core.client.events.SelectionCommitEvent;
 import org.rstudio.core.client.events.SelectionCommitHandler;
 import org.rstudio.core.client.widget.*;
+import org.rstudio.core.client.widget.events.SelectionChangedEvent;
 import org.rstudio.core.client.widget.events.SelectionChangedHandler;
 import org.rstudio.studio.client.application.events.EventBus;
 import org.rstudio.studio.client.workbench.commands.Commands;
@@ -46,6 +58,7 @@ import org.rstudio.studio.client.workbench.views.output.find.model.FindResult;
 import org.rstudio.studio.client.workbench.views.output.find.events.PreviewReplaceEvent;
 
 import java.util.ArrayList;
+import java.util.List;
 
 
 public class FindOutputPane extends WorkbenchPane
@@ -166,15 +179,55 @@ public class FindOutputPane extends WorkbenchPane
 
       FindOutputResources resources = GWT.create(FindOutputResources.class);
       resources.styles().ensureInjected();
+      styles_ = resources.styles();
 
-      table_ = new FastSelectTable<FindResult, CodeNavigationTarget, Object>(
-            new FindOutputCodec(resources),
-            resources.styles().selectedRow(),
-            true,
-            false);
+      dataProvider_ = new ListDataProvider<FindResult>();
+      selection_ = new SingleSelectionModel<FindResult>();
+
+      table_ = new FindResultsGrid();
+      table_.setSelectionModel(selection_);
+      table_.setKeyboardSelectionPolicy(KeyboardSelectionPolicy.BOUND_TO_SELECTION);
+      table_.setRowStyles(new RowStyles<FindResult>()
+      {
+         @Override
+         public String getStyleNames(FindResult result, int rowIndex)
+         {
+            return selection_.isSelected(result) ? styles_.selectedRow() : null;
+         }
+      });
       FontSizer.applyNormalFontSize(table_);
-      table_.addStyleName(resources.styles().findOutput());
-      table_.addClickHandler(new ClickHandler()
+      table_.addStyleName(styles_.findOutput());
+
+      lineColumn_ = new TextColumn<FindResult>()
+      {
+         @Override
+         public String getValue(FindResult result)
+         {
+            return result.getLine() + ":\u00A0";
+         }
+      };
+      lineColumn_.setCellStyleNames(styles_.line());
+      table_.addColumn(lineColumn_);
+
+      Column<FindResult, SafeHtml> valueColumn =
+            new Column<FindResult, SafeHtml>(new SafeHtmlCell())
+      {
+         @Override
+         public SafeHtml getValue(FindResult result)
+         {
+            if (!result.getReplaceIndicator())
+               return result.getLineHTML();
+            else
+               return result.getLineReplaceHTML();
+         }
+      };
+      valueColumn.setCellStyleNames(styles_.lineValue());
+      table_.addColumn(valueColumn);
+      updateLineColumnWidth();
+
+      dataProvider_.addDataDisplay(table_);
+
+      table_.addDomHandler(new ClickHandler()
       {
          @Override
          public void onClick(ClickEvent event)
@@ -187,31 +240,42 @@ public class FindOutputPane extends WorkbenchPane
          }
 
          private final DoubleClickState dblClick_ = new DoubleClickState();
-      });
+      }, ClickEvent.getType());
 
-      table_.addKeyDownHandler(new KeyDownHandler()
+      // the grid moves the selection with the arrow keys itself
+      table_.addDomHandler(new KeyDownHandler()
       {
          @Override
          public void onKeyDown(KeyDownEvent event)
          {
             if (event.getNativeKeyCode() == KeyCodes.KEY_ENTER)
+            {
                fireSelectionCommitted();
+               event.preventDefault();
+            }
             event.stopPropagation();
-            event.preventDefault();
          }
-      });
+      }, KeyDownEvent.getType());
 
       replaceMode_ = false;
       setSecondaryToolbarVisible(replaceMode_);
 
-      container_ =  new SimplePanel();
+      moreResultsLabel_ = new Label();
+      showMoreResultsButton_ = new SmallButton("Show more results");
+      moreResultsPanel_ = new FlowPanel();
+      moreResultsPanel_.addStyleName(resources.styles().overflowWarning());
+      moreResultsPanel_.add(moreResultsLabel_);
+      moreResultsPanel_.add(showMoreResultsButton_);
+      moreResultsPanel_.setVisible(false);
+
+      results_ = new HeaderPanel();
+      results_.setContentWidget(table_);
+      results_.setFooterWidget(moreResultsPanel_);
+
+      container_ =  new SimpleLayoutPanel();
       container_.addStyleName("ace_editor_theme");
-      container_.setSize("100%", "100%");
       statusPanel_ = new StatusPanel();
-      statusPanel_.setSize("100%", "100%");
-      scrollPanel_ = new ScrollPanel(table_);
-      scrollPanel_.setSize("100%", "100%");
-      container_.setWidget(scrollPanel_);
+      container_.setWidget(results_);
       return container_;
    }
 
@@ -239,28 +303,24 @@ public class FindOutputPane extends WorkbenchPane
    @Override
    public void addMatches(ArrayList<FindResult> findResults)
    {
-      int matchesToAdd = Math.min(findResults.size(), MAX_COUNT - matchCount_);
-
-      if (matchesToAdd > 0)
-      {
-         matchCount_ += matchesToAdd;
+      if (findResults.isEmpty())
+         return;
 
-         if (matchCount_ > 0 && container_.getWidget() != scrollPanel_)
-            container_.setWidget(scrollPanel_);
+      if (container_.getWidget() != results_)
+         container_.setWidget(results_);
 
-         if (!replaceMode_ || regexPreviewMode_)
-            context_.addMatches(findResults.subList(0, matchesToAdd));
-         table_.addItems(findResults.subList(0, matchesToAdd), false);
-      }
-
-      if (matchCount_ >= MAX_COUNT)
-         showOverflow();
+      if (!replaceMode_ || regexPreviewMode_)
+         context_.addMatches(findResults);
+      matchCount_ += findResults.size();
+      dataProvider_.getList().addAll(findResults);
+      updateLineColumnWidth();
+      table_.redraw();
+      updateMoreResultsPanel();
    }
 
    public void addReplaceMatches(String value)
    {
-      table_.clear();
-      matchCount_ = 0;
+      clearTable();
       context_.updateFileMatches(value);
       addMatches(context_.getFindResults());
    }
@@ -269,9 +329,10 @@ public class FindOutputPane extends WorkbenchPane
    public void clearMatches()
    {
       context_.reset();
-      table_.clear();
-      overflow_ = false;
-      matchCount_ = 0;
+      clearTable();
+      resultOffset_ = 0;
+      resultsIncomplete_ = false;
+      setMoreResultsAvailable(false, false);
       statusPanel_.setStatusText("");
       container_.setWidget(statusPanel_);
    }
@@ -280,7 +341,17 @@ public class FindOutputPane extends WorkbenchPane
    public void showSearchCompleted()
    {
       if (matchCount_ == 0)
-         statusPanel_.setStatusText("(No results found)");
+         statusPanel_.setStatusText(resultOffset_ > 0 ?
+               "(No further results found)" : "(No results found)");
+   }
+
+   @Override
+   public void onResize()
+   {
+      super.onResize();
+
+      if (table_ != null)
+         table_.onResize();
    }
 
    @Override
@@ -288,12 +359,16 @@ public class FindOutputPane extends WorkbenchPane
    {
       super.onSelected();
 
+      // the grid has a cached height of 0 if the tab wasn't visible when
+      // the results came in
+      table_.onResize();
+
       if (!regexPreviewMode_)
       {
-         table_.focus();
-         ArrayList<Integer> indices = table_.getSelectedRowIndexes();
-         if (indices.isEmpty())
-            table_.selectNextRow();
+         if (selection_.getSelectedObject() == null)
+            table_.setKeyboardSelectedRowIndex(0);
+         else
+            table_.setFocus(true);
       }
    }
 
@@ -318,30 +393,53 @@ public class FindOutputPane extends WorkbenchPane
    @Override
    public void ensureSelectedRowIsVisible()
    {
-      ArrayList<TableRowElement> rows = table_.getSelectedRows();
-      if (rows.size() > 0)
+      int index = table_.getKeyboardSelectedRowIndex();
+      if (index >= 0)
+         table_.scrollRowIndexIntoView(index);
+   }
+
+   @Override
+   public HandlerRegistration addSelectionChangedHandler(
+         final SelectionChangedHandler handler)
+   {
+      return selection_.addSelectionChangeHandler(
+            new SelectionChangeEvent.Handler()
       {
-         DomUtils.ensureVisibleVert(scrollPanel_.getElement(),
-                                    rows.get(0),
-                                    20);
-      }
+         @Override
+         public void onSelectionChange(SelectionChangeEvent event)
+         {
+            handler.onSelectionChanged(new SelectionChangedEvent());
+         }
+      });
    }
 
    @Override
-   public HandlerRegistration addSelectionChangedHandler(SelectionChangedHandler handler)
+   public void setMoreResultsAvailable(boolean moreAvailable, boolean canShowMore)
    {
-      return table_.addSelectionChangedHandler(handler);
+      moreResultsAvailable_ = moreAvailable;
+      canShowMoreResults_ = canShowMore;
+      showMoreResultsButton_.setVisible(moreAvailable && canShowMore);
+      updateMoreResultsPanel();
    }
 
    @Override
-   public void showOverflow()
+   public void setResultOffset(int offset)
    {
-      if (overflow_)
-         return;
-      overflow_ = true;
-      ArrayList<FindResult> items = new ArrayList<FindResult>();
-      items.add(null);
-      table_.addItems(items, false);
+      resultOffset_ = offset;
+      updateMoreResultsPanel();
+   }
+
+   @Override
+   public void setResultsIncomplete(boolean incomplete)
+   {
+      resultsIncomplete_ = incomplete;
+      updateMoreResultsPanel();
+   }
+
+   @Override
+   public HasClickHandlers getShowMoreResultsButton()
+   {
+      return showMoreResultsButton_;
    }
 
    @Override
@@ -497,11 +595,120 @@ public class FindOutputPane extends WorkbenchPane
       };
    }
 
+   private void clearTable()
+   {
+      dataProvider_.getList().clear();
+      selection_.clear();
+      table_.setVerticalScrollPosition(0);
+      table_.redraw();
+      matchCount_ = 0;
+      updateMoreResultsPanel();
+   }
+
+   // line numbers are right aligned in a fixed width font, so the column
+   // need only fit the widest of them (a digit is about 0.6em wide), the
+   // colon and space after it, and the cell's padding
+   private void updateLineColumnWidth()
+   {
+      int chars = Math.max(context_.getMaxLineWidth(), 1) + 2;
+      table_.setColumnWidth(lineColumn_, chars * 0.6 + 1, Unit.EM);
+   }
+
+   // The server sends a page of matches at a time; each page is appended to
+   // those shown, unless the earlier pages were lost when the session was
+   // restored, in which case the matches shown start at the result offset
+   private void updateMoreResultsPanel()
+   {
+      StringBuilder text = new StringBuilder();
+      if (moreResultsAvailable_ && !canShowMoreResults_)
+      {
+         text.append("More than " + matchCount_ + " matching lines were found. " +
+                     "Only the first " + matchCount_ + " lines are shown. ");
+      }
+      else if (matchCount_ > 0 && (moreResultsAvailable_ || resultOffset_ > 0))
+      {
+         text.append("Showing matching lines " + (resultOffset_ + 1) + "-" +
+                     (resultOffset_ + matchCount_) + ". ");
+      }
+      if (resultsIncomplete_)
+      {
+         text.append("The search was stopped here, as it found more " +
+                     "results than could be held. Narrow the search to " +
+                     "find the rest. ");
+      }
+
+      moreResultsLabel_.setText(text.toString());
+      moreResultsPanel_.setVisible(text.length() > 0);
+   }
+
    private void fireSelectionCommitted()
    {
-      ArrayList<CodeNavigationTarget> values = table_.getSelectedValues();
-      if (values.size() == 1)
-         SelectionCommitEvent.fire(this, values.get(0));
+      FindResult result = selection_.getSelectedObject();
+      if (result != null)
+      {
+         SelectionCommitEvent.fire(this, new CodeNavigationTarget(
+               result.getFile(), FilePosition.create(result.getLine(), 1)));
+      }
+   }
+
+   // only the rows in view (plus some padding) are drawn, so that all the
+   // pages of a large search can be kept; each file's first match is drawn
+   // beneath a header row naming the file
+   private class FindResultsGrid extends VirtualizedDataGrid<FindResult>
+   {
+      public FindResultsGrid()
+      {
+         setTableBuilder(new FindResultsTableBuilder());
+      }
+
+      @Override
+      public int getRowHeight()
+      {
+         return ROW_HEIGHT_PIXELS;
+      }
+
+      @Override
+      public int getTotalNumberOfRows()
+      {
+         return dataProvider_.getList().size();
+      }
+
+      @Override
+      protected int getRowSpan(int index)
+      {
+         return isFirstInFile(index) ? 2 : 1;
+      }
+
+      private boolean isFirstInFile(int index)
+      {
+         List<FindResult> results = dataProvider_.getList();
+         return index == 0 ||
+                !results.get(index - 1).getFile().equals(
+                      results.get(index).getFile());
+      }
+
+      private class FindResultsTableBuilder extends TableBuilder
+      {
+         public FindResultsTableBuilder()
+         {
+            super(FindResultsGrid.this);
+         }
+
+         @Override
+         protected void buildActiveRow(FindResult result, int index)
+         {
+            if (isFirstInFile(index))
+            {
+               TableRowBuilder row = startRow();
+               row.className(styles_.headerRow());
+               TableCellBuilder cell = row.startTD();
+               cell.colSpan(2).text(result.getFile());
+               cell.endTD();
+               row.endTR();
+            }
+            super.buildActiveRow(result, index);
+         }
+      }
    }
 
    private class StatusPanel extends HorizontalCenterPanel
@@ -520,17 +727,29 @@ public class FindOutputPane extends WorkbenchPane
       private final Label label_;
    }
 
-   private FastSelectTable<FindResult, CodeNavigationTarget, Object> table_;
+   private FindResultsGrid table_;
+   private ListDataProvider<FindResult> dataProvider_;
+   private SingleSelectionModel<FindResult> selection_;
+   private TextColumn<FindResult> lineColumn_;
+   private FindOutputResources.Styles styles_;
    private FindResultContext context_;
    private final Commands commands_;
    private final EventBus eventBus_;
    private Label searchLabel_;
    private ToolbarButton stopSearch_;
-   private SimplePanel container_;
-   private ScrollPanel scrollPanel_;
+   private SimpleLayoutPanel container_;
+   private HeaderPanel results_;
    private StatusPanel statusPanel_;
-   private boolean overflow_ = false;
+   private FlowPanel moreResultsPanel_;
+   private Label moreResultsLabel_;
+   private SmallButton showMoreResultsButton_;
+   private boolean moreResultsAvailable_;
+   private boolean canShowMoreResults_;
+   private boolean resultsIncomplete_;
+
+   // the number of matches in the table, and on the pages before it
    private int matchCount_;
+   private int resultOffset_;
 
    private SecondaryToolbar replaceToolbar_;
 
@@ -549,6 +768,6 @@ public class FindOutputPane extends WorkbenchPane
 
    private DebouncedCommand displayPreview_;
 
-   // This must be the same as MAX_COUNT in SessionFind.cpp
-   private static final int MAX_COUNT = 1000;
+   // header rows and match rows are drawn the same height (see FindOutput.css)
+   private static final int ROW_HEIGHT_PIXELS = 20;
 }
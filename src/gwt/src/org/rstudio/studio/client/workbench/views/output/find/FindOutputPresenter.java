@@ -85,7 +85,23 @@ public class FindOutputPresenter extends BasePresenter
 
       HandlerRegistration addSelectionChangedHandler(SelectionChangedHandler handler);
 
-      void showOverflow();
+      /**
+       * Shows whether there are further matches than those shown, and if so,
+       * whether they can be fetched.
+       */
+      void setMoreResultsAvailable(boolean moreAvailable, boolean canShowMore);
+      HasClickHandlers getShowMoreResultsButton();
+
+      /**
+       * Sets the number of matches before the first one shown (those on
+       * pages that weren't kept when the session was restored).
+       */
+      void setResultOffset(int offset);
+
+      /**
+       * Shows that the search stopped before finding all the matches.
+       */
+      void setResultsIncomplete(boolean incomplete);
       
       void showSearchCompleted();
 
@@ -169,6 +185,15 @@ public class FindOutputPresenter extends BasePresenter
          }
       });
 
+      view_.getShowMoreResultsButton().addClickHandler(new ClickHandler()
+      {
+         @Override
+         public void onClick(ClickEvent event)
+         {
+            showMoreResults();
+         }
+      });
+
       events_.addHandler(FindResultEvent.TYPE, new FindResultEvent.Handler()
       {
          @Override
@@ -189,6 +214,15 @@ public class FindOutputPresenter extends BasePresenter
                dialogState_.updateResultsCount(count);
             }
             view_.addMatches(event.getResults());
+            view_.setMoreResultsAvailable(event.isMoreAvailable(),
+                                          canShowMoreResults_);
+            if (event.isIncomplete())
+               view_.setResultsIncomplete(true);
+
+            // the server holds the rest of the results until they're asked
+            // for, so the search is done for now
+            if (event.isMoreAvailable() && canShowMoreResults_)
+               showSearchCompleted();
          }
       });
 
@@ -204,14 +238,7 @@ public class FindOutputPresenter extends BasePresenter
                   events_.fireEvent(new ReplaceOperationEndedEvent(currentFindHandle_));
                else
                   currentFindHandle_ = null;
-               view_.setStopSearchButtonVisible(false);
-               view_.showSearchCompleted();
-               // replace may have been previously disabled
-               view_.enableReplace();
-               if (dialogState_.isRegex())
-                  view_.setRegexPreviewMode(true);
-               else
-                  view_.setRegexPreviewMode(false);
+               showSearchCompleted();
             }
          }
       });
@@ -248,6 +275,7 @@ public class FindOutputPresenter extends BasePresenter
                                       {
                                          view_.clearMatches();
                                          currentFindHandle_ = handle;
+                                         canShowMoreResults_ = false;
                                          if (dialogState_ != null)
                                             dialogState_.clearResultsCount();
                                       }
@@ -328,6 +356,7 @@ public class FindOutputPresenter extends BasePresenter
                                                    public void onResponseReceived(String handle)
                                                    {
                                                       currentFindHandle_ = handle;
+                                                      canShowMoreResults_ = false;
                                                       updateSearchLabel(dialogState_.getQuery(),
                                                                         dialogState_.getPath(),
                                                                         dialogState_.isRegex(),
@@ -376,6 +405,7 @@ public class FindOutputPresenter extends BasePresenter
 
             view_.setReplaceMode(false);
             view_.addMatches(results);
+            view_.setMoreResultsAvailable(event.isMoreAvailable(), false);
             view_.setReplaceMode(true);
             
             view_.ensureVisible(true);
@@ -464,8 +494,15 @@ public class FindOutputPresenter extends BasePresenter
       view_.ensureVisible(false);
 
       currentFindHandle_ = state.getHandle();
+
+      // a session restart loses the results not yet paged in, in which case
+      // the server reports that there are no more
+      canShowMoreResults_ = !state.isReplace() && state.isMoreAvailable();
       view_.clearMatches();
+      view_.setResultOffset(state.getResultOffset());
       view_.addMatches(state.getResults().toArrayList());
+      view_.setMoreResultsAvailable(state.isMoreAvailable(), canShowMoreResults_);
+      view_.setResultsIncomplete(state.isIncomplete());
 
       updateSearchLabel(state.getInput(), state.getPath(), state.isRegex());
 
@@ -513,6 +550,7 @@ public class FindOutputPresenter extends BasePresenter
                                  public void onResponseReceived(String handle)
                                  {
                                     currentFindHandle_ = handle;
+                                    canShowMoreResults_ = true;
                                     updateSearchLabel(input.getQuery(),
                                                       input.getPath(),
                                                       input.isRegex());
@@ -654,6 +692,29 @@ public class FindOutputPresenter extends BasePresenter
       view_.clearSearchLabel();
    }
 
+   private void showSearchCompleted()
+   {
+      view_.setStopSearchButtonVisible(false);
+      view_.showSearchCompleted();
+      // replace may have been previously disabled
+      view_.enableReplace();
+      if (dialogState_.isRegex())
+         view_.setRegexPreviewMode(true);
+      else
+         view_.setRegexPreviewMode(false);
+   }
+
+   private void showMoreResults()
+   {
+      if (currentFindHandle_ == null)
+         return;
+
+      // the next page is appended to the results shown; it arrives as a
+      // find result, along with whether there's more to come
+      server_.getMoreFindResults(currentFindHandle_,
+                                 new VoidServerRequestCallback());
+   }
+
    private void stop()
    {
       if (currentFindHandle_ != null)
@@ -678,6 +739,9 @@ public class FindOutputPresenter extends BasePresenter
    }
 
    private String currentFindHandle_;
+   // whether the current operation is a find, whose further results can be
+   // fetched a page at a time (replaces stop after the first page)
+   private boolean canShowMoreResults_;
    private FindInFilesDialog.State dialogState_;
 
    private final Display view_;
@@ -14,14 +14,17 @@
  */
 package org.rstudio.studio.client.workbench.views.output.find;
 
-import com.google.gwt.view.client.AbstractDataProvider;
-import com.google.gwt.view.client.ListDataProvider;
-import com.google.gwt.view.client.ProvidesKey;
 import org.rstudio.studio.client.workbench.views.output.find.model.FindResult;
 
-import java.util.HashMap;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 
+/**
+ * The results of a find, grouped by file. Files are indexed by path, so
+ * adding a match is constant time however many results have streamed in.
+ */
 public class FindResultContext
 {
    public class File
@@ -40,39 +43,26 @@ public class FindResultContext
       {
          int lineWidth = (line + "").length();
          maxLineWidth_ = Math.max(lineWidth, maxLineWidth_);
-         matchData_.getList().add(new Match(this, line, column, value));
+         matches_.add(new Match(this, line, column, value));
       }
 
       public int getCount()
       {
-         return matchData_.getList().size();
+         return matches_.size();
       }
 
-      public AbstractDataProvider<Match> getDataProvider()
+      public List<Match> getMatches()
       {
-         return matchData_;
-      }
-
-      public void refresh()
-      {
-         matchData_.refresh();
+         return Collections.unmodifiableList(matches_);
       }
 
       public void clear()
       {
-         matchData_.getList().clear();
+         matches_.clear();
       }
 
       private final String path_;
-      private final ListDataProvider<Match> matchData_ =
-            new ListDataProvider<Match>(new ProvidesKey<Match>()
-            {
-               @Override
-               public Object getKey(Match item)
-               {
-                  return item.getParent().getPath() + ":" + item.getLine();
-               }
-            });
+      private final ArrayList<Match> matches_ = new ArrayList<Match>();
    }
 
    public class Match
@@ -133,7 +123,7 @@ public class FindResultContext
       if (file == null)
       {
          file = new File(path);
-         data_.getList().add(file);
+         files_.add(file);
          filesByName_.put(path, file);
       }
       return file;
@@ -144,14 +134,19 @@ public class FindResultContext
       return maxLineWidth_;
    }
 
-   public AbstractDataProvider<File> getDataProvider()
+   public List<File> getFiles()
+   {
+      return Collections.unmodifiableList(files_);
+   }
+
+   public File getFileForPath(String path)
    {
-      return data_;
+      return filesByName_.get(path);
    }
 
    public void reset()
    {
-      data_.getList().clear();
+      files_.clear();
       findResults_.clear();
       filesByName_.clear();
       maxLineWidth_ = 0;
@@ -159,25 +154,11 @@ public class FindResultContext
 
    public void addMatches(Iterable<FindResult> findResults)
    {
-      int origMaxLineWidth = maxLineWidth_;
-
       for (FindResult fr : findResults)
       {
-         File file = getFile(fr.getFile());
-
-         file.addMatch(fr.getLine(), 0, fr.getLineValue());
-
-         int index = data_.getList().indexOf(file);
-         if (index >= 0) // not that we are expecting otherwise...
-            data_.getList().set(index, file);
+         getFile(fr.getFile()).addMatch(fr.getLine(), 0, fr.getLineValue());
          findResults_.add(fr.clone());
       }
-
-      if (maxLineWidth_ != origMaxLineWidth)
-      {
-         for (File aFile : data_.getList())
-            aFile.refresh();
-      }
    }
 
    public void updateFileMatches(String replace)
@@ -191,15 +172,8 @@ public class FindResultContext
       return findResults_;
    }
 
-   private final ListDataProvider<File> data_ = new ListDataProvider<File>(new ProvidesKey<File>()
-   {
-      @Override
-      public Object getKey(File item)
-      {
-         return item.getPath();
-      }
-   });
    private ArrayList<FindResult> findResults_;
+   private final ArrayList<File> files_ = new ArrayList<File>();
    private final HashMap<String, File> filesByName_ = new HashMap<String, File>();
    private int maxLineWidth_;
 }
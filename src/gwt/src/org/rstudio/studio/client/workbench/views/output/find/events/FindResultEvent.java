@@ -42,12 +42,25 @@ public class FindResultEvent extends GwtEvent<FindResultEvent.Handler>
       public native final RpcObjectList<FindResult> getResults() /*-{
          return this.results;
       }-*/;
+
+      public native final boolean isMoreAvailable() /*-{
+         return !!this.moreAvailable;
+      }-*/;
+
+      public native final boolean isIncomplete() /*-{
+         return !!this.incomplete;
+      }-*/;
    }
 
-   public FindResultEvent(String handle, ArrayList<FindResult> results)
+   public FindResultEvent(String handle,
+                          ArrayList<FindResult> results,
+                          boolean moreAvailable,
+                          boolean incomplete)
    {
       handle_ = handle;
       results_ = results;
+      moreAvailable_ = moreAvailable;
+      incomplete_ = incomplete;
    }
 
    public String getHandle()
@@ -60,6 +73,25 @@ public class FindResultEvent extends GwtEvent<FindResultEvent.Handler>
       return results_;
    }
 
+   /**
+    * @return Whether the server is holding further results, to be fetched
+    *         with getMoreFindResults (or, for a replace, that the results
+    *         were cut short)
+    */
+   public boolean isMoreAvailable()
+   {
+      return moreAvailable_;
+   }
+
+   /**
+    * @return Whether the search was stopped before all the results were
+    *         found, as there were too many to hold
+    */
+   public boolean isIncomplete()
+   {
+      return incomplete_;
+   }
+
    @Override
    public Type<Handler> getAssociatedType()
    {
@@ -74,6 +106,8 @@ public class FindResultEvent extends GwtEvent<FindResultEvent.Handler>
 
    private final String handle_;
    private final ArrayList<FindResult> results_;
+   private final boolean moreAvailable_;
+   private final boolean incomplete_;
 
    public static final Type<Handler> TYPE = new Type<Handler>();
 }
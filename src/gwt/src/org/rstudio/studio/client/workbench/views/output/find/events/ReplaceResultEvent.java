@@ -41,12 +41,19 @@ public class ReplaceResultEvent extends GwtEvent<ReplaceResultEvent.Handler>
       public native final RpcObjectList<FindResult> getResults() /*-{
          return this.results;
       }-*/;
+
+      public native final boolean isMoreAvailable() /*-{
+         return !!this.moreAvailable;
+      }-*/;
    }
 
-   public ReplaceResultEvent(String handle, ArrayList<FindResult> results)
+   public ReplaceResultEvent(String handle,
+                             ArrayList<FindResult> results,
+                             boolean moreAvailable)
    {
       handle_ = handle;
       results_ = results;
+      moreAvailable_ = moreAvailable;
    }
 
    public String getHandle()
@@ -59,6 +66,14 @@ public class ReplaceResultEvent extends GwtEvent<ReplaceResultEvent.Handler>
       return results_;
    }
 
+   /**
+    * @return Whether the replace stopped short of all the matching lines
+    */
+   public boolean isMoreAvailable()
+   {
+      return moreAvailable_;
+   }
+
    @Override
    public Type<Handler> getAssociatedType()
    {
@@ -73,6 +88,7 @@ public class ReplaceResultEvent extends GwtEvent<ReplaceResultEvent.Handler>
 
    private final String handle_;
    private final ArrayList<FindResult> results_;
+   private final boolean moreAvailable_;
 
    public static final Type<Handler> TYPE = new Type<Handler>();
 }
@@ -32,6 +32,9 @@ public interface FindInFilesServerOperations
    void stopFind(String findOperationHandle,
                  ServerRequestCallback<Void> requestCallback);
 
+   void getMoreFindResults(String findOperationHandle,
+                           ServerRequestCallback<Void> requestCallback);
+
    void clearFindResults(ServerRequestCallback<Void> requestCallback);
 
    void previewReplace(String searchString,
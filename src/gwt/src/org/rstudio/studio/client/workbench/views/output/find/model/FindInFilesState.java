@@ -42,6 +42,25 @@ public class FindInFilesState extends JavaScriptObject
       return this.running;
    }-*/;
 
+   /**
+    * @return The number of results on pages before the one held
+    */
+   public native final int getResultOffset() /*-{
+      return this.resultOffset || 0;
+   }-*/;
+
+   public native final boolean isMoreAvailable() /*-{
+      return !!this.moreAvailable;
+   }-*/;
+
+   public native final boolean isIncomplete() /*-{
+      return !!this.incomplete;
+   }-*/;
+
+   public native final boolean isReplace() /*-{
+      return !!this.replace;
+   }-*/;
+
    public native final String getInput() /*-{
       return this.input;
    }-*/;
@@ -14,7 +14,9 @@
  */
 package org.rstudio.studio.client.workbench.views.packages;
 
+import com.google.gwt.core.client.GWT;
 import com.google.gwt.core.client.JsArray;
+import com.google.gwt.core.client.RunAsyncCallback;
 import com.google.gwt.event.shared.HandlerRegistration;
 import com.google.gwt.user.client.Command;
 import com.google.gwt.user.client.Timer;
@@ -77,7 +79,7 @@ import org.rstudio.studio.client.workbench.views.packages.model.PackageInstallCo
 import org.rstudio.studio.client.workbench.views.packages.model.PackageInstallOptions;
 import org.rstudio.studio.client.workbench.views.packages.model.PackageInstallRequest;
 import org.rstudio.studio.client.workbench.views.packages.model.PackageLibraryUtils;
-import org.rstudio.studio.client.workbench.views.packages.model.PackageLibraryUtils.PackageLibraryType;
+import org.rstudio.studio.client.workbench.views.packages.model.PackageList;
 import org.rstudio.studio.client.workbench.views.packages.model.PackageState;
 import org.rstudio.studio.client.workbench.views.packages.model.PackageStatus;
 import org.rstudio.studio.client.workbench.views.packages.model.PackageUpdate;
@@ -87,7 +89,6 @@ import org.rstudio.studio.client.workbench.views.packages.ui.CheckForUpdatesDial
 import org.rstudio.studio.client.workbench.views.packages.ui.CleanUnusedDialog;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -754,7 +755,11 @@ public class Packages
    {
       if (showProgress)
          view_.setProgress(true);
-      server_.getPackageState(manualUpdate, new PackageStateUpdater());
+      // a manual refresh fetches the full list; otherwise only the changes
+      // since the version we have are sent
+      server_.getPackageState(manualUpdate,
+                              manualUpdate ? null : packages_.getVersion(),
+                              new PackageStateUpdater());
    }
 
    public void loadPackage(PackageInfo info)
@@ -829,65 +834,14 @@ public class Packages
       PackageStatus status = event.getPackageStatus();
       view_.setPackageStatus(status);
       
-      // also update the list of allPackages_
-      for (int i = 0; i<allPackages_.size(); i++)
-      {
-         PackageInfo packageInfo = allPackages_.get(i);
-         if (packageInfo.getName() == status.getName() &&
-             packageInfo.getLibrary() == status.getLib())
-         {
-            allPackages_.set(i, status.isLoaded() ? packageInfo.asLoaded() :
-                                                    packageInfo.asUnloaded());
-         }
-      }
+      // also update the list of all packages
+      packages_.setLoaded(status.getName(), status.getLib(), status.isLoaded());
    }
    
    private void setViewPackageList()
    {
-      ArrayList<PackageInfo> packages = null;
-      
       // apply filter (if any)
-      if (packageFilter_.length() > 0)
-      {
-         packages = new ArrayList<PackageInfo>();
-         
-         // first do prefix search
-         for (PackageInfo pkgInfo : allPackages_)
-         {
-            if (pkgInfo.getName().toLowerCase().startsWith(packageFilter_))
-               packages.add(pkgInfo);
-         }
-         
-         // then do contains search on name & desc
-         for (PackageInfo pkgInfo : allPackages_)
-         { 
-            if (pkgInfo.getName().toLowerCase().contains(packageFilter_) ||
-                pkgInfo.getDesc().toLowerCase().contains(packageFilter_))
-            {
-               if (!packages.contains(pkgInfo))
-                  packages.add(pkgInfo);
-            }
-         }
-
-         // sort results by library (to preserve grouping)
-         Collections.sort(packages, new Comparator<PackageInfo>()
-               {
-                  @Override
-                  public int compare(PackageInfo o1, PackageInfo o2)
-                  {
-                     return PackageLibraryUtils.typeOfLibrary(
-                                   session_, o1.getLibrary()).compareTo(
-                             PackageLibraryUtils.typeOfLibrary(
-                                   session_, o2.getLibrary()));
-                  }
-               });
-      }
-      else
-      {
-         packages = allPackages_;
-      }
-      
-      view_.setPackageState(projectContext_, packages);
+      view_.setPackageState(projectContext_, packages_.filter(packageFilter_));
    }
    
    private void checkPackageStatusOnNextConsolePrompt(
@@ -1116,45 +1070,77 @@ public class Packages
       private final Command onExecute_;
    }
    
-   private void confirmPackratActions(JsArray<PackratPackageAction> actions, 
-                                      String actionTitle, 
+   private void confirmPackratActions(final JsArray<PackratPackageAction> actions, 
+                                      final String actionTitle, 
                                       final String packratFunction)
    {
-      new PackratActionDialog(actionTitle, actions, 
-            new OperationWithInput<Void>()
-            {
-               @Override
-               public void execute(Void input)
-               {
-                  packratUtil_.executePackratFunction(packratFunction, 
-                        "prompt = FALSE");
-               }
-            }).showModal();
+      // the Packrat dialogs are only loaded when first used
+      GWT.runAsync(new RunAsyncCallback()
+      {
+         @Override
+         public void onFailure(Throwable reason)
+         {
+            globalDisplay_.showErrorMessage("Error", reason.getMessage());
+         }
+
+         @Override
+         public void onSuccess()
+         {
+            PackratActionDialog.ensureStylesInjected();
+            new PackratActionDialog(actionTitle, actions, 
+                  new OperationWithInput<Void>()
+                  {
+                     @Override
+                     public void execute(Void input)
+                     {
+                        packratUtil_.executePackratFunction(packratFunction, 
+                              "prompt = FALSE");
+                     }
+                  }).showModal();
+         }
+      });
    }
    
    private void resolvePackratConflicts(
          JsArray<PackratPackageAction> restoreActions,
          JsArray<PackratPackageAction> snapshotActions)
    {
-      new PackratResolveConflictDialog(
-            createConflictsFromActions(restoreActions, snapshotActions), 
-            new OperationWithInput<PackratConflictResolution>()
-            {
-               @Override
-               public void execute(PackratConflictResolution input)
-               {
-                  if (input == PackratConflictResolution.Library)
-                  {
-                     packratUtil_.executePackratFunction("restore", 
-                           "prompt = FALSE");
-                  }
-                  else if (input == PackratConflictResolution.Snapshot)
+      final ArrayList<PackratConflictActions> conflicts =
+            createConflictsFromActions(restoreActions, snapshotActions);
+      
+      GWT.runAsync(new RunAsyncCallback()
+      {
+         @Override
+         public void onFailure(Throwable reason)
+         {
+            globalDisplay_.showErrorMessage("Error", reason.getMessage());
+         }
+
+         @Override
+         public void onSuccess()
+         {
+            PackratResolveConflictDialog.ensureStylesInjected();
+            new PackratResolveConflictDialog(
+                  conflicts, 
+                  new OperationWithInput<PackratConflictResolution>()
                   {
-                     packratUtil_.executePackratFunction("snapshot",
-                           "prompt = FALSE");
-                  }
-               }
-            }).showModal();
+                     @Override
+                     public void execute(PackratConflictResolution input)
+                     {
+                        if (input == PackratConflictResolution.Library)
+                        {
+                           packratUtil_.executePackratFunction("restore", 
+                                 "prompt = FALSE");
+                        }
+                        else if (input == PackratConflictResolution.Snapshot)
+                        {
+                           packratUtil_.executePackratFunction("snapshot",
+                                 "prompt = FALSE");
+                        }
+                     }
+                  }).showModal();
+         }
+      });
    }
    
    private TreeMap<String, PackratPackageAction> createMapFromActions(
@@ -1222,38 +1208,12 @@ public class Packages
 
    private void setPackageState(PackageState newState)
    {
-      // sort the packages
-      allPackages_ = new ArrayList<PackageInfo>();
-      JsArray<PackageInfo> serverPackages = newState.getPackageList();
-      for (int i = 0; i < serverPackages.length(); i++)
-         allPackages_.add(serverPackages.get(i));
-      Collections.sort(allPackages_, new Comparator<PackageInfo>() {
-         public int compare(PackageInfo o1, PackageInfo o2)
-         {
-            // sort first by library, then by name
-            int library = 
-                  PackageLibraryUtils.typeOfLibrary(
-                        session_, o1.getLibrary()).compareTo(
-                  PackageLibraryUtils.typeOfLibrary(
-                        session_, o2.getLibrary()));
-            return library == 0 ? 
-                  o1.getName().compareToIgnoreCase(o2.getName()) :
-                  library;
-         }
-      });
-      
-      // Mark  which packages are first in their respective libraries (used
-      // later to render headers)
-      PackageLibraryType libraryType = PackageLibraryType.None;
-      for (PackageInfo pkgInfo: allPackages_)
+      // apply the new state (or the changes it holds) to the package list;
+      // if it holds changes against a list we don't have, fetch it in full
+      if (!packages_.update(newState))
       {
-         PackageLibraryType pkgLibraryType = PackageLibraryUtils.typeOfLibrary(
-               session_, pkgInfo.getLibrary());
-         if (pkgLibraryType != libraryType)
-         {
-            pkgInfo.setFirstInLibrary(true);
-            libraryType = pkgLibraryType;
-         }
+         server_.getPackageState(false, null, new PackageStateUpdater());
+         return;
       }
       
       projectContext_ = newState.getProjectContext();
@@ -1276,7 +1236,18 @@ public class Packages
    private final PackagesServerOperations server_;
    private final PackratServerOperations packratServer_;
    private final RenvServerOperations renvServer_;
-   private ArrayList<PackageInfo> allPackages_ = new ArrayList<PackageInfo>();
+   private final PackageList packages_ = new PackageList(
+         new Comparator<PackageInfo>()
+         {
+            @Override
+            public int compare(PackageInfo o1, PackageInfo o2)
+            {
+               return PackageLibraryUtils.typeOfLibrary(
+                             session_, o1.getLibrary()).compareTo(
+                       PackageLibraryUtils.typeOfLibrary(
+                             session_, o2.getLibrary()));
+            }
+         });
    private ProjectContext projectContext_;
    private String packageFilter_ = new String();
    private HandlerRegistration consolePromptHandlerReg_ = null;
@@ -28,12 +28,12 @@ import org.rstudio.core.client.resources.ImageResource2x;
 import org.rstudio.core.client.theme.res.ThemeResources;
 import org.rstudio.core.client.theme.res.ThemeStyles;
 import org.rstudio.core.client.widget.OperationWithInput;
-import org.rstudio.core.client.widget.RStudioDataGrid;
 import org.rstudio.core.client.widget.SearchWidget;
 import org.rstudio.core.client.widget.Toolbar;
 import org.rstudio.core.client.widget.ToolbarButton;
 import org.rstudio.core.client.widget.ToolbarMenuButton;
 import org.rstudio.core.client.widget.ToolbarPopupMenu;
+import org.rstudio.core.client.widget.VirtualizedDataGrid;
 import org.rstudio.studio.client.RStudioGinjector;
 import org.rstudio.studio.client.application.events.EventBus;
 import org.rstudio.studio.client.common.GlobalDisplay;
@@ -49,6 +49,7 @@ import org.rstudio.studio.client.workbench.views.packages.model.PackageInstallCo
 import org.rstudio.studio.client.workbench.views.packages.model.PackageInstallOptions;
 import org.rstudio.studio.client.workbench.views.packages.model.PackageInstallRequest;
 import org.rstudio.studio.client.workbench.views.packages.model.PackageLibraryUtils;
+import org.rstudio.studio.client.workbench.views.packages.model.PackageList;
 import org.rstudio.studio.client.workbench.views.packages.model.PackageStatus;
 import org.rstudio.studio.client.workbench.views.packages.model.PackagesServerOperations;
 import org.rstudio.studio.client.workbench.views.packages.ui.InstallPackageDialog;
@@ -64,10 +65,8 @@ import com.google.gwt.dom.client.Style.Unit;
 import com.google.gwt.event.logical.shared.ValueChangeEvent;
 import com.google.gwt.event.logical.shared.ValueChangeHandler;
 import com.google.gwt.safehtml.shared.SafeHtmlBuilder;
-import com.google.gwt.user.cellview.client.AbstractCellTable;
+import com.google.gwt.safehtml.shared.SafeHtmlUtils;
 import com.google.gwt.user.cellview.client.Column;
-import com.google.gwt.user.cellview.client.DataGrid;
-import com.google.gwt.user.cellview.client.DefaultCellTableBuilder;
 import com.google.gwt.user.cellview.client.HasKeyboardSelectionPolicy.KeyboardSelectionPolicy;
 import com.google.gwt.user.cellview.client.TextColumn;
 import com.google.gwt.user.cellview.client.TextHeader;
@@ -110,7 +109,18 @@ public class PackagesPane extends WorkbenchPane implements Packages.Display
    {
       projectContext_ = projectContext;
       packagesDataProvider_.setList(packages);
-      createPackagesTable();
+      
+      // the table's columns depend on whether a project library is in use;
+      // only rebuild it when that changes
+      if (packagesTable_ == null ||
+          tableHasProjectColumns_ != projectContext_.isActive())
+      {
+         createPackagesTable();
+      }
+      
+      // render the rows in view
+      if (packagesTable_ != null)
+         packagesTable_.redraw();
 
       // manage visibility of Packrat / renv menu buttons
       PackratContext packratContext = projectContext_.getPackratContext();
@@ -334,8 +344,7 @@ public class PackagesPane extends WorkbenchPane implements Packages.Display
       try
       {
          packagesTableContainer_.clear();
-         packagesTable_ = new RStudioDataGrid<PackageInfo>(
-            packagesDataProvider_.getList().size(), dataGridRes_);
+         packagesTable_ = new PackagesDataGrid();
       }
       catch (Exception e)
       {
@@ -469,7 +478,8 @@ public class PackagesPane extends WorkbenchPane implements Packages.Display
       packagesTable_.setColumnWidth(loadedColumn, 30, Unit.PX);
 
       // add columns when using project-local library
-      if (projectContext_.isActive())
+      tableHasProjectColumns_ = projectContext_.isActive();
+      if (tableHasProjectColumns_)
       {
          Column<PackageInfo, PackageInfo> lockfileVersionColumn = 
             new Column<PackageInfo, PackageInfo>(new VersionCell(true)) {
@@ -534,8 +544,6 @@ public class PackagesPane extends WorkbenchPane implements Packages.Display
       packagesTable_.addColumn(removeColumn, new TextHeader(""));
       packagesTable_.setColumnWidth(removeColumn, 20 + scrollWidth, Unit.PX);
 
-      packagesTable_.setTableBuilder(new 
-            PackageTableBuilder(packagesTable_));
       packagesTable_.setSkipRowHoverCheck(true);
       
       packagesTableContainer_.add(packagesTable_);
@@ -635,36 +643,67 @@ public class PackagesPane extends WorkbenchPane implements Packages.Display
       }
    }
    
-   class PackageTableBuilder extends DefaultCellTableBuilder<PackageInfo>
+   // only the rows in view (plus some padding) are drawn, so that libraries
+   // with thousands of packages can be listed; the first package in each
+   // library is drawn beneath a header row of the same height
+   class PackagesDataGrid extends VirtualizedDataGrid<PackageInfo>
    {
-      public PackageTableBuilder(AbstractCellTable<PackageInfo> cellTable)
+      public PackagesDataGrid()
       {
-         super(cellTable);
+         super(dataGridRes_, PackageList.KEY_PROVIDER);
+         setTableBuilder(new PackageTableBuilder());
       }
-
+      
+      @Override
+      public int getRowHeight()
+      {
+         return ROW_HEIGHT_PIXELS;
+      }
+      
+      @Override
+      public int getTotalNumberOfRows()
+      {
+         return packagesDataProvider_.getList().size();
+      }
+      
       @Override
-      public void buildRowImpl(PackageInfo pkg, int idx)
+      protected int getRowSpan(int index)
+      {
+         return packagesDataProvider_.getList().get(index).isFirstInLibrary() ?
+               2 : 1;
+      }
+      
+      class PackageTableBuilder extends TableBuilder
       {
-         String library = pkg.isInProjectLibrary() ? 
-               pkg.getSourceLibrary() : pkg.getLibrary();
-         if (pkg.isFirstInLibrary())
+         public PackageTableBuilder()
+         {
+            super(PackagesDataGrid.this);
+         }
+         
+         @Override
+         protected void buildActiveRow(PackageInfo pkg, int idx)
          {
-           TableRowBuilder row = startRow();
-           TableCellBuilder cell = row.startTD();
-           cell.colSpan(5).className(
-                 PackagesCellTableResources.INSTANCE.cellTableStyle()
-                 .libraryHeader());
-           cell.title(library);
-           cell.startH1().text(
-                 PackageLibraryUtils.getLibraryDescription(session_, library))
-                 .endH1();
-           row.endTD();
-           
-           row.endTR();
+            String library = pkg.isInProjectLibrary() ? 
+                  pkg.getSourceLibrary() : pkg.getLibrary();
+            if (pkg.isFirstInLibrary())
+            {
+              TableRowBuilder row = startRow();
+              TableCellBuilder cell = row.startTD();
+              cell.colSpan(5).className(
+                    PackagesCellTableResources.INSTANCE.cellTableStyle()
+                    .libraryHeader());
+              cell.title(library);
+              cell.startH1().text(
+                    PackageLibraryUtils.getLibraryDescription(session_, library))
+                    .endH1();
+              row.endTD();
+              
+              row.endTR();
+            }
+            super.buildActiveRow(pkg, idx);
          }
-         super.buildRowImpl(pkg, idx);
       }
-   }   
+   }
    
    private class DescriptionCell extends AbstractCell<PackageInfo>
    {
@@ -673,7 +712,14 @@ public class PackagesPane extends WorkbenchPane implements Packages.Display
                          SafeHtmlBuilder sb)
       {
          if (pkgInfo.getDesc().length() > 0)
+         {
+            // descriptions are cut off to keep rows to a single line, so
+            // show the full description on hover
+            sb.appendHtmlConstant("<span title=\"" +
+                  SafeHtmlUtils.htmlEscape(pkgInfo.getDesc()) + "\">");
             sb.appendEscaped(pkgInfo.getDesc());
+            sb.appendHtmlConstant("</span>");
+         }
          else
          {
             sb.appendHtmlConstant("<span class=\"" + 
@@ -683,7 +729,8 @@ public class PackagesPane extends WorkbenchPane implements Packages.Display
       }
    }
    
-   private DataGrid<PackageInfo> packagesTable_;
+   private PackagesDataGrid packagesTable_;
+   private boolean tableHasProjectColumns_;
    private ListDataProvider<PackageInfo> packagesDataProvider_;
    private SearchWidget searchWidget_;
    private PackagesDisplayObserver observer_ ;
@@ -700,4 +747,6 @@ public class PackagesPane extends WorkbenchPane implements Packages.Display
    private final Session session_;
    private final GlobalDisplay display_;
    private final PackagesDataGridResources dataGridRes_;
+   
+   private static final int ROW_HEIGHT_PIXELS = 22;
 }
@@ -0,0 +1,218 @@
+/*
+ * PackageList.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.packages.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.rstudio.core.client.StringUtil;
+import org.rstudio.core.client.container.SortedKeyedList;
+
+import com.google.gwt.core.client.JsArray;
+import com.google.gwt.view.client.ProvidesKey;
+
+/**
+ * The installed packages, sorted by library and then by name and indexed by
+ * library and name, so that the changes sent by the server can be applied
+ * without rebuilding (and re-sorting) the whole list.
+ */
+public class PackageList
+{
+   /**
+    * @param libraryComparator Orders packages by the library they belong to;
+    *   packages within a library are ordered by name
+    */
+   public PackageList(final Comparator<PackageInfo> libraryComparator)
+   {
+      libraryComparator_ = libraryComparator;
+      packages_ = new SortedKeyedList<PackageInfo>(
+            list_,
+            new Comparator<PackageInfo>()
+            {
+               @Override
+               public int compare(PackageInfo o1, PackageInfo o2)
+               {
+                  int library = libraryComparator.compare(o1, o2);
+                  return library == 0 ?
+                        o1.getName().compareToIgnoreCase(o2.getName()) :
+                        library;
+               }
+            },
+            KEY_PROVIDER);
+   }
+
+   /**
+    * @return The version of the server's package list this list reflects, or
+    *   null if it hasn't been populated
+    */
+   public String getVersion()
+   {
+      return version_;
+   }
+
+   /**
+    * @return All packages, in order; not to be modified
+    */
+   public List<PackageInfo> getPackages()
+   {
+      return list_;
+   }
+
+   public PackageInfo get(String name, String library)
+   {
+      return packages_.get(packageKey(name, library));
+   }
+
+   /**
+    * Applies package state received from the server.
+    *
+    * @return False if the state holds changes against a version of the list
+    *   other than this one; the full state must be requested in that case
+    */
+   public boolean update(PackageState state)
+   {
+      if (state.hasPackageDelta())
+      {
+         if (!StringUtil.equals(state.getBaseVersion(), version_))
+            return StringUtil.equals(state.getVersion(), version_);
+
+         JsArray<PackageInfo> removed = state.getRemovedPackages();
+         for (int i = 0; i < removed.length(); i++)
+            packages_.remove(KEY_PROVIDER.getKey(removed.get(i)));
+
+         JsArray<PackageInfo> added = state.getAddedPackages();
+         for (int i = 0; i < added.length(); i++)
+            packages_.put(added.get(i));
+
+         JsArray<PackageInfo> updated = state.getUpdatedPackages();
+         for (int i = 0; i < updated.length(); i++)
+            packages_.put(updated.get(i));
+      }
+      else
+      {
+         ArrayList<PackageInfo> packages = new ArrayList<PackageInfo>();
+         JsArray<PackageInfo> packageList = state.getPackageList();
+         for (int i = 0; i < packageList.length(); i++)
+            packages.add(packageList.get(i));
+         packages_.setAll(packages);
+      }
+
+      version_ = state.getVersion();
+      markFirstInLibrary();
+      clearFilter();
+      return true;
+   }
+
+   /**
+    * Replaces a package with a copy marked as loaded or unloaded.
+    */
+   public void setLoaded(String name, String library, boolean loaded)
+   {
+      PackageInfo packageInfo = get(name, library);
+      if (packageInfo == null)
+         return;
+
+      packages_.put(loaded ? packageInfo.asLoaded() : packageInfo.asUnloaded());
+      clearFilter();
+   }
+
+   /**
+    * @return The packages whose name starts with the filter, followed by
+    *   those whose name or description contains it, grouped by library (or
+    *   all packages if the filter is empty), as a new list
+    */
+   public List<PackageInfo> filter(String filter)
+   {
+      filter = filter.toLowerCase();
+      if (filter.length() == 0)
+         return new ArrayList<PackageInfo>(list_);
+
+      // a package matching a filter also matches any filter contained in it,
+      // so as a filter is typed only the previous matches need searching
+      List<PackageInfo> candidates = list_;
+      if (lastFilter_ != null && filter.contains(lastFilter_))
+         candidates = lastMatches_;
+
+      ArrayList<PackageInfo> matches = new ArrayList<PackageInfo>();
+      ArrayList<PackageInfo> prefixMatches = new ArrayList<PackageInfo>();
+      ArrayList<PackageInfo> otherMatches = new ArrayList<PackageInfo>();
+      for (PackageInfo pkgInfo : candidates)
+      {
+         String name = pkgInfo.getName().toLowerCase();
+         if (name.startsWith(filter))
+            prefixMatches.add(pkgInfo);
+         else if (name.contains(filter) ||
+                  pkgInfo.getDesc().toLowerCase().contains(filter))
+            otherMatches.add(pkgInfo);
+         else
+            continue;
+         matches.add(pkgInfo);
+      }
+
+      lastFilter_ = filter;
+      lastMatches_ = matches;
+
+      // sort results by library (to preserve grouping)
+      ArrayList<PackageInfo> packages = prefixMatches;
+      packages.addAll(otherMatches);
+      Collections.sort(packages, libraryComparator_);
+      return packages;
+   }
+
+   // marks which packages are first in their respective libraries (used
+   // later to render headers)
+   private void markFirstInLibrary()
+   {
+      PackageInfo previous = null;
+      for (PackageInfo pkgInfo : list_)
+      {
+         pkgInfo.setFirstInLibrary(previous == null ||
+               libraryComparator_.compare(previous, pkgInfo) != 0);
+         previous = pkgInfo;
+      }
+   }
+
+   private void clearFilter()
+   {
+      lastFilter_ = null;
+      lastMatches_ = null;
+   }
+
+   public static String packageKey(String name, String library)
+   {
+      return library + "/" + name;
+   }
+
+   public static final ProvidesKey<PackageInfo> KEY_PROVIDER =
+         new ProvidesKey<PackageInfo>()
+   {
+      @Override
+      public Object getKey(PackageInfo item)
+      {
+         return packageKey(item.getName(), item.getLibrary());
+      }
+   };
+
+   private final Comparator<PackageInfo> libraryComparator_;
+   private final ArrayList<PackageInfo> list_ = new ArrayList<PackageInfo>();
+   private final SortedKeyedList<PackageInfo> packages_;
+   private String version_ = null;
+
+   // the last filter applied, and the packages which matched it (in order)
+   private String lastFilter_;
+   private List<PackageInfo> lastMatches_;
+}
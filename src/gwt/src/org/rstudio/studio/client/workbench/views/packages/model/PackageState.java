@@ -29,6 +29,38 @@ public class PackageState extends JavaScriptObject
       return this.package_list;
    }-*/;
    
+   /**
+    * The version of the package list on the server; pass it back when
+    * requesting the package state to receive only what has changed.
+    */
+   public final native String getVersion() /*-{
+      return this.version || null;
+   }-*/;
+   
+   /**
+    * True if this state holds the packages added, removed and updated since
+    * the version given by getBaseVersion(), rather than the full list.
+    */
+   public final native boolean hasPackageDelta() /*-{
+      return !!this.package_delta;
+   }-*/;
+   
+   public final native String getBaseVersion() /*-{
+      return this.package_delta.base_version;
+   }-*/;
+   
+   public final native JsArray<PackageInfo> getAddedPackages() /*-{
+      return this.package_delta.added || [];
+   }-*/;
+   
+   public final native JsArray<PackageInfo> getRemovedPackages() /*-{
+      return this.package_delta.removed || [];
+   }-*/;
+   
+   public final native JsArray<PackageInfo> getUpdatedPackages() /*-{
+      return this.package_delta.updated || [];
+   }-*/;
+   
    public final native ProjectContext getProjectContext() /*-{
       return {
          "packrat_context": this.packrat_context,
@@ -26,8 +26,11 @@ import org.rstudio.studio.client.workbench.views.packages.model.PackageInstallCo
 
 public interface PackagesServerOperations extends PackratServerOperations
 {
+   // knownVersion is the version of the package list the client has, or null;
+   // when it's current the response holds only the changes since then
    void getPackageState(
          boolean manual,
+         String knownVersion,
          ServerRequestCallback<PackageState> requestCallback);
    
    void availablePackages(
@@ -80,6 +80,7 @@ public class DocumentOutlineWidget extends Composite
       public DocumentOutlineTreeEntry(Scope node, int depth)
       {
          node_ = node;
+         depth_ = depth;
          FlowPanel panel = new FlowPanel();
          
          setIndent(depth);
@@ -174,7 +175,13 @@ public class DocumentOutlineWidget extends Composite
       
       public void update(Scope node, int depth)
       {
+         // scopes which weren't re-parsed are the same objects as before
+         // (even if they've moved), so the entry is still up to date
+         if (node == node_ && depth == depth_)
+            return;
+         
          node_ = node;
+         depth_ = depth;
          setLabel(node);
          setIndent(depth);
       }
@@ -185,6 +192,7 @@ public class DocumentOutlineWidget extends Composite
       }
       
       private Scope node_;
+      private int depth_;
       private HTML indent_;
       private Label label_;
    }
@@ -279,6 +287,20 @@ public class DocumentOutlineWidget extends Composite
          @Override
          public void onScopeTreeReady(ScopeTreeReadyEvent event)
          {
+            Scope previousVisibleScope = currentVisibleScope_;
+            if (event.isIncremental() &&
+                updateScopeTree(event.getScopeTree(),
+                                event.getCurrentScope(),
+                                event.getChangedStartRow(),
+                                event.getChangedEndRow()))
+            {
+               // new entries are styled as they're created, so only the
+               // entries which were or are now active need restyling
+               if (previousVisibleScope != currentVisibleScope_)
+                  resetTreeStyles(previousVisibleScope, currentVisibleScope_);
+               return;
+            }
+            
             rebuildScopeTree(event.getScopeTree(), event.getCurrentScope());
             resetTreeStyles();
          }
@@ -373,22 +395,11 @@ public class DocumentOutlineWidget extends Composite
       
       setActiveWidget(tree_);
       
-      int h1Count = 0;
-      for (int i = 0; i < scopeTree_.length(); i++)
-      {
-         Scope node = scopeTree_.get(i);
-         if (node.isMarkdownHeader())
-         {
-            if (node.getDepth() == 1)
-               h1Count++;
-         }
-      }
-      
-      int initialDepth = h1Count == 1 ? -1 : 0;
+      initialDepth_ = getInitialDepth(scopeTree_);
       
       Counter counter = new Counter(-1);
       for (int i = 0; i < scopeTree_.length(); i++)
-         buildScopeTreeImpl(scopeTree_.get(i), initialDepth, counter);
+         buildScopeTreeImpl(scopeTree_.get(i), initialDepth_, counter);
       
       // Clean up leftovers in the tree. 
       int oldTreeSize = tree_.getItemCount();
@@ -402,6 +413,83 @@ public class DocumentOutlineWidget extends Composite
       }
    }
    
+   // Updates the tree for a scope tree in which only the given rows were
+   // re-parsed: the top-level scopes before and after them are the same
+   // objects as in the previous scope tree, so their entries are kept as
+   // they are and only the entries in between are replaced. Returns false
+   // if the tree needs to be rebuilt in full.
+   private boolean updateScopeTree(JsArray<Scope> scopeTree,
+                                   Scope currentScope,
+                                   int changedStartRow,
+                                   int changedEndRow)
+   {
+      if (scopeTree_ == null || scopeTree_.length() == 0 || scopeTree.length() == 0)
+         return false;
+      
+      // a change in the number of top-level headers changes every depth
+      if (getInitialDepth(scopeTree) != initialDepth_)
+         return false;
+      
+      int oldLength = scopeTree_.length();
+      int newLength = scopeTree.length();
+      
+      // top-level scopes which end before the changed rows
+      int first = 0;
+      while (first < newLength && first < oldLength &&
+             scopeTree.get(first) == scopeTree_.get(first) &&
+             scopeTree.get(first).getEnd() != null &&
+             scopeTree.get(first).getEnd().getRow() < changedStartRow)
+      {
+         first++;
+      }
+      
+      // top-level scopes which begin after them
+      int last = newLength;
+      while (last > first && newLength - last < oldLength - first &&
+             scopeTree.get(last - 1).getPreamble().getRow() >= changedEndRow)
+      {
+         if (scopeTree.get(last - 1) != scopeTree_.get(oldLength - (newLength - last) - 1))
+            return false;
+         last--;
+      }
+      
+      // find the entries for the scopes which were kept
+      int itemCount = tree_.getItemCount();
+      int prefixEnd = 0;
+      for (int i = 0; i < first; i++)
+      {
+         while (prefixEnd < itemCount &&
+                getTopLevelScope(getItemScope(prefixEnd)) == scopeTree.get(i))
+         {
+            prefixEnd++;
+         }
+      }
+      
+      int suffixStart = itemCount;
+      for (int i = newLength - 1; i >= last; i--)
+      {
+         while (suffixStart > prefixEnd &&
+                getTopLevelScope(getItemScope(suffixStart - 1)) == scopeTree.get(i))
+         {
+            suffixStart--;
+         }
+      }
+      
+      scopeTree_ = scopeTree;
+      currentScope_ = currentScope;
+      currentVisibleScope_ = getCurrentVisibleScope(currentScope_);
+      
+      // replace the entries in between
+      for (int i = suffixStart - 1; i >= prefixEnd; i--)
+         tree_.getItem(i).remove();
+      
+      Counter counter = new Counter(prefixEnd - 1);
+      for (int i = first; i < last; i++)
+         insertScopeTreeImpl(scopeTree_.get(i), initialDepth_, counter);
+      
+      return true;
+   }
+   
    private void buildScopeTreeImpl(Scope node, int depth, Counter counter)
    {
       if (shouldDisplayNode(node))
@@ -420,6 +508,52 @@ public class DocumentOutlineWidget extends Composite
       }
    }
    
+   private void insertScopeTreeImpl(Scope node, int depth, Counter counter)
+   {
+      if (shouldDisplayNode(node))
+         tree_.insertItem(counter.increment(), createEntry(node, depth));
+      
+      JsArray<Scope> children = node.getChildren();
+      for (int i = 0; i < children.length(); i++)
+      {
+         int newDepth = depth + 1;
+         
+         // Don't add extra indentation for items within namespaces
+         if (node.isNamespace())
+            newDepth--;
+         
+         insertScopeTreeImpl(children.get(i), newDepth, counter);
+      }
+   }
+   
+   private int getInitialDepth(JsArray<Scope> scopeTree)
+   {
+      int h1Count = 0;
+      for (int i = 0; i < scopeTree.length(); i++)
+      {
+         Scope node = scopeTree.get(i);
+         if (node.isMarkdownHeader())
+         {
+            if (node.getDepth() == 1)
+               h1Count++;
+         }
+      }
+      
+      return h1Count == 1 ? -1 : 0;
+   }
+   
+   private Scope getItemScope(int index)
+   {
+      return ((DocumentOutlineTreeItem) tree_.getItem(index)).getEntry().getScopeNode();
+   }
+   
+   private Scope getTopLevelScope(Scope node)
+   {
+      while (node.getParentScope() != null && !node.getParentScope().isTopLevel())
+         node = node.getParentScope();
+      return node;
+   }
+   
    private boolean isUnnamedNode(Scope node)
    {
       if (node.isChunk())
@@ -473,6 +607,20 @@ public class DocumentOutlineWidget extends Composite
          setTreeItemStyles((DocumentOutlineTreeItem) tree_.getItem(i));
    }
    
+   // restyles only the entries for the given scopes
+   private void resetTreeStyles(Scope... nodes)
+   {
+      for (int i = 0; i < tree_.getItemCount(); i++)
+      {
+         DocumentOutlineTreeItem item = (DocumentOutlineTreeItem) tree_.getItem(i);
+         for (Scope node : nodes)
+         {
+            if (node != null && item.getEntry().getScopeNode() == node)
+               setTreeItemStyles(item);
+         }
+      }
+   }
+   
    private DocumentOutlineTreeItem createEntry(Scope node, int depth)
    {
       DocumentOutlineTreeEntry entry = new DocumentOutlineTreeEntry(node, depth);
@@ -513,6 +661,7 @@ public class DocumentOutlineWidget extends Composite
    private JsArray<Scope> scopeTree_;
    private Scope currentScope_;
    private Scope currentVisibleScope_;
+   private int initialDepth_;
    
    private UserPrefs userPrefs_;
    
@@ -47,6 +47,7 @@ import com.google.inject.Provider;
 
 import org.rstudio.core.client.*;
 import org.rstudio.core.client.command.AppCommand;
+import org.rstudio.core.client.command.CommandStateBatch;
 import org.rstudio.core.client.command.Handler;
 import org.rstudio.core.client.command.KeyCombination;
 import org.rstudio.core.client.command.KeyboardShortcut;
@@ -132,6 +133,7 @@ import org.rstudio.studio.client.workbench.views.files.model.DirectoryListing;
 import org.rstudio.studio.client.workbench.views.output.find.events.FindInFilesEvent;
 import org.rstudio.studio.client.workbench.views.source.NewShinyWebApplication.Result;
 import org.rstudio.studio.client.workbench.views.source.SourceWindowManager.NavigationResult;
+import org.rstudio.studio.client.workbench.views.source.editors.DeferredEditingTarget;
 import org.rstudio.studio.client.workbench.views.source.editors.EditingTarget;
 import org.rstudio.studio.client.workbench.views.source.editors.EditingTargetSource;
 import org.rstudio.studio.client.workbench.views.source.editors.codebrowser.CodeBrowserEditingTarget;
@@ -170,6 +172,7 @@ import org.rstudio.studio.client.workbench.views.source.model.SourcePosition;
 import org.rstudio.studio.client.workbench.views.source.model.SourceServerOperations;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.Queue;
@@ -481,23 +484,16 @@ public class Source implements InsertSourceHandler,
                             new OperationWithInput<EditingTarget>()
             {
                @Override
-               public void execute(EditingTarget input)
+               public void execute(EditingTarget editor)
                {
-                  FileSystemItem toPath = 
-                        FileSystemItem.createFile(event.getTo());
-                  if (input instanceof TextEditingTarget)
+                  withLoadedTarget(editor, new CommandWithArg<EditingTarget>()
                   {
-                     // for text files, notify the editing surface so it can
-                     // react to the new file type
-                     ((TextEditingTarget)input).setPath(toPath);
-                  }
-                  else
-                  {
-                     // for other files, just rename the tab
-                     input.getName().setValue(toPath.getName(), true);
-                  }
-                  events_.fireEvent(new SourceFileSavedEvent(
-                        input.getId(), event.getTo()));
+                     @Override
+                     public void execute(EditingTarget input)
+                     {
+                        setTargetPath(input, event.getTo());
+                     }
+                  }, null);
                }
             });
          }
@@ -661,6 +657,10 @@ public class Source implements InsertSourceHandler,
          }
       };
       
+      // load the active tab if it was restored lazily (its selection above
+      // may have happened while restoring)
+      loadActiveTab();
+      
       AceEditorNative.syncUiPrefs(userPrefs_);
       
       // sync UI prefs with shortcut manager
@@ -699,8 +699,8 @@ public class Source implements InsertSourceHandler,
    }
    
    private void withTarget(String id,
-                           CommandWithArg<TextEditingTarget> command,
-                           Command onFailure)
+                           final CommandWithArg<TextEditingTarget> command,
+                           final Command onFailure)
    {
       EditingTarget target = StringUtil.isNullOrEmpty(id)
             ? activeEditor_
@@ -713,14 +713,51 @@ public class Source implements InsertSourceHandler,
          return;
       }
       
-      if (!(target instanceof TextEditingTarget))
+      withLoadedTarget(target, new CommandWithArg<EditingTarget>()
       {
-         if (onFailure != null)
-            onFailure.execute();
-         return;
+         @Override
+         public void execute(EditingTarget loaded)
+         {
+            if (!(loaded instanceof TextEditingTarget))
+            {
+               if (onFailure != null)
+                  onFailure.execute();
+               return;
+            }
+            
+            command.execute((TextEditingTarget) loaded);
+         }
+      }, onFailure);
+   }
+   
+   private void setTargetPath(EditingTarget target, String path)
+   {
+      FileSystemItem toPath = FileSystemItem.createFile(path);
+      if (target instanceof TextEditingTarget)
+      {
+         // for text files, notify the editing surface so it can
+         // react to the new file type
+         ((TextEditingTarget)target).setPath(toPath);
       }
-      
-      command.execute((TextEditingTarget) target);
+      else
+      {
+         // for other files, just rename the tab
+         target.getName().setValue(toPath.getName(), true);
+      }
+      events_.fireEvent(new SourceFileSavedEvent(target.getId(), path));
+   }
+   
+   // runs the command with the target; a placeholder for a lazily restored
+   // document is loaded first, and the command given the target that replaces
+   // it (or onFailure, if any, is run if the document is closed first)
+   private void withLoadedTarget(EditingTarget target,
+                                 CommandWithArg<EditingTarget> command,
+                                 Command onFailure)
+   {
+      if (target instanceof DeferredEditingTarget)
+         ((DeferredEditingTarget) target).whenLoaded(command, onFailure);
+      else
+         command.execute(target);
    }
    
    private void getEditorContext(String id, String path, DocDisplay docDisplay)
@@ -817,8 +854,7 @@ public class Source implements InsertSourceHandler,
                   public void execute(EditingTarget editingTarget,
                                       Command continuation)
                   {
-                     view_.closeTab(
-                           editingTarget.asWidget(),
+                     view_.closeTab(getTabWidget(editingTarget),
                            false,
                            continuation);
                   }
@@ -878,6 +914,21 @@ public class Source implements InsertSourceHandler,
    }
 
    private void restoreDocuments(final Session session)
+   {
+      // documents restored lazily are loaded only when their tab is first
+      // selected, not as each tab is selected while adding them
+      restoringDocuments_ = true;
+      try
+      {
+         restoreDocumentsImpl(session);
+      }
+      finally
+      {
+         restoringDocuments_ = false;
+      }
+   }
+
+   private void restoreDocumentsImpl(final Session session)
    {
       final JsArray<SourceDocument> docs =
             session.getSessionInfo().getSourceDocuments();
@@ -1501,7 +1552,7 @@ public class Source implements InsertSourceHandler,
             {
                if (firstTarget_ != null)
                {
-                  view_.selectTab(firstTarget_.asWidget());
+                  view_.selectTab(getTabWidget(firstTarget_));
                   firstTarget_.setCursorPosition(Position.create(0, 0));
                }
                
@@ -2204,31 +2255,44 @@ public class Source implements InsertSourceHandler,
       inEditorForId(event.getDocId(), new OperationWithInput<EditingTarget>()
       {
          @Override
-         public void execute(EditingTarget editor)
+         public void execute(EditingTarget target)
          {
-            // if this is a text editor, ensure that its content is 
-            // synchronized with the server before we pop it out
-            if (editor instanceof TextEditingTarget)
+            withLoadedTarget(target, new CommandWithArg<EditingTarget>()
             {
-               final TextEditingTarget textEditor = (TextEditingTarget)editor;
-               textEditor.withSavedDoc(new Command()
+               @Override
+               public void execute(EditingTarget editor)
                {
-                  @Override
-                  public void execute()
-                  {
-                     textEditor.syncLocalSourceDb();
-                     events_.fireEvent(new PopoutDocEvent(event, 
-                           textEditor.currentPosition()));
-                  }
-               });
-            }
-            else
+                  popoutDoc(event, editor);
+               }
+            }, null);
+         }
+      });
+   }
+   
+   private void popoutDoc(final PopoutDocInitiatedEvent event,
+                          EditingTarget editor)
+   {
+      // if this is a text editor, ensure that its content is 
+      // synchronized with the server before we pop it out
+      if (editor instanceof TextEditingTarget)
+      {
+         final TextEditingTarget textEditor = (TextEditingTarget)editor;
+         textEditor.withSavedDoc(new Command()
+         {
+            @Override
+            public void execute()
             {
+               textEditor.syncLocalSourceDb();
                events_.fireEvent(new PopoutDocEvent(event, 
-                     editor.currentPosition()));
+                     textEditor.currentPosition()));
             }
-         }
-      });
+         });
+      }
+      else
+      {
+         events_.fireEvent(new PopoutDocEvent(event, 
+               editor.currentPosition()));
+      }
    }
 
    @Handler
@@ -2472,7 +2536,7 @@ public class Source implements InsertSourceHandler,
                   }
                   else
                   {
-                     view_.closeTab(target.asWidget(), false, continuation);
+                     view_.closeTab(getTabWidget(target), false, continuation);
                   }
                }
             });
@@ -2653,7 +2717,7 @@ public class Source implements InsertSourceHandler,
                else
                {
                   // untitled document -- just close the tab non-interactively
-                  view_.closeTab(saveTarget.asWidget(), false, continuation);
+                  view_.closeTab(getTabWidget(saveTarget), false, continuation);
                }
             }
          },
@@ -3391,6 +3455,14 @@ public class Source implements InsertSourceHandler,
       return target.asWidget();
    }
    
+   // the widget of the target's tab (for a lazily restored document, that of
+   // the placeholder it replaced)
+   private Widget getTabWidget(EditingTarget target)
+   {
+      Widget widget = tabWidgets_.get(target);
+      return widget != null ? widget : target.asWidget();
+   }
+   
    private EditingTarget addTab(SourceDocument doc, int mode)
    {
       return addTab(doc, false, mode);
@@ -3407,15 +3479,8 @@ public class Source implements InsertSourceHandler,
    private EditingTarget addTab(SourceDocument doc, Integer position, 
          int mode)
    {
-      final String defaultNamePrefix = editingTargetSource_.getDefaultNamePrefix(doc);
-      final EditingTarget target = editingTargetSource_.getEditingTarget(
-            doc, fileContext_, new Provider<String>()
-            {
-               public String get()
-               {
-                  return getNextDefaultName(defaultNamePrefix);
-               }
-            });
+      final EditingTarget target = doc.isContentsDeferred() ?
+            createDeferredTarget(doc) : createTarget(doc);
       
       final Widget widget = createWidget(target);
 
@@ -3448,6 +3513,114 @@ public class Source implements InsertSourceHandler,
                    true);
       fireDocTabsChanged();
 
+      attachTarget(target, widget);
+      
+      events_.fireEvent(new SourceDocAddedEvent(doc, mode));
+      
+      applyReadOnly(target, doc);
+      
+      // adding a tab may enable commands that are only available when 
+      // multiple documents are open; if this is the second document, go check
+      if (editors_.size() == 2)
+         manageMultiTabCommands();
+      
+      // if the target had an editing session active, attempt to resume it
+      if (doc.getCollabParams() != null)
+         target.beginCollabSession(doc.getCollabParams());
+      
+      return target;
+   }
+
+   private EditingTarget createTarget(SourceDocument doc)
+   {
+      final String defaultNamePrefix = editingTargetSource_.getDefaultNamePrefix(doc);
+      return editingTargetSource_.getEditingTarget(
+            doc, fileContext_, new Provider<String>()
+            {
+               public String get()
+               {
+                  return getNextDefaultName(defaultNamePrefix);
+               }
+            });
+   }
+   
+   private EditingTarget createDeferredTarget(SourceDocument doc)
+   {
+      FileIcon icon = fileTypeRegistry_.getIconForFile(
+            FileSystemItem.createFile(doc.getPath()));
+      FileType type = fileTypeRegistry_.getTypeByTypeName(doc.getType());
+      return new DeferredEditingTarget(doc, type, icon,
+            new DeferredEditingTarget.Host()
+      {
+         @Override
+         public void fetchDocument(String id,
+                                   ServerRequestCallback<SourceDocument> callback)
+         {
+            server_.getSourceDocument(id, callback);
+         }
+
+         @Override
+         public EditingTarget createTarget(SourceDocument document)
+         {
+            return Source.this.createTarget(document);
+         }
+
+         @Override
+         public void onLoaded(DeferredEditingTarget placeholder,
+                              EditingTarget target,
+                              SourceDocument document)
+         {
+            onDeferredTargetLoaded(placeholder, target, document);
+         }
+      });
+   }
+   
+   // swaps the editing target of a lazily restored document in for its
+   // placeholder; the tab keeps the placeholder's widget, which now holds
+   // the target's
+   private void onDeferredTargetLoaded(DeferredEditingTarget placeholder,
+                                       EditingTarget target,
+                                       SourceDocument doc)
+   {
+      int idx = editors_.indexOf(placeholder);
+      if (idx < 0)
+         return;
+      
+      Widget widget = placeholder.asWidget();
+      editors_.set(idx, target);
+      tabWidgets_.put(target, widget);
+      
+      attachTarget(target, widget);
+      view_.renameTab(widget,
+                      target.getIcon(),
+                      target.getName().getValue(),
+                      target.getPath());
+      applyReadOnly(target, doc);
+      
+      if (activeEditor_ == placeholder)
+      {
+         activeEditor_ = target;
+         activeEditor_.onActivate();
+         if (initialized_)
+            manageCommands();
+      }
+      
+      fireDocTabsChanged();
+   }
+   
+   private void loadActiveTab()
+   {
+      int idx = view_.getActiveTabIndex();
+      if (idx < 0 || idx >= editors_.size())
+         return;
+      
+      EditingTarget target = editors_.get(idx);
+      if (target instanceof DeferredEditingTarget)
+         ((DeferredEditingTarget) target).load();
+   }
+   
+   private void attachTarget(final EditingTarget target, final Widget widget)
+   {
       target.getName().addValueChangeHandler(new ValueChangeHandler<String>()
       {
          public void onValueChange(ValueChangeEvent<String> event)
@@ -3485,25 +3658,15 @@ public class Source implements InsertSourceHandler,
             view_.closeTab(widget, false);
          }
       });
-      
-      events_.fireEvent(new SourceDocAddedEvent(doc, mode));
-      
+   }
+   
+   private void applyReadOnly(EditingTarget target, SourceDocument doc)
+   {
       if (target instanceof TextEditingTarget && doc.isReadOnly())
       {
          ((TextEditingTarget) target).setIntendedAsReadOnly(
                JsUtil.toList(doc.getReadOnlyAlternatives()));
       }
-      
-      // adding a tab may enable commands that are only available when 
-      // multiple documents are open; if this is the second document, go check
-      if (editors_.size() == 2)
-         manageMultiTabCommands();
-      
-      // if the target had an editing session active, attempt to resume it
-      if (doc.getCollabParams() != null)
-         target.beginCollabSession(doc.getCollabParams());
-      
-      return target;
    }
 
    private String getNextDefaultName(String defaultNamePrefix)
@@ -3532,6 +3695,20 @@ public class Source implements InsertSourceHandler,
 
    public void onInsertSource(final InsertSourceEvent event)
    {
+      // insert into a lazily restored document once it's loaded
+      if (activeEditor_ instanceof DeferredEditingTarget)
+      {
+         withLoadedTarget(activeEditor_, new CommandWithArg<EditingTarget>()
+         {
+            @Override
+            public void execute(EditingTarget target)
+            {
+               onInsertSource(event);
+            }
+         }, null);
+         return;
+      }
+      
       if (activeEditor_ != null
           && activeEditor_ instanceof TextEditingTarget
           && commands_.executeCode().isEnabled())
@@ -3605,6 +3782,7 @@ public class Source implements InsertSourceHandler,
    private void closeTabIndex(int idx, boolean closeDocument)
    {
       EditingTarget target = editors_.remove(idx);
+      tabWidgets_.remove(target);
 
       tabOrder_.remove(new Integer(idx));
       for (int i = 0; i < tabOrder_.size(); i++)
@@ -3733,6 +3911,12 @@ public class Source implements InsertSourceHandler,
 
       if (event.getSelectedItem() >= 0)
       {
+         // load a lazily restored document when its tab is first selected
+         // (the placeholder stays active until it's loaded)
+         EditingTarget selected = editors_.get(event.getSelectedItem());
+         if (selected instanceof DeferredEditingTarget && !restoringDocuments_)
+            ((DeferredEditingTarget) selected).load();
+         
          activeEditor_ = editors_.get(event.getSelectedItem());
          activeEditor_.onActivate();
          
@@ -3784,6 +3968,22 @@ public class Source implements InsertSourceHandler,
    }
    
    private void manageCommands(boolean forceSync)
+   {
+      // a tab switch changes the state of hundreds of commands (many of them
+      // more than once); deliver the changes together once the update is done
+      CommandStateBatch batch = CommandStateBatch.get();
+      batch.beginUpdate();
+      try
+      {
+         doManageCommands(forceSync);
+      }
+      finally
+      {
+         batch.endUpdate();
+      }
+   }
+
+   private void doManageCommands(boolean forceSync)
    {
       boolean hasDocs = editors_.size() > 0;
 
@@ -4055,24 +4255,27 @@ public class Source implements InsertSourceHandler,
    
    private void pasteFileContentsAtCursor(final String path, final String encoding)
    {
-      if (activeEditor_ != null && activeEditor_ instanceof TextEditingTarget)
+      withTarget(null, new CommandWithArg<TextEditingTarget>()
       {
-         final TextEditingTarget target = (TextEditingTarget) activeEditor_;
-         server_.getFileContents(path, encoding, new ServerRequestCallback<String>()
+         @Override
+         public void execute(final TextEditingTarget target)
          {
-            @Override
-            public void onResponseReceived(String content)
+            server_.getFileContents(path, encoding, new ServerRequestCallback<String>()
             {
-               target.insertCode(content, false);
-            }
+               @Override
+               public void onResponseReceived(String content)
+               {
+                  target.insertCode(content, false);
+               }
 
-            @Override
-            public void onError(ServerError error)
-            {
-               Debug.logError(error);
-            }
-         });
-      }
+               @Override
+               public void onError(ServerError error)
+               {
+                  Debug.logError(error);
+               }
+            });
+         }
+      });
    }
    
    private void pasteRCodeExecutionResult(final String code)
@@ -4080,13 +4283,16 @@ public class Source implements InsertSourceHandler,
       server_.executeRCode(code, new ServerRequestCallback<String>()
       {
          @Override
-         public void onResponseReceived(String output)
+         public void onResponseReceived(final String output)
          {
-            if (activeEditor_ != null && activeEditor_ instanceof TextEditingTarget)
+            withTarget(null, new CommandWithArg<TextEditingTarget>()
             {
-               TextEditingTarget editor = (TextEditingTarget) activeEditor_;
-               editor.insertCode(output, false);
-            }
+               @Override
+               public void execute(TextEditingTarget editor)
+               {
+                  editor.insertCode(output, false);
+               }
+            });
          }
 
          @Override
@@ -4099,20 +4305,26 @@ public class Source implements InsertSourceHandler,
    
    private void reflowText()
    {
-      if (activeEditor_ != null && activeEditor_ instanceof TextEditingTarget)
+      withTarget(null, new CommandWithArg<TextEditingTarget>()
       {
-         TextEditingTarget editor = (TextEditingTarget) activeEditor_;
-         editor.reflowText();
-      }
+         @Override
+         public void execute(TextEditingTarget editor)
+         {
+            editor.reflowText();
+         }
+      });
    }
    
    private void reindent()
    {
-      if (activeEditor_ != null && activeEditor_ instanceof TextEditingTarget)
+      withTarget(null, new CommandWithArg<TextEditingTarget>()
       {
-         TextEditingTarget editor = (TextEditingTarget) activeEditor_;
-         editor.getDocDisplay().reindent();
-      }
+         @Override
+         public void execute(TextEditingTarget editor)
+         {
+            editor.getDocDisplay().reindent();
+         }
+      });
    }
    
    private void editFile(final String path)
@@ -4141,11 +4353,14 @@ public class Source implements InsertSourceHandler,
    
    private void showHelpAtCursor()
    {
-      if (activeEditor_ != null && activeEditor_ instanceof TextEditingTarget)
+      withTarget(null, new CommandWithArg<TextEditingTarget>()
       {
-         TextEditingTarget editor = (TextEditingTarget) activeEditor_;
-         editor.showHelpAtCursor();
-      }
+         @Override
+         public void execute(TextEditingTarget editor)
+         {
+            editor.showHelpAtCursor();
+         }
+      });
    }
 
    public void onFileEdit(FileEditEvent event)
@@ -4324,7 +4539,7 @@ public class Source implements InsertSourceHandler,
             suspendSourceNavigationAdding_ = true;
             try
             {
-               view_.selectTab(target.asWidget());
+               view_.selectTab(getTabWidget(target));
                target.restorePosition(navigation.getPosition());
             }
             finally
@@ -4756,7 +4971,7 @@ public class Source implements InsertSourceHandler,
             {
               if (JsArrayUtil.jsArrayStringContains(ids, target.getId()))
               {
-                 view_.closeTab(target.asWidget(), false /* non interactive */);
+                 view_.closeTab(getTabWidget(target), false /* non interactive */);
               }
             }
          }
@@ -4898,17 +5113,32 @@ public class Source implements InsertSourceHandler,
       }
       else if (type == GetEditorContextEvent.TYPE_SOURCE_EDITOR)
       {
-         EditingTarget target = activeEditor_;
-         if (target != null && target instanceof TextEditingTarget)
+         withTarget(null, new CommandWithArg<TextEditingTarget>()
          {
-            getEditorContext(
-                  target.getId(),
-                  target.getPath(),
-                  ((TextEditingTarget) target).getDocDisplay());
-            return;
-         }
+            @Override
+            public void execute(TextEditingTarget target)
+            {
+               getEditorContext(
+                     target.getId(),
+                     target.getPath(),
+                     target.getDocDisplay());
+            }
+         }, new Command()
+         {
+            @Override
+            public void execute()
+            {
+               getEditorContextFailed();
+            }
+         });
+         return;
       }
 
+      getEditorContextFailed();
+   }
+   
+   private void getEditorContextFailed()
+   {
       // We need to ensure a 'getEditorContext' event is always
       // returned as we have a 'wait-for' event on the server side
       server_.getEditorContextCompleted(
@@ -4978,6 +5208,8 @@ public class Source implements InsertSourceHandler,
    final Queue<StatFileEntry> statQueue_ = new LinkedList<StatFileEntry>();
    final Queue<OpenFileEntry> openFileQueue_ = new LinkedList<OpenFileEntry>();
    ArrayList<EditingTarget> editors_ = new ArrayList<EditingTarget>();
+   private final HashMap<EditingTarget, Widget> tabWidgets_ =
+         new HashMap<EditingTarget, Widget>();
    ArrayList<Integer> tabOrder_ = new ArrayList<Integer>();
    private EditingTarget activeEditor_;
    private final Commands commands_;
@@ -5007,6 +5239,7 @@ public class Source implements InsertSourceHandler,
 
    private boolean suspendSourceNavigationAdding_;
    private boolean suspendDocumentClose_ = false;
+   private boolean restoringDocuments_;
   
    private static final String MODULE_SOURCE = "source-pane";
    private static final String KEY_ACTIVETAB = "activeTab";
@@ -0,0 +1,608 @@
+/*
+ * DeferredEditingTarget.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.source.editors;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+import com.google.gwt.event.logical.shared.CloseEvent;
+import com.google.gwt.event.logical.shared.CloseHandler;
+import com.google.gwt.event.shared.GwtEvent;
+import com.google.gwt.event.shared.HandlerManager;
+import com.google.gwt.event.shared.HandlerRegistration;
+import com.google.gwt.user.client.Command;
+import com.google.gwt.user.client.ui.HasValue;
+import com.google.gwt.user.client.ui.SimpleLayoutPanel;
+import com.google.gwt.user.client.ui.Widget;
+import com.google.inject.Provider;
+
+import org.rstudio.core.client.CommandWithArg;
+import org.rstudio.core.client.Debug;
+import org.rstudio.core.client.command.AppCommand;
+import org.rstudio.core.client.events.EnsureHeightEvent;
+import org.rstudio.core.client.events.EnsureHeightHandler;
+import org.rstudio.core.client.events.EnsureVisibleEvent;
+import org.rstudio.core.client.events.EnsureVisibleHandler;
+import org.rstudio.core.client.files.FileSystemContext;
+import org.rstudio.core.client.files.FileSystemItem;
+import org.rstudio.studio.client.common.ReadOnlyValue;
+import org.rstudio.studio.client.common.Value;
+import org.rstudio.studio.client.common.filetypes.FileIcon;
+import org.rstudio.studio.client.common.filetypes.FileType;
+import org.rstudio.studio.client.common.filetypes.TextFileType;
+import org.rstudio.studio.client.server.ServerError;
+import org.rstudio.studio.client.server.ServerRequestCallback;
+import org.rstudio.studio.client.workbench.views.source.editors.text.ace.Position;
+import org.rstudio.studio.client.workbench.views.source.events.CollabEditStartParams;
+import org.rstudio.studio.client.workbench.views.source.model.SourceDocument;
+import org.rstudio.studio.client.workbench.views.source.model.SourcePosition;
+
+/**
+ * Stands in for the editing target of a restored document until its tab is
+ * first selected, so that restoring many documents doesn't build an editor
+ * for each of them up front. When loaded, the document is fetched (if its
+ * contents were left out of the session info), its editing target is created
+ * and shown in this target's widget, and the host swaps it in for this one.
+ *
+ * Calls made on this target after it's loaded are forwarded to the real one;
+ * calls that need the real target (e.g. navigation) made before then are
+ * replayed once it's available. Callers that need a particular kind of target
+ * (e.g. a TextEditingTarget) should use whenLoaded(). Only documents without
+ * unsaved changes are deferred, so a placeholder is never dirty.
+ */
+public class DeferredEditingTarget implements EditingTarget
+{
+   public interface Host
+   {
+      /**
+       * Fetches the document, with its contents, from the server.
+       */
+      void fetchDocument(String id, ServerRequestCallback<SourceDocument> callback);
+
+      /**
+       * Creates the editing target for the document.
+       */
+      EditingTarget createTarget(SourceDocument document);
+
+      /**
+       * Called once the editing target has been created, to replace the
+       * placeholder with it.
+       */
+      void onLoaded(DeferredEditingTarget placeholder,
+                    EditingTarget target,
+                    SourceDocument document);
+   }
+
+   public DeferredEditingTarget(SourceDocument document,
+                                FileType type,
+                                FileIcon icon,
+                                Host host)
+   {
+      document_ = document;
+      type_ = type;
+      icon_ = icon;
+      host_ = host;
+      name_ = new Value<String>(
+            FileSystemItem.getNameFromPath(pathOf(document)));
+   }
+
+   /**
+    * Loads the document and creates its editing target, if that hasn't been
+    * done (or started) already.
+    */
+   public void load()
+   {
+      if (target_ != null || loading_ || dismissed_)
+         return;
+
+      loading_ = true;
+      if (!document_.isContentsDeferred())
+      {
+         onDocumentLoaded(document_);
+         return;
+      }
+
+      host_.fetchDocument(getId(), new ServerRequestCallback<SourceDocument>()
+      {
+         @Override
+         public void onResponseReceived(SourceDocument document)
+         {
+            onDocumentLoaded(document);
+         }
+
+         @Override
+         public void onError(ServerError error)
+         {
+            // the next activation will try again
+            loading_ = false;
+            Debug.logError(error);
+         }
+      });
+   }
+
+   public boolean isLoaded()
+   {
+      return target_ != null;
+   }
+
+   /**
+    * Runs the command with the editing target once it's loaded, loading it if
+    * necessary. If the document is closed first, onDismissed (if any) is run
+    * instead.
+    */
+   public void whenLoaded(final CommandWithArg<EditingTarget> command,
+                          Command onDismissed)
+   {
+      if (target_ != null)
+      {
+         command.execute(target_);
+         return;
+      }
+
+      if (dismissed_)
+      {
+         if (onDismissed != null)
+            onDismissed.execute();
+         return;
+      }
+
+      pending_.add(() -> command.execute(target_));
+      if (onDismissed != null)
+         dismissCommands_.add(onDismissed);
+      load();
+   }
+
+   /**
+    * @return The editing target, once loaded (null until then)
+    */
+   public EditingTarget getTarget()
+   {
+      return target_;
+   }
+
+   private void onDocumentLoaded(SourceDocument document)
+   {
+      loading_ = false;
+      if (dismissed_)
+         return;
+
+      EditingTarget target = host_.createTarget(document);
+      if (target == null)
+         return;
+
+      target_ = target;
+      dismissCommands_.clear();
+      panel_.setWidget(target.asWidget());
+      host_.onLoaded(this, target, document);
+
+      // replay whatever was requested while loading
+      ArrayList<Command> pending = new ArrayList<Command>(pending_);
+      pending_.clear();
+      for (Command command : pending)
+         command.execute();
+   }
+
+   // runs the command now if the target is loaded, or once it is
+   private void whenLoaded(Command command)
+   {
+      if (target_ != null)
+         command.execute();
+      else if (!dismissed_)
+         pending_.add(command);
+   }
+
+   private static String pathOf(SourceDocument document)
+   {
+      return document.getPath() == null ? "" : document.getPath();
+   }
+
+   @Override
+   public String getId()
+   {
+      return document_.getId();
+   }
+
+   @Override
+   public HasValue<String> getName()
+   {
+      return target_ != null ? target_.getName() : name_;
+   }
+
+   @Override
+   public String getTitle()
+   {
+      return target_ != null ? target_.getTitle() : name_.getValue();
+   }
+
+   @Override
+   public String getPath()
+   {
+      return target_ != null ? target_.getPath() : document_.getPath();
+   }
+
+   @Override
+   public String getContext()
+   {
+      return target_ != null ? target_.getContext() : null;
+   }
+
+   @Override
+   public FileIcon getIcon()
+   {
+      return target_ != null ? target_.getIcon() : icon_;
+   }
+
+   @Override
+   public String getTabTooltip()
+   {
+      return target_ != null ? target_.getTabTooltip() : document_.getPath();
+   }
+
+   @Override
+   public FileType getFileType()
+   {
+      return target_ != null ? target_.getFileType() : type_;
+   }
+
+   @Override
+   public TextFileType getTextFileType()
+   {
+      if (target_ != null)
+         return target_.getTextFileType();
+      return type_ instanceof TextFileType ? (TextFileType) type_ : null;
+   }
+
+   @Override
+   public void adaptToExtendedFileType(final String extendedType)
+   {
+      whenLoaded(() -> target_.adaptToExtendedFileType(extendedType));
+   }
+
+   @Override
+   public String getExtendedFileType()
+   {
+      return target_ != null ?
+            target_.getExtendedFileType() : document_.getExtendedType();
+   }
+
+   @Override
+   public HashSet<AppCommand> getSupportedCommands()
+   {
+      return target_ != null ?
+            target_.getSupportedCommands() : new HashSet<AppCommand>();
+   }
+
+   @Override
+   public void manageCommands()
+   {
+      if (target_ != null)
+         target_.manageCommands();
+   }
+
+   @Override
+   public boolean canCompilePdf()
+   {
+      return target_ != null && target_.canCompilePdf();
+   }
+
+   @Override
+   public void verifyCppPrerequisites()
+   {
+      whenLoaded(() -> target_.verifyCppPrerequisites());
+   }
+
+   @Override
+   public void verifyPythonPrerequisites()
+   {
+      whenLoaded(() -> target_.verifyPythonPrerequisites());
+   }
+
+   @Override
+   public void verifyD3Prerequisites()
+   {
+      whenLoaded(() -> target_.verifyD3Prerequisites());
+   }
+
+   @Override
+   public void verifyNewSqlPrerequisites()
+   {
+      whenLoaded(() -> target_.verifyNewSqlPrerequisites());
+   }
+
+   @Override
+   public void focus()
+   {
+      whenLoaded(() -> target_.focus());
+   }
+
+   @Override
+   public void onActivate()
+   {
+      // the host activates the target in our place once it's loaded
+      if (target_ != null)
+         target_.onActivate();
+   }
+
+   @Override
+   public void onDeactivate()
+   {
+      if (target_ != null)
+         target_.onDeactivate();
+   }
+
+   @Override
+   public void onInitiallyLoaded()
+   {
+      whenLoaded(() -> target_.onInitiallyLoaded());
+   }
+
+   @Override
+   public void recordCurrentNavigationPosition()
+   {
+      if (target_ != null)
+         target_.recordCurrentNavigationPosition();
+   }
+
+   @Override
+   public void navigateToPosition(final SourcePosition position,
+                                  final boolean recordCurrent)
+   {
+      whenLoaded(() -> target_.navigateToPosition(position, recordCurrent));
+   }
+
+   @Override
+   public void navigateToPosition(final SourcePosition position,
+                                  final boolean recordCurrent,
+                                  final boolean highlightLine)
+   {
+      whenLoaded(() -> target_.navigateToPosition(
+            position, recordCurrent, highlightLine));
+   }
+
+   @Override
+   public void restorePosition(final SourcePosition position)
+   {
+      whenLoaded(() -> target_.restorePosition(position));
+   }
+
+   @Override
+   public SourcePosition currentPosition()
+   {
+      return target_ != null ? target_.currentPosition() : null;
+   }
+
+   @Override
+   public boolean isAtSourceRow(SourcePosition position)
+   {
+      return target_ != null && target_.isAtSourceRow(position);
+   }
+
+   @Override
+   public void forceLineHighlighting()
+   {
+      whenLoaded(() -> target_.forceLineHighlighting());
+   }
+
+   @Override
+   public void setSourceOnSave(final boolean sourceOnSave)
+   {
+      whenLoaded(() -> target_.setSourceOnSave(sourceOnSave));
+   }
+
+   @Override
+   public void setCursorPosition(final Position position)
+   {
+      whenLoaded(() -> target_.setCursorPosition(position));
+   }
+
+   @Override
+   public void ensureCursorVisible()
+   {
+      whenLoaded(() -> target_.ensureCursorVisible());
+   }
+
+   @Override
+   public Position search(String regex)
+   {
+      return target_ != null ? target_.search(regex) : null;
+   }
+
+   @Override
+   public Position search(Position startPos, String regex)
+   {
+      return target_ != null ? target_.search(startPos, regex) : null;
+   }
+
+   @Override
+   public void highlightDebugLocation(final SourcePosition startPos,
+                                      final SourcePosition endPos,
+                                      final boolean executing)
+   {
+      whenLoaded(() -> target_.highlightDebugLocation(
+            startPos, endPos, executing));
+   }
+
+   @Override
+   public void endDebugHighlighting()
+   {
+      if (target_ != null)
+         target_.endDebugHighlighting();
+   }
+
+   @Override
+   public void beginCollabSession(final CollabEditStartParams params)
+   {
+      whenLoaded(() -> target_.beginCollabSession(params));
+   }
+
+   @Override
+   public void endCollabSession()
+   {
+      if (target_ != null)
+         target_.endCollabSession();
+   }
+
+   @Override
+   public boolean onBeforeDismiss()
+   {
+      return target_ == null || target_.onBeforeDismiss();
+   }
+
+   @Override
+   public void onDismiss(int dismissType)
+   {
+      if (target_ != null)
+      {
+         target_.onDismiss(dismissType);
+         return;
+      }
+
+      // don't create the target if it's still to arrive
+      dismissed_ = true;
+      pending_.clear();
+
+      ArrayList<Command> dismissCommands =
+            new ArrayList<Command>(dismissCommands_);
+      dismissCommands_.clear();
+      for (Command command : dismissCommands)
+         command.execute();
+   }
+
+   @Override
+   public ReadOnlyValue<Boolean> dirtyState()
+   {
+      return target_ != null ? target_.dirtyState() : dirtyState_;
+   }
+
+   @Override
+   public boolean isSaveCommandActive()
+   {
+      return target_ != null && target_.isSaveCommandActive();
+   }
+
+   @Override
+   public void forceSaveCommandActive()
+   {
+      if (target_ != null)
+         target_.forceSaveCommandActive();
+   }
+
+   @Override
+   public void save(Command onCompleted)
+   {
+      if (target_ != null)
+         target_.save(onCompleted);
+      else
+         onCompleted.execute();
+   }
+
+   @Override
+   public void saveWithPrompt(Command onCompleted, Command onCancelled)
+   {
+      if (target_ != null)
+         target_.saveWithPrompt(onCompleted, onCancelled);
+      else
+         onCompleted.execute();
+   }
+
+   @Override
+   public void revertChanges(Command onCompleted)
+   {
+      if (target_ != null)
+         target_.revertChanges(onCompleted);
+      else
+         onCompleted.execute();
+   }
+
+   @Override
+   public void initialize(SourceDocument document,
+                          FileSystemContext fileContext,
+                          FileType type,
+                          Provider<String> defaultNameProvider)
+   {
+      // placeholders are created for a document; the real target is
+      // initialized by the host when it's created
+   }
+
+   @Override
+   public long getFileSizeLimit()
+   {
+      return target_ != null ? target_.getFileSizeLimit() : Long.MAX_VALUE;
+   }
+
+   @Override
+   public long getLargeFileSize()
+   {
+      return target_ != null ? target_.getLargeFileSize() : Long.MAX_VALUE;
+   }
+
+   @Override
+   public String getDefaultNamePrefix()
+   {
+      return target_ != null ? target_.getDefaultNamePrefix() : null;
+   }
+
+   @Override
+   public String getCurrentStatus()
+   {
+      return target_ != null ?
+            target_.getCurrentStatus() : "Loading " + name_.getValue();
+   }
+
+   @Override
+   public Widget asWidget()
+   {
+      return panel_;
+   }
+
+   @Override
+   public HandlerRegistration addEnsureVisibleHandler(EnsureVisibleHandler handler)
+   {
+      return handlers_.addHandler(EnsureVisibleEvent.TYPE, handler);
+   }
+
+   @Override
+   public HandlerRegistration addEnsureHeightHandler(EnsureHeightHandler handler)
+   {
+      return handlers_.addHandler(EnsureHeightEvent.TYPE, handler);
+   }
+
+   @Override
+   public HandlerRegistration addCloseHandler(CloseHandler<Void> handler)
+   {
+      return handlers_.addHandler(CloseEvent.getType(), handler);
+   }
+
+   @Override
+   public void fireEvent(GwtEvent<?> event)
+   {
+      handlers_.fireEvent(event);
+   }
+
+   private final SourceDocument document_;
+   private final FileType type_;
+   private final FileIcon icon_;
+   private final Host host_;
+   private final Value<String> name_;
+   private final Value<Boolean> dirtyState_ = new Value<Boolean>(false);
+   private final SimpleLayoutPanel panel_ = new SimpleLayoutPanel();
+   private final HandlerManager handlers_ = new HandlerManager(this);
+   private final ArrayList<Command> pending_ = new ArrayList<Command>();
+   private final ArrayList<Command> dismissCommands_ = new ArrayList<Command>();
+
+   private EditingTarget target_;
+   private boolean loading_;
+   private boolean dismissed_;
+}
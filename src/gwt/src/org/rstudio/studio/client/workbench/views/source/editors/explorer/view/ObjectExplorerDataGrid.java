@@ -19,8 +19,6 @@ import java.util.List;
 
 import org.rstudio.core.client.Debug;
 import org.rstudio.core.client.JsVectorString;
-import org.rstudio.core.client.ListUtil;
-import org.rstudio.core.client.ListUtil.FilterPredicate;
 import org.rstudio.core.client.command.KeyboardShortcut;
 import org.rstudio.core.client.SafeHtmlUtil;
 import org.rstudio.core.client.StringUtil;
@@ -111,11 +109,6 @@ public class ObjectExplorerDataGrid
                  RowHoverEvent.Handler,
                  CellPreviewEvent.Handler<ObjectExplorerDataGrid.Data>
 {
-   private static interface Filter<T>
-   {
-      public boolean accept(T data);
-   }
-   
    public static class Data extends ObjectExplorerInspectionResult
    {
       protected Data()
@@ -135,6 +128,29 @@ public class ObjectExplorerDataGrid
          return !!this["placeholder"];
       }-*/;
       
+      // The 'More...' placeholder shown after this node's children; we
+      // hold on to it so that it's the same row from one update to the next.
+      public final Data getMorePlaceholder()
+      {
+         Data placeholder = getMorePlaceholderImpl();
+         if (placeholder == null)
+         {
+            placeholder = createMorePlaceholder(this);
+            setMorePlaceholderImpl(placeholder);
+         }
+         return placeholder;
+      }
+      
+      private final native Data getMorePlaceholderImpl()
+      /*-{
+         return this["more_placeholder"] || null;
+      }-*/;
+      
+      private final native void setMorePlaceholderImpl(Data placeholder)
+      /*-{
+         this["more_placeholder"] = placeholder;
+      }-*/;
+      
       public final boolean isAttributes()
       {
          return hasTag(TAG_ATTRIBUTES);
@@ -157,16 +173,35 @@ public class ObjectExplorerDataGrid
          return this["maxChildRowsShown"] || defaultLimit;
       }-*/;
       
-      // Whether this node is matched, according to the
-      // current search query term.
-      public final native void setMatched(boolean matched)
+      // Whether this node matches the (lower case) search query term.
+      public final boolean matches(String filter)
+      {
+         return getSearchText().indexOf(filter) != -1;
+      }
+      
+      // The fields matched against search queries, in lower case; these
+      // are computed once rather than on each change to the query.
+      private final String getSearchText()
+      {
+         String text = getSearchTextImpl();
+         if (text == null)
+         {
+            text = (StringUtil.notNull(getDisplayName()) + "\n" +
+                    StringUtil.notNull(getDisplayType()) + "\n" +
+                    StringUtil.notNull(getDisplayDesc())).toLowerCase();
+            setSearchTextImpl(text);
+         }
+         return text;
+      }
+      
+      private final native String getSearchTextImpl()
       /*-{
-         this["matched"] = matched;
+         return this["search_text"] || null;
       }-*/;
       
-      public final native boolean isMatched()
+      private final native void setSearchTextImpl(String text)
       /*-{
-         return !!this["matched"];
+         this["search_text"] = text;
       }-*/;
       
       // The current expansion state of this row.
@@ -193,19 +228,15 @@ public class ObjectExplorerDataGrid
          this["expansion_state"] = state;
       }-*/;
       
-      // Whether a particular row is visible (that is, whether
-      // the CellTable should draw this row).
-      private final native boolean isVisible()
+      // Whether a request for (more of) this node's children is in flight.
+      public final native boolean isRequestPending()
       /*-{
-         var visible = this["visible"];
-         if (typeof visible === "undefined")
-            return true;
-         return visible;
+         return !!this["request_pending"];
       }-*/;
       
-      public final native void setVisible(boolean visible)
+      public final native void setRequestPending(boolean pending)
       /*-{
-         this["visible"] = visible;
+         this["request_pending"] = pending;
       }-*/;
       
       // The parent data associated with a node.
@@ -587,6 +618,7 @@ public class ObjectExplorerDataGrid
       dataProvider_ = new ListDataProvider<Data>();
       dataProvider_.setList(new ArrayList<Data>());
       dataProvider_.addDataDisplay(this);
+      model_ = new ObjectExplorerTreeModel<Data>(new TreeHost());
       
       // register handlers
       setKeyboardSelectionHandler(this);
@@ -594,6 +626,13 @@ public class ObjectExplorerDataGrid
       addRowHoverHandler(this);
       addDomHandler(this, ClickEvent.getType());
       
+      // retrieve more children for wide nodes as their 'More...' row
+      // comes into range, rather than waiting for it to be clicked
+      addRangeChangeHandler(event ->
+      {
+         Scheduler.get().scheduleDeferred(() -> retrieveMoreInActiveRows());
+      });
+      
       // populate the view once initially
       initializeRoot();
    }
@@ -625,8 +664,22 @@ public class ObjectExplorerDataGrid
    
    public void setFilter(String filter)
    {
-      filter_ = filter;
-      synchronize();
+      String previous = filter_;
+      filter_ = StringUtil.notNull(filter).trim().toLowerCase();
+      if (filter_.equals(previous))
+         return;
+      
+      // a query extending the previous one can only match rows that the
+      // previous one did, so just re-check those
+      if (!previous.isEmpty() && filter_.contains(previous))
+      {
+         model_.narrow();
+         updateRows();
+      }
+      else
+      {
+         synchronize();
+      }
    }
    
    public HandlerRegistration addSelectionChangedHandler(SelectionChangedHandler handler)
@@ -688,7 +741,7 @@ public class ObjectExplorerDataGrid
       }
       
       // otherwise, just select the row the user clicked on
-      setKeyboardSelectedRow(row);
+      setKeyboardSelectedRowIndex(row);
       setKeyboardSelectedColumn(0);
    }
    
@@ -704,7 +757,7 @@ public class ObjectExplorerDataGrid
       int code = event.getKeyCode();
       int modifier = KeyboardShortcut.getModifierValue(event);
       int type = event.getTypeInt();
-      int row = getKeyboardSelectedRow();
+      int row = getKeyboardSelectedRowIndex();
       boolean eventHandled = false;
       
       if (type == Event.ONKEYDOWN || type == Event.ONKEYPRESS)
@@ -890,7 +943,7 @@ public class ObjectExplorerDataGrid
    private void selectRowRelative(int delta)
    {
       setKeyboardSelectedColumn(0);
-      setKeyboardSelectedRow(getKeyboardSelectedRow() + delta);
+      setKeyboardSelectedRowIndex(getKeyboardSelectedRowIndex() + delta);
    }
    
    private void selectParentOrClose(int row)
@@ -914,7 +967,7 @@ public class ObjectExplorerDataGrid
       {
          if (list.get(i).equals(parent))
          {
-            setKeyboardSelectedRow(i);
+            setKeyboardSelectedRowIndex(i);
             break;
          }
       }
@@ -1003,18 +1056,7 @@ public class ObjectExplorerDataGrid
          @Override
          public void execute()
          {
-            // set all direct children as visible
-            JsArray<Data> children = data.getChildrenData();
-            for (int i = 0, n = children.length(); i < n; i++)
-               children.get(i).setVisible(true);
-            
-            // set attributes as visible if available
-            Data attributes = data.getObjectAttributes().<Data>cast();
-            if (attributes != null)
-               attributes.setVisible(true);
-            
-            // force update of data grid
-            synchronize();
+            updateChildRows(data, row);
             setFocusDeferred(true);
          }
       });
@@ -1022,7 +1064,7 @@ public class ObjectExplorerDataGrid
    
    private void closeRow(int row)
    {
-      final Data data = getData().get(row);
+      Data data = getData().get(row);
       
       // bail if we've attempted to close something non-expandable
       if (!data.isExpandable())
@@ -1031,27 +1073,9 @@ public class ObjectExplorerDataGrid
       // toggle expansion state
       data.setExpansionState(ExpansionState.CLOSED);
       
-      // set direct children as non-visible
-      withChildren(data, false, new Command()
-      {
-         @Override
-         public void execute()
-         {
-            // set all direct children as invisible
-            JsArray<Data> children = data.getChildrenData();
-            for (int i = 0, n = children.length(); i < n; i++)
-               children.get(i).setVisible(false);
-            
-            // set attributes as invisible if available
-            Data attributes = data.getObjectAttributes().<Data>cast();
-            if (attributes != null)
-               attributes.setVisible(false);
-            
-            // force update of data grid
-            synchronize();
-            setFocusDeferred(true);
-         }
-      });
+      // remove the rows beneath this one
+      updateChildRows(data, row);
+      setFocusDeferred(true);
    }
    
    private void setFocusDeferred(final boolean focused)
@@ -1090,21 +1114,46 @@ public class ObjectExplorerDataGrid
          return;
       
       // select the previous row (so that we don't end up scrolling all over the place)
-      selectRowRelative(row);
+      setKeyboardSelectedRowIndex(row - 1);
+      
+      retrieveMoreChildren(parent);
+   }
+   
+   // retrieves the next page of children for a node with more children
+   // available than those we've retrieved so far
+   private void retrieveMoreChildren(final Data data)
+   {
+      if (data.isRequestPending())
+         return;
       
       // update the limit on the number of children we're showing
-      parent.setMaximumChildRowsShown(parent.getMaximumChildRowsShown() + DEFAULT_ROW_LIMIT);
+      data.setMaximumChildRowsShown(data.getMaximumChildRowsShown() + DEFAULT_ROW_LIMIT);
       
-      withChildren(parent, true, new Command()
+      withChildren(data, true, new Command()
       {
          @Override
          public void execute()
          {
-            synchronize();
+            updateChildRows(data, -1);
          }
       });
    }
    
+   // updates the rows shown beneath a node, which is normally at the given
+   // row (though rows may have changed while waiting on the server)
+   private void updateChildRows(Data data, int row)
+   {
+      List<Data> rows = getData();
+      if (row < 0 || row >= rows.size() || rows.get(row) != data)
+         row = model_.indexOf(data);
+      
+      if (row == -1)
+         return;
+      
+      model_.update(row);
+      updateRows();
+   }
+   
    private void withChildren(final Data data,
                              final boolean forceRequest,
                              final Command command)
@@ -1118,7 +1167,13 @@ public class ObjectExplorerDataGrid
          return;
       }
       
+      // if a request is already in flight, its response will
+      // update the rows shown for this node
+      if (data.isRequestPending())
+         return;
+      
       // no children; make a server RPC request and then call back
+      data.setRequestPending(true);
       String extractingCode = generateExtractingRCode(data, "`__OBJECT__`");
       server_.explorerInspectObject(
             handle_.getId(),
@@ -1132,9 +1187,12 @@ public class ObjectExplorerDataGrid
                @Override
                public void onResponseReceived(ObjectExplorerInspectionResult result)
                {
+                  data.setRequestPending(false);
+                  
                   // set parent ownership for children
                   JsArray<Data> children = result.getChildren().cast();
                   data.addChildrenData(children);
+                  data.setMoreAvailable(result.isMoreAvailable());
                   for (int i = 0, n = children.length(); i < n; i++)
                      children.get(i).setParentData(data);
                   
@@ -1154,6 +1212,7 @@ public class ObjectExplorerDataGrid
                @Override
                public void onError(ServerError error)
                {
+                  data.setRequestPending(false);
                   Debug.logError(error);
                }
             });
@@ -1188,7 +1247,7 @@ public class ObjectExplorerDataGrid
                      {
                         if (getData().size() > 0)
                         {
-                           setKeyboardSelectedRow(0, true);
+                           setKeyboardSelectedRowIndex(0, true);
                         }
                      }
                   });
@@ -1203,70 +1262,33 @@ public class ObjectExplorerDataGrid
       
    }
    
+   // rebuilds all rows from the root
    private void synchronize()
+   {
+      model_.reset(root_, !filter_.isEmpty());
+      updateRows();
+   }
+   
+   private void updateRows()
    {
       saveScrollPosition();
       
-      final String filter = StringUtil.notNull(filter_).trim();
-      
-      // only include visible data in the table
-      // TODO: we should consider how to better handle
-      // piecewise updates to the table, rather than
-      // shunting a whole new list in
-      List<Data> data = flatten(root_, new Filter<Data>()
-      {
-         @Override
-         public boolean accept(Data data)
-         {
-            // detect if this matches the current filter
-            if (!filter.isEmpty())
-            { 
-               data.setMatched(false);
-               String[] fields = {
-                     data.getDisplayName(),
-                     data.getDisplayType(),
-                     data.getDisplayDesc()
-               };
-
-               for (String field : fields)
-               {
-                  int index = field.toLowerCase().indexOf(filter.toLowerCase());
-                  if (index != -1)
-                  {
-                     data.setMatched(true);
-                     break;
-                  }
-               }
-            }
-            
-            // otherwise, check whether it's currently visible
-            return data.isVisible();
-         }
-      });
-      
-      // remove entries that don't match filter
-      if (!filter.isEmpty())
+      // only the active rows are pushed to the grid, so
+      // swapping in the model's list is cheap
+      setData(model_.getRows());
+      redraw();
+   }
+   
+   private void retrieveMoreInActiveRows()
+   {
+      List<Data> rows = getData();
+      int lastRow = Math.min(getLastActiveRow(), rows.size() - 1);
+      for (int i = getFirstActiveRow(); i <= lastRow; i++)
       {
-         data = ListUtil.filter(data, new FilterPredicate<Data>()
-         {
-            @Override
-            public boolean test(Data object)
-            {
-               for (Data self = object;
-                    self != null;
-                    self = self.getParentData())
-               {
-                  if (self.isMatched())
-                     return true;
-               }
-               
-               return false;
-            }
-         });
+         Data data = rows.get(i);
+         if (data.isMorePlaceholder())
+            retrieveMoreChildren(data.getParentData());
       }
-      
-      setData(data);
-      redraw();
    }
    
    @Override
@@ -1285,7 +1307,7 @@ public class ObjectExplorerDataGrid
    
    public Data getCurrentSelection()
    {
-      int selectedRow = getKeyboardSelectedRow();
+      int selectedRow = getKeyboardSelectedRowIndex();
       return (selectedRow == -1)
             ? null
             : getData().get(selectedRow);
@@ -1301,49 +1323,50 @@ public class ObjectExplorerDataGrid
       dataProvider_.setList(data);
    }
    
-   private final List<Data> flatten(Data data,
-                                    Filter<Data> filter) 
+   private class TreeHost implements ObjectExplorerTreeModel.Host<Data>
    {
-      List<Data> list = new ArrayList<Data>();
-      flattenImpl(data, filter, list);
-      return list;
-   }
-   
-   private final void flattenImpl(Data data,
-                                  Filter<Data> filter,
-                                  List<Data> output)
-   {
-      // exit if we're not accepting data here
-      if (filter != null && !filter.accept(data))
-         return;
-      
-      // add data
-      output.add(data);
-      
-      // recurse through children
-      JsArray<Data> children = data.getChildrenData();
-      if (children == null)
-         return;
-      
-      // only add children within the drawing limit to this list
-      int n = Math.min(children.length(), data.getMaximumChildRowsShown());
-      for (int i = 0; i < n; i++)
-         flattenImpl(children.get(i), filter, output);
+      @Override
+      public Data getParent(Data data)
+      {
+         return data.getParentData();
+      }
       
-      // add a dummy 'More...' element
-      boolean drawMore = 
-            data.getExpansionState() == ExpansionState.OPEN &&
-            data.isMoreAvailable();
+      @Override
+      public boolean isExpanded(Data data)
+      {
+         return !data.isMorePlaceholder() &&
+                data.getExpansionState() == ExpansionState.OPEN;
+      }
       
-      if (drawMore)
-         output.add(Data.createMorePlaceholder(data));
+      @Override
+      public void getChildRows(Data data, List<Data> output)
+      {
+         // only add children within the drawing limit
+         JsArray<Data> children = data.getChildrenData();
+         if (children != null)
+         {
+            int n = Math.min(children.length(), data.getMaximumChildRowsShown());
+            for (int i = 0; i < n; i++)
+               output.add(children.get(i));
+         }
+         
+         // add a 'More...' placeholder if there are more to retrieve
+         if (data.isMoreAvailable())
+            output.add(data.getMorePlaceholder());
+         
+         // add attributes if relevant
+         if (showAttributes_)
+         {
+            Data attributes = data.getObjectAttributes().<Data>cast();
+            if (attributes != null)
+               output.add(attributes);
+         }
+      }
       
-      // add attributes if relevant
-      if (showAttributes_)
+      @Override
+      public boolean matches(Data data)
       {
-         Data attributes = data.getObjectAttributes().<Data>cast();
-         if (attributes != null)
-            flattenImpl(data.getObjectAttributes().<Data>cast(), filter, output);
+         return !data.isMorePlaceholder() && data.matches(filter_);
       }
    }
    
@@ -1372,11 +1395,12 @@ public class ObjectExplorerDataGrid
    private final IdentityColumn<Data> valueColumn_;
    
    private final ListDataProvider<Data> dataProvider_;
+   private final ObjectExplorerTreeModel<Data> model_;
    
    private int scrollPosition_ = -1;
    private TableRowElement hoveredRow_;
    private boolean showAttributes_;
-   private String filter_;
+   private String filter_ = "";
    private boolean didReceiveNonRepeatingKeyDownEvent_ = false;
    
    // Injected ----
@@ -0,0 +1,184 @@
+/*
+ * ObjectExplorerTreeModel.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.source.editors.explorer.view;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Maintains the flattened list of rows shown by the Object Explorer: the
+// nodes of the tree reachable through expanded nodes, in pre-order. Rather
+// than re-flattening the whole tree on each change, expanding, collapsing or
+// paging in the children of a node only touches the rows beneath that node,
+// and narrowing the filter only revisits the rows already shown.
+//
+// When filtering, a row is shown if it or one of its ancestors matches the
+// filter (so the contents of a matching node remain browsable).
+class ObjectExplorerTreeModel<T>
+{
+   interface Host<T>
+   {
+      T getParent(T node);
+
+      boolean isExpanded(T node);
+
+      // appends the rows shown directly beneath an expanded node
+      void getChildRows(T node, List<T> output);
+
+      // whether the node matches the current filter
+      boolean matches(T node);
+   }
+
+   public ObjectExplorerTreeModel(Host<T> host)
+   {
+      host_ = host;
+   }
+
+   public List<T> getRows()
+   {
+      return rows_;
+   }
+
+   public int indexOf(T node)
+   {
+      return rows_.indexOf(node);
+   }
+
+   /**
+    * Re-flattens the tree from its root.
+    *
+    * @param filtered Whether rows are filtered using Host.matches()
+    */
+   public void reset(T root, boolean filtered)
+   {
+      root_ = root;
+      filtered_ = filtered;
+      rows_.clear();
+      if (root_ != null)
+         flatten(root_, !filtered_, rows_);
+   }
+
+   /**
+    * Updates the rows beneath the node at the given row, following a change
+    * in its expansion state or its children (e.g. when more have been
+    * retrieved).
+    */
+   public void update(int row)
+   {
+      rows_.removeRows(row + 1, getDescendantsEnd(row));
+
+      // the node is shown, so it or one of its ancestors matches the filter;
+      // hence everything beneath it is shown too
+      T node = rows_.get(row);
+      if (!host_.isExpanded(node))
+         return;
+
+      ArrayList<T> descendants = new ArrayList<T>();
+      flattenChildren(node, true, descendants);
+      rows_.addAll(row + 1, descendants);
+   }
+
+   /**
+    * Removes rows which no longer match the filter, after it has been
+    * narrowed such that anything matching the new filter also matched the
+    * old one (e.g. by typing more characters).
+    */
+   public void narrow()
+   {
+      if (!filtered_)
+      {
+         reset(root_, true);
+         return;
+      }
+
+      // rows are kept if they match or their parent is kept. since rows are
+      // in pre-order, the kept ancestors of each row are on the stack
+      ArrayList<T> kept = new ArrayList<T>();
+      ArrayList<T> stack = new ArrayList<T>();
+      for (T node : rows_)
+      {
+         T parent = host_.getParent(node);
+         while (!stack.isEmpty() && stack.get(stack.size() - 1) != parent)
+            stack.remove(stack.size() - 1);
+
+         if (!stack.isEmpty() || host_.matches(node))
+         {
+            kept.add(node);
+            stack.add(node);
+         }
+      }
+
+      rows_.clear();
+      rows_.addAll(kept);
+   }
+
+   // returns the index following the last row beneath the given row. when
+   // filtering, rows following the node may be unrelated matches, so they
+   // have to be checked for ancestry rather than merely depth
+   private int getDescendantsEnd(int row)
+   {
+      T node = rows_.get(row);
+      int end = row + 1;
+      while (end < rows_.size() && isDescendant(rows_.get(end), node))
+         end++;
+      return end;
+   }
+
+   private boolean isDescendant(T node, T ancestor)
+   {
+      for (T parent = host_.getParent(node);
+           parent != null;
+           parent = host_.getParent(parent))
+      {
+         if (parent == ancestor)
+            return true;
+      }
+      return false;
+   }
+
+   private void flatten(T node, boolean matched, List<T> output)
+   {
+      matched = matched || host_.matches(node);
+      if (matched)
+         output.add(node);
+
+      if (host_.isExpanded(node))
+         flattenChildren(node, matched, output);
+   }
+
+   private void flattenChildren(T node, boolean matched, List<T> output)
+   {
+      ArrayList<T> children = new ArrayList<T>();
+      host_.getChildRows(node, children);
+      for (T child : children)
+         flatten(child, matched, output);
+   }
+
+   // exposes removeRange(), which removes rows in one go rather than one at
+   // a time (as clearing a sub-list does in GWT)
+   private static class RowList<T> extends ArrayList<T>
+   {
+      public void removeRows(int fromIndex, int toIndex)
+      {
+         removeRange(fromIndex, toIndex);
+      }
+
+      private static final long serialVersionUID = 1L;
+   }
+
+   private final Host<T> host_;
+   private final RowList<T> rows_ = new RowList<T>();
+   private T root_;
+   private boolean filtered_;
+}
@@ -17,6 +17,7 @@ package org.rstudio.studio.client.workbench.views.source.editors.text;
 import com.google.gwt.animation.client.AnimationScheduler;
 import com.google.gwt.core.client.JavaScriptObject;
 import com.google.gwt.core.client.JsArray;
+import com.google.gwt.core.client.JsArrayInteger;
 import com.google.gwt.core.client.JsArrayString;
 import com.google.gwt.core.client.Scheduler;
 import com.google.gwt.dom.client.Document;
@@ -1025,6 +1026,21 @@ public class AceEditor implements DocDisplay,
       return getSession().getValue();
    }
 
+   public int getCodeOffset(Position position)
+   {
+      return getSession().getDocument().positionToIndex(position, 0);
+   }
+
+   public int getCodeLength()
+   {
+      return getCodeOffset(getDocumentEnd());
+   }
+
+   public String getNewLineCharacter()
+   {
+      return getSession().getDocument().getNewLineCharacter();
+   }
+
    public void setCode(String code, boolean preserveCursorPosition)
    {
       // Calling setCode("", false) while the editor contains multiple lines of
@@ -1397,6 +1413,12 @@ public class AceEditor implements DocDisplay,
       return getSession().getLine(row);
    }
    
+   // the tokenizer state at the end of the row
+   public String getLineState(int row)
+   {
+      return getSession().getState(row);
+   }
+   
    @Override
    public Position getDocumentEnd()
    {
@@ -2019,6 +2041,7 @@ public class AceEditor implements DocDisplay,
       {
          widget_.onResize();
          widget_.onActivate();
+         DocumentAnalysisScheduler.get().onEditorShown();
          return false;
       });
    }
@@ -2026,12 +2049,18 @@ public class AceEditor implements DocDisplay,
    public void onVisibilityChanged(boolean visible)
    {
       if (visible)
+      {
          widget_.getEditor().getRenderer().updateFontSize();
+         DocumentAnalysisScheduler.get().onEditorShown();
+      }
    }
    
    public void onResize()
    {
       widget_.onResize();
+
+      // a resize can also reveal the editor (e.g. a pane being restored)
+      DocumentAnalysisScheduler.get().onEditorShown();
    }
    
    public void setHighlightSelectedLine(boolean on)
@@ -4039,9 +4068,7 @@ public class AceEditor implements DocDisplay,
                // Stop our timer if we've tokenized up to the end of the document.
                if (row_ >= editor_.getRowCount())
                {
-                  editor_.fireEvent(new ScopeTreeReadyEvent(
-                        editor_.getScopeTree(),
-                        editor_.getCurrentScope()));
+                  fireScopeTreeReady();
                   return;
                }
                
@@ -4066,6 +4093,27 @@ public class AceEditor implements DocDisplay,
          return row < row_;
       }
       
+      private void fireScopeTreeReady()
+      {
+         // the scope tree must be complete before asking which rows changed
+         JsArray<Scope> scopeTree = editor_.getScopeTree();
+         Scope currentScope = editor_.getCurrentScope();
+         
+         JsArrayInteger changedRows = editor_.hasCodeModelScopeTree()
+               ? editor_.getCodeModel().takeChangedScopeRows()
+               : null;
+         
+         if (changedRows == null)
+         {
+            editor_.fireEvent(new ScopeTreeReadyEvent(scopeTree, currentScope));
+         }
+         else
+         {
+            editor_.fireEvent(new ScopeTreeReadyEvent(
+                  scopeTree, currentScope, changedRows.get(0), changedRows.get(1)));
+         }
+      }
+      
       private final AceEditor editor_;
       private final Timer timer_;
       
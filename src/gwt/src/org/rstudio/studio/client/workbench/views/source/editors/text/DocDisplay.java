@@ -112,6 +112,9 @@ public interface DocDisplay extends HasValueChangeHandlers<Void>,
    void setCppCompletionContext(CppCompletionContext cppContext);
    void setRCompletionContext(CompletionContext rContext);
    String getCode();
+   int getCodeOffset(Position position);
+   int getCodeLength();
+   String getNewLineCharacter();
    JsArrayString getLines();
    JsArrayString getLines(int startRow, int endRow);
    void setCode(String code, boolean preserveCursorPosition);
@@ -320,6 +323,7 @@ public interface DocDisplay extends HasValueChangeHandlers<Void>,
    int getLength(int row);
    int getRowCount();
    String getLine(int row);
+   String getLineState(int row);
    int getPixelWidth();
    
    char getCharacterAtCursor();
@@ -0,0 +1,398 @@
+/*
+ * DocumentAnalysisScheduler.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.source.editors.text;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+
+import org.rstudio.core.client.Debug;
+
+import com.google.gwt.dom.client.Element;
+import com.google.gwt.user.client.Timer;
+import com.google.gwt.user.client.ui.Widget;
+
+/**
+ * Runs the incremental background analysis passes of source editors (scope
+ * tree building, chunk background highlighting, link highlighting) for all
+ * the editors in a window, rather than each pass running its own timer.
+ *
+ * Passes are registered as tasks which do one slice of work at a time. The
+ * scheduler runs slices while the browser is idle (using requestIdleCallback
+ * where available) until its time budget is used up, favoring the focused
+ * editor, then other visible editors. Tasks for editors which aren't visible
+ * (e.g. in background tabs) are paused until their editor is shown again;
+ * editors report that with onEditorShown().
+ *
+ * Since each window has its own instance of the application, there is one
+ * scheduler per window.
+ */
+public class DocumentAnalysisScheduler
+{
+   public interface Task
+   {
+      /**
+       * Performs one slice of work.
+       *
+       * @return Whether there is more work to be done
+       */
+      boolean execute();
+   }
+
+   public class TaskHandle
+   {
+      private TaskHandle(String name, DocDisplay display, Task task)
+      {
+         name_ = name;
+         display_ = display;
+         task_ = task;
+      }
+
+      /**
+       * Schedules the task to run as soon as the scheduler allows.
+       */
+      public void schedule()
+      {
+         schedule(0);
+      }
+
+      /**
+       * Schedules the task to run no sooner than the given delay from now.
+       * If the task is already scheduled, its delay is replaced.
+       */
+      public void schedule(int delayMs)
+      {
+         readyTime_ = System.currentTimeMillis() + delayMs;
+         if (!pending_)
+         {
+            pending_ = true;
+            if (!queued_)
+            {
+               queued_ = true;
+               tasks_.add(this);
+            }
+         }
+         scheduleRun(false);
+      }
+
+      public void cancel()
+      {
+         pending_ = false;
+      }
+
+      public boolean isPending()
+      {
+         return pending_;
+      }
+
+      private final String name_;
+      private final DocDisplay display_;
+      private final Task task_;
+
+      private boolean pending_;
+      private boolean queued_;
+      private long readyTime_;
+      private long lastRunTime_;
+      private int priority_ = PRIORITY_UNKNOWN;
+   }
+
+   public static class TaskCounters
+   {
+      private TaskCounters(String name)
+      {
+         name_ = name;
+      }
+
+      public String getName()
+      {
+         return name_;
+      }
+
+      public int getSlices()
+      {
+         return slices_;
+      }
+
+      public long getTotalMillis()
+      {
+         return totalMillis_;
+      }
+
+      public long getMaxMillis()
+      {
+         return maxMillis_;
+      }
+
+      private final String name_;
+      private int slices_;
+      private long totalMillis_;
+      private long maxMillis_;
+   }
+
+   public static DocumentAnalysisScheduler get()
+   {
+      if (INSTANCE == null)
+         INSTANCE = new DocumentAnalysisScheduler();
+      return INSTANCE;
+   }
+
+   private DocumentAnalysisScheduler()
+   {
+      timer_ = new Timer()
+      {
+         @Override
+         public void run()
+         {
+            timerScheduled_ = false;
+            scheduleRun(true);
+         }
+      };
+   }
+
+   /**
+    * Registers an analysis pass for an editor. The task doesn't run until
+    * it's scheduled with the returned handle.
+    *
+    * @param name Name of the pass, under which its timings are counted
+    */
+   public TaskHandle register(String name, DocDisplay display, Task task)
+   {
+      return new TaskHandle(name, display, task);
+   }
+
+   /**
+    * @return Timings for each kind of pass, ordered by total time spent
+    */
+   public ArrayList<TaskCounters> getCounters()
+   {
+      ArrayList<TaskCounters> counters =
+            new ArrayList<TaskCounters>(counters_.values());
+      Collections.sort(counters, new Comparator<TaskCounters>()
+      {
+         @Override
+         public int compare(TaskCounters a, TaskCounters b)
+         {
+            return Long.compare(b.getTotalMillis(), a.getTotalMillis());
+         }
+      });
+      return counters;
+   }
+
+   public void resetCounters()
+   {
+      counters_.clear();
+   }
+
+   /**
+    * Called when an editor may have become visible (e.g. its tab was
+    * selected), so that any paused tasks are checked again.
+    */
+   public void onEditorShown()
+   {
+      if (!hasPaused_)
+         return;
+
+      hasPaused_ = false;
+      scheduleRun(true);
+   }
+
+   // schedules the next run for when the first pending task is ready. when
+   // not checking visibility (which requires layout), tasks for hidden editors
+   // are assumed ready too; the run then finds nothing to do and schedules
+   // with the check
+   private void scheduleRun(boolean checkVisibility)
+   {
+      if (runScheduled_)
+         return;
+
+      long now = System.currentTimeMillis();
+      long nextReadyTime = Long.MAX_VALUE;
+      boolean hasPaused = false;
+      for (int i = tasks_.size() - 1; i >= 0; i--)
+      {
+         TaskHandle handle = tasks_.get(i);
+         if (!handle.pending_)
+         {
+            handle.queued_ = false;
+            tasks_.remove(i);
+         }
+         else if (checkVisibility && getPriority(handle) == PRIORITY_PAUSED)
+            hasPaused = true;
+         else
+            nextReadyTime = Math.min(nextReadyTime, handle.readyTime_);
+      }
+
+      if (nextReadyTime <= now)
+      {
+         runScheduled_ = true;
+         requestIdle(IDLE_TIMEOUT_MS);
+      }
+      else if (nextReadyTime != Long.MAX_VALUE)
+      {
+         scheduleTimer((int) (nextReadyTime - now));
+      }
+
+      // paused tasks wait for onEditorShown()
+      if (checkVisibility)
+         hasPaused_ = hasPaused;
+   }
+
+   private void scheduleTimer(int delayMs)
+   {
+      if (timerScheduled_)
+         timer_.cancel();
+      timerScheduled_ = true;
+      timer_.schedule(Math.max(delayMs, 0));
+   }
+
+   private void onIdle(double timeRemaining)
+   {
+      runScheduled_ = false;
+
+      long start = System.currentTimeMillis();
+      long deadline = start + (long) Math.min(timeRemaining, BUDGET_MS);
+
+      // determine priorities up front, since slices typically modify the
+      // DOM and checking visibility between them would force layout
+      for (TaskHandle handle : tasks_)
+         handle.priority_ = handle.pending_ ? getPriority(handle) : PRIORITY_UNKNOWN;
+
+      // always run at least one slice, even if the idle callback timed out
+      // without any idle time being available
+      boolean first = true;
+      while (first || System.currentTimeMillis() < deadline)
+      {
+         first = false;
+
+         TaskHandle handle = nextTask(System.currentTimeMillis());
+         if (handle == null)
+            break;
+
+         runSlice(handle);
+      }
+
+      scheduleRun(true);
+   }
+
+   private TaskHandle nextTask(long now)
+   {
+      TaskHandle next = null;
+      int nextPriority = PRIORITY_PAUSED;
+      for (TaskHandle handle : tasks_)
+      {
+         if (!handle.pending_ || handle.readyTime_ > now)
+            continue;
+
+         if (handle.priority_ == PRIORITY_UNKNOWN)
+            handle.priority_ = getPriority(handle);
+
+         int priority = handle.priority_;
+         if (priority == PRIORITY_PAUSED)
+            continue;
+
+         // favor higher priority tasks, then whichever ran least recently
+         if (next == null ||
+             priority < nextPriority ||
+             (priority == nextPriority && handle.lastRunTime_ < next.lastRunTime_))
+         {
+            next = handle;
+            nextPriority = priority;
+         }
+      }
+      return next;
+   }
+
+   private void runSlice(TaskHandle handle)
+   {
+      // the task may reschedule itself (or be rescheduled) while running
+      handle.pending_ = false;
+
+      long start = System.currentTimeMillis();
+      boolean more = false;
+      try
+      {
+         more = handle.task_.execute();
+      }
+      catch (Exception e)
+      {
+         Debug.logException(e);
+      }
+      long end = System.currentTimeMillis();
+
+      handle.lastRunTime_ = end;
+      if (more && !handle.pending_)
+         handle.schedule();
+
+      TaskCounters counters = counters_.get(handle.name_);
+      if (counters == null)
+      {
+         counters = new TaskCounters(handle.name_);
+         counters_.put(handle.name_, counters);
+      }
+      counters.slices_++;
+      counters.totalMillis_ += end - start;
+      counters.maxMillis_ = Math.max(counters.maxMillis_, end - start);
+   }
+
+   private int getPriority(TaskHandle handle)
+   {
+      Widget widget = handle.display_.asWidget();
+      if (widget == null || !widget.isAttached())
+         return PRIORITY_PAUSED;
+
+      // elements which aren't displayed (e.g. those in hidden tabs) have
+      // no offset parent
+      Element element = widget.getElement();
+      if (element.getOffsetParent() == null)
+         return PRIORITY_PAUSED;
+
+      return handle.display_.isFocused() ? PRIORITY_FOCUSED : PRIORITY_VISIBLE;
+   }
+
+   private final native void requestIdle(int timeoutMs) /*-{
+      var self = this;
+      var callback = $entry(function(deadline) {
+         var remaining = deadline ? deadline.timeRemaining() : 0;
+         self.@org.rstudio.studio.client.workbench.views.source.editors.text.DocumentAnalysisScheduler::onIdle(D)(remaining);
+      });
+
+      if ($wnd.requestIdleCallback)
+         $wnd.requestIdleCallback(callback, { timeout: timeoutMs });
+      else
+         $wnd.setTimeout(function() { callback({ timeRemaining: function() { return 1e6; } }); }, 0);
+   }-*/;
+
+   private final Timer timer_;
+   private boolean timerScheduled_;
+   private boolean runScheduled_;
+   private boolean hasPaused_;
+   private final ArrayList<TaskHandle> tasks_ = new ArrayList<TaskHandle>();
+   private final HashMap<String, TaskCounters> counters_ =
+         new HashMap<String, TaskCounters>();
+
+   private static DocumentAnalysisScheduler INSTANCE;
+
+   private static final int PRIORITY_FOCUSED = 0;
+   private static final int PRIORITY_VISIBLE = 1;
+   private static final int PRIORITY_PAUSED = 2;
+   private static final int PRIORITY_UNKNOWN = -1;
+
+   // maximum time spent running slices per idle callback
+   private static final double BUDGET_MS = 8;
+
+   // maximum time to wait for idle time before running anyway
+   private static final int IDLE_TIMEOUT_MS = 100;
+}
@@ -14,6 +14,7 @@
  */
 package org.rstudio.studio.client.workbench.views.source.editors.text;
 
+import org.rstudio.studio.client.workbench.views.source.editors.text.ace.AceDocumentChangeEventNative;
 import org.rstudio.studio.client.workbench.views.source.editors.text.ace.Position;
 
 import com.google.gwt.core.client.JsArray;
@@ -35,7 +36,10 @@ public class ScopeManager
    public final native void onScopeEnd(Position position);
    public final native JsArray<Scope> getActiveScopes(Position position);
    public final native JsArray<Scope> getScopeList();
-   public final native Position invalidateFrom(Position position);
+   public final native Position invalidateFrom(Position position, AceDocumentChangeEventNative change);
+   public final native void setRowState(int row, String state);
+   public final native boolean hasTail();
+   public final native boolean mergeTail(int row, String state);
    
    @JsOverlay
    public final Scope getScopeAt(Position position)
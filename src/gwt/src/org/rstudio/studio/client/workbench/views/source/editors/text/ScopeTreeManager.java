@@ -15,6 +15,7 @@
 package org.rstudio.studio.client.workbench.views.source.editors.text;
 
 import org.rstudio.studio.client.RStudioGinjector;
+import org.rstudio.studio.client.workbench.views.source.editors.text.ace.AceDocumentChangeEventNative;
 import org.rstudio.studio.client.workbench.views.source.editors.text.ace.Position;
 import org.rstudio.studio.client.workbench.views.source.editors.text.ace.Token;
 import org.rstudio.studio.client.workbench.views.source.editors.text.ace.TokenIterator;
@@ -27,7 +28,6 @@ import com.google.gwt.core.client.JsArray;
 import com.google.gwt.core.client.Scheduler;
 import com.google.gwt.event.logical.shared.AttachEvent;
 import com.google.gwt.event.shared.HandlerRegistration;
-import com.google.gwt.user.client.Timer;
 
 // NOTE: Historically, scope tree management was implemented as part of
 // an accompanying code model, written as part of our JavaScript Ace
@@ -58,15 +58,27 @@ public abstract class ScopeTreeManager
             }),
             
             docDisplay.addDocumentChangedHandler((DocumentChangedEvent event) -> {
-               final Position position = event.getEvent().getRange().getStart();
-               Scheduler.get().scheduleDeferred(() -> {
-                  
-                  Position rebuildPos = scopeManager_.invalidateFrom(Position.create(position));
-                  if (rebuildPos == null)
-                     rebuildPos = position;
-                     
-                  worker_.rebuildScopeTreeFromRow(rebuildPos.getRow());
-               });
+               
+               // invalidate right away, so that the scope tree (and the scopes
+               // kept aside for re-use) stay in step with the document when
+               // several changes are made at once
+               AceDocumentChangeEventNative change = event.getEvent();
+               Position rebuildPos = scopeManager_.invalidateFrom(
+                     Position.create(change.getRange().getStart()),
+                     change);
+               
+               if (changedStartRow_ == -1 || rebuildPos.getRow() < changedStartRow_)
+                  changedStartRow_ = rebuildPos.getRow();
+               
+               if (!rebuildScheduled_)
+               {
+                  rebuildScheduled_ = true;
+                  Scheduler.get().scheduleDeferred(() -> {
+                     rebuildScheduled_ = false;
+                     worker_.rebuildScopeTreeFromRow(
+                           scopeManager_.getParsePosition().getRow());
+                  });
+               }
             }),
             
             docDisplay.addCursorChangedHandler((CursorChangedEvent event) -> {
@@ -100,6 +112,7 @@ public abstract class ScopeTreeManager
    
    public void detach()
    {
+      worker_.stop();
       for (HandlerRegistration handler : handlers_)
          handler.removeHandler();
    }
@@ -108,24 +121,24 @@ public abstract class ScopeTreeManager
    {
       private Worker()
       {
-         timer_ = new Timer()
-         {
-            @Override
-            public void run()
-            {
-               work();
-            }
-         };
+         task_ = DocumentAnalysisScheduler.get().register(
+               "scope-tree", docDisplay_, () -> work());
       }
       
       public void rebuildScopeTreeFromRow(int row)
       {
+         task_.cancel();
          startRow_ = row;
          endRow_ = Math.min(docDisplay_.getRowCount(), startRow_ + ROWS_TOKENIZED_PER_ITERATION);
          work();
       }
       
-      private int work()
+      public void stop()
+      {
+         task_.cancel();
+      }
+      
+      private boolean work()
       {
          Position position = Position.create(startRow_ - 1, 0);
          
@@ -137,6 +150,7 @@ public abstract class ScopeTreeManager
          if (token == null)
             token = it.stepForward();
          
+         int lastRow = -1;
          while (true)
          {
             // if we don't have a token, that implies we've reached the end of the document.
@@ -144,20 +158,48 @@ public abstract class ScopeTreeManager
             if (token == null)
             {
                // save the parse position (needed when invalidating rows as the document mutates)
-               scopeManager_.setParsePosition(Position.create(it.getCurrentTokenRow(), -1));
+               int rowCount = docDisplay_.getRowCount();
+               recordRowStates(lastRow, rowCount);
+               scopeManager_.setParsePosition(Position.create(rowCount, -1));
                
-               // notify listeners that we have a scope tree + the current scope
-               JsArray<Scope> scopeTree = scopeManager_.getScopeList();
-               Scope currentScope = scopeManager_.getScopeAt(docDisplay_.getCursorPosition());
-               ScopeTreeReadyEvent event = new ScopeTreeReadyEvent(scopeTree, currentScope);
-               docDisplay_.fireEvent(event);
+               onScopeTreeReady(rowCount);
                
                // we're done!
-               return docDisplay_.getRowCount();
+               return false;
             }
             
-            // if we've walked past the end row, bail
             int row = it.getCurrentTokenRow();
+            if (row != lastRow)
+            {
+               if (lastRow != -1)
+               {
+                  recordRowStates(lastRow, row);
+                  
+                  // if the parse has caught up with the previous parse (i.e. it
+                  // reached a row following the edited rows in the same state as
+                  // before), the scopes which follow can be re-used as they are
+                  if (scopeManager_.hasTail() &&
+                      scopeManager_.mergeTail(row, docDisplay_.getLineState(row - 1)))
+                  {
+                     int parseRow = scopeManager_.getParsePosition().getRow();
+                     if (parseRow >= docDisplay_.getRowCount())
+                     {
+                        onScopeTreeReady(row);
+                        return false;
+                     }
+                     
+                     // the previous parse hadn't finished; continue from where
+                     // it left off
+                     startRow_ = parseRow;
+                     endRow_ = Math.min(docDisplay_.getRowCount(), startRow_ + ROWS_TOKENIZED_PER_ITERATION);
+                     task_.schedule();
+                     return true;
+                  }
+               }
+               lastRow = row;
+            }
+            
+            // if we've walked past the end row, bail
             if (row >= endRow_)
                break;
             
@@ -175,18 +217,47 @@ public abstract class ScopeTreeManager
          {
             startRow_ = it.getCurrentTokenRow();
             endRow_ = Math.min(docDisplay_.getRowCount(), startRow_ + ROWS_TOKENIZED_PER_ITERATION);
-            timer_.schedule(DELAY_MS);
+            task_.schedule();
+            return true;
          }
          
-         return it.getCurrentTokenRow();
+         return false;
+      }
+      
+      // records the tokenizer state at the end of each row in [startRow, endRow),
+      // for comparison when the rows are next parsed
+      private void recordRowStates(int startRow, int endRow)
+      {
+         for (int row = Math.max(startRow, 0); row < endRow; row++)
+            scopeManager_.setRowState(row, docDisplay_.getLineState(row));
+      }
+      
+      private void onScopeTreeReady(int changedEndRow)
+      {
+         // notify listeners that we have a scope tree + the current scope
+         JsArray<Scope> scopeTree = scopeManager_.getScopeList();
+         Scope currentScope = scopeManager_.getScopeAt(docDisplay_.getCursorPosition());
+         
+         ScopeTreeReadyEvent event;
+         if (changedStartRow_ == -1)
+         {
+            event = new ScopeTreeReadyEvent(scopeTree, currentScope);
+         }
+         else
+         {
+            event = new ScopeTreeReadyEvent(
+                  scopeTree, currentScope, changedStartRow_, changedEndRow);
+         }
+         
+         changedStartRow_ = -1;
+         docDisplay_.fireEvent(event);
       }
       
       private int startRow_;
       private int endRow_;
       
-      private final Timer timer_;
+      private final DocumentAnalysisScheduler.TaskHandle task_;
       
-      private static final int DELAY_MS = 5;
       private static final int ROWS_TOKENIZED_PER_ITERATION = 200;
    }
    
@@ -196,4 +267,8 @@ public abstract class ScopeTreeManager
    private final Worker worker_;
    private final ScopeManager scopeManager_;
    private final HandlerRegistration[] handlers_;
+   
+   // first row re-parsed since the scope tree was last reported as ready
+   private int changedStartRow_ = -1;
+   private boolean rebuildScheduled_;
 }
@@ -28,6 +28,7 @@ import org.rstudio.core.client.regex.Pattern;
 import org.rstudio.studio.client.RStudioGinjector;
 import org.rstudio.studio.client.workbench.prefs.model.UserPrefs;
 import org.rstudio.studio.client.workbench.views.source.editors.text.AceEditor;
+import org.rstudio.studio.client.workbench.views.source.editors.text.DocumentAnalysisScheduler;
 import org.rstudio.studio.client.workbench.views.source.editors.text.events.DocumentChangedEvent;
 import org.rstudio.studio.client.workbench.views.source.editors.text.events.EditorModeChangedEvent;
 
@@ -36,7 +37,6 @@ import com.google.gwt.event.logical.shared.AttachEvent;
 import com.google.gwt.event.logical.shared.ValueChangeEvent;
 import com.google.gwt.event.logical.shared.ValueChangeHandler;
 import com.google.gwt.event.shared.HandlerRegistration;
-import com.google.gwt.user.client.Timer;
 import com.google.inject.Inject;
 
 public class AceBackgroundHighlighter
@@ -60,20 +60,14 @@ public class AceBackgroundHighlighter
    {
       public Worker()
       {
-         timer_ = new Timer()
-         {
-            @Override
-            public void run()
-            {
-               work();
-            }
-         };
+         task_ = DocumentAnalysisScheduler.get().register(
+               "chunk-background", editor_, () -> work());
       }
       
-      private void work()
+      private boolean work()
       {
          if (!enabled_)
-            return;
+            return false;
          
          // determine range to update
          int n = editor_.getRowCount();
@@ -103,57 +97,29 @@ public class AceBackgroundHighlighter
             rowPatterns_.set(row, activeHighlightPattern_);
          }
          
-         // then, notify Ace and perform actual rendering of markers
-         for (int row = startRow; row < endRow; row++)
-         {
-            int state = rowStates_.get(row);
-            int marker = markerIds_.get(row, 0);
-            
-            // bail early if no action is necessary
-            boolean isConsistentState =
-                  (state == STATE_TEXT && marker == 0) ||
-                  (state != STATE_TEXT && marker != 0);
-            
-            if (isConsistentState)
-               continue;
-            
-            // clear a pre-existing marker if necessary
-            if (marker != 0)
-            {
-               session_.removeMarker(marker);
-               markerIds_.set(row, 0);
-            }
-            
-            // if this is a non-text state, then draw a marker
-            if (state != STATE_TEXT)
-            {
-               int markerId = session_.addMarker(
-                     Range.create(row, 0, row, Integer.MAX_VALUE),
-                     MARKER_CLASS,
-                     MARKER_TYPE,
-                     false);
-               
-               markerIds_.set(row, markerId);
-            }
-         }
+         // then, update the region markers drawn by Ace
+         regions_.update(startRow, endRow);
          
-         // update worker state and reschedule if there's
+         // update worker state and continue if there's
          // more work to be done
          row_ = endRow;
-         if (endRow != n)
-            timer_.schedule(DELAY_MS);
+         return endRow != n;
       }
       
       public void start(int row)
       {
          row_ = Math.min(row, row_);
-         timer_.schedule(0);
+         task_.schedule();
       }
       
-      private final Timer timer_;
+      public void stop()
+      {
+         task_.cancel();
+      }
+      
+      private final DocumentAnalysisScheduler.TaskHandle task_;
       private int row_;
       
-      private static final int DELAY_MS = 5;
       private static final int CHUNK_SIZE = 200;
    }
    
@@ -172,7 +138,62 @@ public class AceBackgroundHighlighter
       int n = editor.getRowCount();
       rowStates_ = JavaScriptObject.createArray(n).cast();
       rowPatterns_ = JavaScriptObject.createArray(n).cast();
-      markerIds_ = JavaScriptObject.createArray(n).cast();
+      markerRanges_ = new HashMap<Integer, Range>();
+      regions_ = new BackgroundHighlightRegions(new BackgroundHighlightRegions.Host()
+      {
+         @Override
+         public int getRowCount()
+         {
+            return editor_.getRowCount();
+         }
+         
+         @Override
+         public boolean isKnown(int row)
+         {
+            return rowStates_.isSet(row);
+         }
+         
+         @Override
+         public boolean isHighlighted(int row)
+         {
+            return rowStates_.get(row) != STATE_TEXT;
+         }
+         
+         @Override
+         public int addMarker(int startRow, int endRow)
+         {
+            Range range = Range.create(startRow, 0, endRow, Integer.MAX_VALUE);
+            int markerId = session_.addMarker(range, MARKER_CLASS, MARKER_TYPE, false);
+            markerRanges_.put(markerId, range);
+            return markerId;
+         }
+         
+         @Override
+         public void moveMarker(int markerId, int startRow, int endRow)
+         {
+            // Ace reads the marker's range when rendering, so it can be
+            // updated in place
+            Range range = markerRanges_.get(markerId);
+            if (range != null)
+            {
+               range.setStart(Position.create(startRow, 0));
+               range.setEnd(Position.create(endRow, Integer.MAX_VALUE));
+            }
+         }
+         
+         @Override
+         public void markersMoved()
+         {
+            session_.signalMarkersChanged(false);
+         }
+         
+         @Override
+         public void removeMarker(int markerId)
+         {
+            session_.removeMarker(markerId);
+            markerRanges_.remove(markerId);
+         }
+      });
       worker_ = new Worker();
       
       enabled_ = prefs_.highlightCodeChunks().getGlobalValue();
@@ -251,6 +272,7 @@ public class AceBackgroundHighlighter
          int newlineCount = endRow - startRow;
          rowStates_.insert(startRow, JsVectorInteger.ofLength(newlineCount));
          rowPatterns_.insert(startRow, JsVector.<HighlightPattern>ofLength(newlineCount));
+         regions_.onRowsInserted(startRow, newlineCount);
       }
       else if (action.startsWith("remove"))
       {
@@ -259,6 +281,7 @@ public class AceBackgroundHighlighter
          {
             rowStates_.remove(startRow, newlineCount);
             rowPatterns_.remove(startRow,newlineCount);
+            regions_.onRowsRemoved(startRow, newlineCount);
          }
       }
       
@@ -270,6 +293,7 @@ public class AceBackgroundHighlighter
    {
       if (!event.isAttached())
       {
+         worker_.stop();
          handlers_.removeHandler();
          if (documentChangedHandler_ != null)
          {
@@ -394,14 +418,7 @@ public class AceBackgroundHighlighter
    
    private void clearMarkers()
    {
-      for (int i = 0, n = markerIds_.length(); i < n; i++)
-      {
-         int markerId = markerIds_.get(i);
-         if (markerId != 0)
-            session_.removeMarker(markerId);
-      }
-      
-      markerIds_.fill(0);
+      regions_.clear();
    }
    
    private static List<HighlightPattern> cStyleHighlightPatterns()
@@ -460,7 +477,8 @@ public class AceBackgroundHighlighter
    private boolean enabled_;
    
    private final JsVectorInteger rowStates_;
-   private final JsVectorInteger markerIds_;
+   private final BackgroundHighlightRegions regions_;
+   private final Map<Integer, Range> markerRanges_;
    private final JsVector<HighlightPattern> rowPatterns_;
    
    private final Worker worker_;
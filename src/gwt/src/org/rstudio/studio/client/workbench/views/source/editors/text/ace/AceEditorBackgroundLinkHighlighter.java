@@ -44,6 +44,7 @@ import org.rstudio.studio.client.server.ServerError;
 import org.rstudio.studio.client.server.ServerRequestCallback;
 import org.rstudio.studio.client.workbench.views.files.model.FilesServerOperations;
 import org.rstudio.studio.client.workbench.views.source.editors.text.AceEditor;
+import org.rstudio.studio.client.workbench.views.source.editors.text.DocumentAnalysisScheduler;
 import org.rstudio.studio.client.workbench.views.source.editors.text.events.DocumentChangedEvent;
 import org.rstudio.studio.client.workbench.views.source.editors.text.events.EditorModeChangedEvent;
 import org.rstudio.studio.client.workbench.views.source.editors.text.events.CommandClickEvent;
@@ -63,7 +64,6 @@ import com.google.gwt.event.shared.HandlerRegistration;
 import com.google.gwt.resources.client.ClientBundle;
 import com.google.gwt.resources.client.CssResource;
 import com.google.gwt.user.client.Event;
-import com.google.gwt.user.client.Timer;
 import com.google.gwt.user.client.Event.NativePreviewEvent;
 import com.google.gwt.user.client.Event.NativePreviewHandler;
 import com.google.inject.Inject;
@@ -105,23 +105,8 @@ public class AceEditorBackgroundLinkHighlighter
       activeMarkers_ = new SafeMap<Integer, List<MarkerRegistration>>();
       
       nextHighlightStart_ = 0;
-      timer_ = new Timer()
-      {
-         @Override
-         public void run()
-         {
-            int n = editor_.getCurrentLineCount();
-            int startRow = nextHighlightStart_;
-            int endRow   = Math.min(nextHighlightStart_ + N_HIGHLIGHT_ROWS, n);
-            
-            for (int row = startRow; row < endRow; row++)
-               highlightRow(row);
-            
-            nextHighlightStart_ = endRow;
-            if (endRow != n)
-               timer_.schedule(5);
-         }
-      };
+      task_ = DocumentAnalysisScheduler.get().register(
+            "link-highlight", editor_, () -> highlightNextRows());
       
       
       highlighters_ = new ArrayList<Highlighter>();
@@ -151,11 +136,40 @@ public class AceEditorBackgroundLinkHighlighter
             if (fileType != null && (fileType.isMarkdown() || fileType.isRmd()))
                highlighters_.add(markdownLinkHighlighter());
             nextHighlightStart_ = 0;
-            timer_.schedule(700);
+            visibleStart_ = -1;
+            task_.schedule(700);
          }
       });
    }
    
+   private boolean highlightNextRows()
+   {
+      int n = editor_.getCurrentLineCount();
+      
+      // rows are highlighted independently of one another, so start with
+      // those which are visible (skipping them when they're reached)
+      if (visibleStart_ == -1)
+      {
+         visibleStart_ = Math.max(nextHighlightStart_, editor_.getFirstVisibleRow());
+         visibleEnd_ = Math.min(editor_.getLastVisibleRow() + 1, n);
+         for (int row = visibleStart_; row < visibleEnd_; row++)
+            highlightRow(row);
+         
+         if (visibleEnd_ > visibleStart_)
+            return true;
+      }
+      
+      int startRow = nextHighlightStart_;
+      int endRow   = Math.min(nextHighlightStart_ + N_HIGHLIGHT_ROWS, n);
+      
+      for (int row = startRow; row < endRow; row++)
+         if (row < visibleStart_ || row >= visibleEnd_)
+            highlightRow(row);
+      
+      nextHighlightStart_ = endRow;
+      return endRow != n;
+   }
+   
    private void highlightRow(int row)
    {
       for (Highlighter highlighter : highlighters_)
@@ -560,6 +574,7 @@ public class AceEditorBackgroundLinkHighlighter
       }
       else
       {
+         task_.cancel();
          for (HandlerRegistration handler : handlers_)
             handler.removeHandler();
          handlers_.clear();
@@ -581,7 +596,8 @@ public class AceEditorBackgroundLinkHighlighter
       // prepare highlighter
       int row = event.getEvent().getRange().getStart().getRow();
       nextHighlightStart_ = Math.min(nextHighlightStart_, row);
-      timer_.schedule(700);
+      visibleStart_ = -1;
+      task_.schedule(700);
       
       // update marker positions (deferred so that anchors update)
       Scheduler.get().scheduleDeferred(new ScheduledCommand()
@@ -786,11 +802,13 @@ public class AceEditorBackgroundLinkHighlighter
    
    private final AceEditor editor_;
    private final List<Highlighter> highlighters_;
-   private final Timer timer_;
+   private final DocumentAnalysisScheduler.TaskHandle task_;
    private final List<HandlerRegistration> handlers_;
    
    private SafeMap<Integer, List<MarkerRegistration>> activeMarkers_;
    private int nextHighlightStart_;
+   private int visibleStart_ = -1;
+   private int visibleEnd_ = -1;
    private static final int N_HIGHLIGHT_ROWS = 200;
    
    private HandlerRegistration previewHandler_;
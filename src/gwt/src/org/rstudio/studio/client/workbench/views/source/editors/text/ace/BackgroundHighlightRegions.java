@@ -0,0 +1,271 @@
+/*
+ * BackgroundHighlightRegions.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.source.editors.text.ace;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Tracks the markers drawn by AceBackgroundHighlighter, with one marker per
+// contiguous region of highlighted rows (e.g. a code chunk) rather than one
+// per row. Regions are kept sorted and non-overlapping; they're shifted as
+// rows are inserted and removed, and reconciled with the highlighter's row
+// states as the highlighter recomputes them.
+class BackgroundHighlightRegions
+{
+   interface Host
+   {
+      int getRowCount();
+
+      // whether the state of the row has been computed
+      boolean isKnown(int row);
+
+      boolean isHighlighted(int row);
+
+      int addMarker(int startRow, int endRow);
+
+      // updates the marker's range without re-rendering; markersMoved() is
+      // called once all of the markers affected by an edit have been moved
+      void moveMarker(int markerId, int startRow, int endRow);
+
+      void markersMoved();
+
+      void removeMarker(int markerId);
+   }
+
+   private static class Region
+   {
+      public Region(int startRow, int endRow, int markerId)
+      {
+         this.startRow = startRow;
+         this.endRow = endRow;
+         this.markerId = markerId;
+      }
+
+      public int startRow;
+      public int endRow; // inclusive
+      public final int markerId;
+   }
+
+   public BackgroundHighlightRegions(Host host)
+   {
+      host_ = host;
+   }
+
+   public int size()
+   {
+      return regions_.size();
+   }
+
+   public void clear()
+   {
+      for (Region region : regions_)
+         host_.removeMarker(region.markerId);
+      regions_.clear();
+   }
+
+   /**
+    * Updates the regions to match the row states in [startRow, endRow),
+    * along with any regions which cross the bounds of those rows.
+    */
+   public void update(int startRow, int endRow)
+   {
+      int n = host_.getRowCount();
+      int lo = Math.max(0, Math.min(startRow, n));
+      int hi = Math.max(lo, Math.min(endRow, n));
+
+      // widen the range to whole regions, both those implied by the row
+      // states and those we already have markers for
+      boolean changed = true;
+      while (changed)
+      {
+         changed = false;
+
+         while (lo > 0 && isHighlighted(lo - 1))
+            lo--;
+
+         while (hi < n && isHighlighted(hi))
+            hi++;
+
+         for (int i = firstRegionEndingAtOrAfter(lo - 1); i < regions_.size(); i++)
+         {
+            Region region = regions_.get(i);
+            if (region.startRow >= hi)
+               break;
+
+            if (region.startRow < lo)
+            {
+               lo = Math.max(0, region.startRow);
+               changed = true;
+            }
+
+            int end = Math.min(region.endRow + 1, n);
+            if (end > hi)
+            {
+               hi = end;
+               changed = true;
+            }
+         }
+      }
+
+      // take the existing regions within the range
+      // (as a block, so the regions after them are only shifted once)
+      int index = firstRegionEndingAtOrAfter(lo);
+      int last = index;
+      while (last < regions_.size() && regions_.get(last).startRow < hi)
+         last++;
+      List<Region> range = regions_.subList(index, last);
+      ArrayList<Region> existing = new ArrayList<Region>(range);
+      range.clear();
+
+      // and replace them with regions matching the row states, reusing
+      // those which haven't changed
+      ArrayList<Region> updated = new ArrayList<Region>();
+      int next = 0;
+      int row = lo;
+      while (row < hi)
+      {
+         if (!isHighlighted(row))
+         {
+            row++;
+            continue;
+         }
+
+         int start = row;
+         while (row < hi && isHighlighted(row))
+            row++;
+         int end = row - 1;
+
+         while (next < existing.size() && existing.get(next).startRow < start)
+            host_.removeMarker(existing.get(next++).markerId);
+
+         Region candidate = next < existing.size() ? existing.get(next) : null;
+         if (candidate != null &&
+             candidate.startRow == start &&
+             candidate.endRow == end)
+         {
+            updated.add(candidate);
+            next++;
+         }
+         else
+         {
+            updated.add(new Region(start, end, host_.addMarker(start, end)));
+         }
+      }
+
+      while (next < existing.size())
+         host_.removeMarker(existing.get(next++).markerId);
+
+      regions_.addAll(index, updated);
+   }
+
+   /**
+    * Shifts regions for rows inserted after the given row.
+    */
+   public void onRowsInserted(int row, int count)
+   {
+      if (count <= 0)
+         return;
+
+      boolean moved = false;
+      for (Region region : regions_)
+      {
+         if (region.endRow < row)
+            continue;
+
+         if (region.startRow > row)
+            region.startRow += count;
+         region.endRow += count;
+         host_.moveMarker(region.markerId, region.startRow, region.endRow);
+         moved = true;
+      }
+
+      if (moved)
+         host_.markersMoved();
+   }
+
+   /**
+    * Shifts regions for the rows following the given row which were removed
+    * (i.e. joined to the given row).
+    */
+   public void onRowsRemoved(int row, int count)
+   {
+      if (count <= 0)
+         return;
+
+      boolean moved = false;
+      int previousEnd = -1;
+      for (int i = 0; i < regions_.size(); i++)
+      {
+         Region region = regions_.get(i);
+         if (region.endRow <= row)
+         {
+            previousEnd = region.endRow;
+            continue;
+         }
+
+         int start = Math.max(shiftRemoved(region.startRow, row, count), previousEnd + 1);
+         int end = shiftRemoved(region.endRow, row, count);
+         if (start > end)
+         {
+            host_.removeMarker(region.markerId);
+            regions_.remove(i--);
+            continue;
+         }
+
+         region.startRow = start;
+         region.endRow = end;
+         host_.moveMarker(region.markerId, start, end);
+         moved = true;
+         previousEnd = end;
+      }
+
+      if (moved)
+         host_.markersMoved();
+   }
+
+   private static int shiftRemoved(int target, int row, int count)
+   {
+      if (target <= row)
+         return target;
+      else if (target <= row + count)
+         return row;
+      else
+         return target - count;
+   }
+
+   private boolean isHighlighted(int row)
+   {
+      return host_.isKnown(row) && host_.isHighlighted(row);
+   }
+
+   // since regions don't overlap, they're sorted by end row as well as start
+   private int firstRegionEndingAtOrAfter(int row)
+   {
+      int lo = 0;
+      int hi = regions_.size();
+      while (lo < hi)
+      {
+         int mid = (lo + hi) >>> 1;
+         if (regions_.get(mid).endRow < row)
+            lo = mid + 1;
+         else
+            hi = mid;
+      }
+      return lo;
+   }
+
+   private final Host host_;
+   private final ArrayList<Region> regions_ = new ArrayList<Region>();
+}
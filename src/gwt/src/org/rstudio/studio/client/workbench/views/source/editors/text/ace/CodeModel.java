@@ -16,6 +16,7 @@ package org.rstudio.studio.client.workbench.views.source.editors.text.ace;
 
 import com.google.gwt.core.client.JavaScriptObject;
 import com.google.gwt.core.client.JsArray;
+import com.google.gwt.core.client.JsArrayInteger;
 import org.rstudio.studio.client.workbench.views.source.editors.text.RFunction;
 import org.rstudio.studio.client.workbench.views.source.editors.text.Scope;
 import org.rstudio.studio.client.workbench.views.source.editors.text.ScopeFunction;
@@ -128,4 +129,14 @@ public class CodeModel extends JavaScriptObject
       return this.$buildScopeTreeUpToRow(row);
    }-*/;
    
+   /**
+    * @return The rows whose scopes were re-parsed since this was last called,
+    *    as [start, end), or null if the scope tree was rebuilt in full.
+    */
+   public native final JsArrayInteger takeChangedScopeRows() /*-{
+      if (typeof this.takeChangedScopeRows !== "function")
+         return null;
+      return this.takeChangedScopeRows();
+   }-*/;
+   
 }
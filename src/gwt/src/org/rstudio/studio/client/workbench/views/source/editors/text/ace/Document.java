@@ -38,6 +38,10 @@ public class Document extends JavaScriptObject
       return this.getLength();
    }-*/;
    
+   public native final String getNewLineCharacter() /*-{
+      return this.getNewLineCharacter();
+   }-*/;
+
    public native final Position indexToPosition(int index, int startRow) /*-{
       return this.indexToPosition(index, startRow);
    }-*/;
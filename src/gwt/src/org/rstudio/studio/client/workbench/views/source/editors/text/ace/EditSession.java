@@ -225,6 +225,11 @@ public class EditSession extends JavaScriptObject
       this.removeMarker(markerId);
    }-*/;
    
+   // notifies the renderer that the ranges of existing markers were modified
+   public native final void signalMarkersChanged(boolean inFront) /*-{
+      this._signal(inFront ? "changeFrontMarker" : "changeBackMarker");
+   }-*/;
+   
    public native final void setBreakpoint(int line) /*-{
       this.setBreakpoint(line);
    }-*/;
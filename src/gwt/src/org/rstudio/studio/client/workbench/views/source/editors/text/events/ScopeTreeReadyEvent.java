@@ -24,16 +24,40 @@ public class ScopeTreeReadyEvent extends GwtEvent<ScopeTreeReadyEvent.Handler>
 {
    public ScopeTreeReadyEvent(JsArray<Scope> scopeTree,
                               Scope currentScope)
+   {
+      this(scopeTree, currentScope, -1, -1);
+   }
+   
+   /**
+    * Creates an event for a scope tree which was only partly rebuilt.
+    * 
+    * @param changedStartRow The first row whose scopes were re-parsed
+    * @param changedEndRow The row following the last row whose scopes were
+    *    re-parsed. Scopes after this row are the same objects as in the
+    *    previous scope tree (moved to account for any rows inserted or
+    *    removed).
+    */
+   public ScopeTreeReadyEvent(JsArray<Scope> scopeTree,
+                              Scope currentScope,
+                              int changedStartRow,
+                              int changedEndRow)
    {
       scopeTree_ = scopeTree;
       currentScope_ = currentScope;
+      changedStartRow_ = changedStartRow;
+      changedEndRow_ = changedEndRow;
    }
    
    public JsArray<Scope> getScopeTree() { return scopeTree_; }
    public Scope getCurrentScope() { return currentScope_; }
+   public boolean isIncremental() { return changedStartRow_ != -1; }
+   public int getChangedStartRow() { return changedStartRow_; }
+   public int getChangedEndRow() { return changedEndRow_; }
    
    private final JsArray<Scope> scopeTree_;
    private final Scope currentScope_;
+   private final int changedStartRow_;
+   private final int changedEndRow_;
    
    // Boilerplate ----
    
@@ -29,7 +29,9 @@ import org.rstudio.core.client.Barrier.Token;
 import org.rstudio.core.client.CommandWithArg;
 import org.rstudio.core.client.DebouncedCommand;
 import org.rstudio.core.client.Debug;
+import org.rstudio.core.client.StringUtil;
 import org.rstudio.core.client.js.JsObject;
+import org.rstudio.core.client.patch.EditHunks;
 import org.rstudio.core.client.patch.SubstringDiff;
 import org.rstudio.core.client.widget.Operation;
 import org.rstudio.core.client.widget.ProgressIndicator;
@@ -47,7 +49,9 @@ import org.rstudio.studio.client.workbench.model.ChangeTracker;
 import org.rstudio.studio.client.workbench.prefs.model.UserPrefs;
 import org.rstudio.studio.client.workbench.views.source.editors.text.DocDisplay;
 import org.rstudio.studio.client.workbench.views.source.editors.text.Fold;
+import org.rstudio.studio.client.workbench.views.source.editors.text.ace.AceDocumentChangeEventNative;
 import org.rstudio.studio.client.workbench.views.source.editors.text.ace.VimMarks;
+import org.rstudio.studio.client.workbench.views.source.editors.text.events.DocumentChangedEvent;
 import org.rstudio.studio.client.workbench.views.source.editors.text.events.FoldChangeEvent;
 import org.rstudio.studio.client.workbench.views.source.editors.text.events.SourceOnSaveChangedEvent;
 import org.rstudio.studio.client.workbench.views.source.editors.text.rmd.ChunkDefinition;
@@ -55,12 +59,14 @@ import org.rstudio.studio.client.workbench.views.source.events.SaveFailedEvent;
 import org.rstudio.studio.client.workbench.views.source.events.SaveFileEvent;
 import org.rstudio.studio.client.workbench.views.source.events.SaveInitiatedEvent;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 
 public class DocUpdateSentinel
       implements ValueChangeHandler<Void>,
-      FoldChangeEvent.Handler
+      FoldChangeEvent.Handler,
+      DocumentChangedEvent.Handler
 {
    private class ReopenFileCallback extends ServerRequestCallback<SourceDocument>
    {
@@ -80,6 +86,8 @@ public class DocUpdateSentinel
       {
          sourceDoc_ = response;
          docDisplay_.setCode(sourceDoc_.getContents(), true);
+         hunks_.clear();
+         resetSavedContents();
          dirtyState_.markClean();
 
          if (progress_ != null)
@@ -125,6 +133,7 @@ public class DocUpdateSentinel
       server_ = server;
       docDisplay_ = docDisplay;
       sourceDoc_ = sourceDoc;
+      resetSavedContents();
       progress_ = progress;
       dirtyState_ = dirtyState;
       eventBus_ = events;
@@ -161,6 +170,7 @@ public class DocUpdateSentinel
 
       docDisplay_.addValueChangeHandler(this);
       docDisplay_.addFoldChangeHandler(this);
+      docDisplay_.addDocumentChangedHandler(this);
 
       // Web only
       if (!Desktop.isDesktop())
@@ -402,8 +412,6 @@ public class DocUpdateSentinel
          actually sent to the server. */
       final ChangeTracker thisChangeTracker = changeTracker_.fork();
 
-      final String newContents = docDisplay_.getCode();
-      String oldContents = sourceDoc_.getContents();
       final String hash = sourceDoc_.getHash();
 
       final String foldSpec = Fold.encode(Fold.flatten(docDisplay_.getFolds()));
@@ -413,11 +421,37 @@ public class DocUpdateSentinel
       JsArray<ChunkDefinition> oldChunkDefs = 
             sourceDoc_.getNotebookDoc().getChunkDefs();
       
-      SubstringDiff diff = new SubstringDiff(oldContents, newContents);
+      // If the edits recorded since the last save were made against the
+      // last saved contents, and account for the current length of the
+      // document, send just those (with a hash of the contents they should
+      // produce, which the server checks before saving, since an edit
+      // missed at the same length would otherwise go unnoticed); otherwise
+      // (e.g. the previous save is still in flight) diff the whole document.
+      final EditHunks hunks = hunks_;
+      final boolean useHunks = !fullSaveRequired_ &&
+            !hunks.isOverflowed() &&
+            hunksVersion_ == savedVersion_ &&
+            savedLength_ + hunks.getLengthDelta() == docDisplay_.getCodeLength();
+
+      final String newContents = useHunks ? null : docDisplay_.getCode();
+      final String hunkContents = useHunks ? docDisplay_.getCode() : null;
+      final String contentsHash = useHunks ?
+            StringUtil.crc32Utf16(hunkContents) :
+            null;
+      final int newLength = useHunks ?
+            savedLength_ + hunks.getLengthDelta() :
+            newContents.length();
+
+      SubstringDiff diff = useHunks || fullSaveRequired_ ?
+            null :
+            new SubstringDiff(getContents(), newContents);
+      boolean unchanged = useHunks ?
+            hunks.isEmpty() :
+            diff != null && diff.isValid() && diff.isEmpty();
 
       // Don't auto-save when there are no changes. In addition to being
       // wasteful, it causes the server to think the document is dirty.
-      if (path == null && fileType == null && diff.isValid() && diff.isEmpty()
+      if (path == null && fileType == null && unchanged
           && foldSpec == oldFoldSpec 
           && (newChunkDefs == null || 
               ChunkDefinition.equalTo(newChunkDefs, oldChunkDefs)))
@@ -427,8 +461,9 @@ public class DocUpdateSentinel
       }
 
       if (path == null && fileType == null
-          && oldContents.length() == 0
-          && newContents == "\n")
+          && savedLength_ == 0
+          && newLength == 1
+          && docDisplay_.getCode() == "\n")
       {
          // This is necessary due to us adding an extra \n to empty
          // documents, which we have to do or else CodeMirror starts
@@ -453,113 +488,176 @@ public class DocUpdateSentinel
          Debug.logException(e);
       }
 
-      server_.saveDocumentDiff(
-            sourceDoc_.getId(),
-            path,
-            fileType,
-            encoding,
-            foldSpec,
-            newChunkDefs,
-            diff.getReplacement(),
-            diff.getOffset(),
-            diff.getLength(),
-            diff.isValid(),
-            hash,
-            new ServerRequestCallback<String>()
+      // edits from here on are relative to the contents being sent
+      final int version = ++lastVersion_;
+      hunks_ = new EditHunks();
+      hunksVersion_ = version;
+
+      ServerRequestCallback<String> callback = new ServerRequestCallback<String>()
+      {
+         @Override
+         public void onError(ServerError error)
+         {
+            Debug.logError(error);
+            if (progress != null)
+               progress.onError(error.getUserMessage());
+            try
             {
-               @Override
-               public void onError(ServerError error)
+               if (path != null)
                {
-                  Debug.logError(error);
-                  if (progress != null)
-                     progress.onError(error.getUserMessage());
-                  try
-                  {
-                     if (path != null)
-                     {
-                        eventBus_.fireEvent(new SaveFailedEvent(path, getId()));
-                     }
-                  }
-                  catch(Exception e)
-                  {
-                     Debug.logException(e);
-                  }
-                  changesPending_ = false;
+                  eventBus_.fireEvent(new SaveFailedEvent(path, getId()));
                }
+            }
+            catch(Exception e)
+            {
+               Debug.logException(e);
+            }
+            changesPending_ = false;
+         }
 
-               @Override
-               public void onResponseReceived(String newHash)
+         @Override
+         public void onResponseReceived(String newHash)
+         {
+            if (newHash != null)
+            {
+               // If the document hasn't changed further since the version
+               // we saved, then we know we're all synced up.
+               try
                {
-                  if (newHash != null)
-                  {
-                     // If the document hasn't changed further since the version
-                     // we saved, then we know we're all synced up.
-                     try
-                     {
-                        if (!thisChangeTracker.hasChanged())
-                           changeTracker_.reset();
-                        
-                        // update the foldSpec and newChunkDefs so we 
-                        // can use them for change detection the next
-                        // time around
-                        sourceDoc_.setFoldSpec(foldSpec);
-                        sourceDoc_.getNotebookDoc().setChunkDefs(newChunkDefs);
-                        
-                        onSuccessfulUpdate(newContents,
-                                           newHash,
-                                           path,
-                                           fileType,
-                                           encoding);
-                     }
-                     catch(Exception ex)
-                     {
-                        // log exception, but continue (we want to guarantee the
-                        // progress indicator is updated)
-                        Debug.log("Exception in post-save update " + path + 
-                                  " to " + newHash + ": " + ex.getMessage());
-                     }
-                     if (progress != null)
-                        progress.onCompleted();
-                     
-                     // let anyone interested know we just saved 
-                     SaveFileEvent saveEvent = new SaveFileEvent(path, fileType, encoding);
-                     docDisplay_.fireEvent(saveEvent);
-                     eventBus_.fireEvent(saveEvent);
-                  }
-                  else if (hash != sourceDoc_.getHash())
-                  {
-                     // We just hit a race condition where two updates
-                     // happened at once. Try again
-                     doSave(path, fileType, encoding, progress);
-                  }
-                  else
-                  {
-                     /*Debug.log("Diff-based save failed--falling back to " +
-                               "snapshot save");*/
-                     server_.saveDocument(
-                           sourceDoc_.getId(),
-                           path,
-                           fileType,
-                           encoding,
-                           foldSpec,
-                           newChunkDefs,
-                           newContents,
-                           this);
-                  }
+                  if (!thisChangeTracker.hasChanged())
+                     changeTracker_.reset();
+                  
+                  // update the foldSpec and newChunkDefs so we 
+                  // can use them for change detection the next
+                  // time around
+                  sourceDoc_.setFoldSpec(foldSpec);
+                  sourceDoc_.getNotebookDoc().setChunkDefs(newChunkDefs);
+                  
+                  onSuccessfulUpdate(version,
+                                     sentContents_ == null ? hunks : null,
+                                     sentContents_,
+                                     newHash,
+                                     path,
+                                     fileType,
+                                     encoding);
                }
-            });
+               catch(Exception ex)
+               {
+                  // log exception, but continue (we want to guarantee the
+                  // progress indicator is updated)
+                  Debug.log("Exception in post-save update " + path + 
+                            " to " + newHash + ": " + ex.getMessage());
+               }
+               if (progress != null)
+                  progress.onCompleted();
+               
+               // let anyone interested know we just saved 
+               SaveFileEvent saveEvent = new SaveFileEvent(path, fileType, encoding);
+               docDisplay_.fireEvent(saveEvent);
+               eventBus_.fireEvent(saveEvent);
+            }
+            else if (hash != sourceDoc_.getHash())
+            {
+               // We just hit a race condition where two updates
+               // happened at once. Try again
+               doSave(path, fileType, encoding, progress);
+            }
+            else
+            {
+               /*Debug.log("Diff-based save failed--falling back to " +
+                         "snapshot save");*/
+               // the hunks may not produce these contents (which is why
+               // the server refused them), so send the contents as they
+               // were when the save began
+               if (sentContents_ == null)
+                  sentContents_ = hunkContents;
+               server_.saveDocument(
+                     sourceDoc_.getId(),
+                     path,
+                     fileType,
+                     encoding,
+                     foldSpec,
+                     newChunkDefs,
+                     sentContents_,
+                     this);
+            }
+         }
+
+         // the contents sent, or null if only the hunks have been sent
+         private String sentContents_ = newContents;
+      };
+
+      if (fullSaveRequired_)
+      {
+         server_.saveDocument(
+               sourceDoc_.getId(),
+               path,
+               fileType,
+               encoding,
+               foldSpec,
+               newChunkDefs,
+               newContents,
+               callback);
+      }
+      else if (useHunks)
+      {
+         server_.saveDocumentHunks(
+               sourceDoc_.getId(),
+               path,
+               fileType,
+               encoding,
+               foldSpec,
+               newChunkDefs,
+               hunks.toJavaScriptObject(),
+               hash,
+               contentsHash,
+               callback);
+      }
+      else
+      {
+         server_.saveDocumentDiff(
+               sourceDoc_.getId(),
+               path,
+               fileType,
+               encoding,
+               foldSpec,
+               newChunkDefs,
+               diff.getReplacement(),
+               diff.getOffset(),
+               diff.getLength(),
+               diff.isValid(),
+               hash,
+               callback);
+      }
 
       return true;
    }
 
-   private void onSuccessfulUpdate(String contents,
+   private void onSuccessfulUpdate(int version,
+                                   EditHunks hunks,
+                                   String contents,
                                    String hash,
                                    String path,
                                    String fileType,
                                    String encoding)
    {
       changesPending_ = false;
-      sourceDoc_.setContents(contents);
+      savedVersion_ = version;
+      if (contents != null)
+      {
+         sourceDoc_.setContents(contents);
+         savedHunks_.clear();
+         savedLength_ = contents.length();
+         fullSaveRequired_ = false;
+      }
+      else
+      {
+         // the saved contents are only rebuilt when they're needed
+         savedHunks_.add(hunks);
+         savedLength_ += hunks.getLengthDelta();
+         if (savedHunks_.size() > MAX_SAVED_HUNKS)
+            applySavedHunks();
+      }
       sourceDoc_.setHash(hash);
       if (path != null)
       {
@@ -756,6 +854,19 @@ public class DocUpdateSentinel
          autosaver_.nudge();
    }
    
+   @Override
+   public void onDocumentChanged(DocumentChangedEvent event)
+   {
+      // record the edit so the next save can send just the changed hunks
+      AceDocumentChangeEventNative change = event.getEvent();
+      String text = change.lines.join(docDisplay_.getNewLineCharacter());
+      int offset = docDisplay_.getCodeOffset(change.start);
+      if (change.action == "insert")
+         hunks_.edit(offset, 0, text);
+      else
+         hunks_.edit(offset, text.length(), "");
+   }
+
    public String getPath()
    {
       return sourceDoc_.getPath();
@@ -763,14 +874,44 @@ public class DocUpdateSentinel
    
    public String getContents()
    {
+      applySavedHunks();
       return sourceDoc_.getContents();
    }
    
    public SourceDocument getDoc()
    {
+      applySavedHunks();
       return sourceDoc_;
    }
 
+   // brings the document's contents up to date with the hunks saved since
+   // they were last set
+   private void applySavedHunks()
+   {
+      if (savedHunks_.isEmpty())
+         return;
+
+      String contents = sourceDoc_.getContents();
+      for (EditHunks hunks : savedHunks_)
+      {
+         contents = hunks.apply(contents);
+         if (contents == null)
+            break;
+      }
+      savedHunks_.clear();
+
+      if (contents == null)
+      {
+         // shouldn't happen (hunks are only sent against the saved
+         // contents), but if it does the server's copy must be replaced
+         Debug.log("Saved hunks don't apply to " + sourceDoc_.getPath());
+         fullSaveRequired_ = true;
+         changesPending_ = true;
+         return;
+      }
+      sourceDoc_.setContents(contents);
+   }
+
    public void stop()
    {
       if (autosaver_ != null)
@@ -837,6 +978,16 @@ public class DocUpdateSentinel
       return sourceDoc_.getId();
    }
    
+   // the document's contents are those last saved, and the edits recorded
+   // are relative to them
+   private void resetSavedContents()
+   {
+      savedHunks_.clear();
+      savedLength_ = StringUtil.notNull(sourceDoc_.getContents()).length();
+      savedVersion_ = hunksVersion_ = ++lastVersion_;
+      fullSaveRequired_ = false;
+   }
+
    private void createAutosaver()
    {
       if (autosaver_ == null)
@@ -858,6 +1009,22 @@ public class DocUpdateSentinel
    private final SourceServerOperations server_;
    private final DocDisplay docDisplay_;
    private SourceDocument sourceDoc_;
+   private EditHunks hunks_ = new EditHunks();
+
+   // hunks which have been saved but not yet applied to sourceDoc_'s
+   // contents, and the length of the contents they produce
+   private final ArrayList<EditHunks> savedHunks_ = new ArrayList<EditHunks>();
+   private int savedLength_;
+
+   // versions of the contents sent to the server: the last one sent, the
+   // last one saved, and the one hunks_ is relative to
+   private int lastVersion_ = 0;
+   private int savedVersion_ = 0;
+   private int hunksVersion_ = 0;
+
+   // set if the saved contents are unknown and must be replaced in full
+   private boolean fullSaveRequired_ = false;
+
    private final ProgressIndicator progress_;
    private final DirtyState dirtyState_;
    private final EventBus eventBus_;
@@ -868,6 +1035,9 @@ public class DocUpdateSentinel
    private final HashMap<String, ValueChangeHandlerManager<String>> 
                  propertyChangeHandlers_;
    
+   // saves to accumulate before rebuilding the saved contents
+   private static final int MAX_SAVED_HUNKS = 50;
+
    public final static String PROPERTY_TRUE = "true";
    public final static String PROPERTY_FALSE = "false";
 }
@@ -78,6 +78,14 @@ public class SourceDocument extends JavaScriptObject
       this.contents = contents;
    }-*/;
 
+   /**
+    * True if the contents were left out (when restoring documents lazily);
+    * the document must be fetched again before it's edited.
+    */
+   public native final boolean isContentsDeferred() /*-{
+      return !!this.contents_deferred;
+   }-*/;
+
    /**
     * True if changes have been saved to the ID that have not been persisted
     * to the file.
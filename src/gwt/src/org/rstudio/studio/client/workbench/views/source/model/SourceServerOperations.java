@@ -14,6 +14,7 @@
  */
 package org.rstudio.studio.client.workbench.views.source.model;
 
+import com.google.gwt.core.client.JavaScriptObject;
 import com.google.gwt.core.client.JsArray;
 import com.google.gwt.core.client.JsArrayString;
 
@@ -127,6 +128,29 @@ public interface SourceServerOperations extends FilesServerOperations,
                          String hash,
                          ServerRequestCallback<String> requestCallback);
 
+   /**
+    * Same as saveDocumentDiff, but sends the edits made since the last save
+    * as a list of hunks (see EditHunks), each of which replaces a range of
+    * the contents the server is expected to have. Offsets and lengths are
+    * in characters rather than bytes.
+    *
+    * contentsHash is StringUtil.crc32Utf16() of the contents the hunks are
+    * expected to produce; the server refuses to save anything else.
+    *
+    * As with saveDocumentDiff, a null return value indicates that the hunks
+    * could not be applied and saveDocument() should be used as a fallback.
+    */
+   void saveDocumentHunks(String id,
+                          String path,
+                          String fileType,
+                          String encoding,
+                          String foldSpec,
+                          JsArray<ChunkDefinition> chunkOutput,
+                          JavaScriptObject hunks,
+                          String hash,
+                          String contentsHash,
+                          ServerRequestCallback<String> requestCallback);
+
    void checkForExternalEdit(
          String id,
          ServerRequestCallback<CheckForExternalEditResult> requestCallback);
@@ -0,0 +1,158 @@
+/*
+ * TerminalBufferReloader.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.terminal;
+
+import java.util.HashMap;
+
+/**
+ * Reloads a terminal's saved buffer from the server, chunk by chunk.
+ *
+ * Rather than waiting for each chunk before requesting the next, several
+ * chunks are requested at once, and written to the terminal in order as they
+ * arrive; so reloading a long buffer takes a few round trips rather than one
+ * per chunk. Since the total number of chunks isn't known up front, chunks
+ * past the end may be requested too (these come back empty).
+ *
+ * The first chunk is always fetched on its own, since requesting it trims the
+ * saved buffer on the server (which would shift any other chunks).
+ */
+public class TerminalBufferReloader
+{
+   public interface ChunkCallback
+   {
+      void onChunk(String chunk, boolean moreAvailable);
+
+      void onError(String message);
+   }
+
+   public interface Host
+   {
+      /**
+       * Requests a chunk of the saved buffer from the server.
+       */
+      void fetchChunk(int chunk, ChunkCallback callback);
+
+      /**
+       * Writes a chunk to the terminal; chunks are written in order.
+       */
+      void write(String chunk);
+
+      /**
+       * Called once the final chunk has been written.
+       */
+      void onComplete();
+
+      void onError(String message);
+   }
+
+   public TerminalBufferReloader(Host host)
+   {
+      this(host, MAX_CHUNKS_IN_FLIGHT);
+   }
+
+   /**
+    * @param maxInFlight Maximum number of chunks requested at once (one to
+    *                    fetch chunks sequentially)
+    */
+   public TerminalBufferReloader(Host host, int maxInFlight)
+   {
+      host_ = host;
+      maxInFlight_ = Math.max(1, maxInFlight);
+   }
+
+   public void start()
+   {
+      cancel();
+      running_ = true;
+      nextWrite_ = 0;
+      nextRequest_ = 0;
+      lastChunk_ = Integer.MAX_VALUE;
+      fetch(nextRequest_++);
+   }
+
+   /**
+    * Ignores any chunks still to arrive.
+    */
+   public void cancel()
+   {
+      running_ = false;
+      generation_++;
+      received_.clear();
+   }
+
+   public boolean isRunning()
+   {
+      return running_;
+   }
+
+   private void fetch(final int chunk)
+   {
+      final int generation = generation_;
+      host_.fetchChunk(chunk, new ChunkCallback()
+      {
+         @Override
+         public void onChunk(String text, boolean moreAvailable)
+         {
+            if (generation == generation_)
+               onChunkReceived(chunk, text, moreAvailable);
+         }
+
+         @Override
+         public void onError(String message)
+         {
+            if (generation != generation_)
+               return;
+            cancel();
+            host_.onError(message);
+         }
+      });
+   }
+
+   private void onChunkReceived(int chunk, String text, boolean moreAvailable)
+   {
+      received_.put(chunk, text);
+      if (!moreAvailable)
+         lastChunk_ = Math.min(lastChunk_, chunk);
+
+      // write whatever is now contiguous with what's been written
+      while (received_.containsKey(nextWrite_))
+      {
+         host_.write(received_.remove(nextWrite_));
+         if (nextWrite_ >= lastChunk_)
+         {
+            cancel();
+            host_.onComplete();
+            return;
+         }
+         nextWrite_++;
+      }
+
+      // the first chunk has been written, so the rest can be requested
+      // concurrently
+      while (nextRequest_ < nextWrite_ + maxInFlight_ && nextRequest_ <= lastChunk_)
+         fetch(nextRequest_++);
+   }
+
+   private final Host host_;
+   private final int maxInFlight_;
+   private final HashMap<Integer, String> received_ = new HashMap<>();
+   private boolean running_;
+   private int generation_;
+   private int nextWrite_;
+   private int nextRequest_;
+   private int lastChunk_;
+
+   private static final int MAX_CHUNKS_IN_FLIGHT = 4;
+}
@@ -0,0 +1,209 @@
+/*
+ * TerminalOutputQueue.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.terminal;
+
+import java.util.LinkedList;
+import java.util.function.Consumer;
+
+/**
+ * Queues output on its way to the terminal emulator, so that a burst of
+ * output (e.g. from cat'ing a large file) is written once per animation frame
+ * rather than once per packet received.
+ *
+ * Output arriving while the queue is idle is written immediately, so typing
+ * and local-echo aren't delayed; output arriving before the next frame is
+ * then batched. At most MAX_FRAME_CHARS are written per frame, so the
+ * emulator (which buffers writes internally) can keep up; when more than
+ * HIGH_WATER_CHARS are pending, the host is asked to have the server pause
+ * output, and to resume it once the queue drains below LOW_WATER_CHARS.
+ */
+public class TerminalOutputQueue implements Consumer<String>
+{
+   public interface Host
+   {
+      /**
+       * Writes output to the terminal emulator.
+       */
+      void write(String output);
+
+      /**
+       * Schedules a call to onFrame() on the next animation frame, or soon
+       * after if animation frames aren't being delivered (e.g. in a hidden
+       * tab).
+       */
+      void scheduleFrame();
+
+      /**
+       * Asks the server to pause output while we catch up (or to resume it).
+       */
+      void setOutputPaused(boolean paused);
+   }
+
+   public TerminalOutputQueue(Host host)
+   {
+      host_ = host;
+   }
+
+   @Override
+   public void accept(String output)
+   {
+      if (output == null || output.isEmpty())
+         return;
+
+      if (!frameScheduled_)
+      {
+         write(output);
+         scheduleFrame();
+         return;
+      }
+
+      pending_.add(output);
+      pendingChars_ += output.length();
+
+      if (!paused_ && pendingChars_ > HIGH_WATER_CHARS)
+      {
+         paused_ = true;
+         host_.setOutputPaused(true);
+      }
+   }
+
+   /**
+    * Writes a frame's worth of pending output.
+    */
+   public void onFrame()
+   {
+      frameScheduled_ = false;
+      if (pending_.isEmpty())
+         return;
+
+      StringBuilder output = new StringBuilder();
+      while (!pending_.isEmpty() && output.length() < MAX_FRAME_CHARS)
+      {
+         String next = pending_.removeFirst();
+         int available = MAX_FRAME_CHARS - output.length();
+         if (next.length() > available)
+         {
+            // don't split a surrogate pair across frames
+            int split = available;
+            if (Character.isHighSurrogate(next.charAt(split - 1)))
+               split--;
+            if (split > 0)
+            {
+               output.append(next, 0, split);
+               next = next.substring(split);
+            }
+            pending_.addFirst(next);
+            break;
+         }
+         output.append(next);
+      }
+      pendingChars_ -= output.length();
+
+      write(output.toString());
+      scheduleFrame();
+
+      if (pendingChars_ < LOW_WATER_CHARS)
+         resumeOutput();
+   }
+
+   /**
+    * Writes all pending output now (e.g. before writing directly to the
+    * terminal emulator).
+    */
+   public void flush()
+   {
+      if (pending_.isEmpty())
+         return;
+
+      StringBuilder output = new StringBuilder();
+      for (String next : pending_)
+         output.append(next);
+      pending_.clear();
+      pendingChars_ = 0;
+
+      write(output.toString());
+      resumeOutput();
+   }
+
+   /**
+    * Drops all pending output (e.g. when the terminal is cleared).
+    */
+   public void discard()
+   {
+      pending_.clear();
+      pendingChars_ = 0;
+      resumeOutput();
+   }
+
+   public int getPendingChars()
+   {
+      return pendingChars_;
+   }
+
+   public boolean isOutputPaused()
+   {
+      return paused_;
+   }
+
+   /**
+    * @return Number of writes made to the terminal emulator so far
+    */
+   public int getWriteCount()
+   {
+      return writes_;
+   }
+
+   /**
+    * Forgets that output was paused, e.g. when the server connection has been
+    * reset (along with its flow control state).
+    */
+   public void resetOutputPaused()
+   {
+      paused_ = false;
+   }
+
+   private void write(String output)
+   {
+      host_.write(output);
+      writes_++;
+   }
+
+   private void resumeOutput()
+   {
+      if (!paused_)
+         return;
+      paused_ = false;
+      host_.setOutputPaused(false);
+   }
+
+   private void scheduleFrame()
+   {
+      if (frameScheduled_)
+         return;
+      frameScheduled_ = true;
+      host_.scheduleFrame();
+   }
+
+   private final Host host_;
+   private final LinkedList<String> pending_ = new LinkedList<>();
+   private int pendingChars_;
+   private boolean frameScheduled_;
+   private boolean paused_;
+   private int writes_;
+
+   public static final int MAX_FRAME_CHARS = 128 * 1024;
+   public static final int HIGH_WATER_CHARS = 512 * 1024;
+   public static final int LOW_WATER_CHARS = 128 * 1024;
+}
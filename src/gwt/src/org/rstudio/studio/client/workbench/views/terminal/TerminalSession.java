@@ -270,6 +270,7 @@ public class TerminalSession extends XTermWidget
       connected_ = false;
       connecting_ = false;
       restartSequenceWritten_ = false;
+      bufferReloader_.cancel();
       setNotReloading();
       deferredOutput_.clear();
    }
@@ -540,7 +541,7 @@ public class TerminalSession extends XTermWidget
     */
    public void clearBuffer()
    {
-      clear();
+      socket_.clearOutput();
 
       // talk directly to the server so it will wake up if suspended and
       // clear its buffer cache
@@ -572,7 +573,7 @@ public class TerminalSession extends XTermWidget
 
    protected void writeError(String msg)
    {
-      writeln(AnsiCode.ForeColor.RED + "Error: " + msg + AnsiCode.DEFAULTCOLORS);
+      socket_.writeOutput(AnsiCode.ForeColor.RED + "Error: " + msg + AnsiCode.DEFAULTCOLORS + "\r\n");
    }
 
    @Override
@@ -737,7 +738,7 @@ public class TerminalSession extends XTermWidget
       else
       {
          setReloading();
-         fetchNextChunk(0);
+         fetchBuffer();
       }
    }
 
@@ -771,7 +772,7 @@ public class TerminalSession extends XTermWidget
       }
    }
 
-   private void fetchNextChunk(final int chunkToFetch)
+   private void fetchBuffer()
    {
       if (!shellSupportsReload())
       {
@@ -783,54 +784,77 @@ public class TerminalSession extends XTermWidget
       {
          onResize();
          if (consoleProcess_ != null)
+            bufferReloader_.start();
+      });
+   }
+
+   private TerminalBufferReloader createBufferReloader()
+   {
+      return new TerminalBufferReloader(new TerminalBufferReloader.Host()
+      {
+         @Override
+         public void fetchChunk(int chunk,
+                                final TerminalBufferReloader.ChunkCallback callback)
          {
-            consoleProcess_.getTerminalBufferChunk(chunkToFetch,
+            if (consoleProcess_ == null)
+            {
+               callback.onError("Terminal is not connected");
+               return;
+            }
+
+            consoleProcess_.getTerminalBufferChunk(chunk,
                   new ServerRequestCallback<ProcessBufferChunk>()
             {
                @Override
                public void onResponseReceived(final ProcessBufferChunk chunk)
                {
-                  accept(chunk.getChunk());
-                  if (chunk.getMoreAvailable())
-                  {
-                     fetchNextChunk(chunk.getChunkNumber() + 1);
-                  }
-                  else
-                  {
-                     writeRestartSequence();
-                     if (procInfo_.getZombie())
-                        showZombieMessage();
-                     setNotReloading();
-                     for (String outputStr : deferredOutput_)
-                     {
-                        socket_.dispatchOutput(outputStr, doLocalEcho());
-                     }
-                     deferredOutput_.clear();
-                  }
+                  callback.onChunk(chunk.getChunk(), chunk.getMoreAvailable());
                }
 
                @Override
                public void onError(ServerError error)
                {
                   Debug.logError(error);
-                  writeError(error.getUserMessage());
-                  setNotReloading();
-                  deferredOutput_.clear();
+                  callback.onError(error.getUserMessage());
                }
             });
          }
+
+         @Override
+         public void write(String chunk)
+         {
+            socket_.writeOutput(chunk);
+         }
+
+         @Override
+         public void onComplete()
+         {
+            writeRestartSequence();
+            if (procInfo_.getZombie())
+               showZombieMessage();
+            setNotReloading();
+            for (String outputStr : deferredOutput_)
+            {
+               socket_.dispatchOutput(outputStr, doLocalEcho());
+            }
+            deferredOutput_.clear();
+         }
+
+         @Override
+         public void onError(String message)
+         {
+            writeError(message);
+            setNotReloading();
+            deferredOutput_.clear();
+         }
       });
    }
 
    public void showZombieMessage()
    {
-      writeln("[Process completed]");
-      accept("[Exit code: ");
-      if (procInfo_.getExitCode() != null)
-         accept(Integer.toString(procInfo_.getExitCode()));
-      else
-         accept("Unknown");
-      writeln("]");
+      String exitCode = procInfo_.getExitCode() != null ?
+            Integer.toString(procInfo_.getExitCode()) : "Unknown";
+      socket_.writeOutput("[Process completed]\r\n[Exit code: " + exitCode + "]\r\n");
    }
 
    /**
@@ -849,8 +873,8 @@ public class TerminalSession extends XTermWidget
          // Move cursor to first column and clear to end-of-line
          final String sequence = AnsiCode.CSI + AnsiCode.CHA + AnsiCode.CSI + AnsiCode.EL;
 
-         // immediately clear line locally
-         accept(sequence);
+         // clear line locally, after any output already queued
+         socket_.writeOutput(sequence);
 
          // ask server to delete last line of saved buffer to prevent
          // accumulation of prompts
@@ -951,6 +975,7 @@ public class TerminalSession extends XTermWidget
    private boolean reloading_;
    private boolean haveLoadedBuffer_;
    private final ArrayList<String> deferredOutput_ = new ArrayList<>();
+   private final TerminalBufferReloader bufferReloader_ = createBufferReloader();
    private boolean restartSequenceWritten_;
    private final StringBuilder inputQueue_ = new StringBuilder();
    private int inputSequence_ = ShellInput.IGNORE_SEQUENCE;
@@ -15,6 +15,7 @@
 
 package org.rstudio.studio.client.workbench.views.terminal;
 
+import com.google.gwt.animation.client.AnimationScheduler;
 import com.google.gwt.user.client.Timer;
 import org.rstudio.core.client.Debug;
 import org.rstudio.core.client.HandlerRegistrations;
@@ -93,7 +94,46 @@ public class TerminalSessionSocket
    {
       session_ = session;
       xterm_ = xterm;
-      localEcho_ = new TerminalLocalEcho(xterm_);
+      output_ = new TerminalOutputQueue(new TerminalOutputQueue.Host()
+      {
+         @Override
+         public void write(String output)
+         {
+            xterm_.accept(output);
+         }
+
+         @Override
+         public void scheduleFrame()
+         {
+            // animation frames aren't delivered to hidden tabs, so fall back
+            // to a timer rather than leave output (and the server) paused
+            frameHandle_ = AnimationScheduler.get().requestAnimationFrame(timestamp ->
+            {
+               frameHandle_ = null;
+               onFrame();
+            });
+            frameTimer_.schedule(FRAME_TIMEOUT_MS);
+         }
+
+         @Override
+         public void setOutputPaused(boolean paused)
+         {
+            if (socket_ != null)
+            {
+               diagnostic_.log(paused ? "Pausing output" : "Resuming output");
+               socket_.send(TerminalSocketPacket.flowControlPacket(paused));
+            }
+         }
+      });
+      frameTimer_ = new Timer()
+      {
+         @Override
+         public void run()
+         {
+            onFrame();
+         }
+      };
+      localEcho_ = new TerminalLocalEcho(output_);
       webSocketPingInterval_ = webSocketPingInterval;
       webSocketConnectTimeout_ = webSocketConnectTimeout;
 
@@ -205,6 +245,7 @@ public class TerminalSessionSocket
                   socket_ = null;
                   keepAliveTimer_.cancel();
                   connectWebSocketTimer_.cancel();
+                  output_.resetOutputPaused();
                   session_.connectionDisconnected();
                }
             }
@@ -260,6 +301,7 @@ public class TerminalSessionSocket
    private void switchToRPC()
    {
       socket_ = null;
+      output_.resetOutputPaused();
       keepAliveTimer_.cancel();
       connectWebSocketTimer_.cancel();
 
@@ -324,7 +366,8 @@ public class TerminalSessionSocket
    }
 
    /**
-    * Send output to the terminal emulator.
+    * Send output to the terminal emulator. Output is batched and written
+    * once per animation frame; see TerminalOutputQueue.
     * @param output text to send to the terminal
     * @param detectLocalEcho local-echo detection
     */
@@ -344,13 +387,43 @@ public class TerminalSessionSocket
       }
       if (!detectLocalEcho || localEcho_.isEmpty())
       {
-         xterm_.accept(output);
+         output_.accept(output);
          return;
       }
 
       localEcho_.write(output);
    }
 
+   /**
+    * Write text to the terminal that didn't come from the server (e.g. status
+    * messages); it is queued behind any server output not yet written.
+    * @param output text to write to the terminal
+    */
+   public void writeOutput(String output)
+   {
+      output_.accept(output);
+   }
+
+   /**
+    * Clear the terminal, dropping any output not yet written to it.
+    */
+   public void clearOutput()
+   {
+      output_.discard();
+      xterm_.clear();
+   }
+
+   private void onFrame()
+   {
+      frameTimer_.cancel();
+      if (frameHandle_ != null)
+      {
+         frameHandle_.cancel();
+         frameHandle_ = null;
+      }
+      output_.onFrame();
+   }
+
    @Override
    public void onTerminalDataInput(TerminalDataInputEvent event)
    {
@@ -381,9 +454,11 @@ public class TerminalSessionSocket
    public void disconnect(boolean permanent)
    {
       diagnostic_.log(permanent ? "Permanently Disconnected" : "Disconnected");
+      output_.flush();
       if (socket_ != null)
          socket_.close();
       socket_ = null;
+      output_.resetOutputPaused();
       registrations_.removeHandler();
       if (permanent)
       {
@@ -424,6 +499,9 @@ public class TerminalSessionSocket
    private ConnectCallback connectCallback_;
    private HandlerRegistration terminalInputHandler_;
    private Websocket socket_;
+   private final TerminalOutputQueue output_;
+   private final Timer frameTimer_;
+   private AnimationScheduler.AnimationHandle frameHandle_;
    private final TerminalLocalEcho localEcho_;
    private final TerminalDiagnostics diagnostic_ = new TerminalDiagnostics();
 
@@ -432,6 +510,9 @@ public class TerminalSessionSocket
 
    public static final Pattern PASSWORD_PATTERN = Pattern.create(PASSWORD_REGEX, "im");
 
+   // how long to wait for an animation frame before writing queued output anyway
+   private static final int FRAME_TIMEOUT_MS = 100;
+
    private final Timer keepAliveTimer_;
    private final int webSocketPingInterval_;
    private final Timer connectWebSocketTimer_;
@@ -25,6 +25,8 @@ import org.rstudio.core.client.StringUtil;
  * First character is a method indicator, as follows:
  *    "a" = send text, e.g. "aHello"
  *    "b" = ping/pong, e.g. "b"
+ *    "c" = output flow control (client to server), "cp" to pause output
+ *          while the client catches up, "cr" to resume it
  *
  * Only the "send text" method has a payload (everything after the "a").
  *
@@ -48,6 +50,11 @@ public class TerminalSocketPacket
       return StringUtil.equals(text, keepAlivePrefix);
    }
 
+   public static String flowControlPacket(boolean pause)
+   {
+      return flowControlPrefix + (pause ? "p" : "r");
+   }
+
    public static String getMessage(String text)
    {
       if (text.startsWith(textPrefix))
@@ -59,4 +66,5 @@ public class TerminalSocketPacket
 
    private static final String keepAlivePrefix = "b";
    private static final String textPrefix = "a";
+   private static final String flowControlPrefix = "c";
 }
@@ -17,16 +17,24 @@ package org.rstudio.studio.client.workbench.views.vcs.common.diff;
 import com.google.gwt.cell.client.AbstractCell;
 import com.google.gwt.cell.client.ValueUpdater;
 import com.google.gwt.core.client.GWT;
+import com.google.gwt.dom.builder.shared.TableRowBuilder;
 import com.google.gwt.dom.client.Element;
 import com.google.gwt.dom.client.NativeEvent;
 import com.google.gwt.dom.client.Node;
+import com.google.gwt.dom.client.NodeList;
+import com.google.gwt.dom.client.TableRowElement;
 import com.google.gwt.dom.client.Style.Unit;
+import com.google.gwt.event.dom.client.ScrollEvent;
+import com.google.gwt.event.dom.client.ScrollHandler;
 import com.google.gwt.event.shared.HandlerRegistration;
 import com.google.gwt.safehtml.shared.SafeHtmlBuilder;
+import com.google.gwt.user.cellview.client.AbstractCellTable;
 import com.google.gwt.user.cellview.client.CellTable;
 import com.google.gwt.user.cellview.client.Column;
+import com.google.gwt.user.cellview.client.DefaultCellTableBuilder;
 import com.google.gwt.user.cellview.client.RowStyles;
 import com.google.gwt.user.cellview.client.TextColumn;
+import com.google.gwt.user.client.ui.ScrollPanel;
 import com.google.gwt.view.client.MultiSelectionModel;
 import com.google.gwt.view.client.ProvidesKey;
 import com.google.gwt.view.client.SelectionChangeEvent;
@@ -49,6 +57,7 @@ import org.rstudio.studio.client.workbench.views.vcs.common.events.DiffLinesActi
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 
 public class LineTableView extends MultiSelectCellTable<ChunkOrLine> implements Display
 {
@@ -81,6 +90,9 @@ public class LineTableView extends MultiSelectCellTable<ChunkOrLine> implements
       String stageMode();
       String workingMode();
       String noStageMode();
+
+      String virtualized();
+      String padding();
    }
 
    public class LineContentCell extends AbstractCell<ChunkOrLine>
@@ -196,6 +208,47 @@ public class LineTableView extends MultiSelectCellTable<ChunkOrLine> implements
       }
    }
 
+   // Draws only the active rows, with a padding row standing in for the rows
+   // above them and another for those below (as VirtualizedDataGrid does)
+   private class TableBuilder extends DefaultCellTableBuilder<ChunkOrLine>
+   {
+      public TableBuilder(AbstractCellTable<ChunkOrLine> cellTable)
+      {
+         super(cellTable);
+      }
+
+      @Override
+      public void buildRowImpl(ChunkOrLine rowValue, int absRowIndex)
+      {
+         if (absRowIndex < firstActiveRow_ || absRowIndex > lastActiveRow_)
+            return;
+
+         if (absRowIndex == firstActiveRow_)
+            drawPaddingRow(getRowTop(firstActiveRow_));
+
+         super.buildRowImpl(rowValue, absRowIndex);
+
+         if (absRowIndex == lastActiveRow_)
+         {
+            drawPaddingRow(getRowTop(lines_.size()) -
+                           getRowTop(lastActiveRow_ + 1));
+         }
+      }
+
+      private void drawPaddingRow(int heightPx)
+      {
+         if (heightPx <= 0)
+            return;
+
+         TableRowBuilder tr = startRow();
+         tr.className(RES.cellTableStyle().padding());
+         tr.attribute("height", heightPx + "px");
+         for (int i = 0; i < cellTable.getColumnCount(); i++)
+            tr.startTD().endTD();
+         tr.endTR();
+      }
+   }
+
    private class SwitchableSelectionModel<T> extends MultiSelectionModel<T>
    {
       private SwitchableSelectionModel()
@@ -248,6 +301,7 @@ public class LineTableView extends MultiSelectCellTable<ChunkOrLine> implements
       super(1, res);
 
       FontSizer.applyNormalFontSize(this);
+      setTableBuilder(new TableBuilder(this));
 
       for (int i = 0; i < filesCompared; i++)
       {
@@ -385,12 +439,7 @@ public class LineTableView extends MultiSelectCellTable<ChunkOrLine> implements
    {
       int index = lines_.indexOf(value);
       if (index >= 0)
-      {
-         ArrayList<ChunkOrLine> list = new ArrayList<ChunkOrLine>();
-         list.add(value);
-         setRowData(index, list);
-      }
-
+         refreshRow(index);
    }
 
    private String intToString(Integer value)
@@ -442,17 +491,213 @@ public class LineTableView extends MultiSelectCellTable<ChunkOrLine> implements
       }
 
       lines_ = diffData;
-      setPageSize(diffData.size());
       selectionModel_.clear();
       firstSelectedLine_ = null;
-      setRowData(diffData);
 
       startRows_.clear();
       endRows_.clear();
+      borderState_ = Line.Type.Same;
+      suppressNextStart_ = true; // Suppress at start to avoid 2px border
+      updateBorders(0);
+
+      // the rows' height is measured again, in case the font size has
+      // changed since they were last drawn
+      rowHeightMeasured_ = false;
+      firstActiveRow_ = 0;
+      lastActiveRow_ = -1;
+      setRowCount(0);
+      updateActiveRows(true);
+   }
 
-      Line.Type state = Line.Type.Same;
-      boolean suppressNextStart = true; // Suppress at start to avoid 2px border
-      for (int i = 0; i < lines_.size(); i++)
+   /**
+    * Appends rows to those set with setData() (e.g. as a diff is parsed).
+    */
+   @Override
+   public void appendData(ArrayList<ChunkOrLine> diffData)
+   {
+      if (diffData.isEmpty())
+         return;
+
+      // the last row is no longer the last row, so may no longer have an
+      // end border
+      int start = lines_.size();
+      if (useEndBorder_ && start > 0)
+         endRows_.remove(start - 1);
+
+      lines_.addAll(diffData);
+      updateBorders(start);
+
+      // if the active rows haven't changed, the padding below them has still
+      // grown (and if they've been extended, the previous last row, which
+      // may have lost its border, has been drawn again)
+      if (!updateActiveRows(false))
+      {
+         setRowCount(lines_.size());
+         refreshRow(lastActiveRow_);
+      }
+   }
+
+   /**
+    * Draws only the rows in view within the given panel (and those either
+    * side of them), rather than every row, so that large diffs can be shown.
+    * 
+    * Padding rows stand in for the rows which aren't drawn, so every row
+    * has to be the same height: long lines don't wrap, and are scrolled to
+    * horizontally instead.
+    */
+   public void setScrollPanel(final ScrollPanel scrollPanel)
+   {
+      scrollPanel_ = scrollPanel;
+      addStyleName(RES.cellTableStyle().virtualized());
+      scrollPanel.addScrollHandler(new ScrollHandler()
+      {
+         @Override
+         public void onScroll(ScrollEvent event)
+         {
+            updateActiveRows(false);
+         }
+      });
+      updateActiveRows(true);
+   }
+
+   // Brings the active rows up to date with the rows in view (or with all
+   // the rows, when not virtualized), drawing them if they've changed.
+   // Returns true if the active rows were drawn.
+   private boolean updateActiveRows(boolean force)
+   {
+      int n = lines_.size();
+      int firstActiveRow = 0;
+      int lastActiveRow = n - 1;
+      if (scrollPanel_ != null)
+      {
+         double rowHeight = getRowHeight();
+         int viewTop = scrollPanel_.getAbsoluteTop() -
+                       getTableBodyElement().getAbsoluteTop();
+         int viewBottom = viewTop + scrollPanel_.getOffsetHeight();
+         int firstVisibleRow = (int) (Math.max(0, viewTop) / rowHeight);
+         int lastVisibleRow = (int) (Math.max(0, viewBottom) / rowHeight);
+
+         // keep the active rows until the view gets close to their edges
+         if (!force &&
+             (firstActiveRow_ == 0 ||
+              firstVisibleRow - firstActiveRow_ >= ROW_MARGIN) &&
+             (lastActiveRow_ == n - 1 ||
+              lastActiveRow_ - lastVisibleRow >= ROW_MARGIN))
+         {
+            return false;
+         }
+
+         firstActiveRow = Math.max(0, Math.min(firstVisibleRow - ROW_PADDING,
+                                               n - 1));
+         lastActiveRow = Math.min(n - 1, lastVisibleRow + ROW_PADDING);
+      }
+
+      if (force)
+      {
+         firstActiveRow_ = 0;
+         lastActiveRow_ = -1;
+      }
+      else if (firstActiveRow == firstActiveRow_ &&
+               lastActiveRow == lastActiveRow_)
+      {
+         return false;
+      }
+
+      setActiveRows(firstActiveRow, lastActiveRow);
+
+      // the rows' height is only known once some have been drawn; until
+      // then the padding (and so which rows are in view) is estimated
+      if (scrollPanel_ != null && !rowHeightMeasured_)
+      {
+         flush();
+         if (measureRowHeight())
+            updateActiveRows(true);
+      }
+      return true;
+   }
+
+   private void setActiveRows(int firstActiveRow, int lastActiveRow)
+   {
+      // when the active rows are only extended (e.g. as rows are appended),
+      // just the new rows need drawing, along with the previous last row
+      // (which draws the padding below it)
+      int start = firstActiveRow;
+      if (firstActiveRow == firstActiveRow_ && lastActiveRow >= lastActiveRow_)
+         start = Math.max(firstActiveRow, lastActiveRow_);
+
+      firstActiveRow_ = firstActiveRow;
+      lastActiveRow_ = lastActiveRow;
+
+      setRowCount(lines_.size());
+      setVisibleRange(firstActiveRow_,
+                      Math.max(0, lastActiveRow_ - firstActiveRow_ + 1));
+      if (start <= lastActiveRow_)
+         setRowData(start, lines_.subList(start, lastActiveRow_ + 1));
+   }
+
+   // Measures the height of the drawn rows (which is the same for every row
+   // when virtualized) from their positions, as the height of each row may
+   // be fractional. Returns false if they can't be measured, e.g. if the
+   // table isn't showing.
+   private boolean measureRowHeight()
+   {
+      TableRowElement firstRow = null;
+      TableRowElement lastRow = null;
+      int count = 0;
+      NodeList<TableRowElement> rows = getTableBodyElement().getRows();
+      for (int i = 0; i < rows.getLength(); i++)
+      {
+         TableRowElement row = rows.getItem(i);
+         if (row.hasClassName(RES.cellTableStyle().padding()))
+            continue;
+
+         if (firstRow == null)
+            firstRow = row;
+         lastRow = row;
+         count++;
+      }
+
+      if (count < 2)
+         return false;
+
+      double rowHeight = (double) (lastRow.getOffsetTop() -
+                                   firstRow.getOffsetTop()) / (count - 1);
+      if (rowHeight <= 0)
+         return false;
+
+      rowHeight_ = rowHeight;
+      rowHeightMeasured_ = true;
+      return true;
+   }
+
+   private double getRowHeight()
+   {
+      return rowHeight_ > 0 ? rowHeight_ : ESTIMATED_ROW_HEIGHT;
+   }
+
+   // the offset of the given row from the top of the table, when virtualized
+   private int getRowTop(int index)
+   {
+      if (scrollPanel_ == null)
+         return 0;
+      return (int) Math.round(index * getRowHeight());
+   }
+
+   // draws the row again (e.g. as its selection has changed), if it's active
+   private void refreshRow(int index)
+   {
+      if (index < firstActiveRow_ || index > lastActiveRow_)
+         return;
+
+      ArrayList<ChunkOrLine> list = new ArrayList<ChunkOrLine>();
+      list.add(lines_.get(index));
+      setRowData(index, list);
+   }
+
+   // computes the borders of the rows from the given row onwards
+   private void updateBorders(int start)
+   {
+      for (int i = start; i < lines_.size(); i++)
       {
          ChunkOrLine chunkOrLine = lines_.get(i);
          Line line = chunkOrLine.getLine();
@@ -466,34 +711,41 @@ public class LineTableView extends MultiSelectCellTable<ChunkOrLine> implements
          if (useEndBorder_ && i == lines_.size() - 1)
             endRows_.add(i);
 
-         if (newState != state)
+         if (newState != borderState_)
          {
             // Note: endRows_ doesn't include the borders between insertions and
             // deletions, or vice versa. This is to avoid 2px borders between
             // these regions when just about everything else is 1px.
-            if (state != Line.Type.Same && newState == Line.Type.Same && !isChunk)
+            if (borderState_ != Line.Type.Same && newState == Line.Type.Same && !isChunk)
                endRows_.add(i-1);
-            if (!suppressNextStart && newState != Line.Type.Same)
+            if (!suppressNextStart_ && newState != Line.Type.Same)
                startRows_.add(i);
 
-            state = newState;
+            borderState_ = newState;
          }
 
-         suppressNextStart = isChunk;
+         suppressNextStart_ = isChunk;
       }
    }
 
    @Override
    protected boolean canSelectVisibleRow(int visibleRow)
    {
-      if (visibleRow < 0 || visibleRow >= lines_.size())
+      int index = getPageStart() + visibleRow;
+      if (visibleRow < 0 || index > lastActiveRow_)
          return false;
 
-      Line line = lines_.get(visibleRow).getLine();
+      Line line = lines_.get(index).getLine();
       return line != null && (line.getType() == Type.Insertion
                               || line.getType() == Type.Deletion);
    }
 
+   @Override
+   protected List<ChunkOrLine> getAllItems()
+   {
+      return lines_;
+   }
+
    @Override
    public void clear()
    {
@@ -550,9 +802,23 @@ public class LineTableView extends MultiSelectCellTable<ChunkOrLine> implements
    private HashSet<Integer> endRows_ = new HashSet<Integer>();
    private boolean useStartBorder_ = false;
    private boolean useEndBorder_ = true;
+   private Line.Type borderState_;
+   private boolean suppressNextStart_;
+   // when virtualized (given a scroll panel), only the active rows are
+   // drawn; otherwise, every row is active
+   private ScrollPanel scrollPanel_;
+   private int firstActiveRow_;
+   private int lastActiveRow_ = -1;
+   private double rowHeight_;
+   private boolean rowHeightMeasured_;
    // Keep explicit track of the first selected line so we can render it differently
    private ChunkOrLine firstSelectedLine_;
    private static final LineTableViewCellTableResources RES = GWT.create(LineTableViewCellTableResources.class);
    private static final LineActionButtonRenderer blueButtonRenderer_ = LineActionButtonRenderer.createBlue();
    private static final LineActionButtonRenderer grayButtonRenderer_ = LineActionButtonRenderer.createGray();
+   // the rows drawn either side of those in view, and how close the view
+   // can get to the edge of the active rows before they're moved
+   private static final int ROW_PADDING = 200;
+   private static final int ROW_MARGIN = 50;
+   private static final double ESTIMATED_ROW_HEIGHT = 16;
 }
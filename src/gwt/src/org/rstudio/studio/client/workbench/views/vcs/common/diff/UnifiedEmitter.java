@@ -61,6 +61,42 @@ public class UnifiedEmitter
       diffLines_.addAll(lines);
    }
 
+   /**
+    * Returns the chunks containing any of the given lines. These are all the
+    * context needed to emit a patch for the lines; the other chunks would
+    * only add hunks of unchanged lines to it.
+    *
+    * @param chunks The chunks of a patch, in order
+    */
+   public static ArrayList<DiffChunk> getContextChunks(List<DiffChunk> chunks,
+                                                       List<Line> lines)
+   {
+      boolean[] used = new boolean[chunks.size()];
+      for (Line line : lines)
+      {
+         // a chunk's lines follow its header in diff index order, so the
+         // line belongs to the last chunk starting before it
+         int lo = 0;
+         int hi = chunks.size();
+         while (lo < hi)
+         {
+            int mid = (lo + hi) >>> 1;
+            if (chunks.get(mid).getDiffIndex() < line.getDiffIndex())
+               lo = mid + 1;
+            else
+               hi = mid;
+         }
+         if (lo > 0)
+            used[lo - 1] = true;
+      }
+
+      ArrayList<DiffChunk> result = new ArrayList<DiffChunk>();
+      for (int i = 0; i < used.length; i++)
+         if (used[i])
+            result.add(chunks.get(i));
+      return result;
+   }
+
    public String createPatch(boolean includeFileHeader)
    {
       prepareList(contextLines_, Type.Insertion);
@@ -242,6 +242,8 @@ public class GitReviewPanel extends ResizeComposite implements Display
       Widget widget = GWT.<Binder>create(Binder.class).createAndBindUi(this);
       initWidget(widget);
 
+      lines_.setScrollPanel(diffScroll_);
+
       topToolbar_.addStyleName(RES.styles().toolbar());
       topToolbar_.getWrapper().addStyleName(RES.styles().toolbarInnerWrapper());
 
@@ -498,12 +500,18 @@ public class GitReviewPanel extends ResizeComposite implements Display
       int vscroll = diffScroll_.getVerticalScrollPosition();
       int hscroll = diffScroll_.getHorizontalScrollPosition();
 
-      getLineTableDisplay().setData(lines, patchMode);
+      lines_.setData(lines, patchMode);
 
       diffScroll_.setVerticalScrollPosition(vscroll);
       diffScroll_.setHorizontalScrollPosition(hscroll);
    }
 
+   @Override
+   public void appendData(ArrayList<ChunkOrLine> lines)
+   {
+      lines_.appendData(lines);
+   }
+
    @Override
    public HasText getCommitMessage()
    {
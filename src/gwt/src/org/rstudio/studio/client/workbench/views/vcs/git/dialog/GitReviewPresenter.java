@@ -16,6 +16,7 @@ package org.rstudio.studio.client.workbench.views.vcs.git.dialog;
 
 import com.google.gwt.core.client.JsArray;
 import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.RepeatingCommand;
 import com.google.gwt.core.client.Scheduler.ScheduledCommand;
 import com.google.gwt.dom.client.NativeEvent;
 import com.google.gwt.event.dom.client.*;
@@ -112,6 +113,7 @@ public class GitReviewPresenter implements ReviewPresenter
       HasValue<Boolean> getCommitIsAmend();
 
       void setData(ArrayList<ChunkOrLine> lines, PatchMode patchMode);
+      void appendData(ArrayList<ChunkOrLine> lines);
 
       HasClickHandlers getOverrideSizeWarningButton();
       void showSizeWarning(long sizeInBytes);
@@ -179,7 +181,9 @@ public class GitReviewPresenter implements ReviewPresenter
       public void onDiffLinesAction(DiffLinesActionEvent event)
       {
          ArrayList<Line> lines = view_.getLineTableDisplay().getSelectedLines();
-         doPatch(event.getAction(), lines, activeChunks_);
+         doPatch(event.getAction(),
+                 lines,
+                 UnifiedEmitter.getContextChunks(activeChunks_, lines));
       }
 
       private void doPatch(Action action,
@@ -809,28 +813,12 @@ public class GitReviewPresenter implements ReviewPresenter
                   String response = diffResult.getDecodedValue();
                   if (response.equals(currentResponse_))
                      return;
-                  currentResponse_ = response;
                   currentSourceEncoding_ = diffResult.getSourceEncoding();
 
-                  UnifiedParser parser = new UnifiedParser(response);
-                  parser.nextFilePair();
-
-                  ArrayList<ChunkOrLine> allLines = new ArrayList<ChunkOrLine>();
-
-                  activeChunks_.clear();
-                  for (DiffChunk chunk;
-                       null != (chunk = parser.nextChunk());)
-                  {
-                     activeChunks_.add(chunk);
-                     allLines.add(new ChunkOrLine(chunk));
-                     for (Line line : chunk.getLines())
-                        allLines.add(new ChunkOrLine(line));
-                  }
-
                   view_.setShowActions(
                         !"??".equals(item.getStatus()) &&
                         !"UU".equals(item.getStatus()));
-                  view_.setData(allLines, patchMode);
+                  parseDiff(response, patchMode, token);
                }
 
                @Override
@@ -848,8 +836,76 @@ public class GitReviewPresenter implements ReviewPresenter
             });
    }
 
+   // Parses the diff a slice at a time, so that large diffs don't block the
+   // UI. A newly selected file is shown as it's parsed; when refreshing the
+   // file already shown, the old diff is kept until the new one is complete
+   // (preserving the scroll position, and the chunks selected lines refer to).
+   private void parseDiff(final String response,
+                          final PatchMode patchMode,
+                          final Token token)
+   {
+      final UnifiedParser parser = new UnifiedParser(response);
+      parser.nextFilePair();
+
+      final boolean progressive = currentResponse_ == null;
+      final ArrayList<DiffChunk> chunks = new ArrayList<DiffChunk>();
+      final ArrayList<ChunkOrLine> allLines = new ArrayList<ChunkOrLine>();
+      if (progressive)
+      {
+         activeChunks_ = chunks;
+         view_.setData(new ArrayList<ChunkOrLine>(), patchMode);
+      }
+
+      Scheduler.get().scheduleIncremental(new RepeatingCommand()
+      {
+         @Override
+         public boolean execute()
+         {
+            if (token.isInvalid())
+               return false;
+
+            ArrayList<ChunkOrLine> lines = new ArrayList<ChunkOrLine>();
+            long deadline = System.currentTimeMillis() + PARSE_SLICE_MS;
+            boolean done = false;
+            while (System.currentTimeMillis() < deadline)
+            {
+               DiffChunk chunk = parser.nextChunk();
+               if (chunk == null)
+               {
+                  done = true;
+                  break;
+               }
+
+               chunks.add(chunk);
+               lines.add(new ChunkOrLine(chunk));
+               for (Line line : chunk.getLines())
+                  lines.add(new ChunkOrLine(line));
+            }
+
+            if (progressive)
+            {
+               view_.appendData(lines);
+            }
+            else
+            {
+               allLines.addAll(lines);
+               if (done)
+               {
+                  activeChunks_ = chunks;
+                  view_.setData(allLines, patchMode);
+               }
+            }
+
+            if (done)
+               currentResponse_ = response;
+            return !done;
+         }
+      });
+   }
+
    private void clearDiff()
    {
+      diffInvalidation_.invalidate();
       softModeSwitch_ = false;
       currentResponse_ = null;
       currentFilename_ = null;
@@ -947,4 +1003,7 @@ public class GitReviewPresenter implements ReviewPresenter
    private final int gitCommitLargeFileSize_;
 
    private boolean overrideSizeWarning_ = false;
+
+   // time spent parsing the diff before yielding to the browser
+   private static final int PARSE_SLICE_MS = 20;
 }
@@ -134,7 +134,9 @@ public class SVNReviewPresenter implements ReviewPresenter
       public void onDiffLinesAction(DiffLinesActionEvent event)
       {
          ArrayList<Line> lines = view_.getLineTableDisplay().getSelectedLines();
-         doPatch(event.getAction(), lines, activeChunks_);
+         doPatch(event.getAction(),
+                 lines,
+                 UnifiedEmitter.getContextChunks(activeChunks_, lines));
       }
 
       private void doPatch(Action action,
@@ -0,0 +1,204 @@
+
+var ScopeManager = require("mode/r_scope_tree").ScopeManager;
+
+// Builds scope trees for a toy language in the same way as the R code model:
+// a line 'name {' opens a function scope, a line '}' closes it, and the
+// tokenizer state at the end of each row is the number of open braces.
+function ScopeBuilder(lines) {
+   this.lines = lines.slice();
+   this.scopes = new ScopeManager();
+}
+
+ScopeBuilder.prototype.parse = function() {
+
+   var scopes = this.scopes;
+   var row = scopes.getParsePosition().row;
+   var lastRow = row;
+
+   while (row < this.lines.length)
+   {
+      if (row !== lastRow)
+      {
+         for (var i = lastRow; i < row; i++)
+            scopes.setRowState(i, this.stateAt(i));
+
+         if (scopes.hasTail() && scopes.mergeTail(row, this.stateAt(row - 1)))
+         {
+            // continue from where the previous parse left off
+            if (scopes.getParsePosition().row < this.lines.length)
+               return this.parse();
+            return;
+         }
+
+         lastRow = row;
+      }
+
+      var line = this.lines[row];
+      var match = /^\s*(\w+) \{$/.exec(line);
+      if (match)
+      {
+         var column = line.indexOf(match[1]);
+         scopes.onFunctionScopeStart(
+            match[1],
+            {row: row, column: column},
+            {row: row, column: line.length},
+            match[1],
+            []);
+      }
+      else if (/^\s*\}$/.test(line))
+      {
+         scopes.onScopeEnd({row: row, column: line.indexOf("}") + 1});
+      }
+
+      row++;
+   }
+
+   for (var i = lastRow; i < row; i++)
+      scopes.setRowState(i, this.stateAt(i));
+   scopes.setParsePosition({row: row, column: 0});
+};
+
+ScopeBuilder.prototype.stateAt = function(row) {
+   var depth = 0;
+   for (var i = 0; i <= row; i++)
+   {
+      if (/\{$/.test(this.lines[i]))
+         depth++;
+      else if (/^\s*\}$/.test(this.lines[i]))
+         depth--;
+   }
+   return "depth" + depth;
+};
+
+ScopeBuilder.prototype.insertLines = function(row, lines) {
+   var args = [row, 0].concat(lines);
+   this.lines.splice.apply(this.lines, args);
+   this.scopes.invalidateFrom({row: row, column: 0}, {
+      action: "insert",
+      start: {row: row, column: 0},
+      end: {row: row + lines.length, column: 0}
+   });
+};
+
+ScopeBuilder.prototype.removeLines = function(row, count) {
+   this.lines.splice(row, count);
+   this.scopes.invalidateFrom({row: row, column: 0}, {
+      action: "remove",
+      start: {row: row, column: 0},
+      end: {row: row + count, column: 0}
+   });
+};
+
+ScopeBuilder.prototype.functions = function() {
+   return this.scopes.getScopeList();
+};
+
+var threeFunctions = [
+   "a {",
+   "   x",
+   "   y",
+   "}",
+   "",
+   "b {",
+   "   z",
+   "}",
+   "",
+   "c {",
+   "}"
+];
+
+QUnit.module("R Scope Tree");
+
+QUnit.test("Scopes following an edit are re-used", function(assert) {
+   var builder = new ScopeBuilder(threeFunctions);
+   builder.parse();
+   assert.deepEqual(builder.scopes.takeChangedRows(builder.lines.length), null);
+
+   var b = builder.functions()[1];
+   var c = builder.functions()[2];
+
+   builder.insertLines(2, ["   w"]);
+   builder.parse();
+
+   var functions = builder.functions();
+   assert.equal(functions.length, 3);
+   assert.ok(functions[1] === b);
+   assert.ok(functions[2] === c);
+   assert.equal(b.preamble.row, 6);
+   assert.equal(b.end.row, 8);
+   assert.equal(c.preamble.row, 10);
+   assert.equal(functions[0].end.row, 4);
+
+   // only the rows up to the first re-used scope were re-parsed
+   assert.deepEqual(builder.scopes.takeChangedRows(builder.lines.length), [1, 6]);
+   assert.deepEqual(builder.scopes.takeChangedRows(builder.lines.length), [0, 0]);
+});
+
+QUnit.test("Scopes are re-parsed when an edit opens a scope", function(assert) {
+   var builder = new ScopeBuilder(threeFunctions);
+   builder.parse();
+   builder.scopes.takeChangedRows(builder.lines.length);
+
+   var b = builder.functions()[1];
+
+   // the rest of the document is now within 'a'
+   builder.insertLines(2, ["   inner {"]);
+   builder.parse();
+
+   var functions = builder.functions();
+   assert.equal(functions.length, 1);
+   assert.equal(functions[0].$children.length, 3);
+   assert.ok(functions[0].$children[1] !== b);
+   assert.equal(functions[0].$children[1].preamble.row, 6);
+   assert.deepEqual(builder.scopes.takeChangedRows(builder.lines.length),
+                    [1, builder.lines.length]);
+});
+
+QUnit.test("Detached scopes move with removed rows", function(assert) {
+   var builder = new ScopeBuilder(threeFunctions);
+   builder.parse();
+
+   var c = builder.functions()[2];
+
+   // remove the body of 'b'
+   builder.removeLines(6, 1);
+   builder.parse();
+
+   var functions = builder.functions();
+   assert.equal(functions.length, 3);
+   assert.ok(functions[2] === c);
+   assert.equal(c.preamble.row, 8);
+   assert.equal(functions[1].end.row, 6);
+});
+
+QUnit.test("Detached scopes within removed rows are dropped", function(assert) {
+   var builder = new ScopeBuilder(threeFunctions);
+   builder.parse();
+
+   var c = builder.functions()[2];
+
+   // remove 'b' entirely
+   builder.removeLines(4, 4);
+   builder.parse();
+
+   var functions = builder.functions();
+   assert.equal(functions.length, 2);
+   assert.equal(functions[0].label, "a");
+   assert.ok(functions[1] === c);
+   assert.equal(c.preamble.row, 5);
+});
+
+QUnit.test("Changed rows accumulate across edits", function(assert) {
+   var builder = new ScopeBuilder(threeFunctions);
+   builder.parse();
+   builder.scopes.takeChangedRows(builder.lines.length);
+
+   builder.insertLines(7, ["   v"]);
+   builder.parse();
+
+   // an edit above the previous one moves its re-parsed rows down
+   builder.insertLines(1, ["   u"]);
+   builder.parse();
+
+   assert.deepEqual(builder.scopes.takeChangedRows(builder.lines.length), [0, 11]);
+});
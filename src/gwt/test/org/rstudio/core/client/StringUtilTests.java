@@ -308,4 +308,17 @@ public class StringUtilTests extends GWTTestCase
       assertEquals(StringUtil.charAt(str, 2), 'c');
       assertEquals(StringUtil.charAt(str, 3), 'd');
    }
+
+   public void testCrc32Utf16()
+   {
+      // the same values as documentContentsHash() on the server
+      assertEquals("00000000", StringUtil.crc32Utf16(""));
+      assertEquals("ad957ab0", StringUtil.crc32Utf16("abc"));
+      assertEquals("825affed",
+                   StringUtil.crc32Utf16("caf\u00e9 \u4e2d \ud83d\ude00"));
+
+      // a one character change at the same length changes the hash
+      assertFalse(StringUtil.crc32Utf16("y <- 2").equals(
+                  StringUtil.crc32Utf16("y <-32")));
+   }
 }
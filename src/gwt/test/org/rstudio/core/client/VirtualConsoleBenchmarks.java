@@ -0,0 +1,124 @@
+/*
+ * VirtualConsoleBenchmarks.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client;
+
+import java.util.TreeMap;
+
+import com.google.gwt.dom.client.Document;
+import com.google.gwt.dom.client.PreElement;
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Timings for console output; run with "ant benchmark" rather than as part
+ * of the unit tests.
+ */
+public class VirtualConsoleBenchmarks extends GWTTestCase
+{
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudioTests";
+   }
+
+   public void testCarriageReturnThroughput()
+   {
+      PreElement ele = Document.get().createPreElement();
+      VirtualConsole vc = new VirtualConsole(ele,
+                                             new VirtualConsoleTests.FakePrefs());
+
+      // some existing (styled) output above the progress bar
+      for (int i = 0; i < 2000; i++)
+         vc.submit("line " + i + "\n", i % 2 == 0 ? "a" : "b");
+
+      // a styled progress bar, redrawn with a carriage return on each update
+      final int updates = 5000;
+      final int width = 50;
+      long start = System.currentTimeMillis();
+      for (int i = 0; i <= updates; i++)
+      {
+         int filled = i * width / updates;
+         vc.submit("\r" + VirtualConsoleTests.setCsiCode(AnsiCode.FOREGROUND_MIN + 2) +
+                   VirtualConsoleTests.repeat("=", filled) +
+                   VirtualConsoleTests.setCsiCode(AnsiCode.RESET_FOREGROUND) +
+                   VirtualConsoleTests.repeat(" ", width - filled) + " " +
+                   (i * 100 / updates) + "%");
+      }
+      long elapsed = System.currentTimeMillis() - start;
+
+      Debug.log("VirtualConsole: " + updates + " carriage return updates " +
+                "below 2000 styled lines in " + elapsed + "ms");
+
+      assertTrue(vc.toString().endsWith(
+            "\n" + VirtualConsoleTests.repeat("=", width) + " 100%"));
+   }
+
+   public void testRangeIndexUpdates()
+   {
+      // insertions and removals shift the entries after them; console output
+      // works at the end of the index (cheap), while the worst case is the
+      // start of it; compared with the TreeMap the index replaced
+      final int runs = 20000;
+      final int updates = 5000;
+
+      ConsoleRangeIndex<String> index = new ConsoleRangeIndex<String>();
+      TreeMap<Integer, String> tree = new TreeMap<Integer, String>();
+      for (int i = 0; i < runs; i++)
+      {
+         index.put(i * 10, "run" + i);
+         tree.put(i * 10, "run" + i);
+      }
+
+      int lastKey = runs * 10;
+      long start = System.currentTimeMillis();
+      for (int i = 0; i < updates; i++)
+      {
+         index.put(lastKey, "tail");
+         index.remove(lastKey);
+      }
+      long indexTailMs = System.currentTimeMillis() - start;
+
+      start = System.currentTimeMillis();
+      for (int i = 0; i < updates; i++)
+      {
+         index.put(1, "head");
+         index.remove(1);
+      }
+      long indexHeadMs = System.currentTimeMillis() - start;
+
+      start = System.currentTimeMillis();
+      for (int i = 0; i < updates; i++)
+      {
+         tree.put(lastKey, "tail");
+         tree.remove(lastKey);
+      }
+      long treeTailMs = System.currentTimeMillis() - start;
+
+      start = System.currentTimeMillis();
+      for (int i = 0; i < updates; i++)
+      {
+         tree.put(1, "head");
+         tree.remove(1);
+      }
+      long treeHeadMs = System.currentTimeMillis() - start;
+
+      Debug.log("ConsoleRangeIndex (" + runs + " runs, " + updates +
+                " insert/remove pairs): " + indexTailMs + "ms at the end, " +
+                indexHeadMs + "ms at the start; TreeMap " + treeTailMs +
+                "ms at the end, " + treeHeadMs + "ms at the start");
+
+      assertEquals(runs, index.size());
+      assertEquals(runs, tree.size());
+   }
+}
@@ -36,7 +36,7 @@ public class VirtualConsoleTests extends GWTTestCase
       return "org.rstudio.studio.RStudioTests";
    }
    
-   private static class FakePrefs implements VirtualConsole.Preferences
+   static class FakePrefs implements VirtualConsole.Preferences
    {
       @Override
       public int truncateLongLinesInConsoleHistory()
@@ -73,12 +73,12 @@ public class VirtualConsoleTests extends GWTTestCase
       return new VirtualConsole(ele, new FakePrefs());
    }
 
-   private static String setCsiCode(int code)
+   static String setCsiCode(int code)
    {
       return setCsiCode(String.valueOf(code));
    }
 
-   private static String setCsiCode(String code)
+   static String setCsiCode(String code)
    {
       return AnsiCode.CSI + code + AnsiCode.SGR;
    }
@@ -1079,4 +1079,80 @@ public class VirtualConsoleTests extends GWTTestCase
       Assert.assertEquals(expected, ele.getInnerHTML());
       Assert.assertEquals("one two", vc.toString());
    }
+
+   public void testRangeIndex()
+   {
+      ConsoleRangeIndex<String> index = new ConsoleRangeIndex<String>();
+      Assert.assertEquals(-1, index.floorIndex(0));
+
+      for (int i = 0; i < 100; i++)
+         index.put(i * 10, "r" + i);
+      index.put(55, "x");
+      index.put(30, "y");
+
+      Assert.assertEquals(101, index.size());
+      Assert.assertEquals("y", index.get(30));
+      Assert.assertEquals("x", index.valueAt(index.floorIndex(59)));
+      Assert.assertEquals("r5", index.valueAt(index.floorIndex(54)));
+      Assert.assertEquals("r99", index.last());
+
+      Assert.assertEquals("x", index.remove(55));
+      Assert.assertNull(index.remove(55));
+      Assert.assertEquals("r5", index.valueAt(index.floorIndex(59)));
+      Assert.assertEquals(100, index.size());
+   }
+
+   public void testPaging()
+   {
+      PreElement ele = Document.get().createPreElement();
+      VirtualConsole vc = getVC(ele);
+      final int[] completed = {0};
+      vc.setPaging(2, page -> completed[0]++);
+
+      vc.submit("a\nb\nc\nd\ne");
+      vc.submit("\rE", "x");
+      Assert.assertEquals(
+            "<span><span>a\nb\n</span></span>" +
+            "<span><span>c\nd\n</span></span>" +
+            "<span><span></span><span class=\"x\">E</span></span>",
+            ele.getInnerHTML());
+      Assert.assertEquals(2, completed[0]);
+      Assert.assertEquals("a\nb\nc\nd\nE", vc.toString());
+
+      vc.completePage();
+      Assert.assertEquals(3, completed[0]);
+   }
+
+   static String repeat(String text, int count)
+   {
+      StringBuilder builder = new StringBuilder();
+      for (int i = 0; i < count; i++)
+         builder.append(text);
+      return builder.toString();
+   }
+
+   public void testProgressBarBelowStyledOutput()
+   {
+      PreElement ele = Document.get().createPreElement();
+      VirtualConsole vc = getVC(ele);
+
+      // some existing (styled) output above the progress bar
+      for (int i = 0; i < 200; i++)
+         vc.submit("line " + i + "\n", i % 2 == 0 ? "a" : "b");
+
+      final int updates = 100;
+      final int width = 50;
+      for (int i = 0; i <= updates; i++)
+      {
+         int filled = i * width / updates;
+         vc.submit("\r" + setCsiCode(AnsiCode.FOREGROUND_MIN + 2) +
+                   repeat("=", filled) + setCsiCode(AnsiCode.RESET_FOREGROUND) +
+                   repeat(" ", width - filled) + " " + (i * 100 / updates) + "%");
+      }
+
+      String output = vc.toString();
+      Assert.assertTrue(output.startsWith("line 0\nline 1\n"));
+      Assert.assertTrue(output.endsWith("\nline 199\n" + repeat("=", width) +
+                                        " 100%"));
+   }
 }
@@ -0,0 +1,116 @@
+/*
+ * CommandStateBatchBenchmarks.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.command;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+import org.rstudio.core.client.Debug;
+
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Timings for command state changes on tab switches; run with "ant benchmark"
+ * rather than as part of the unit tests.
+ */
+public class CommandStateBatchBenchmarks extends GWTTestCase
+{
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudioTests";
+   }
+
+   public void testTabSwitch()
+   {
+      // 30 open editors of a few different types, each supporting a
+      // different subset of 550 commands; switching tabs disables the
+      // previous editor's commands and enables the new editor's
+      int editors = 30;
+      int commandCount = 550;
+      int switches = 300;
+
+      CommandStateBatchTests.FakeHost host = new CommandStateBatchTests.FakeHost();
+      CommandStateBatch batch = new CommandStateBatch(host);
+      ArrayList<AppCommand> commands = new ArrayList<>();
+      CommandStateBatchTests.EventCounter counter = new CommandStateBatchTests.EventCounter();
+      for (int i = 0; i < commandCount; i++)
+      {
+         AppCommand command = CommandStateBatchTests.createCommand(batch, "command" + i);
+         counter.listen(command);
+         commands.add(command);
+      }
+
+      ArrayList<HashSet<AppCommand>> supported = new ArrayList<>();
+      for (int e = 0; e < editors; e++)
+      {
+         HashSet<AppCommand> editorCommands = new HashSet<>();
+         int type = e % 3;
+         for (int i = 0; i < commandCount; i++)
+            if (i % (type + 2) != 0)
+               editorCommands.add(commands.get(i));
+         supported.add(editorCommands);
+      }
+
+      // previous approach: every change is delivered as it is made (and,
+      // on the desktop, sent to the menu one command at a time)
+      long start = System.currentTimeMillis();
+      HashSet<AppCommand> active = new HashSet<>(commands);
+      for (int s = 0; s < switches; s++)
+         active = switchTab(active, supported.get(s % editors));
+      long unbatchedElapsed = System.currentTimeMillis() - start;
+      int unbatchedEvents = counter.total();
+
+      // batched: each switch is recorded and flushed once it's done
+      counter.enabled_ = counter.visible_ = 0;
+      start = System.currentTimeMillis();
+      for (int s = 0; s < switches; s++)
+      {
+         batch.beginUpdate();
+         active = switchTab(active, supported.get(s % editors));
+         batch.endUpdate();
+         host.runScheduled();
+      }
+      long batchedElapsed = System.currentTimeMillis() - start;
+      int batchedEvents = counter.total();
+
+      Debug.log("Tab switches (" + switches + " across " + editors +
+                " editors, " + commandCount + " commands): " +
+                unbatchedEvents + " events and desktop menu calls in " +
+                unbatchedElapsed + "ms unbatched, " +
+                batchedEvents + " events and " + host.menuUpdates_.size() +
+                " desktop menu calls in " + batchedElapsed + "ms batched");
+
+      assertTrue(batchedEvents < unbatchedEvents);
+   }
+
+   // mirrors Source.manageCommands(true): disable everything the previous
+   // editor supported, then enable everything the new editor supports
+   private static HashSet<AppCommand> switchTab(HashSet<AppCommand> active,
+                                                HashSet<AppCommand> next)
+   {
+      for (AppCommand command : active)
+      {
+         command.setEnabled(false);
+         command.setVisible(false);
+      }
+      for (AppCommand command : next)
+      {
+         command.setEnabled(true);
+         command.setVisible(true);
+      }
+      return next;
+   }
+}
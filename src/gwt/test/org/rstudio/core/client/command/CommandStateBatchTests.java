@@ -0,0 +1,265 @@
+/*
+ * CommandStateBatchTests.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.command;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gwt.junit.client.GWTTestCase;
+import com.google.gwt.user.client.Command;
+
+public class CommandStateBatchTests extends GWTTestCase
+{
+   // holds scheduled flushes until the test runs them
+   static class FakeHost implements CommandStateBatch.Host
+   {
+      @Override
+      public void scheduleFlush(Command flush)
+      {
+         scheduled_.add(flush);
+      }
+
+      @Override
+      public void updateDesktopMenu(List<AppCommand> commands)
+      {
+         menuUpdates_.add(new ArrayList<>(commands));
+      }
+
+      public void runScheduled()
+      {
+         ArrayList<Command> scheduled = new ArrayList<>(scheduled_);
+         scheduled_.clear();
+         for (Command command : scheduled)
+            command.execute();
+      }
+
+      public final ArrayList<Command> scheduled_ = new ArrayList<>();
+      public final ArrayList<List<AppCommand>> menuUpdates_ = new ArrayList<>();
+   }
+
+   // counts the events fired by a set of commands
+   static class EventCounter implements EnabledChangedHandler,
+                                                VisibleChangedHandler
+   {
+      @Override
+      public void onEnabledChanged(AppCommand command)
+      {
+         enabled_++;
+      }
+
+      @Override
+      public void onVisibleChanged(AppCommand command)
+      {
+         visible_++;
+      }
+
+      public void listen(AppCommand command)
+      {
+         command.addEnabledChangedHandler(this);
+         command.addVisibleChangedHandler(this);
+      }
+
+      public int total()
+      {
+         return enabled_ + visible_;
+      }
+
+      public int enabled_;
+      public int visible_;
+   }
+
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudioTests";
+   }
+
+   public void testUnbatchedChangesFireImmediately()
+   {
+      FakeHost host = new FakeHost();
+      AppCommand command = createCommand(new CommandStateBatch(host), "a");
+      EventCounter counter = new EventCounter();
+      counter.listen(command);
+
+      command.setEnabled(false);
+      command.setVisible(false);
+      assertEquals(1, counter.enabled_);
+      assertEquals(1, counter.visible_);
+      assertEquals(0, host.scheduled_.size());
+   }
+
+   public void testBatchedChangesDeferredToFlush()
+   {
+      FakeHost host = new FakeHost();
+      CommandStateBatch batch = new CommandStateBatch(host);
+      AppCommand a = createCommand(batch, "a");
+      AppCommand b = createCommand(batch, "b");
+      EventCounter counter = new EventCounter();
+      counter.listen(a);
+      counter.listen(b);
+
+      batch.beginUpdate();
+      a.setEnabled(false);
+      b.setVisible(false);
+
+      // state changes immediately; notifications wait for the flush
+      assertFalse(a.isEnabled());
+      assertFalse(b.isVisible());
+      batch.endUpdate();
+      assertEquals(0, counter.total());
+      assertEquals(1, host.scheduled_.size());
+
+      host.runScheduled();
+      assertEquals(1, counter.enabled_);
+      assertEquals(1, counter.visible_);
+      assertEquals(1, host.menuUpdates_.size());
+      assertEquals(2, host.menuUpdates_.get(0).size());
+      assertFalse(batch.isBatching());
+   }
+
+   public void testToggledCommandFiresNothing()
+   {
+      FakeHost host = new FakeHost();
+      CommandStateBatch batch = new CommandStateBatch(host);
+      AppCommand a = createCommand(batch, "a");
+      AppCommand b = createCommand(batch, "b");
+      EventCounter counter = new EventCounter();
+      counter.listen(a);
+      counter.listen(b);
+
+      batch.beginUpdate();
+      a.setEnabled(false);
+      a.setVisible(false);
+      a.setEnabled(true);
+      a.setVisible(true);
+      b.setEnabled(false);
+      batch.endUpdate();
+      host.runScheduled();
+
+      assertEquals(1, counter.total());
+      assertEquals(1, host.menuUpdates_.size());
+      assertSame(b, host.menuUpdates_.get(0).get(0));
+   }
+
+   public void testNestedUpdatesFlushOnce()
+   {
+      FakeHost host = new FakeHost();
+      CommandStateBatch batch = new CommandStateBatch(host);
+      AppCommand a = createCommand(batch, "a");
+      AppCommand b = createCommand(batch, "b");
+      EventCounter counter = new EventCounter();
+      counter.listen(a);
+      counter.listen(b);
+
+      batch.beginUpdate();
+      a.setEnabled(false);
+      batch.beginUpdate();
+      b.setEnabled(false);
+      batch.endUpdate();
+      assertEquals(0, host.scheduled_.size());
+      batch.endUpdate();
+      assertEquals(0, counter.total());
+      assertEquals(1, host.scheduled_.size());
+
+      host.runScheduled();
+      assertEquals(2, counter.enabled_);
+      assertEquals(1, host.menuUpdates_.size());
+
+      // once flushed, changes are delivered immediately again
+      a.setEnabled(true);
+      assertEquals(3, counter.enabled_);
+   }
+
+   public void testBatchingOnlyDuringUpdate()
+   {
+      FakeHost host = new FakeHost();
+      CommandStateBatch batch = new CommandStateBatch(host);
+      AppCommand a = createCommand(batch, "a");
+
+      assertFalse(batch.isBatching());
+      batch.beginUpdate();
+      assertTrue(batch.isBatching());
+      a.setEnabled(false);
+      batch.endUpdate();
+
+      // a flush is pending, but no update is in progress
+      assertEquals(1, host.scheduled_.size());
+      assertFalse(batch.isBatching());
+   }
+
+   public void testChangeBeforeFlushDeliveredInOrder()
+   {
+      FakeHost host = new FakeHost();
+      CommandStateBatch batch = new CommandStateBatch(host);
+      AppCommand a = createCommand(batch, "a");
+      AppCommand b = createCommand(batch, "b");
+      final ArrayList<String> events = new ArrayList<>();
+      a.addEnabledChangedHandler((command) -> events.add("a enabled"));
+      a.addVisibleChangedHandler((command) -> events.add("a visible"));
+      b.addEnabledChangedHandler((command) -> events.add("b enabled"));
+
+      batch.beginUpdate();
+      a.setEnabled(false);
+      b.setEnabled(false);
+      batch.endUpdate();
+
+      // a change made after the update but before its flush is delivered
+      // immediately, after the update's change to the same command
+      a.setVisible(false);
+      assertEquals(2, events.size());
+      assertEquals("a enabled", events.get(0));
+      assertEquals("a visible", events.get(1));
+      assertEquals(1, host.menuUpdates_.size());
+
+      // the rest of the update is delivered by the flush, without repeating
+      // what's already been delivered
+      host.runScheduled();
+      assertEquals(3, events.size());
+      assertEquals("b enabled", events.get(2));
+      assertEquals(2, host.menuUpdates_.size());
+      assertEquals(1, host.menuUpdates_.get(1).size());
+      assertSame(b, host.menuUpdates_.get(1).get(0));
+   }
+
+   public void testFlushDuringUpdateWaitsForEnd()
+   {
+      FakeHost host = new FakeHost();
+      CommandStateBatch batch = new CommandStateBatch(host);
+      AppCommand a = createCommand(batch, "a");
+      EventCounter counter = new EventCounter();
+      counter.listen(a);
+
+      batch.beginUpdate();
+      a.setEnabled(false);
+      batch.endUpdate();
+      batch.beginUpdate();
+      host.runScheduled();
+      assertEquals(0, counter.total());
+
+      a.setVisible(false);
+      batch.endUpdate();
+      host.runScheduled();
+      assertEquals(1, counter.enabled_);
+      assertEquals(1, counter.visible_);
+      assertEquals(1, host.menuUpdates_.size());
+   }
+
+   static AppCommand createCommand(CommandStateBatch batch, String id)
+   {
+      AppCommand command = new AppCommand(batch);
+      command.setId(id);
+      return command;
+   }
+}
@@ -0,0 +1,185 @@
+/*
+ * SortedKeyedListTests.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.container;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+
+import com.google.gwt.junit.client.GWTTestCase;
+import com.google.gwt.view.client.ProvidesKey;
+
+public class SortedKeyedListTests extends GWTTestCase
+{
+   // an object in an environment: sorted by category, then name
+   private static class Item
+   {
+      public Item(String name, int category)
+      {
+         name_ = name;
+         category_ = category;
+      }
+
+      @Override
+      public String toString()
+      {
+         return name_;
+      }
+
+      public final String name_;
+      public final int category_;
+   }
+
+   private static final Comparator<Item> BY_CATEGORY = new Comparator<Item>()
+   {
+      @Override
+      public int compare(Item first, Item second)
+      {
+         int result = first.category_ - second.category_;
+         return result != 0 ? result : first.name_.compareTo(second.name_);
+      }
+   };
+
+   private static final ProvidesKey<Item> KEY = new ProvidesKey<Item>()
+   {
+      @Override
+      public Object getKey(Item item)
+      {
+         return item.name_;
+      }
+   };
+
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudioTests";
+   }
+
+   private static String names(ArrayList<Item> list)
+   {
+      StringBuilder builder = new StringBuilder();
+      for (Item item : list)
+         builder.append(item.name_).append(" ");
+      return builder.toString().trim();
+   }
+
+   public void testPutKeepsListSorted()
+   {
+      ArrayList<Item> list = new ArrayList<Item>();
+      SortedKeyedList<Item> items = new SortedKeyedList<Item>(list, BY_CATEGORY, KEY);
+
+      assertEquals(0, items.put(new Item("c", 1)));
+      assertEquals(0, items.put(new Item("a", 1)));
+      assertEquals(0, items.put(new Item("df", 0)));
+      assertEquals(3, items.put(new Item("f", 2)));
+      assertEquals(2, items.put(new Item("b", 1)));
+      assertEquals("df a b c f", names(list));
+      assertEquals(2, items.indexOf("b"));
+      assertEquals(-1, items.indexOf("z"));
+   }
+
+   public void testPutReplacesByKey()
+   {
+      ArrayList<Item> list = new ArrayList<Item>();
+      SortedKeyedList<Item> items = new SortedKeyedList<Item>(list, BY_CATEGORY, KEY);
+      items.put(new Item("a", 1));
+      items.put(new Item("b", 1));
+      items.put(new Item("c", 1));
+
+      // same position: replaced in place
+      Item b = new Item("b", 1);
+      assertEquals(1, items.put(b));
+      assertSame(b, list.get(1));
+      assertEquals(3, list.size());
+
+      // new category: moved
+      assertEquals(0, items.put(new Item("c", 0)));
+      assertEquals("c a b", names(list));
+      assertEquals(3, items.size());
+   }
+
+   public void testRemove()
+   {
+      ArrayList<Item> list = new ArrayList<Item>();
+      SortedKeyedList<Item> items = new SortedKeyedList<Item>(list, BY_CATEGORY, KEY);
+      items.put(new Item("a", 1));
+      items.put(new Item("b", 1));
+
+      assertEquals(0, items.remove("a"));
+      assertEquals(-1, items.remove("a"));
+      assertNull(items.get("a"));
+      assertEquals("b", names(list));
+   }
+
+   public void testIndexOfWithEqualItems()
+   {
+      // compare by category only, so many items compare equal
+      Comparator<Item> byCategory = new Comparator<Item>()
+      {
+         @Override
+         public int compare(Item first, Item second)
+         {
+            return first.category_ - second.category_;
+         }
+      };
+
+      ArrayList<Item> list = new ArrayList<Item>();
+      SortedKeyedList<Item> items = new SortedKeyedList<Item>(list, byCategory, KEY);
+      for (int i = 0; i < 10; i++)
+         items.put(new Item("x" + i, i % 2));
+
+      for (int i = 0; i < list.size(); i++)
+         assertEquals(i, items.indexOf(list.get(i).name_));
+   }
+
+   public void testSetAllAndResort()
+   {
+      ArrayList<Item> list = new ArrayList<Item>();
+      SortedKeyedList<Item> items = new SortedKeyedList<Item>(list, BY_CATEGORY, KEY);
+      ArrayList<Item> all = new ArrayList<Item>();
+      all.add(new Item("b", 0));
+      all.add(new Item("a", 0));
+      all.add(new Item("b", 2));
+      items.setAll(all);
+
+      assertEquals("a b", names(list));
+      assertEquals(2, items.get("b").category_);
+      assertEquals(1, items.indexOf("b"));
+   }
+
+   public void testSetAllKeepsGivenOrderOfEqualItems()
+   {
+      // compare by category only, so items within a category are unordered
+      Comparator<Item> byCategory = new Comparator<Item>()
+      {
+         @Override
+         public int compare(Item first, Item second)
+         {
+            return first.category_ - second.category_;
+         }
+      };
+
+      ArrayList<Item> list = new ArrayList<Item>();
+      SortedKeyedList<Item> items = new SortedKeyedList<Item>(list, byCategory, KEY);
+      ArrayList<Item> all = new ArrayList<Item>();
+      for (int i = 9; i >= 0; i--)
+         all.add(new Item("x" + i, 1));
+      all.add(new Item("y", 0));
+      items.setAll(all);
+
+      assertEquals("y x9 x8 x7 x6 x5 x4 x3 x2 x1 x0", names(list));
+      for (int i = 0; i < list.size(); i++)
+         assertEquals(i, items.indexOf(list.get(i).name_));
+   }
+}
@@ -0,0 +1,60 @@
+/*
+ * RpcRequestBenchmarks.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.jsonrpc;
+
+import org.rstudio.core.client.Debug;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Timings for serializing large requests; run with "ant benchmark" rather
+ * than as part of the unit tests.
+ */
+public class RpcRequestBenchmarks extends GWTTestCase
+{
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudioTests";
+   }
+
+   public void testLargePayload()
+   {
+      // saving a 4MB document with 500 chunk definitions
+      String contents = RpcRequestTests.createContents(4 * 1024 * 1024);
+      JavaScriptObject chunkDefs = RpcRequestTests.createChunkDefs(500);
+
+      // previous approach: params wrapped in JSONValues, serialized by
+      // walking the wrappers
+      long start = System.currentTimeMillis();
+      String wrapped = RpcRequestTests.request(
+            RpcRequestTests.wrapperParams(contents, chunkDefs)).toString();
+      long wrapperMs = System.currentTimeMillis() - start;
+
+      // params built natively with RpcParams, serialized with JSON.stringify
+      start = System.currentTimeMillis();
+      String serialized = RpcRequest.toJson(RpcRequestTests.request(
+            RpcRequestTests.nativeParams(contents, chunkDefs)).getJavaScriptObject());
+      long nativeMs = System.currentTimeMillis() - start;
+
+      Debug.log("RpcRequest serialization of " + serialized.length() +
+                " chars: wrappers " + wrapperMs + "ms, native " +
+                nativeMs + "ms");
+
+      assertTrue(wrapped.length() > contents.length());
+      assertTrue(serialized.length() > contents.length());
+   }
+}
@@ -0,0 +1,109 @@
+/*
+ * RpcRequestTests.java
+ *
+ * Copyright (C) 2009-19 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.jsonrpc;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.json.client.JSONArray;
+import com.google.gwt.json.client.JSONBoolean;
+import com.google.gwt.json.client.JSONNull;
+import com.google.gwt.json.client.JSONNumber;
+import com.google.gwt.json.client.JSONObject;
+import com.google.gwt.json.client.JSONString;
+import com.google.gwt.junit.client.GWTTestCase;
+
+public class RpcRequestTests extends GWTTestCase
+{
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudioTests";
+   }
+
+   static native JavaScriptObject createChunkDefs(int n) /*-{
+      var defs = [];
+      for (var i = 0; i < n; i++)
+         defs.push({ row: i, chunk_id: "c" + i, expansion_state: 0,
+                     options: { label: "chunk \"" + i + "\"" } });
+      return defs;
+   }-*/;
+
+   static String createContents(int bytes)
+   {
+      StringBuilder builder = new StringBuilder();
+      int line = 0;
+      while (builder.length() < bytes)
+         builder.append("x_" + (line++) + " <- c(\"a\", 'b', \"\\t\\u00e9\")\n");
+      return builder.toString();
+   }
+
+   static JSONArray wrapperParams(String contents,
+                                 JavaScriptObject chunkDefs)
+   {
+      JSONArray params = new JSONArray();
+      params.set(0, new JSONString("doc-id"));
+      params.set(1, JSONNull.getInstance());
+      params.set(2, new JSONString("r_source"));
+      params.set(3, new JSONNumber(42));
+      params.set(4, JSONBoolean.getInstance(true));
+      params.set(5, new JSONObject(chunkDefs));
+      params.set(6, new JSONString(contents));
+      return params;
+   }
+
+   static JSONArray nativeParams(String contents,
+                                JavaScriptObject chunkDefs)
+   {
+      return RpcParams.create()
+            .add("doc-id")
+            .add((String) null)
+            .add("r_source")
+            .add(42)
+            .add(true)
+            .add(chunkDefs)
+            .add(contents)
+            .toJSONArray();
+   }
+
+   static JSONObject request(JSONArray params)
+   {
+      JSONObject request = new JSONObject();
+      request.put("method", new JSONString("save_document"));
+      request.put("params", params);
+      return request;
+   }
+
+   public void testNativeSerializationMatchesWrappers()
+   {
+      String contents = createContents(1024);
+      JavaScriptObject chunkDefs = createChunkDefs(10);
+
+      String expected = request(wrapperParams(contents, chunkDefs)).toString();
+      String actual = RpcRequest.toJson(
+            request(nativeParams(contents, chunkDefs)).getJavaScriptObject());
+
+      // compare parsed values (formatting of escapes may differ)
+      assertEquals(RpcRequest.toJson(RpcResponse.parse(expected)),
+                   RpcRequest.toJson(RpcResponse.parse(actual)));
+   }
+
+   public void testUndefinedSerializedAsNull()
+   {
+      assertEquals("[1,null,\"a\"]", RpcRequest.toJson(createSparse()));
+   }
+
+   private static native JavaScriptObject createSparse() /*-{
+      return [1, undefined, "a"];
+   }-*/;
+}
@@ -0,0 +1,103 @@
+/*
+ * EditHunksTests.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.patch;
+
+import com.google.gwt.junit.client.GWTTestCase;
+
+public class EditHunksTests extends GWTTestCase
+{
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudioTests";
+   }
+
+   // applies an edit to both the document and the hunks
+   private String edit(EditHunks hunks, String doc, int offset, int removed, String inserted)
+   {
+      hunks.edit(offset, removed, inserted);
+      return doc.substring(0, offset) + inserted + doc.substring(offset + removed);
+   }
+
+   public void testTypingMergesIntoOneHunk()
+   {
+      EditHunks hunks = new EditHunks();
+      String base = "x <- 1\ny <- 2\n";
+      String doc = base;
+      doc = edit(hunks, doc, 6, 0, "0");
+      doc = edit(hunks, doc, 7, 0, "0");
+      doc = edit(hunks, doc, 8, 0, "0");
+      doc = edit(hunks, doc, 8, 1, "");
+      assertEquals(1, hunks.size());
+      assertEquals(2, hunks.getLengthDelta());
+      assertEquals("x <- 100\ny <- 2\n", doc);
+      assertEquals(doc, hunks.apply(base));
+   }
+
+   public void testSeparateEdits()
+   {
+      EditHunks hunks = new EditHunks();
+      String base = "aaaa\nbbbb\ncccc\n";
+      String doc = base;
+      doc = edit(hunks, doc, 10, 4, "CC");
+      doc = edit(hunks, doc, 0, 0, "# ");
+      doc = edit(hunks, doc, 7, 1, "B");
+      assertEquals(3, hunks.size());
+      assertEquals(doc, hunks.apply(base));
+
+      // deleting across all the hunks collapses them into one
+      doc = edit(hunks, doc, 1, doc.length() - 2, "");
+      assertEquals(1, hunks.size());
+      assertEquals(doc, hunks.apply(base));
+   }
+
+   public void testUndoneEditLeavesNoHunk()
+   {
+      EditHunks hunks = new EditHunks();
+      hunks.edit(3, 0, "abc");
+      hunks.edit(3, 3, "");
+      assertTrue(hunks.isEmpty());
+   }
+
+   public void testApplyRejectsMismatchedBase()
+   {
+      EditHunks hunks = new EditHunks();
+      hunks.edit(10, 5, "x");
+      assertNull(hunks.apply("short"));
+   }
+
+   public void testRandomEdits()
+   {
+      String alphabet = "ab\n";
+      for (int trial = 0; trial < 50; trial++)
+      {
+         EditHunks hunks = new EditHunks();
+         String base = "hello\nworld\nfoo\nbar\n";
+         String doc = base;
+         for (int i = 0; i < 40; i++)
+         {
+            int offset = (int) (Math.random() * (doc.length() + 1));
+            int removed = (int) (Math.random() * Math.min(4, doc.length() - offset + 1));
+            String inserted = "";
+            int count = (int) (Math.random() * 3);
+            for (int j = 0; j < count; j++)
+               inserted += alphabet.charAt((int) (Math.random() * alphabet.length()));
+            doc = edit(hunks, doc, offset, removed, inserted);
+            assertEquals(doc, hunks.apply(base));
+            assertEquals(doc.length() - base.length(), hunks.getLengthDelta());
+         }
+      }
+   }
+}
@@ -0,0 +1,150 @@
+/*
+ * VirtualizedDataGridTests.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.widget;
+
+import java.util.List;
+
+import com.google.gwt.junit.client.GWTTestCase;
+import com.google.gwt.user.cellview.client.TextColumn;
+import com.google.gwt.view.client.ListDataProvider;
+
+public class VirtualizedDataGridTests extends GWTTestCase
+{
+   private static class Grid extends VirtualizedDataGrid<Integer>
+   {
+      public Grid(int rowCount)
+      {
+         addColumn(new TextColumn<Integer>()
+         {
+            @Override
+            public String getValue(Integer object)
+            {
+               return object.toString();
+            }
+         });
+
+         provider_ = new ListDataProvider<Integer>();
+         List<Integer> rows = provider_.getList();
+         for (int i = 0; i < rowCount; i++)
+            rows.add(i);
+         provider_.addDataDisplay(this);
+      }
+
+      @Override
+      public int getRowHeight()
+      {
+         return 20;
+      }
+
+      @Override
+      public int getTotalNumberOfRows()
+      {
+         return provider_.getList().size();
+      }
+
+      private final ListDataProvider<Integer> provider_;
+   }
+
+   // a grid in which odd rows are hidden, and every tenth row is drawn with a
+   // header above it
+   private static class GroupedGrid extends Grid
+   {
+      public GroupedGrid(int rowCount)
+      {
+         super(rowCount);
+      }
+
+      @Override
+      protected int getRowSpan(int index)
+      {
+         if (index % 2 == 1)
+            return 0;
+         return index % 10 == 0 ? 2 : 1;
+      }
+   }
+
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudioTests";
+   }
+
+   public void testSelectRowOutsideActiveRows()
+   {
+      Grid grid = new Grid(1000);
+      grid.setKeyboardSelectedRowIndex(500, false);
+
+      assertEquals(500, grid.getKeyboardSelectedRowIndex());
+      assertEquals(300, grid.getFirstActiveRow());
+      assertEquals(700, grid.getLastActiveRow());
+
+      // the grid itself only holds the active rows
+      assertEquals(300, grid.getVisibleRange().getStart());
+      assertEquals(200, grid.getKeyboardSelectedRow());
+      assertEquals(Integer.valueOf(500), grid.getVisibleItem(200));
+   }
+
+   public void testSelectRowWithinActiveRows()
+   {
+      Grid grid = new Grid(1000);
+      grid.setKeyboardSelectedRowIndex(500, false);
+      grid.setKeyboardSelectedRowIndex(450, false);
+
+      assertEquals(450, grid.getKeyboardSelectedRowIndex());
+      assertEquals(300, grid.getFirstActiveRow());
+   }
+
+   public void testSelectionClampedToRows()
+   {
+      Grid grid = new Grid(1000);
+
+      grid.setKeyboardSelectedRowIndex(5000, false);
+      assertEquals(999, grid.getKeyboardSelectedRowIndex());
+      assertEquals(999, grid.getLastActiveRow());
+
+      grid.setKeyboardSelectedRowIndex(-5, false);
+      assertEquals(0, grid.getKeyboardSelectedRowIndex());
+      assertEquals(0, grid.getFirstActiveRow());
+   }
+
+   public void testKeyboardNavigationPastActiveRows()
+   {
+      Grid grid = new Grid(1000);
+      grid.setKeyboardSelectedRowIndex(500, false);
+
+      // as when pressing down on the last active row
+      grid.setKeyboardSelectedRow(grid.getLastActiveRow() - grid.getFirstActiveRow() + 1, false);
+      assertEquals(701, grid.getKeyboardSelectedRowIndex());
+      assertEquals(501, grid.getFirstActiveRow());
+
+      // and up on the first
+      grid.setKeyboardSelectedRow(-1, false);
+      assertEquals(500, grid.getKeyboardSelectedRowIndex());
+   }
+
+   public void testPaddingFollowsRowSpans()
+   {
+      GroupedGrid grid = new GroupedGrid(1000);
+      grid.setKeyboardSelectedRowIndex(500, false);
+      assertEquals(300, grid.getFirstActiveRow());
+      assertEquals(700, grid.getLastActiveRow());
+
+      // rows 0-299: 150 shown, 30 of them with headers
+      assertEquals(180 * 20, grid.getTopPaddingHeight());
+
+      // rows 701-999: 149 shown, 29 of them with headers
+      assertEquals(178 * 20, grid.getBottomPaddingHeight());
+   }
+}
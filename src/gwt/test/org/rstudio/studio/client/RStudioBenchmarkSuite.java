@@ -0,0 +1,46 @@
+/*
+ * RStudioBenchmarkSuite.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client;
+
+import org.rstudio.core.client.VirtualConsoleBenchmarks;
+import org.rstudio.core.client.command.CommandStateBatchBenchmarks;
+import org.rstudio.core.client.jsonrpc.RpcRequestBenchmarks;
+import org.rstudio.studio.client.workbench.prefs.model.PrefsBenchmarks;
+import org.rstudio.studio.client.workbench.views.console.shell.assist.CompletionRankingBenchmarks;
+import org.rstudio.studio.client.workbench.views.source.editors.text.ace.BackgroundHighlightRegionsBenchmarks;
+import org.rstudio.studio.client.workbench.views.terminal.TerminalOutputQueueBenchmarks;
+
+import com.google.gwt.junit.tools.GWTTestSuite;
+
+import junit.framework.Test;
+
+// Timings logged via Debug.log; run with "ant benchmark". These aren't part
+// of RStudioUnitTestSuite.
+public class RStudioBenchmarkSuite extends GWTTestSuite
+{
+   public static Test suite()
+   {
+      GWTTestSuite suite = new GWTTestSuite("RStudio Benchmark Suite");
+      suite.addTestSuite(TerminalOutputQueueBenchmarks.class);
+      suite.addTestSuite(PrefsBenchmarks.class);
+      suite.addTestSuite(CommandStateBatchBenchmarks.class);
+      suite.addTestSuite(RpcRequestBenchmarks.class);
+      suite.addTestSuite(VirtualConsoleBenchmarks.class);
+      suite.addTestSuite(CompletionRankingBenchmarks.class);
+      suite.addTestSuite(BackgroundHighlightRegionsBenchmarks.class);
+
+      return suite;
+   }
+}
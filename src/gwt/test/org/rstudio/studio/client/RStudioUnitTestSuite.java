@@ -20,15 +20,32 @@ import org.rstudio.core.client.ElementIdsTests;
 import org.rstudio.core.client.StringUtilTests;
 import org.rstudio.core.client.URIUtilsTests;
 import org.rstudio.core.client.VirtualConsoleTests;
+import org.rstudio.core.client.command.CommandStateBatchTests;
+import org.rstudio.core.client.container.SortedKeyedListTests;
 import org.rstudio.core.client.dom.DomUtilsTests;
+import org.rstudio.core.client.jsonrpc.RpcRequestTests;
+import org.rstudio.core.client.patch.EditHunksTests;
+import org.rstudio.core.client.widget.VirtualizedDataGridTests;
 import org.rstudio.studio.client.application.model.SessionScopeTests;
 import org.rstudio.studio.client.common.r.RTokenizerTests;
+import org.rstudio.studio.client.server.remote.ClientEventQueueTests;
+import org.rstudio.studio.client.workbench.prefs.model.PrefsTests;
+import org.rstudio.studio.client.workbench.views.console.shell.assist.CompletionRankingTests;
 import org.rstudio.studio.client.workbench.views.jobs.model.JobManagerTests;
 import org.rstudio.studio.client.workbench.views.jobs.view.JobsListTests;
+import org.rstudio.studio.client.workbench.views.output.find.FindResultContextTests;
+import org.rstudio.studio.client.workbench.views.packages.model.PackageListTests;
+import org.rstudio.studio.client.workbench.views.source.editors.DeferredEditingTargetRestoreCountTests;
+import org.rstudio.studio.client.workbench.views.source.editors.DeferredEditingTargetTests;
+import org.rstudio.studio.client.workbench.views.source.editors.explorer.view.ObjectExplorerTreeModelTests;
+import org.rstudio.studio.client.workbench.views.source.editors.text.ace.BackgroundHighlightRegionsTests;
 // Disabled in v1.3 due to failures. See #4249.
 // import org.rstudio.studio.client.workbench.views.source.editors.text.assist.RChunkHeaderParserTests;
+import org.rstudio.studio.client.workbench.views.terminal.TerminalBufferReloaderTests;
 import org.rstudio.studio.client.workbench.views.terminal.TerminalLocalEchoTests;
+import org.rstudio.studio.client.workbench.views.terminal.TerminalOutputQueueTests;
 import org.rstudio.studio.client.workbench.views.terminal.TerminalSessionSocketTests;
+import org.rstudio.studio.client.workbench.views.vcs.common.diff.UnifiedEmitterTests;
 
 import com.google.gwt.junit.tools.GWTTestSuite;
 
@@ -54,6 +71,23 @@ public class RStudioUnitTestSuite extends GWTTestSuite
       suite.addTestSuite(SessionScopeTests.class);
       suite.addTestSuite(JobsListTests.class);
       suite.addTestSuite(ElementIdsTests.class);
+      suite.addTestSuite(RpcRequestTests.class);
+      suite.addTestSuite(EditHunksTests.class);
+      suite.addTestSuite(CompletionRankingTests.class);
+      suite.addTestSuite(BackgroundHighlightRegionsTests.class);
+      suite.addTestSuite(ObjectExplorerTreeModelTests.class);
+      suite.addTestSuite(UnifiedEmitterTests.class);
+      suite.addTestSuite(TerminalOutputQueueTests.class);
+      suite.addTestSuite(TerminalBufferReloaderTests.class);
+      suite.addTestSuite(FindResultContextTests.class);
+      suite.addTestSuite(SortedKeyedListTests.class);
+      suite.addTestSuite(DeferredEditingTargetTests.class);
+      suite.addTestSuite(PrefsTests.class);
+      suite.addTestSuite(CommandStateBatchTests.class);
+      suite.addTestSuite(PackageListTests.class);
+      suite.addTestSuite(VirtualizedDataGridTests.class);
+      suite.addTestSuite(ClientEventQueueTests.class);
+      suite.addTestSuite(DeferredEditingTargetRestoreCountTests.class);
       
       // Pro-only tests
       
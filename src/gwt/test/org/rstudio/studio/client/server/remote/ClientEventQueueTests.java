@@ -0,0 +1,162 @@
+/*
+ * ClientEventQueueTests.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.server.remote;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import com.google.gwt.junit.client.GWTTestCase;
+
+public class ClientEventQueueTests extends GWTTestCase
+{
+   // a clock which advances by the (fake) cost of each event dispatched
+   private static class FakeHost implements ClientEventQueue.Host
+   {
+      @Override
+      public void dispatch(ClientEvent event)
+      {
+         dispatched_.add(event.getType());
+         Integer cost = costs_.get(event.getType());
+         now_ += cost == null ? 1 : cost;
+      }
+
+      @Override
+      public void scheduleSlices()
+      {
+         scheduled_++;
+      }
+
+      @Override
+      public long now()
+      {
+         return now_;
+      }
+
+      public final ArrayList<String> dispatched_ = new ArrayList<>();
+      public final HashMap<String, Integer> costs_ = new HashMap<>();
+      public int scheduled_ = 0;
+      public long now_ = 0;
+   }
+
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudioTests";
+   }
+
+   public void testScheduledOnceUntilDrained()
+   {
+      FakeHost host = new FakeHost();
+      ClientEventQueue queue = new ClientEventQueue(host);
+      queue.add(createEvent(ClientEvent.ConsoleOutput));
+      queue.add(createEvent(ClientEvent.ConsoleOutput));
+      assertEquals(1, host.scheduled_);
+
+      assertFalse(queue.dispatchSlice());
+      assertEquals(2, host.dispatched_.size());
+
+      queue.add(createEvent(ClientEvent.Busy));
+      assertEquals(2, host.scheduled_);
+   }
+
+   public void testYieldsWhenBudgetSpent()
+   {
+      FakeHost host = new FakeHost();
+      host.costs_.put(ClientEvent.ConsoleOutput, 10);
+      ClientEventQueue queue = new ClientEventQueue(host);
+      for (int i = 0; i < 10; i++)
+         queue.add(createEvent(ClientEvent.ConsoleOutput));
+
+      // 30ms budget at 10ms per event
+      assertTrue(queue.dispatchSlice());
+      assertEquals(3, host.dispatched_.size());
+      assertTrue(queue.dispatchSlice());
+      assertEquals(6, host.dispatched_.size());
+      assertTrue(queue.dispatchSlice());
+      assertFalse(queue.dispatchSlice());
+      assertEquals(10, host.dispatched_.size());
+      assertEquals(1, host.scheduled_);
+   }
+
+   public void testSlowEventDispatchedAlone()
+   {
+      FakeHost host = new FakeHost();
+      host.costs_.put(ClientEvent.ShowEditor, 100);
+      ClientEventQueue queue = new ClientEventQueue(host);
+      queue.add(createEvent(ClientEvent.ShowEditor));
+      queue.add(createEvent(ClientEvent.Busy));
+
+      // at least one event is dispatched per slice, however long it takes
+      assertTrue(queue.dispatchSlice());
+      assertEquals(1, host.dispatched_.size());
+      assertFalse(queue.dispatchSlice());
+      assertEquals(2, host.dispatched_.size());
+   }
+
+   public void testInteractiveEventWaitsForOutputAndYields()
+   {
+      FakeHost host = new FakeHost();
+      host.costs_.put(ClientEvent.ConsoleOutput, 5);
+      ClientEventQueue queue = new ClientEventQueue(host);
+      for (int i = 0; i < 20; i++)
+         queue.add(createEvent(ClientEvent.ConsoleOutput));
+      queue.add(createEvent(ClientEvent.ShowEditor));
+      queue.add(createEvent(ClientEvent.ConsoleOutput));
+
+      // the editor is shown after the output that preceded it, but the
+      // backlog ahead of it is still dispatched in slices
+      int slices = 0;
+      while (queue.dispatchSlice())
+         slices++;
+      assertTrue(slices > 1);
+      assertEquals(22, host.dispatched_.size());
+      assertEquals(ClientEvent.ShowEditor, host.dispatched_.get(20));
+   }
+
+   public void testEventsMergedDuringDispatchAreConsumed()
+   {
+      final ArrayList<String> merged = new ArrayList<>();
+      final ClientEventQueue[] queue = new ClientEventQueue[1];
+      FakeHost host = new FakeHost()
+      {
+         @Override
+         public void dispatch(ClientEvent event)
+         {
+            super.dispatch(event);
+
+            // as with console output, merge the events queued behind this
+            // one into it
+            while (queue[0].peek() != null &&
+                   queue[0].peek().getType().equals(event.getType()))
+            {
+               merged.add(queue[0].poll().getType());
+            }
+         }
+      };
+      queue[0] = new ClientEventQueue(host);
+      queue[0].add(createEvent(ClientEvent.ConsoleOutput));
+      queue[0].add(createEvent(ClientEvent.ConsoleOutput));
+      queue[0].add(createEvent(ClientEvent.ConsoleOutput));
+      queue[0].add(createEvent(ClientEvent.Busy));
+
+      assertFalse(queue[0].dispatchSlice());
+      assertEquals(2, host.dispatched_.size());
+      assertEquals(2, merged.size());
+   }
+
+   private static native ClientEvent createEvent(String type) /*-{
+      return { type: type, data: null };
+   }-*/;
+}
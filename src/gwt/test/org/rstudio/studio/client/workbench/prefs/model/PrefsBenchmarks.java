@@ -0,0 +1,88 @@
+/*
+ * PrefsBenchmarks.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.prefs.model;
+
+import java.util.ArrayList;
+
+import org.rstudio.core.client.Debug;
+
+import com.google.gwt.core.client.JsArray;
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Timings for reading preference values; run with "ant benchmark" rather
+ * than as part of the unit tests.
+ */
+public class PrefsBenchmarks extends GWTTestCase
+{
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudioTests";
+   }
+
+   public void testPrefLookup()
+   {
+      // a session with 50 editors open, each reading 40 prefs as it's set up
+      // (and again as it renders), with prefs spread across the layers
+      int editors = 50;
+      int prefCount = 40;
+      int reads = 20;
+      JsArray<PrefLayer> layers = PrefsTests.createLayers();
+      for (int i = 0; i < 400; i++)
+         layers.get(0).getValues().setInteger("pref_" + i, i);
+      for (int i = 0; i < prefCount; i += 2)
+         layers.get(1).getValues().setInteger("pref_" + i, i + 1);
+      for (int i = 0; i < prefCount; i += 5)
+         layers.get(2).getValues().setInteger("pref_" + i, i + 2);
+
+      PrefsTests.TestPrefs prefs = new PrefsTests.TestPrefs(layers);
+      ArrayList<Prefs.PrefValue<Integer>> values = new ArrayList<>();
+      for (int i = 0; i < prefCount; i++)
+         values.add(prefs.pref(i));
+
+      // uncached: replacing the layers invalidates every cached value, so
+      // each read walks the layers as getValue() did before values were cached
+      int uncachedSum = 0;
+      long start = System.currentTimeMillis();
+      for (int e = 0; e < editors; e++)
+      {
+         for (int r = 0; r < reads; r++)
+         {
+            for (int i = 0; i < prefCount; i++)
+            {
+               prefs.replaceLayers(layers);
+               uncachedSum += values.get(i).getValue();
+            }
+         }
+      }
+      long uncachedElapsed = System.currentTimeMillis() - start;
+
+      int cachedSum = 0;
+      start = System.currentTimeMillis();
+      for (int e = 0; e < editors; e++)
+         for (int r = 0; r < reads; r++)
+            for (int i = 0; i < prefCount; i++)
+               cachedSum += values.get(i).getValue();
+      long cachedElapsed = System.currentTimeMillis() - start;
+
+      Debug.log("Pref lookups (" + editors * reads * prefCount +
+                " reads of " + prefCount + " prefs over 3 layers): " +
+                uncachedElapsed + "ms walking layers, " +
+                cachedElapsed + "ms cached");
+
+      assertEquals(uncachedSum, cachedSum);
+   }
+}
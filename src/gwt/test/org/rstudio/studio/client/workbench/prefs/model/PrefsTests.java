@@ -0,0 +1,147 @@
+/*
+ * PrefsTests.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.prefs.model;
+
+import java.util.ArrayList;
+
+import com.google.gwt.core.client.JsArray;
+import com.google.gwt.junit.client.GWTTestCase;
+
+public class PrefsTests extends GWTTestCase
+{
+   // default, user and project layers
+   static class TestPrefs extends Prefs
+   {
+      public TestPrefs(JsArray<PrefLayer> layers)
+      {
+         super(layers);
+      }
+
+      @Override
+      public int userLayer()
+      {
+         return 1;
+      }
+
+      @Override
+      public int projectLayer()
+      {
+         return 2;
+      }
+
+      public PrefValue<Boolean> flag()
+      {
+         return bool("flag", false);
+      }
+
+      public PrefValue<Integer> size()
+      {
+         return integer("size", 4);
+      }
+
+      public PrefValue<Integer> pref(int i)
+      {
+         return integer("pref_" + i, 0);
+      }
+
+      public void replaceLayers(JsArray<PrefLayer> layers)
+      {
+         UpdatePrefs(layers);
+      }
+   }
+
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudioTests";
+   }
+
+   public void testDefaultValue()
+   {
+      TestPrefs prefs = new TestPrefs(createLayers());
+      assertFalse(prefs.flag().getValue());
+      assertEquals(4, prefs.size().getValue().intValue());
+   }
+
+   public void testGlobalValueWrite()
+   {
+      TestPrefs prefs = new TestPrefs(createLayers());
+      assertFalse(prefs.flag().getValue());
+
+      prefs.flag().setGlobalValue(true);
+      assertTrue(prefs.flag().getValue());
+      assertTrue(prefs.flag().getGlobalValue());
+   }
+
+   public void testProjectValueOverridesGlobal()
+   {
+      TestPrefs prefs = new TestPrefs(createLayers());
+      prefs.size().setGlobalValue(2);
+      assertEquals(2, prefs.size().getValue().intValue());
+
+      prefs.size().setProjectValue(8);
+      assertEquals(8, prefs.size().getValue().intValue());
+      assertEquals(2, prefs.size().getGlobalValue().intValue());
+
+      // the project value still wins
+      prefs.size().setGlobalValue(3);
+      assertEquals(8, prefs.size().getValue().intValue());
+   }
+
+   public void testLayerValueWrite()
+   {
+      TestPrefs prefs = new TestPrefs(createLayers());
+      assertEquals(4, prefs.size().getValue().intValue());
+
+      prefs.size().setValue(PrefLayer.LAYER_PROJECT, 6);
+      assertEquals(6, prefs.size().getValue().intValue());
+   }
+
+   public void testLayerReplacement()
+   {
+      TestPrefs prefs = new TestPrefs(createLayers());
+      assertFalse(prefs.flag().getValue());
+
+      JsArray<PrefLayer> layers = createLayers();
+      layers.get(1).getValues().setBoolean("flag", true);
+      prefs.replaceLayers(layers);
+      assertTrue(prefs.flag().getValue());
+   }
+
+   public void testChangeHandlerSeesNewValue()
+   {
+      final TestPrefs prefs = new TestPrefs(createLayers());
+      final ArrayList<Integer> seen = new ArrayList<>();
+      prefs.size().getValue();
+      prefs.size().addValueChangeHandler(event ->
+      {
+         seen.add(event.getValue());
+         seen.add(prefs.size().getValue());
+      });
+
+      prefs.size().setGlobalValue(5);
+      assertEquals(2, seen.size());
+      assertEquals(5, seen.get(0).intValue());
+      assertEquals(5, seen.get(1).intValue());
+   }
+
+   static native JsArray<PrefLayer> createLayers() /*-{
+      return [
+         { name: "default", values: {} },
+         { name: "user",    values: {} },
+         { name: "project", values: {} }
+      ];
+   }-*/;
+}
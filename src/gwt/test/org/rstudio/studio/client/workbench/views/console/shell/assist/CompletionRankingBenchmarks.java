@@ -0,0 +1,112 @@
+/*
+ * CompletionRankingBenchmarks.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.console.shell.assist;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import org.rstudio.core.client.Debug;
+import org.rstudio.core.client.StringUtil;
+import org.rstudio.studio.client.workbench.codesearch.CodeSearchOracle;
+
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Timings for completion narrowing and ranking; run with "ant benchmark"
+ * rather than as part of the unit tests.
+ */
+public class CompletionRankingBenchmarks extends GWTTestCase
+{
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudioTests";
+   }
+
+   public void testNarrowingAndRanking()
+   {
+      // a completion list about the size of that with the tidyverse and a
+      // few Bioconductor packages attached
+      ArrayList<String> names = new ArrayList<String>();
+      String[] parts = { "read", "write", "get", "set", "as", "is", "gg",
+                         "str", "map", "filter", "select", "plot", "Gene",
+                         "Ranges", "data", "frame", "tbl", "df", "list" };
+      for (int i = 0; names.size() < 50000; i++)
+      {
+         names.add(parts[i % parts.length] +
+                   (i % 3 == 0 ? "_" : ".") +
+                   parts[(i / parts.length) % parts.length] +
+                   (i / (parts.length * parts.length)));
+      }
+      Collections.sort(names);
+
+      String[] keystrokes = { "r", "re", "rea", "read", "read_", "read_c" };
+
+      // previous approach: score on every comparison, narrowing from the
+      // full list on every keystroke
+      long start = System.currentTimeMillis();
+      int sortedCount = 0;
+      for (final String token : keystrokes)
+      {
+         ArrayList<String> matches = new ArrayList<String>();
+         for (String name : names)
+            if (StringUtil.isSubsequence(name, token, true))
+               matches.add(name);
+
+         Collections.sort(matches, (lhs, rhs) ->
+         {
+            int lhsScore = CodeSearchOracle.scoreMatch(lhs, token, false);
+            int rhsScore = CodeSearchOracle.scoreMatch(rhs, token, false);
+            if (lhsScore == rhsScore)
+               return lhs.compareTo(rhs);
+            return lhsScore < rhsScore ? -1 : 1;
+         });
+         sortedCount = matches.size();
+      }
+      long sortElapsed = System.currentTimeMillis() - start;
+
+      // incremental narrowing, with scores computed once and ranked
+      start = System.currentTimeMillis();
+      ArrayList<String> candidates = names;
+      String best = null;
+      for (String token : keystrokes)
+      {
+         final ArrayList<String> matches = new ArrayList<String>();
+         for (String name : candidates)
+            if (StringUtil.isSubsequence(name, token, true))
+               matches.add(name);
+
+         int[] scores = new int[matches.size()];
+         for (int i = 0; i < scores.length; i++)
+            scores[i] = CodeSearchOracle.scoreMatch(matches.get(i), token, false);
+
+         int[] order = CompletionRanking.rank(scores,
+               (lhs, rhs) -> matches.get(lhs).compareTo(matches.get(rhs)));
+
+         candidates = new ArrayList<String>();
+         for (int index : order)
+            candidates.add(matches.get(index));
+         best = candidates.isEmpty() ? null : candidates.get(0);
+      }
+      long rankElapsed = System.currentTimeMillis() - start;
+
+      Debug.log("Completion ranking (" + names.size() + " candidates, " +
+                keystrokes.length + " keystrokes): sorted in " + sortElapsed +
+                "ms, ranked incrementally in " + rankElapsed + "ms");
+
+      assertEquals(sortedCount, candidates.size());
+      assertTrue(best.startsWith("read_"));
+   }
+}
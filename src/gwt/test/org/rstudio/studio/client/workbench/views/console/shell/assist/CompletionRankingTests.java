@@ -0,0 +1,54 @@
+/*
+ * CompletionRankingTests.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.console.shell.assist;
+
+import com.google.gwt.junit.client.GWTTestCase;
+
+public class CompletionRankingTests extends GWTTestCase
+{
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudioTests";
+   }
+
+   public void testRankSortsAllWithinLimit()
+   {
+      int[] scores = { 3, 1, 2, 1, 0 };
+      int[] order = CompletionRanking.rank(scores, (lhs, rhs) -> lhs - rhs, 10);
+      assertEquals("4 1 3 2 0", join(order));
+   }
+
+   public void testRankKeepsOrderOfTail()
+   {
+      int[] scores = { 5, 4, 3, 2, 1, 0, 6, 1 };
+      int[] order = CompletionRanking.rank(scores, (lhs, rhs) -> lhs - rhs, 3);
+
+      // best three sorted, then the rest in their original order
+      assertEquals("5 4 7 0 1 2 3 6", join(order));
+   }
+
+   private static String join(int[] values)
+   {
+      StringBuilder builder = new StringBuilder();
+      for (int i = 0; i < values.length; i++)
+      {
+         if (i > 0)
+            builder.append(' ');
+         builder.append(values[i]);
+      }
+      return builder.toString();
+   }
+}
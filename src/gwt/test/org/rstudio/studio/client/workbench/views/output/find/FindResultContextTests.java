@@ -0,0 +1,69 @@
+/*
+ * FindResultContextTests.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.output.find;
+
+import java.util.ArrayList;
+
+import org.rstudio.studio.client.workbench.views.output.find.model.FindResult;
+
+import com.google.gwt.junit.client.GWTTestCase;
+
+public class FindResultContextTests extends GWTTestCase
+{
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudioTests";
+   }
+
+   private static ArrayList<FindResult> results(String file, int... lines)
+   {
+      ArrayList<FindResult> results = new ArrayList<FindResult>();
+      for (int line : lines)
+         results.add(FindResult.create(file, line, "match on line " + line));
+      return results;
+   }
+
+   public void testMatchesGroupedByFile()
+   {
+      FindResultContext context = new FindResultContext();
+      context.addMatches(results("a.R", 1, 5));
+      context.addMatches(results("b.R", 2));
+      context.addMatches(results("a.R", 9));
+
+      assertEquals(2, context.getFiles().size());
+      assertEquals("a.R", context.getFiles().get(0).getPath());
+      assertEquals("b.R", context.getFiles().get(1).getPath());
+      assertEquals(3, context.getFileForPath("a.R").getCount());
+      assertEquals(9, context.getFileForPath("a.R").getMatches().get(2).getLine());
+      assertEquals(1, context.getFileForPath("b.R").getCount());
+      assertNull(context.getFileForPath("c.R"));
+      assertEquals(4, context.getFindResults().size());
+   }
+
+   public void testMaxLineWidth()
+   {
+      FindResultContext context = new FindResultContext();
+      context.addMatches(results("a.R", 7));
+      assertEquals(1, context.getMaxLineWidth());
+      context.addMatches(results("b.R", 1200, 30));
+      assertEquals(4, context.getMaxLineWidth());
+
+      context.reset();
+      assertEquals(0, context.getMaxLineWidth());
+      assertEquals(0, context.getFiles().size());
+      assertEquals(0, context.getFindResults().size());
+   }
+}
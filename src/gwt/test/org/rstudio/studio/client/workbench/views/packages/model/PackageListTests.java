@@ -0,0 +1,250 @@
+/*
+ * PackageListTests.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.packages.model;
+
+import java.util.Comparator;
+import java.util.List;
+
+import com.google.gwt.core.client.JsArray;
+import com.google.gwt.junit.client.GWTTestCase;
+
+public class PackageListTests extends GWTTestCase
+{
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudioTests";
+   }
+
+   public void testFullStateSortedByLibraryAndName()
+   {
+      PackageList list = new PackageList(LIBRARY_COMPARATOR);
+      JsArray<PackageInfo> packages = JsArray.createArray().cast();
+      packages.push(createPackage("zoo", SYSTEM_LIB, "zoo package"));
+      packages.push(createPackage("Rcpp", USER_LIB, "Rcpp package"));
+      packages.push(createPackage("base", SYSTEM_LIB, "base package"));
+      packages.push(createPackage("dplyr", USER_LIB, "dplyr package"));
+      assertTrue(list.update(createState(V1, packages)));
+
+      assertEquals("dplyr Rcpp base zoo", names(list.getPackages()));
+      assertEquals(V1, list.getVersion());
+      assertTrue(list.getPackages().get(0).isFirstInLibrary());
+      assertFalse(list.getPackages().get(1).isFirstInLibrary());
+      assertTrue(list.getPackages().get(2).isFirstInLibrary());
+      assertFalse(list.getPackages().get(3).isFirstInLibrary());
+   }
+
+   public void testDeltaApplied()
+   {
+      PackageList list = createList(V1, "a", "b", "c", "d");
+
+      JsArray<PackageInfo> added = JsArray.createArray().cast();
+      added.push(createPackage("bb", USER_LIB, "new"));
+      JsArray<PackageInfo> removed = JsArray.createArray().cast();
+      removed.push(createPackage("a", USER_LIB, ""));
+      JsArray<PackageInfo> updated = JsArray.createArray().cast();
+      updated.push(createPackage("c", USER_LIB, "updated"));
+      assertTrue(list.update(createDelta(V1, V2, added, removed, updated)));
+
+      assertEquals("b bb c d", names(list.getPackages()));
+      assertEquals("updated", list.get("c", USER_LIB).getDesc());
+      assertNull(list.get("a", USER_LIB));
+      assertEquals(V2, list.getVersion());
+
+      // the header moves to the new first package
+      assertTrue(list.getPackages().get(0).isFirstInLibrary());
+      assertFalse(list.getPackages().get(1).isFirstInLibrary());
+   }
+
+   public void testDeltaAgainstOtherVersion()
+   {
+      PackageList list = createList(V3, "a", "b");
+      JsArray<PackageInfo> added = JsArray.createArray().cast();
+      added.push(createPackage("c", USER_LIB, ""));
+      JsArray<PackageInfo> none = JsArray.createArray().cast();
+
+      // changes we haven't seen the start of; the full list is needed
+      assertFalse(list.update(createDelta(V1, V2, added, none, none)));
+
+      // changes we already have
+      assertTrue(list.update(createDelta(V2, V3, added, none, none)));
+      assertEquals("a b", names(list.getPackages()));
+
+      // a new list may always be fetched from scratch
+      PackageList empty = new PackageList(LIBRARY_COMPARATOR);
+      assertFalse(empty.update(createDelta(V1, V2, added, none, none)));
+   }
+
+   public void testDeltaFromOtherSession()
+   {
+      // after a restart the new session counts its lists from the start
+      // again; its changes don't apply to the list from the old session
+      PackageList list = createList(V1, "a", "b");
+      JsArray<PackageInfo> added = JsArray.createArray().cast();
+      added.push(createPackage("c", USER_LIB, ""));
+      JsArray<PackageInfo> none = JsArray.createArray().cast();
+      assertFalse(list.update(createDelta("4321-1600000000-1", "4321-1600000000-2",
+                                          added, none, none)));
+      assertEquals("a b", names(list.getPackages()));
+      assertEquals(V1, list.getVersion());
+   }
+
+   public void testSetLoaded()
+   {
+      PackageList list = createList(V1, "a", "b", "c");
+      PackageInfo before = list.get("b", USER_LIB);
+      assertFalse(before.isLoaded());
+
+      list.setLoaded("b", USER_LIB, true);
+      assertTrue(list.get("b", USER_LIB).isLoaded());
+      assertEquals(3, list.getPackages().size());
+      assertSame(list.get("b", USER_LIB), list.getPackages().get(1));
+   }
+
+   public void testFilter()
+   {
+      PackageList list = createList(V1, "ggplot2", "plotly", "gridExtra");
+      JsArray<PackageInfo> added = JsArray.createArray().cast();
+      added.push(createPackage("lattice", SYSTEM_LIB, "Trellis plots"));
+      JsArray<PackageInfo> none = JsArray.createArray().cast();
+      list.update(createDelta(V1, V2, added, none, none));
+
+      // name prefix matches first, then other matches, grouped by library
+      assertEquals("plotly ggplot2 lattice", names(list.filter("plot")));
+      assertEquals("plotly", names(list.filter("PLOTL")));
+      assertEquals("ggplot2 gridExtra plotly lattice",
+                   names(list.filter("")));
+
+      // the list handed out can be changed without affecting the model
+      list.filter("").clear();
+      assertEquals(4, list.getPackages().size());
+   }
+
+   public void testFilterNarrowingMatchesFullSearch()
+   {
+      PackageList list = createLargeList(500);
+      String[] keystrokes = { "p", "pk", "pkg", "pkg1", "kg1", "g12", "pkg12" };
+      for (String filter : keystrokes)
+      {
+         // a fresh list searches every package
+         PackageList fresh = createLargeList(500);
+         assertEquals(names(fresh.filter(filter)), names(list.filter(filter)));
+      }
+   }
+
+   private static PackageList createList(String version, String... names)
+   {
+      JsArray<PackageInfo> packages = JsArray.createArray().cast();
+      for (String name : names)
+         packages.push(createPackage(name, USER_LIB, name + " package"));
+      PackageList list = new PackageList(LIBRARY_COMPARATOR);
+      list.update(createState(version, packages));
+      return list;
+   }
+
+   private static PackageList createLargeList(int count)
+   {
+      PackageList list = new PackageList(LIBRARY_COMPARATOR);
+      list.update(createState(V1, createPackages(count)));
+      return list;
+   }
+
+   private static JsArray<PackageInfo> createPackages(int count)
+   {
+      JsArray<PackageInfo> packages = JsArray.createArray().cast();
+      for (int i = 0; i < count; i++)
+      {
+         String name = i % 50 == 0 ? "ggplot" + i : "pkg" + i;
+         packages.push(createPackage(name,
+                                     i % 3 == 0 ? SYSTEM_LIB : USER_LIB,
+                                     "Tools for " + name));
+      }
+      return packages;
+   }
+
+   private static String names(List<PackageInfo> packages)
+   {
+      StringBuilder builder = new StringBuilder();
+      for (PackageInfo pkgInfo : packages)
+      {
+         if (builder.length() > 0)
+            builder.append(" ");
+         builder.append(pkgInfo.getName());
+      }
+      return builder.toString();
+   }
+
+   private static native PackageInfo createPackage(String name,
+                                                   String library,
+                                                   String desc) /*-{
+      return {
+         name: name,
+         library: library,
+         version: "1.0",
+         desc: desc,
+         loaded: false
+      };
+   }-*/;
+
+   private static native PackageState createState(
+         String version,
+         JsArray<PackageInfo> packages) /*-{
+      return {
+         package_list: packages,
+         version: version
+      };
+   }-*/;
+
+   private static native PackageState createDelta(
+         String baseVersion,
+         String version,
+         JsArray<PackageInfo> added,
+         JsArray<PackageInfo> removed,
+         JsArray<PackageInfo> updated) /*-{
+      return {
+         package_delta: {
+            base_version: baseVersion,
+            added: added,
+            removed: removed,
+            updated: updated
+         },
+         version: version
+      };
+   }-*/;
+
+   // user library packages are listed before system library packages
+   private static final Comparator<PackageInfo> LIBRARY_COMPARATOR =
+         new Comparator<PackageInfo>()
+   {
+      @Override
+      public int compare(PackageInfo o1, PackageInfo o2)
+      {
+         return rank(o1.getLibrary()) - rank(o2.getLibrary());
+      }
+
+      private int rank(String library)
+      {
+         return USER_LIB.equals(library) ? 0 : 1;
+      }
+   };
+
+   // versions as sent by the session, with its process id and start time
+   private static final String V1 = "1234-1600000000-1";
+   private static final String V2 = "1234-1600000000-2";
+   private static final String V3 = "1234-1600000000-3";
+
+   private static final String USER_LIB = "~/R/library";
+   private static final String SYSTEM_LIB = "/usr/lib/R/library";
+}
@@ -0,0 +1,80 @@
+/*
+ * DeferredEditingTargetRestoreCountTests.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.source.editors;
+
+import java.util.ArrayList;
+
+import org.rstudio.studio.client.workbench.views.source.model.SourceDocument;
+
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Counts the editing targets created, and the document contents sent, when
+ * restoring documents eagerly and lazily. These are counts, not timings:
+ * this doesn't run Source.restoreDocuments or build real editors, so it
+ * says nothing about how long a restore takes.
+ */
+public class DeferredEditingTargetRestoreCountTests extends GWTTestCase
+{
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudioTests";
+   }
+
+   public void testRestoreDocuments()
+   {
+      // a session with 50 documents of 20KB each, one of them active
+      int count = 50;
+      StringBuilder contents = new StringBuilder();
+      while (contents.length() < 20 * 1024)
+         contents.append("x <- rnorm(100); summary(x)\n");
+
+      // previous approach: every document is sent with the session info and
+      // an editing target created for it
+      DeferredEditingTargetTests.FakeHost eager =
+            new DeferredEditingTargetTests.FakeHost();
+      int eagerPayload = 0;
+      for (int i = 0; i < count; i++)
+      {
+         SourceDocument doc = DeferredEditingTargetTests.createDocument(
+               "doc" + i, "~/doc" + i + ".R", contents.toString(), false);
+         eagerPayload += doc.getContents().length();
+         eager.createTarget(doc);
+      }
+
+      // lazy restore: placeholders for each, with only the active tab loaded
+      DeferredEditingTargetTests.FakeHost lazy =
+            new DeferredEditingTargetTests.FakeHost();
+      int lazyPayload = 0;
+      ArrayList<DeferredEditingTarget> targets = new ArrayList<>();
+      for (int i = 0; i < count; i++)
+      {
+         SourceDocument doc = DeferredEditingTargetTests.createDocument(
+               "doc" + i, "~/doc" + i + ".R", "", true);
+         lazyPayload += doc.getContents().length();
+         targets.add(new DeferredEditingTarget(doc, null, null, lazy));
+      }
+      targets.get(count - 1).load();
+      lazy.respond(contents.toString());
+
+      assertEquals(count, eager.created_.size());
+      assertEquals(1, lazy.created_.size());
+      assertEquals(count * contents.length(), eagerPayload);
+      assertEquals(0, lazyPayload);
+      assertEquals(1, lazy.fetched_.size());
+      assertTrue(lazy.contentsLoaded_ * count == eager.contentsLoaded_);
+   }
+}
@@ -0,0 +1,275 @@
+/*
+ * DeferredEditingTargetTests.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.source.editors;
+
+import java.util.ArrayList;
+
+import org.rstudio.core.client.CommandWithArg;
+import org.rstudio.core.client.jsonrpc.RpcError;
+import org.rstudio.studio.client.server.ServerError;
+import org.rstudio.studio.client.server.ServerRequestCallback;
+import org.rstudio.studio.client.server.remote.RemoteServerError;
+import org.rstudio.studio.client.workbench.views.source.editors.text.ace.Position;
+import org.rstudio.studio.client.workbench.views.source.model.SourceDocument;
+
+import com.google.gwt.junit.client.GWTTestCase;
+
+public class DeferredEditingTargetTests extends GWTTestCase
+{
+   // an editing target that records the calls made on it
+   private static class RecordingTarget extends DeferredEditingTarget
+   {
+      public RecordingTarget(SourceDocument document)
+      {
+         super(document, null, null, null);
+      }
+
+      @Override
+      public void focus()
+      {
+         calls_.add("focus");
+      }
+
+      @Override
+      public void setCursorPosition(Position position)
+      {
+         calls_.add("cursor " + position.getRow());
+      }
+
+      @Override
+      public void onInitiallyLoaded()
+      {
+         calls_.add("loaded");
+      }
+
+      public final ArrayList<String> calls_ = new ArrayList<>();
+   }
+
+   // a server holding the documents' contents, whose responses are delivered
+   // when the test chooses
+   static class FakeHost implements DeferredEditingTarget.Host
+   {
+      @Override
+      public void fetchDocument(String id,
+                                ServerRequestCallback<SourceDocument> callback)
+      {
+         fetched_.add(id);
+         pending_.add(callback);
+      }
+
+      @Override
+      public EditingTarget createTarget(SourceDocument document)
+      {
+         created_.add(document);
+         contentsLoaded_ += document.getContents().length();
+         return new RecordingTarget(document);
+      }
+
+      @Override
+      public void onLoaded(DeferredEditingTarget placeholder,
+                           EditingTarget target,
+                           SourceDocument document)
+      {
+         loaded_.add(target);
+      }
+
+      public void respond(String contents)
+      {
+         ServerRequestCallback<SourceDocument> callback = pending_.remove(0);
+         String id = fetched_.get(fetched_.size() - 1);
+         callback.onResponseReceived(
+               createDocument(id, "~/" + id + ".R", contents, false));
+      }
+
+      public void fail()
+      {
+         ServerError error = new RemoteServerError(
+               RpcError.create(RpcError.EXECUTION_ERROR, "failed"));
+         pending_.remove(0).onError(error);
+      }
+
+      public final ArrayList<String> fetched_ = new ArrayList<>();
+      public final ArrayList<ServerRequestCallback<SourceDocument>> pending_ =
+            new ArrayList<>();
+      public final ArrayList<SourceDocument> created_ = new ArrayList<>();
+      public final ArrayList<EditingTarget> loaded_ = new ArrayList<>();
+      public int contentsLoaded_;
+   }
+
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudioTests";
+   }
+
+   public void testLoadCreatesTargetOnce()
+   {
+      FakeHost host = new FakeHost();
+      DeferredEditingTarget target = new DeferredEditingTarget(
+            createDocument("a", "~/a.R", "x <- 1", false), null, null, host);
+      assertFalse(target.isLoaded());
+      assertEquals("a.R", target.getTitle());
+
+      target.load();
+      target.load();
+      assertTrue(target.isLoaded());
+      assertEquals(0, host.fetched_.size());
+      assertEquals(1, host.created_.size());
+      assertEquals(1, host.loaded_.size());
+      assertSame(host.loaded_.get(0), target.getTarget());
+   }
+
+   public void testDeferredContentsFetched()
+   {
+      FakeHost host = new FakeHost();
+      DeferredEditingTarget target = new DeferredEditingTarget(
+            createDocument("a", "~/a.R", "", true), null, null, host);
+
+      target.load();
+      target.load();
+      assertEquals(1, host.fetched_.size());
+      assertFalse(target.isLoaded());
+
+      host.respond("x <- 1");
+      assertTrue(target.isLoaded());
+      assertEquals("x <- 1", host.created_.get(0).getContents());
+   }
+
+   public void testCallsReplayedInOrder()
+   {
+      FakeHost host = new FakeHost();
+      DeferredEditingTarget target = new DeferredEditingTarget(
+            createDocument("a", "~/a.R", "", true), null, null, host);
+
+      target.onInitiallyLoaded();
+      target.load();
+      target.setCursorPosition(Position.create(3, 0));
+      target.focus();
+      assertFalse(target.isLoaded());
+
+      host.respond("x <- 1");
+      RecordingTarget loaded = (RecordingTarget) target.getTarget();
+      assertEquals(3, loaded.calls_.size());
+      assertEquals("loaded", loaded.calls_.get(0));
+      assertEquals("cursor 3", loaded.calls_.get(1));
+      assertEquals("focus", loaded.calls_.get(2));
+
+      // once loaded, calls are forwarded directly
+      target.focus();
+      assertEquals(4, loaded.calls_.size());
+   }
+
+   public void testFetchErrorAllowsRetry()
+   {
+      FakeHost host = new FakeHost();
+      DeferredEditingTarget target = new DeferredEditingTarget(
+            createDocument("a", "~/a.R", "", true), null, null, host);
+
+      target.load();
+      host.fail();
+      assertFalse(target.isLoaded());
+
+      target.load();
+      assertEquals(2, host.fetched_.size());
+      host.respond("x <- 1");
+      assertTrue(target.isLoaded());
+   }
+
+   public void testDismissedWhileLoading()
+   {
+      FakeHost host = new FakeHost();
+      DeferredEditingTarget target = new DeferredEditingTarget(
+            createDocument("a", "~/a.R", "", true), null, null, host);
+
+      target.load();
+      target.focus();
+      target.onDismiss(EditingTarget.DISMISS_TYPE_CLOSE);
+      host.respond("x <- 1");
+
+      assertFalse(target.isLoaded());
+      assertEquals(0, host.created_.size());
+      assertFalse(target.dirtyState().getValue());
+   }
+
+   public void testWhenLoadedLoadsTarget()
+   {
+      FakeHost host = new FakeHost();
+      DeferredEditingTarget target = new DeferredEditingTarget(
+            createDocument("a", "~/a.R", "", true), null, null, host);
+      final ArrayList<EditingTarget> received = new ArrayList<>();
+      CommandWithArg<EditingTarget> command = new CommandWithArg<EditingTarget>()
+      {
+         @Override
+         public void execute(EditingTarget loaded)
+         {
+            received.add(loaded);
+         }
+      };
+
+      target.whenLoaded(command, null);
+      assertEquals(1, host.fetched_.size());
+      assertEquals(0, received.size());
+
+      host.respond("x <- 1");
+      assertEquals(1, received.size());
+      assertSame(target.getTarget(), received.get(0));
+
+      // once loaded, the command is run directly
+      target.whenLoaded(command, null);
+      assertEquals(2, received.size());
+   }
+
+   public void testWhenLoadedDismissed()
+   {
+      FakeHost host = new FakeHost();
+      DeferredEditingTarget target = new DeferredEditingTarget(
+            createDocument("a", "~/a.R", "", true), null, null, host);
+      final ArrayList<String> calls = new ArrayList<>();
+      CommandWithArg<EditingTarget> command = new CommandWithArg<EditingTarget>()
+      {
+         @Override
+         public void execute(EditingTarget loaded)
+         {
+            calls.add("loaded");
+         }
+      };
+
+      target.whenLoaded(command, () -> calls.add("dismissed"));
+      target.onDismiss(EditingTarget.DISMISS_TYPE_CLOSE);
+      host.respond("x <- 1");
+      assertEquals(1, calls.size());
+      assertEquals("dismissed", calls.get(0));
+
+      // the document can't be loaded once it's closed
+      target.whenLoaded(command, () -> calls.add("dismissed"));
+      assertEquals(2, calls.size());
+      assertEquals("dismissed", calls.get(1));
+   }
+
+   static native SourceDocument createDocument(String id,
+                                               String path,
+                                               String contents,
+                                               boolean deferred) /*-{
+      return {
+         id: id,
+         path: path,
+         type: "r_source",
+         contents: contents,
+         contents_deferred: deferred,
+         dirty: false,
+         properties: {}
+      };
+   }-*/;
+}
@@ -0,0 +1,233 @@
+/*
+ * ObjectExplorerTreeModelTests.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.source.editors.explorer.view;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gwt.junit.client.GWTTestCase;
+
+public class ObjectExplorerTreeModelTests extends GWTTestCase
+{
+   private static class Node
+   {
+      public Node(Node parent, String name)
+      {
+         this.parent = parent;
+         this.name = name;
+         if (parent != null)
+            parent.children.add(this);
+      }
+
+      @Override
+      public String toString()
+      {
+         return name;
+      }
+
+      public final Node parent;
+      public final String name;
+      public final List<Node> children = new ArrayList<Node>();
+      public boolean expanded;
+   }
+
+   private static class FakeHost implements ObjectExplorerTreeModel.Host<Node>
+   {
+      @Override
+      public Node getParent(Node node)
+      {
+         return node.parent;
+      }
+
+      @Override
+      public boolean isExpanded(Node node)
+      {
+         return node.expanded;
+      }
+
+      @Override
+      public void getChildRows(Node node, List<Node> output)
+      {
+         output.addAll(node.children);
+      }
+
+      @Override
+      public boolean matches(Node node)
+      {
+         matchCount_++;
+         return node.name.contains(filter_);
+      }
+
+      public String filter_ = "";
+      public int matchCount_;
+   }
+
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudioTests";
+   }
+
+   // root
+   //   alpha
+   //     apple
+   //     banana
+   //   beta
+   //     cherry
+   //       alpaca
+   private Node createTree()
+   {
+      Node root = new Node(null, "root");
+      Node alpha = new Node(root, "alpha");
+      new Node(alpha, "apple");
+      new Node(alpha, "banana");
+      Node beta = new Node(root, "beta");
+      Node cherry = new Node(beta, "cherry");
+      new Node(cherry, "alpaca");
+      root.expanded = true;
+      return root;
+   }
+
+   public void testExpandAndCollapse()
+   {
+      Node root = createTree();
+      ObjectExplorerTreeModel<Node> model =
+            new ObjectExplorerTreeModel<Node>(new FakeHost());
+      model.reset(root, false);
+      assertEquals("root alpha beta", join(model.getRows()));
+
+      // expand 'beta', then 'cherry'
+      model.getRows().get(2).expanded = true;
+      model.update(2);
+      assertEquals("root alpha beta cherry", join(model.getRows()));
+
+      model.getRows().get(3).expanded = true;
+      model.update(3);
+      assertEquals("root alpha beta cherry alpaca", join(model.getRows()));
+
+      // collapsing 'beta' hides 'cherry', which stays expanded
+      model.getRows().get(2).expanded = false;
+      model.update(2);
+      assertEquals("root alpha beta", join(model.getRows()));
+
+      model.getRows().get(2).expanded = true;
+      model.update(2);
+      assertEquals("root alpha beta cherry alpaca", join(model.getRows()));
+   }
+
+   public void testChildrenAdded()
+   {
+      Node root = createTree();
+      ObjectExplorerTreeModel<Node> model =
+            new ObjectExplorerTreeModel<Node>(new FakeHost());
+
+      Node alpha = root.children.get(0);
+      alpha.expanded = true;
+      model.reset(root, false);
+      assertEquals("root alpha apple banana beta", join(model.getRows()));
+
+      new Node(alpha, "apricot");
+      model.update(1);
+      assertEquals("root alpha apple banana apricot beta", join(model.getRows()));
+   }
+
+   public void testFilterShowsContentsOfMatches()
+   {
+      Node root = createTree();
+      for (Node child : root.children)
+         child.expanded = true;
+      root.children.get(1).children.get(0).expanded = true;
+
+      FakeHost host = new FakeHost();
+      ObjectExplorerTreeModel<Node> model = new ObjectExplorerTreeModel<Node>(host);
+
+      host.filter_ = "al";
+      model.reset(root, true);
+      assertEquals("alpha apple banana alpaca", join(model.getRows()));
+
+      // narrowing only re-checks the rows already shown, other than those
+      // within a node that still matches
+      host.filter_ = "alp";
+      host.matchCount_ = 0;
+      model.narrow();
+      assertEquals("alpha apple banana alpaca", join(model.getRows()));
+      assertEquals(2, host.matchCount_);
+
+      host.filter_ = "alpa";
+      model.narrow();
+      assertEquals("alpaca", join(model.getRows()));
+   }
+
+   public void testCollapseWithUnrelatedMatchesFollowing()
+   {
+      // root
+      //   one (matches)
+      //     x
+      //   two
+      //     two-x (matches)
+      Node root = new Node(null, "root");
+      Node one = new Node(root, "one!");
+      new Node(one, "x");
+      Node two = new Node(root, "two");
+      new Node(two, "two-x!");
+      root.expanded = one.expanded = two.expanded = true;
+
+      FakeHost host = new FakeHost();
+      host.filter_ = "!";
+      ObjectExplorerTreeModel<Node> model = new ObjectExplorerTreeModel<Node>(host);
+      model.reset(root, true);
+      assertEquals("one! x two-x!", join(model.getRows()));
+
+      // 'two-x!' follows the rows beneath 'one!', but isn't one of them
+      one.expanded = false;
+      model.update(0);
+      assertEquals("one! two-x!", join(model.getRows()));
+   }
+
+   public void testNarrowOnlyChecksShownRows()
+   {
+      Node root = new Node(null, "root");
+      Node items = new Node(root, "items");
+      for (int i = 0; i < 100; i++)
+         new Node(items, "item" + i);
+      root.expanded = items.expanded = true;
+
+      FakeHost host = new FakeHost();
+      ObjectExplorerTreeModel<Node> model = new ObjectExplorerTreeModel<Node>(host);
+      host.filter_ = "item9";
+      model.reset(root, true);
+      assertEquals(11, model.getRows().size());
+
+      // extending the query can only remove rows, so only the rows already
+      // shown are checked again
+      host.matchCount_ = 0;
+      host.filter_ = "item99";
+      model.narrow();
+      assertEquals("item99", join(model.getRows()));
+      assertTrue(host.matchCount_ <= 11);
+   }
+
+   private static String join(List<Node> nodes)
+   {
+      StringBuilder builder = new StringBuilder();
+      for (int i = 0; i < nodes.size(); i++)
+      {
+         if (i > 0)
+            builder.append(' ');
+         builder.append(nodes.get(i).name);
+      }
+      return builder.toString();
+   }
+}
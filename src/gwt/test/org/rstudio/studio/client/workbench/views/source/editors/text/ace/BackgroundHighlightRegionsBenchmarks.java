@@ -0,0 +1,251 @@
+/*
+ * BackgroundHighlightRegionsBenchmarks.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.source.editors.text.ace;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.rstudio.core.client.Debug;
+
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Timings for chunk background markers on a large R Markdown document; run
+ * with "ant benchmark" rather than as part of the unit tests.
+ */
+public class BackgroundHighlightRegionsBenchmarks extends GWTTestCase
+{
+   // the previous highlighter's markers: one per highlighted row, kept in a
+   // row-indexed table which isn't shifted by edits, so every row from the
+   // edit onwards is reconciled with its new state
+   private static class RowMarkers
+   {
+      // returns the number of markers added or removed
+      public int update(String states)
+      {
+         int operations = 0;
+         int rowCount = Math.max(rowCount_, states.length());
+         for (int row = 0; row < rowCount; row++)
+         {
+            boolean highlighted = row < states.length() && states.charAt(row) == '#';
+            if (highlighted == markers_.containsKey(row))
+               continue;
+
+            if (highlighted)
+               markers_.put(row, new int[] { row, row });
+            else
+               markers_.remove(row);
+            operations++;
+         }
+         rowCount_ = states.length();
+         return operations;
+      }
+
+      public Collection<int[]> getMarkers()
+      {
+         return markers_.values();
+      }
+
+      private int rowCount_;
+      private final Map<Integer, int[]> markers_ = new HashMap<Integer, int[]>();
+   }
+
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudioTests";
+   }
+
+   public void testMarkerRendering()
+   {
+      String states = createStates();
+      int rowCount = states.length();
+
+      RowMarkers rowMarkers = new RowMarkers();
+      rowMarkers.update(states);
+
+      BackgroundHighlightRegionsTests.FakeHost regionHost =
+            new BackgroundHighlightRegionsTests.FakeHost(states);
+      BackgroundHighlightRegions regions = new BackgroundHighlightRegions(regionHost);
+      update(regions, regionHost);
+
+      // Ace's marker layer visits every marker on each render, clipping it
+      // to the visible rows; simulate scrolling through the document a
+      // screen at a time
+      long start = System.currentTimeMillis();
+      int rowDrawn = renderScroll(rowMarkers.getMarkers(), rowCount);
+      long rowElapsed = System.currentTimeMillis() - start;
+
+      start = System.currentTimeMillis();
+      int regionDrawn = renderScroll(regionHost.getMarkers(), rowCount);
+      long regionElapsed = System.currentTimeMillis() - start;
+
+      Debug.log("Chunk background markers (" + rowCount + " rows): " +
+                rowMarkers.getMarkers().size() + " per-row markers rendered in " +
+                rowElapsed + "ms, " + regionHost.getMarkerCount() +
+                " region markers rendered in " + regionElapsed + "ms (" +
+                SCREENS + " screens)");
+
+      assertEquals(CHUNKS * CHUNK_ROWS, rowMarkers.getMarkers().size());
+      assertEquals(CHUNKS, regionHost.getMarkerCount());
+      assertEquals(rowDrawn, regionDrawn);
+   }
+
+   public void testMarkerUpdates()
+   {
+      String states = createStates();
+      String shifted = "." + states;
+
+      RowMarkers rowMarkers = new RowMarkers();
+      rowMarkers.update(states);
+
+      BackgroundHighlightRegionsTests.FakeHost regionHost =
+            new BackgroundHighlightRegionsTests.FakeHost(states);
+      BackgroundHighlightRegions regions = new BackgroundHighlightRegions(regionHost);
+      update(regions, regionHost);
+
+      // an untimed pass first, so that neither approach is charged for
+      // warming up the JIT
+      editRowMarkers(rowMarkers, states, shifted);
+      editRegions(regions, regionHost, states, shifted);
+      int operations = regionHost.getOperations();
+      int signals = regionHost.getSignals();
+
+      long start = System.currentTimeMillis();
+      int[] rowResult = editRowMarkers(rowMarkers, states, shifted);
+      long rowElapsed = System.currentTimeMillis() - start;
+
+      start = System.currentTimeMillis();
+      int regionDrawn = editRegions(regions, regionHost, states, shifted);
+      long regionElapsed = System.currentTimeMillis() - start;
+      int regionOperations = regionHost.getOperations() - operations;
+      int regionSignals = regionHost.getSignals() - signals;
+
+      Debug.log("Chunk background marker updates (" + states.length() +
+                " rows, " + EDITS + " edits): per-row markers updated in " +
+                rowElapsed + "ms (" + rowResult[0] + " markers added or " +
+                "removed), region markers updated in " + regionElapsed +
+                "ms (" + regionOperations + " markers moved, " +
+                regionSignals + " marker layer signals)");
+
+      // each edit adds and removes a row marker at either end of every
+      // chunk, but only moves the chunk's region marker
+      assertEquals(EDITS * CHUNKS * 2, rowResult[0]);
+      assertEquals(EDITS * CHUNKS, regionOperations);
+      assertEquals(EDITS, regionSignals);
+      assertEquals(rowResult[1], regionDrawn);
+      assertEquals(states, regionHost.render());
+   }
+
+   // alternately inserts and removes a line at the top of the document,
+   // bringing the markers up to date and drawing the first screen after each
+   // edit; returns the number of markers added or removed and the number of
+   // highlighted rows drawn
+   private static int[] editRowMarkers(RowMarkers markers,
+                                       String states,
+                                       String shifted)
+   {
+      int operations = 0;
+      int drawn = 0;
+      for (int i = 0; i < EDITS; i++)
+      {
+         operations += markers.update(i % 2 == 0 ? shifted : states);
+         drawn += renderRows(markers.getMarkers(), 0, SCREEN_ROWS - 1);
+      }
+      return new int[] { operations, drawn };
+   }
+
+   // as above, returning the number of highlighted rows drawn
+   private static int editRegions(BackgroundHighlightRegions regions,
+                                  BackgroundHighlightRegionsTests.FakeHost host,
+                                  String states,
+                                  String shifted)
+   {
+      int drawn = 0;
+      for (int i = 0; i < EDITS; i++)
+      {
+         if (i % 2 == 0)
+         {
+            regions.onRowsInserted(0, 1);
+            host.setStates(shifted);
+         }
+         else
+         {
+            regions.onRowsRemoved(0, 1);
+            host.setStates(states);
+         }
+         update(regions, host);
+         drawn += renderRows(host.getMarkers(), 0, SCREEN_ROWS - 1);
+      }
+      return drawn;
+   }
+
+   // a large R Markdown document: chunks separated by lines of prose
+   private static String createStates()
+   {
+      StringBuilder builder = new StringBuilder();
+      for (int i = 0; i < CHUNKS; i++)
+      {
+         for (int j = 0; j < PROSE_ROWS; j++)
+            builder.append('.');
+         for (int j = 0; j < CHUNK_ROWS; j++)
+            builder.append('#');
+      }
+      return builder.toString();
+   }
+
+   // recomputes the regions a slice at a time, as the highlighter's worker does
+   private static void update(BackgroundHighlightRegions regions,
+                              BackgroundHighlightRegionsTests.FakeHost host)
+   {
+      int rowCount = host.getRowCount();
+      for (int row = 0; row < rowCount; row += 200)
+         regions.update(row, Math.min(row + 200, rowCount));
+   }
+
+   // returns the number of highlighted rows drawn
+   private static int renderScroll(Collection<int[]> markers, int rowCount)
+   {
+      int drawn = 0;
+      for (int screen = 0; screen < SCREENS; screen++)
+      {
+         int first = (screen * SCREEN_ROWS) % rowCount;
+         int last = Math.min(first + SCREEN_ROWS, rowCount) - 1;
+         drawn += renderRows(markers, first, last);
+      }
+      return drawn;
+   }
+
+   private static int renderRows(Collection<int[]> markers, int first, int last)
+   {
+      int drawn = 0;
+      for (int[] marker : markers)
+      {
+         int start = Math.max(marker[0], first);
+         int end = Math.min(marker[1], last);
+         if (start <= end)
+            drawn += end - start + 1;
+      }
+      return drawn;
+   }
+
+   private static final int CHUNKS = 500;
+   private static final int CHUNK_ROWS = 30;
+   private static final int PROSE_ROWS = 10;
+   private static final int EDITS = 200;
+   private static final int SCREENS = 400;
+   private static final int SCREEN_ROWS = 50;
+}
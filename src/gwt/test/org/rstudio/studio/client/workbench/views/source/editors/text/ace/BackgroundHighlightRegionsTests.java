@@ -0,0 +1,241 @@
+/*
+ * BackgroundHighlightRegionsTests.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.source.editors.text.ace;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.gwt.junit.client.GWTTestCase;
+
+public class BackgroundHighlightRegionsTests extends GWTTestCase
+{
+   // row states: '.' for text, '#' for highlighted, '?' for not yet computed
+   static class FakeHost implements BackgroundHighlightRegions.Host
+   {
+      public FakeHost(String states)
+      {
+         setStates(states);
+      }
+
+      public void setStates(String states)
+      {
+         states_ = states;
+      }
+
+      @Override
+      public int getRowCount()
+      {
+         return states_.length();
+      }
+
+      @Override
+      public boolean isKnown(int row)
+      {
+         return states_.charAt(row) != '?';
+      }
+
+      @Override
+      public boolean isHighlighted(int row)
+      {
+         return states_.charAt(row) == '#';
+      }
+
+      @Override
+      public int addMarker(int startRow, int endRow)
+      {
+         int id = nextId_++;
+         markers_.put(id, new int[] { startRow, endRow });
+         operations_++;
+         return id;
+      }
+
+      @Override
+      public void moveMarker(int markerId, int startRow, int endRow)
+      {
+         assertTrue(markers_.containsKey(markerId));
+         markers_.put(markerId, new int[] { startRow, endRow });
+         operations_++;
+      }
+
+      @Override
+      public void markersMoved()
+      {
+         signals_++;
+      }
+
+      @Override
+      public void removeMarker(int markerId)
+      {
+         assertNotNull(markers_.remove(markerId));
+         operations_++;
+      }
+
+      // the rows covered by markers, in the same form as the states
+      public String render()
+      {
+         char[] rows = new char[states_.length()];
+         for (int i = 0; i < rows.length; i++)
+            rows[i] = '.';
+         for (int[] marker : markers_.values())
+         {
+            for (int row = marker[0]; row <= marker[1]; row++)
+            {
+               assertEquals('.', rows[row]);
+               rows[row] = '#';
+            }
+         }
+         return new String(rows);
+      }
+
+      public int getMarkerCount()
+      {
+         return markers_.size();
+      }
+
+      public int getOperations()
+      {
+         return operations_;
+      }
+
+      public int getSignals()
+      {
+         return signals_;
+      }
+
+      public Collection<int[]> getMarkers()
+      {
+         return markers_.values();
+      }
+
+      private String states_;
+      private int nextId_ = 1;
+      private int operations_;
+      private int signals_;
+      private final Map<Integer, int[]> markers_ = new HashMap<Integer, int[]>();
+   }
+
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudioTests";
+   }
+
+   public void testOneMarkerPerRegion()
+   {
+      FakeHost host = new FakeHost("..###...##.#");
+      BackgroundHighlightRegions regions = new BackgroundHighlightRegions(host);
+      regions.update(0, host.getRowCount());
+
+      assertEquals(3, regions.size());
+      assertEquals(3, host.getMarkerCount());
+      assertEquals("..###...##.#", host.render());
+   }
+
+   public void testUnchangedRegionsKeepTheirMarkers()
+   {
+      FakeHost host = new FakeHost("..###...##..");
+      BackgroundHighlightRegions regions = new BackgroundHighlightRegions(host);
+      regions.update(0, host.getRowCount());
+
+      int operations = host.getOperations();
+      regions.update(0, host.getRowCount());
+      assertEquals(operations, host.getOperations());
+   }
+
+   public void testRegionGrowsAcrossUpdatedRange()
+   {
+      // the worker updates a few rows at a time; a chunk spanning the
+      // boundary between updates still gets a single marker
+      FakeHost host = new FakeHost(".####???????");
+      BackgroundHighlightRegions regions = new BackgroundHighlightRegions(host);
+      regions.update(0, 5);
+      assertEquals(".####.......", host.render());
+
+      host.setStates(".######.....");
+      regions.update(5, 12);
+      assertEquals(1, regions.size());
+      assertEquals(1, host.getMarkerCount());
+      assertEquals(".######.....", host.render());
+   }
+
+   public void testRegionsSplitAndJoin()
+   {
+      FakeHost host = new FakeHost("..#######...");
+      BackgroundHighlightRegions regions = new BackgroundHighlightRegions(host);
+      regions.update(0, host.getRowCount());
+
+      host.setStates("..###.###...");
+      regions.update(5, 6);
+      assertEquals(2, host.getMarkerCount());
+      assertEquals("..###.###...", host.render());
+
+      host.setStates("..#######...");
+      regions.update(5, 6);
+      assertEquals(1, host.getMarkerCount());
+      assertEquals("..#######...", host.render());
+   }
+
+   public void testRowsInsertedAndRemoved()
+   {
+      FakeHost host = new FakeHost("..###...##..");
+      BackgroundHighlightRegions regions = new BackgroundHighlightRegions(host);
+      regions.update(0, host.getRowCount());
+
+      // two rows inserted after row 3 (within the first region)
+      regions.onRowsInserted(3, 2);
+      host.setStates("..#####...##..");
+      assertEquals("..#####...##..", host.render());
+
+      // four rows following row 1 removed, taking most of the first region;
+      // row 1 now holds the end of the last removed row
+      regions.onRowsRemoved(1, 4);
+      host.setStates(".##...##..");
+      assertEquals(".##...##..", host.render());
+
+      int operations = host.getOperations();
+      regions.update(0, host.getRowCount());
+      assertEquals(operations, host.getOperations());
+   }
+
+   public void testMarkersMovedSignaledOncePerEdit()
+   {
+      FakeHost host = new FakeHost("#.#.#.#.#.");
+      BackgroundHighlightRegions regions = new BackgroundHighlightRegions(host);
+      regions.update(0, host.getRowCount());
+
+      // every region is moved, but the layer is only re-rendered once
+      regions.onRowsInserted(0, 1);
+      assertEquals(1, host.getSignals());
+
+      regions.onRowsRemoved(0, 1);
+      assertEquals(2, host.getSignals());
+
+      // nothing following the edit, so nothing to move
+      regions.onRowsInserted(9, 1);
+      assertEquals(2, host.getSignals());
+   }
+
+   public void testClear()
+   {
+      FakeHost host = new FakeHost("#.#.#");
+      BackgroundHighlightRegions regions = new BackgroundHighlightRegions(host);
+      regions.update(0, host.getRowCount());
+      regions.clear();
+
+      assertEquals(0, regions.size());
+      assertEquals(0, host.getMarkerCount());
+   }
+}
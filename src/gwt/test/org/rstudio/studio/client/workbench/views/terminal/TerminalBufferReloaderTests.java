@@ -0,0 +1,204 @@
+/*
+ * TerminalBufferReloaderTests.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.terminal;
+
+import java.util.ArrayList;
+
+import com.google.gwt.junit.client.GWTTestCase;
+
+public class TerminalBufferReloaderTests extends GWTTestCase
+{
+   // a server holding a saved buffer of the given chunks, whose responses
+   // are delivered when the test chooses
+   private static class FakeHost implements TerminalBufferReloader.Host
+   {
+      public FakeHost(String... chunks)
+      {
+         for (String chunk : chunks)
+            chunks_.add(chunk);
+      }
+
+      @Override
+      public void fetchChunk(int chunk, TerminalBufferReloader.ChunkCallback callback)
+      {
+         requested_.add(chunk);
+         pending_.add(new Object[] { chunk, callback });
+         maxInFlight_ = Math.max(maxInFlight_, pending_.size());
+      }
+
+      @Override
+      public void write(String chunk)
+      {
+         written_.append(chunk);
+      }
+
+      @Override
+      public void onComplete()
+      {
+         assertFalse(complete_);
+         complete_ = true;
+      }
+
+      @Override
+      public void onError(String message)
+      {
+         error_ = message;
+      }
+
+      // responds to the pending request at the given index
+      public void respond(int index)
+      {
+         Object[] request = pending_.remove(index);
+         int chunk = (Integer) request[0];
+         TerminalBufferReloader.ChunkCallback callback =
+               (TerminalBufferReloader.ChunkCallback) request[1];
+         if (failChunk_ == chunk)
+            callback.onError("failed");
+         else if (chunk < chunks_.size())
+            callback.onChunk(chunks_.get(chunk), chunk < chunks_.size() - 1);
+         else
+            callback.onChunk("", false);
+      }
+
+      // responds to all requests pending, as one round trip, in reverse
+      public void respondAll()
+      {
+         roundTrips_++;
+         for (int i = pending_.size() - 1; i >= 0; i--)
+            respond(i);
+      }
+
+      public final ArrayList<String> chunks_ = new ArrayList<>();
+      public final ArrayList<Integer> requested_ = new ArrayList<>();
+      public final ArrayList<Object[]> pending_ = new ArrayList<>();
+      public final StringBuilder written_ = new StringBuilder();
+      public int maxInFlight_;
+      public int roundTrips_;
+      public int failChunk_ = -1;
+      public boolean complete_;
+      public String error_;
+   }
+
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudioTests";
+   }
+
+   public void testSingleChunk()
+   {
+      FakeHost host = new FakeHost("hello");
+      TerminalBufferReloader reloader = new TerminalBufferReloader(host);
+      reloader.start();
+      host.respondAll();
+
+      assertEquals("hello", host.written_.toString());
+      assertTrue(host.complete_);
+      assertEquals(1, host.requested_.size());
+      assertFalse(reloader.isRunning());
+   }
+
+   public void testFirstChunkFetchedAlone()
+   {
+      FakeHost host = new FakeHost("a", "b", "c", "d", "e", "f");
+      TerminalBufferReloader reloader = new TerminalBufferReloader(host, 3);
+      reloader.start();
+      assertEquals(1, host.pending_.size());
+
+      host.respondAll();
+      assertEquals("a", host.written_.toString());
+      assertEquals(3, host.pending_.size());
+   }
+
+   public void testChunksWrittenInOrder()
+   {
+      FakeHost host = new FakeHost("a", "b", "c", "d", "e", "f", "g");
+      TerminalBufferReloader reloader = new TerminalBufferReloader(host, 3);
+      reloader.start();
+      host.respond(0);
+
+      // chunks 1, 2 and 3 are pending; 3 arrives first, then 1
+      host.respond(2);
+      assertEquals("a", host.written_.toString());
+      host.respond(0);
+      assertEquals("ab", host.written_.toString());
+      host.respond(0);
+      assertEquals("abcd", host.written_.toString());
+
+      while (!host.pending_.isEmpty())
+         host.respondAll();
+      assertEquals("abcdefg", host.written_.toString());
+      assertTrue(host.complete_);
+      assertTrue(host.maxInFlight_ <= 3);
+   }
+
+   public void testErrorStopsReload()
+   {
+      FakeHost host = new FakeHost("a", "b", "c", "d");
+      host.failChunk_ = 2;
+      TerminalBufferReloader reloader = new TerminalBufferReloader(host);
+      reloader.start();
+      host.respondAll();
+      host.respondAll();
+
+      assertEquals("failed", host.error_);
+      assertFalse(host.complete_);
+      assertFalse(reloader.isRunning());
+      assertEquals("a", host.written_.toString());
+   }
+
+   public void testCancelIgnoresLateResponses()
+   {
+      FakeHost host = new FakeHost("a", "b", "c");
+      TerminalBufferReloader reloader = new TerminalBufferReloader(host);
+      reloader.start();
+      host.respondAll();
+      reloader.cancel();
+      host.respondAll();
+
+      assertEquals("a", host.written_.toString());
+      assertFalse(host.complete_);
+   }
+
+   public void testChunksFetchedConcurrently()
+   {
+      // a long build's scrollback: 40 chunks
+      String[] chunks = new String[40];
+      StringBuilder expected = new StringBuilder();
+      for (int i = 0; i < chunks.length; i++)
+      {
+         chunks[i] = "chunk " + i + "\r\n";
+         expected.append(chunks[i]);
+      }
+
+      // one chunk in flight at a time needs a round trip per chunk
+      FakeHost sequential = new FakeHost(chunks);
+      new TerminalBufferReloader(sequential, 1).start();
+      while (!sequential.pending_.isEmpty())
+         sequential.respondAll();
+
+      FakeHost concurrent = new FakeHost(chunks);
+      new TerminalBufferReloader(concurrent).start();
+      while (!concurrent.pending_.isEmpty())
+         concurrent.respondAll();
+
+      assertEquals(expected.toString(), sequential.written_.toString());
+      assertEquals(expected.toString(), concurrent.written_.toString());
+      assertTrue(sequential.complete_);
+      assertTrue(concurrent.complete_);
+      assertEquals(chunks.length, sequential.roundTrips_);
+      assertTrue(concurrent.roundTrips_ * 3 < sequential.roundTrips_);
+   }
+}
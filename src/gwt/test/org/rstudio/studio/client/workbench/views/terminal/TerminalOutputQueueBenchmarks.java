@@ -0,0 +1,89 @@
+/*
+ * TerminalOutputQueueBenchmarks.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.terminal;
+
+import org.rstudio.core.client.Debug;
+
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Timings for TerminalOutputQueue; run with "ant benchmark" rather than as
+ * part of the unit tests.
+ */
+public class TerminalOutputQueueBenchmarks extends GWTTestCase
+{
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudioTests";
+   }
+
+   public void testTerminalOutput()
+   {
+      // synthetic output from cat'ing a large log: 200,000 lines of 80
+      // characters, arriving in packets of 20 lines, with the browser
+      // managing an animation frame every 200 packets while it's flooded
+      String line = TerminalOutputQueueTests.repeat('l', 78) + "\r\n";
+      StringBuilder builder = new StringBuilder();
+      for (int i = 0; i < 20; i++)
+         builder.append(line);
+      String packet = builder.toString();
+      int packets = 10000;
+
+      // previous approach: one write per packet
+      TerminalOutputQueueTests.FakeHost directHost = new TerminalOutputQueueTests.FakeHost();
+      long start = System.currentTimeMillis();
+      for (int i = 0; i < packets; i++)
+         directHost.write(packet);
+      long directElapsed = System.currentTimeMillis() - start;
+
+      // queued: one write per frame; the server pauses while we're behind,
+      // so packets only arrive while output isn't paused
+      TerminalOutputQueueTests.FakeHost host = new TerminalOutputQueueTests.FakeHost();
+      TerminalOutputQueue queue = new TerminalOutputQueue(host);
+      int maxPending = 0;
+      int frames = 0;
+      start = System.currentTimeMillis();
+      for (int i = 0; i < packets; )
+      {
+         for (int j = 0; j < 200 && i < packets && !host.paused_; j++, i++)
+         {
+            queue.accept(packet);
+            maxPending = Math.max(maxPending, queue.getPendingChars());
+         }
+         host.frame(queue);
+         frames++;
+      }
+      while (host.frameScheduled_)
+      {
+         host.frame(queue);
+         frames++;
+      }
+      long queuedElapsed = System.currentTimeMillis() - start;
+
+      Debug.log("Terminal output (" + packets * packet.length() + " chars, " +
+                packets + " packets): " + directHost.writes_ + " writes in " +
+                directElapsed + "ms writing each packet, " + host.writes_ +
+                " writes over " + frames + " frames in " + queuedElapsed +
+                "ms batching per frame; paused output " + host.pauses_ +
+                " times, at most " + maxPending + " chars pending");
+
+      assertEquals(directHost.written_.length(), host.written_.length());
+      assertEquals(directHost.written_.toString(), host.written_.toString());
+      assertTrue(host.writes_ * 20 < directHost.writes_);
+      assertTrue(maxPending <= TerminalOutputQueue.HIGH_WATER_CHARS + packet.length());
+      assertFalse(host.paused_);
+   }
+}
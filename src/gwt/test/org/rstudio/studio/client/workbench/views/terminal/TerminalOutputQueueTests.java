@@ -0,0 +1,189 @@
+/*
+ * TerminalOutputQueueTests.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.terminal;
+
+import com.google.gwt.junit.client.GWTTestCase;
+
+public class TerminalOutputQueueTests extends GWTTestCase
+{
+   static class FakeHost implements TerminalOutputQueue.Host
+   {
+      @Override
+      public void write(String output)
+      {
+         written_.append(output);
+         writes_++;
+      }
+
+      @Override
+      public void scheduleFrame()
+      {
+         assertFalse(frameScheduled_);
+         frameScheduled_ = true;
+      }
+
+      @Override
+      public void setOutputPaused(boolean paused)
+      {
+         assertTrue(paused != paused_);
+         paused_ = paused;
+         if (paused)
+            pauses_++;
+      }
+
+      // runs the animation frame, if one was requested
+      public void frame(TerminalOutputQueue queue)
+      {
+         if (frameScheduled_)
+         {
+            frameScheduled_ = false;
+            queue.onFrame();
+         }
+      }
+
+      public final StringBuilder written_ = new StringBuilder();
+      public int writes_;
+      public boolean frameScheduled_;
+      public boolean paused_;
+      public int pauses_;
+   }
+
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudioTests";
+   }
+
+   public void testIdleOutputWrittenImmediately()
+   {
+      FakeHost host = new FakeHost();
+      TerminalOutputQueue queue = new TerminalOutputQueue(host);
+
+      queue.accept("a");
+      assertEquals("a", host.written_.toString());
+
+      // output before the next frame is batched
+      queue.accept("b");
+      queue.accept("c");
+      assertEquals("a", host.written_.toString());
+
+      host.frame(queue);
+      assertEquals("abc", host.written_.toString());
+      assertEquals(2, host.writes_);
+
+      // nothing was pending, so the queue goes idle
+      host.frame(queue);
+      assertFalse(host.frameScheduled_);
+      queue.accept("d");
+      assertEquals("abcd", host.written_.toString());
+   }
+
+   public void testLargeOutputSpreadAcrossFrames()
+   {
+      FakeHost host = new FakeHost();
+      TerminalOutputQueue queue = new TerminalOutputQueue(host);
+
+      queue.accept("x");
+      String big = repeat('y', TerminalOutputQueue.MAX_FRAME_CHARS * 2 + 10);
+      queue.accept(big);
+
+      host.frame(queue);
+      assertEquals(1 + TerminalOutputQueue.MAX_FRAME_CHARS, host.written_.length());
+      host.frame(queue);
+      host.frame(queue);
+      assertEquals("x" + big, host.written_.toString());
+      assertEquals(0, queue.getPendingChars());
+   }
+
+   public void testSurrogatePairsNotSplit()
+   {
+      FakeHost host = new FakeHost();
+      TerminalOutputQueue queue = new TerminalOutputQueue(host);
+
+      queue.accept("x");
+      String text = repeat('y', TerminalOutputQueue.MAX_FRAME_CHARS - 1) +
+                    "\uD83D\uDE00" + "z";
+      queue.accept(text);
+
+      host.frame(queue);
+      assertEquals(TerminalOutputQueue.MAX_FRAME_CHARS, host.written_.length());
+      host.frame(queue);
+      assertEquals("x" + text, host.written_.toString());
+   }
+
+   public void testPausesAndResumesOutput()
+   {
+      FakeHost host = new FakeHost();
+      TerminalOutputQueue queue = new TerminalOutputQueue(host);
+
+      queue.accept("x");
+      String packet = repeat('p', 4096);
+      while (!host.paused_)
+         queue.accept(packet);
+      assertTrue(queue.getPendingChars() > TerminalOutputQueue.HIGH_WATER_CHARS);
+
+      while (host.paused_)
+         host.frame(queue);
+      assertTrue(queue.getPendingChars() < TerminalOutputQueue.LOW_WATER_CHARS);
+      assertEquals(1, host.pauses_);
+
+      queue.flush();
+      assertEquals(0, queue.getPendingChars());
+   }
+
+   public void testDiscardDropsPendingOutput()
+   {
+      FakeHost host = new FakeHost();
+      TerminalOutputQueue queue = new TerminalOutputQueue(host);
+
+      queue.accept("x");
+      String packet = repeat('p', 4096);
+      while (!host.paused_)
+         queue.accept(packet);
+
+      queue.discard();
+      assertEquals(0, queue.getPendingChars());
+      assertFalse(host.paused_);
+
+      host.frame(queue);
+      assertEquals("x", host.written_.toString());
+
+      // the queue is idle again
+      queue.accept("y");
+      assertEquals("xy", host.written_.toString());
+   }
+
+   public void testOutputQueuedBehindPendingOutput()
+   {
+      FakeHost host = new FakeHost();
+      TerminalOutputQueue queue = new TerminalOutputQueue(host);
+
+      queue.accept("a");
+      queue.accept("b");
+
+      // e.g. a status message written by the client
+      queue.accept("[Process completed]");
+      host.frame(queue);
+      assertEquals("ab[Process completed]", host.written_.toString());
+   }
+
+   static String repeat(char ch, int count)
+   {
+      StringBuilder builder = new StringBuilder();
+      for (int i = 0; i < count; i++)
+         builder.append(ch);
+      return builder.toString();
+   }
+}
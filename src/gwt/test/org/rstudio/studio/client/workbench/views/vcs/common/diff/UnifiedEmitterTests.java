@@ -0,0 +1,107 @@
+/*
+ * UnifiedEmitterTests.java
+ *
+ * Copyright (C) 2009-20 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.vcs.common.diff;
+
+import java.util.ArrayList;
+
+import com.google.gwt.junit.client.GWTTestCase;
+
+public class UnifiedEmitterTests extends GWTTestCase
+{
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudioTests";
+   }
+
+   private static final String DIFF =
+         "diff --git a/file.R b/file.R\n" +
+         "index 1111111..2222222 100644\n" +
+         "--- a/file.R\n" +
+         "+++ b/file.R\n" +
+         "@@ -1,3 +1,3 @@\n" +
+         " a\n" +
+         "-b\n" +
+         "+B\n" +
+         " c\n" +
+         "@@ -10,3 +10,4 @@\n" +
+         " j\n" +
+         "+J\n" +
+         " k\n" +
+         " l\n" +
+         "@@ -20,3 +21,2 @@\n" +
+         " t\n" +
+         "-u\n" +
+         " v\n";
+
+   private ArrayList<DiffChunk> parse()
+   {
+      UnifiedParser parser = new UnifiedParser(DIFF);
+      parser.nextFilePair();
+
+      ArrayList<DiffChunk> chunks = new ArrayList<DiffChunk>();
+      for (DiffChunk chunk; null != (chunk = parser.nextChunk());)
+         chunks.add(chunk);
+      return chunks;
+   }
+
+   private static ArrayList<Line> changes(DiffChunk chunk)
+   {
+      ArrayList<Line> lines = new ArrayList<Line>();
+      for (Line line : chunk.getLines())
+         if (line.getType() != Line.Type.Same)
+            lines.add(line);
+      return lines;
+   }
+
+   public void testContextChunksContainLines()
+   {
+      ArrayList<DiffChunk> chunks = parse();
+      assertEquals(3, chunks.size());
+
+      ArrayList<Line> lines = changes(chunks.get(1));
+      ArrayList<DiffChunk> context = UnifiedEmitter.getContextChunks(chunks, lines);
+      assertEquals(1, context.size());
+      assertSame(chunks.get(1), context.get(0));
+
+      lines.addAll(changes(chunks.get(2)));
+      context = UnifiedEmitter.getContextChunks(chunks, lines);
+      assertEquals(2, context.size());
+      assertSame(chunks.get(1), context.get(0));
+      assertSame(chunks.get(2), context.get(1));
+
+      assertEquals(0, UnifiedEmitter.getContextChunks(
+            chunks, new ArrayList<Line>()).size());
+   }
+
+   public void testPatchOmitsUnchangedHunks()
+   {
+      ArrayList<DiffChunk> chunks = parse();
+      ArrayList<Line> lines = changes(chunks.get(2));
+
+      UnifiedEmitter emitter = new UnifiedEmitter("file.R");
+      for (DiffChunk chunk : UnifiedEmitter.getContextChunks(chunks, lines))
+         emitter.addContext(chunk);
+      emitter.addDiffs(lines);
+
+      assertEquals("--- a/file.R\n" +
+                   "+++ b/file.R\n" +
+                   "@@ -20,3 +20,2 @@\n" +
+                   " t\n" +
+                   "-u\n" +
+                   " v\n",
+                   emitter.createPatch(true));
+   }
+}